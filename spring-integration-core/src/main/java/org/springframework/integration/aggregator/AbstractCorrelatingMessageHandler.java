@@ -44,6 +44,7 @@ import org.springframework.integration.store.MessageGroup;
 import org.springframework.integration.store.MessageGroupStore;
 import org.springframework.integration.store.MessageGroupStore.MessageGroupCallback;
 import org.springframework.integration.store.MessageStore;
+import org.springframework.integration.store.SequenceCheckingMessageGroup;
 import org.springframework.integration.store.SimpleMessageGroup;
 import org.springframework.integration.store.SimpleMessageStore;
 import org.springframework.integration.support.locks.DefaultLockRegistry;
@@ -381,11 +382,11 @@ public abstract class AbstractCorrelatingMessageHandler extends AbstractMessageP
 				}
 			}
 			MessageGroup messageGroup = messageStore.getMessageGroup(correlationKey);
-			if (this.sequenceAware) {
+			if (this.sequenceAware && !(messageGroup instanceof SequenceCheckingMessageGroup)) {
 				messageGroup = new SequenceAwareMessageGroup(messageGroup);
 			}
 
-			if (!messageGroup.isComplete() && messageGroup.canAdd(message)) {
+			if (!messageGroup.isComplete() && canAdd(messageGroup, message)) {
 				if (logger.isTraceEnabled()) {
 					logger.trace("Adding message to group [ " + messageGroup + "]");
 				}
@@ -415,6 +416,13 @@ public abstract class AbstractCorrelatingMessageHandler extends AbstractMessageP
 		}
 	}
 
+	private boolean canAdd(MessageGroup messageGroup, Message<?> message) {
+		if (this.sequenceAware && messageGroup instanceof SequenceCheckingMessageGroup) {
+			return ((SequenceCheckingMessageGroup) messageGroup).canAddInSequence(message);
+		}
+		return messageGroup.canAdd(message);
+	}
+
 	private void scheduleGroupToForceComplete(final MessageGroup messageGroup) {
 		final Long groupTimeout = this.obtainGroupTimeout(messageGroup);
 		/*
@@ -16,7 +16,6 @@
 
 package org.springframework.integration.aggregator;
 
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 
@@ -69,14 +68,14 @@ public class SequenceSizeReleaseStrategy implements ReleaseStrategy {
 
 		boolean canRelease = false;
 
-		Collection<Message<?>> messages = messageGroup.getMessages();
+		int size = messageGroup.size();
 
-		if (releasePartialSequences && !messages.isEmpty()) {
+		if (releasePartialSequences && size > 0) {
 
 			if (logger.isTraceEnabled()) {
 				logger.trace("Considering partial release of group [" + messageGroup + "]");
 			}
-			Message<?> minMessage = Collections.min(messages, this.comparator);
+			Message<?> minMessage = Collections.min(messageGroup.getMessages(), this.comparator);
 
 			int nextSequenceNumber = new IntegrationMessageHeaderAccessor(minMessage).getSequenceNumber();
 			int lastReleasedMessageSequence = messageGroup.getLastReleasedMessageSequenceNumber();
@@ -86,8 +85,6 @@ public class SequenceSizeReleaseStrategy implements ReleaseStrategy {
 			}
 		}
 		else {
-			int size = messages.size();
-
 			if (size == 0){
 				canRelease = true;
 			}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -115,6 +115,30 @@ public class MessageGroupQueue extends AbstractQueue<Message<?>> implements Bloc
 		}
 	}
 
+	/**
+	 * Wake up any threads waiting in {@link #poll(long, TimeUnit)} or {@link #take()}, so
+	 * that they re-check the store. Intended for use when messages are added to the
+	 * underlying store by other processes, e.g. by a change notification from a shared
+	 * database; without such notifications, a waiting consumer only sees those messages
+	 * after its wait times out.
+	 * @since 4.2
+	 */
+	public void signalMessagesAvailable() {
+		final Lock storeLock = this.storeLock;
+		try {
+			storeLock.lockInterruptibly();
+			try {
+				this.messageStoreNotEmpty.signalAll();
+			}
+			finally {
+				storeLock.unlock();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	@Override
 	public Iterator<Message<?>> iterator() {
 		return getMessages().iterator();
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.store;
+
+import org.springframework.messaging.Message;
+
+/**
+ * A {@link MessageGroup} that can check the sequence numbers of its messages itself,
+ * for example with its store, without all of its messages being loaded. A sequence
+ * aware correlating handler uses it instead of wrapping the group in a copy.
+ *
+ * @since 4.2
+ */
+public interface SequenceCheckingMessageGroup extends MessageGroup {
+
+	/**
+	 * Query if the message can be added to a sequence; it cannot be added if a message
+	 * with the same sequence number is already in the group, or if its sequence size
+	 * differs from that of the group.
+	 *
+	 * @param message The message.
+	 * @return true if the message can be added.
+	 */
+	boolean canAddInSequence(Message<?> message);
+
+}
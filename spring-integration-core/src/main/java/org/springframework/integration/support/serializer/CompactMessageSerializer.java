@@ -0,0 +1,626 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.support.serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.serializer.DefaultDeserializer;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.history.MessageHistory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.util.Assert;
+import org.springframework.util.SerializationUtils;
+
+/**
+ * A compact binary {@link Serializer} and {@link Deserializer} for {@link Message}s,
+ * an alternative to Java serialization of the whole message in persistent message stores.
+ * <p>
+ * The {@code id} and {@code timestamp} headers are written as primitives; well-known
+ * header names are written as a single byte; header values of common types ({@link String},
+ * {@link Integer}, {@link Long}, {@link Boolean}, {@link Double}, {@link UUID} and
+ * {@code byte[]}) are written with a one byte type tag. Additional header types can be
+ * registered with {@link #registerHeaderType(int, Class, HeaderValueCodec)}; any other
+ * {@link Serializable} value falls back to Java serialization and non-serializable values
+ * are dropped, as they are when a {@link MessageHeaders} is serialized.
+ * <p>
+ * The payload is length-prefixed and is compressed (Deflate) when its size reaches the
+ * {@link #setCompressionThreshold(int) compressionThreshold}.
+ * <p>
+ * When deserializing, data that does not start with this format's signature is delegated
+ * to the {@link #setFallbackDeserializer(Deserializer) fallbackDeserializer} (Java
+ * deserialization by default), so a store can be switched to this format while it still
+ * contains messages written with Java serialization.
+ *
+ * @since 4.2
+ */
+public class CompactMessageSerializer implements Serializer<Message<?>>, Deserializer<Message<?>> {
+
+	private static final Log logger = LogFactory.getLog(CompactMessageSerializer.class);
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final int SIGNATURE_1 = 0x53;
+
+	private static final int SIGNATURE_2 = 0x49;
+
+	private static final int VERSION = 1;
+
+	private static final int MESSAGE_GENERIC = 0;
+
+	private static final int MESSAGE_ERROR = 1;
+
+	private static final int FLAG_ID = 0x01;
+
+	private static final int FLAG_TIMESTAMP = 0x02;
+
+	private static final int FLAG_COMPRESSED = 0x04;
+
+	private static final int TYPE_NULL = 0;
+
+	private static final int TYPE_STRING = 1;
+
+	private static final int TYPE_INTEGER = 2;
+
+	private static final int TYPE_LONG = 3;
+
+	private static final int TYPE_BOOLEAN = 4;
+
+	private static final int TYPE_DOUBLE = 5;
+
+	private static final int TYPE_UUID = 6;
+
+	private static final int TYPE_BYTES = 7;
+
+	private static final int TYPE_SERIALIZED = 8;
+
+	/**
+	 * The lowest type id that can be used for a type registered with
+	 * {@link #registerHeaderType(int, Class, HeaderValueCodec)}.
+	 */
+	public static final int MIN_CUSTOM_TYPE_ID = 32;
+
+	/**
+	 * The highest type id that can be used for a type registered with
+	 * {@link #registerHeaderType(int, Class, HeaderValueCodec)}.
+	 */
+	public static final int MAX_CUSTOM_TYPE_ID = 127;
+
+	private static final int LITERAL_HEADER_NAME = 0xFF;
+
+	/*
+	 * The index of a name in this array is its wire representation; names can only be
+	 * appended in a new format version.
+	 */
+	private static final String[] WELL_KNOWN_HEADER_NAMES = {
+			MessageHeaders.CONTENT_TYPE,
+			MessageHeaders.REPLY_CHANNEL,
+			MessageHeaders.ERROR_CHANNEL,
+			IntegrationMessageHeaderAccessor.CORRELATION_ID,
+			IntegrationMessageHeaderAccessor.SEQUENCE_NUMBER,
+			IntegrationMessageHeaderAccessor.SEQUENCE_SIZE,
+			IntegrationMessageHeaderAccessor.SEQUENCE_DETAILS,
+			IntegrationMessageHeaderAccessor.EXPIRATION_DATE,
+			IntegrationMessageHeaderAccessor.PRIORITY,
+			IntegrationMessageHeaderAccessor.DUPLICATE_MESSAGE,
+			IntegrationMessageHeaderAccessor.ROUTING_SLIP,
+			MessageHistory.HEADER_NAME,
+			"JdbcMessageStore.SAVED",
+			"JdbcMessageStore.CREATED_DATE",
+			"JdbcChannelMessageStore.SAVED",
+			"JdbcChannelMessageStore.CREATED_DATE"
+	};
+
+	private static final Map<String, Integer> WELL_KNOWN_HEADER_INDEXES = new HashMap<String, Integer>();
+
+	static {
+		for (int i = 0; i < WELL_KNOWN_HEADER_NAMES.length; i++) {
+			WELL_KNOWN_HEADER_INDEXES.put(WELL_KNOWN_HEADER_NAMES[i], i);
+		}
+	}
+
+	private final Map<Class<?>, RegisteredType> registeredTypes = new LinkedHashMap<Class<?>, RegisteredType>();
+
+	private final Map<Integer, RegisteredType> registeredTypeIds = new HashMap<Integer, RegisteredType>();
+
+	private volatile int compressionThreshold = -1;
+
+	private volatile int compressionLevel = Deflater.BEST_SPEED;
+
+	private volatile Deserializer<Object> fallbackDeserializer = new DefaultDeserializer();
+
+	/**
+	 * Set the payload size (in bytes) at or above which the payload is compressed.
+	 * Default -1 (never compress).
+	 * @param compressionThreshold the threshold.
+	 */
+	public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	/**
+	 * Set the {@link Deflater} compression level; default {@link Deflater#BEST_SPEED}.
+	 * @param compressionLevel the level (0-9).
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		Assert.isTrue(compressionLevel >= Deflater.NO_COMPRESSION && compressionLevel <= Deflater.BEST_COMPRESSION,
+				"'compressionLevel' must be between 0 and 9");
+		this.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * Set the {@link Deserializer} used for data that was not written by this serializer;
+	 * defaults to a {@link DefaultDeserializer} (Java serialization).
+	 * @param fallbackDeserializer the deserializer.
+	 */
+	public void setFallbackDeserializer(Deserializer<Object> fallbackDeserializer) {
+		Assert.notNull(fallbackDeserializer, "'fallbackDeserializer' must not be null");
+		this.fallbackDeserializer = fallbackDeserializer;
+	}
+
+	/**
+	 * Register a {@link HeaderValueCodec} for header values of the provided type. The same
+	 * registrations (with the same ids) must be present when the data is deserialized.
+	 * @param typeId the id written to identify the type; between {@link #MIN_CUSTOM_TYPE_ID}
+	 * and {@link #MAX_CUSTOM_TYPE_ID}.
+	 * @param type the type.
+	 * @param codec the codec.
+	 * @param <T> the type.
+	 */
+	public <T> void registerHeaderType(int typeId, Class<T> type, HeaderValueCodec<T> codec) {
+		Assert.isTrue(typeId >= MIN_CUSTOM_TYPE_ID && typeId <= MAX_CUSTOM_TYPE_ID,
+				"'typeId' must be between " + MIN_CUSTOM_TYPE_ID + " and " + MAX_CUSTOM_TYPE_ID);
+		Assert.notNull(type, "'type' must not be null");
+		Assert.notNull(codec, "'codec' must not be null");
+		Assert.isTrue(!this.registeredTypeIds.containsKey(typeId), "Type id " + typeId + " is already registered");
+		RegisteredType registeredType = new RegisteredType(typeId, codec);
+		this.registeredTypes.put(type, registeredType);
+		this.registeredTypeIds.put(typeId, registeredType);
+	}
+
+	/**
+	 * Determine whether the data starts with the signature written by this serializer.
+	 * @param bytes the data.
+	 * @return true if the data was written by a {@link CompactMessageSerializer}.
+	 */
+	public static boolean isCompactMessage(byte[] bytes) {
+		return bytes != null && bytes.length > 2 && (bytes[0] & 0xFF) == SIGNATURE_1
+				&& (bytes[1] & 0xFF) == SIGNATURE_2;
+	}
+
+	@Override
+	public void serialize(Message<?> message, OutputStream outputStream) throws IOException {
+		DataOutputStream out = new DataOutputStream(outputStream);
+		MessageHeaders headers = message.getHeaders();
+		UUID id = headers.getId();
+		Long timestamp = headers.getTimestamp();
+		int payloadType = payloadType(message.getPayload());
+		byte[] payload = payloadType == TYPE_BYTES ? (byte[]) message.getPayload()
+				: payloadType == TYPE_STRING ? ((String) message.getPayload()).getBytes(UTF_8)
+				: SerializationUtils.serialize(message.getPayload());
+		boolean compress = this.compressionThreshold >= 0 && payload.length >= this.compressionThreshold;
+
+		int flags = (id != null ? FLAG_ID : 0) | (timestamp != null ? FLAG_TIMESTAMP : 0)
+				| (compress ? FLAG_COMPRESSED : 0);
+		out.writeByte(SIGNATURE_1);
+		out.writeByte(SIGNATURE_2);
+		out.writeByte(VERSION);
+		out.writeByte(message instanceof ErrorMessage ? MESSAGE_ERROR : MESSAGE_GENERIC);
+		out.writeByte(flags);
+		if (id != null) {
+			out.writeLong(id.getMostSignificantBits());
+			out.writeLong(id.getLeastSignificantBits());
+		}
+		if (timestamp != null) {
+			out.writeLong(timestamp);
+		}
+
+		List<Entry<String, Object>> headersToWrite = new ArrayList<Entry<String, Object>>(headers.size());
+		for (Entry<String, Object> entry : headers.entrySet()) {
+			String name = entry.getKey();
+			if (MessageHeaders.ID.equals(name) || MessageHeaders.TIMESTAMP.equals(name)) {
+				continue;
+			}
+			Object value = entry.getValue();
+			if (value == null || value instanceof Serializable || findRegisteredType(value) != null) {
+				headersToWrite.add(entry);
+			}
+			else if (logger.isDebugEnabled()) {
+				logger.debug("Header '" + name + "' with non-serializable value '" + value + "' is not serialized");
+			}
+		}
+		out.writeShort(headersToWrite.size());
+		for (Entry<String, Object> entry : headersToWrite) {
+			writeHeaderName(entry.getKey(), out);
+			writeValue(entry.getValue(), out);
+		}
+
+		out.writeByte(payloadType);
+		if (compress) {
+			byte[] compressed = compress(payload);
+			out.writeInt(payload.length);
+			out.writeInt(compressed.length);
+			out.write(compressed);
+		}
+		else {
+			out.writeInt(payload.length);
+			out.write(payload);
+		}
+		out.flush();
+	}
+
+	@Override
+	public Message<?> deserialize(InputStream inputStream) throws IOException {
+		PushbackInputStream pushbackStream = new PushbackInputStream(inputStream, 2);
+		int first = pushbackStream.read();
+		int second = pushbackStream.read();
+		if (first != SIGNATURE_1 || second != SIGNATURE_2) {
+			if (second >= 0) {
+				pushbackStream.unread(second);
+			}
+			if (first >= 0) {
+				pushbackStream.unread(first);
+			}
+			return (Message<?>) this.fallbackDeserializer.deserialize(pushbackStream);
+		}
+		DataInputStream in = new DataInputStream(pushbackStream);
+		int version = in.readUnsignedByte();
+		if (version != VERSION) {
+			throw new IOException("Unsupported message format version: " + version);
+		}
+		int messageType = in.readUnsignedByte();
+		int flags = in.readUnsignedByte();
+		UUID id = null;
+		if ((flags & FLAG_ID) != 0) {
+			id = new UUID(in.readLong(), in.readLong());
+		}
+		Long timestamp = null;
+		if ((flags & FLAG_TIMESTAMP) != 0) {
+			timestamp = in.readLong();
+		}
+
+		int headerCount = in.readUnsignedShort();
+		Map<String, Object> headers = new HashMap<String, Object>(headerCount + 2);
+		for (int i = 0; i < headerCount; i++) {
+			String name = readHeaderName(in);
+			headers.put(name, readValue(in));
+		}
+
+		int payloadType = in.readUnsignedByte();
+		int length = in.readInt();
+		byte[] payloadBytes;
+		if ((flags & FLAG_COMPRESSED) != 0) {
+			payloadBytes = decompress(readBytes(in), length);
+		}
+		else {
+			payloadBytes = readBytes(in, length);
+		}
+		Object payload = fromBytes(payloadType, payloadBytes);
+
+		MessageHeaders messageHeaders = new CompactMessageHeaders(headers, id, timestamp);
+		if (messageType == MESSAGE_ERROR && payload instanceof Throwable) {
+			return new ErrorMessage((Throwable) payload, messageHeaders);
+		}
+		return new GenericMessage<Object>(payload, messageHeaders);
+	}
+
+	private void writeHeaderName(String name, DataOutputStream out) throws IOException {
+		Integer index = WELL_KNOWN_HEADER_INDEXES.get(name);
+		if (index != null) {
+			out.writeByte(index);
+		}
+		else {
+			out.writeByte(LITERAL_HEADER_NAME);
+			writeBytes(name.getBytes(UTF_8), out);
+		}
+	}
+
+	private String readHeaderName(DataInputStream in) throws IOException {
+		int index = in.readUnsignedByte();
+		if (index == LITERAL_HEADER_NAME) {
+			return new String(readBytes(in), UTF_8);
+		}
+		if (index >= WELL_KNOWN_HEADER_NAMES.length) {
+			throw new IOException("Unknown header name index: " + index);
+		}
+		return WELL_KNOWN_HEADER_NAMES[index];
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void writeValue(Object value, DataOutputStream out) throws IOException {
+		if (value == null) {
+			out.writeByte(TYPE_NULL);
+			return;
+		}
+		int type = valueType(value);
+		out.writeByte(type);
+		switch (type) {
+			case TYPE_STRING:
+				writeBytes(((String) value).getBytes(UTF_8), out);
+				break;
+			case TYPE_INTEGER:
+				out.writeInt((Integer) value);
+				break;
+			case TYPE_LONG:
+				out.writeLong((Long) value);
+				break;
+			case TYPE_BOOLEAN:
+				out.writeBoolean((Boolean) value);
+				break;
+			case TYPE_DOUBLE:
+				out.writeDouble((Double) value);
+				break;
+			case TYPE_UUID:
+				out.writeLong(((UUID) value).getMostSignificantBits());
+				out.writeLong(((UUID) value).getLeastSignificantBits());
+				break;
+			case TYPE_BYTES:
+				writeBytes((byte[]) value, out);
+				break;
+			case TYPE_SERIALIZED:
+				writeBytes(SerializationUtils.serialize(value), out);
+				break;
+			default:
+				((HeaderValueCodec) findRegisteredType(value).codec).write(value, out);
+		}
+	}
+
+	private Object readValue(DataInputStream in) throws IOException {
+		int type = in.readUnsignedByte();
+		switch (type) {
+			case TYPE_NULL:
+				return null;
+			case TYPE_STRING:
+				return new String(readBytes(in), UTF_8);
+			case TYPE_INTEGER:
+				return in.readInt();
+			case TYPE_LONG:
+				return in.readLong();
+			case TYPE_BOOLEAN:
+				return in.readBoolean();
+			case TYPE_DOUBLE:
+				return in.readDouble();
+			case TYPE_UUID:
+				return new UUID(in.readLong(), in.readLong());
+			case TYPE_BYTES:
+				return readBytes(in);
+			case TYPE_SERIALIZED:
+				return SerializationUtils.deserialize(readBytes(in));
+			default:
+				RegisteredType registeredType = this.registeredTypeIds.get(type);
+				if (registeredType == null) {
+					throw new IOException("No HeaderValueCodec registered for type id: " + type);
+				}
+				return registeredType.codec.read(in);
+		}
+	}
+
+	private int valueType(Object value) {
+		if (value instanceof String) {
+			return TYPE_STRING;
+		}
+		else if (value instanceof Integer) {
+			return TYPE_INTEGER;
+		}
+		else if (value instanceof Long) {
+			return TYPE_LONG;
+		}
+		else if (value instanceof Boolean) {
+			return TYPE_BOOLEAN;
+		}
+		else if (value instanceof Double) {
+			return TYPE_DOUBLE;
+		}
+		else if (value instanceof UUID) {
+			return TYPE_UUID;
+		}
+		else if (value instanceof byte[]) {
+			return TYPE_BYTES;
+		}
+		RegisteredType registeredType = findRegisteredType(value);
+		if (registeredType != null) {
+			return registeredType.typeId;
+		}
+		return TYPE_SERIALIZED;
+	}
+
+	private RegisteredType findRegisteredType(Object value) {
+		if (this.registeredTypes.isEmpty()) {
+			return null;
+		}
+		RegisteredType registeredType = this.registeredTypes.get(value.getClass());
+		if (registeredType == null) {
+			for (Entry<Class<?>, RegisteredType> entry : this.registeredTypes.entrySet()) {
+				if (entry.getKey().isInstance(value)) {
+					return entry.getValue();
+				}
+			}
+		}
+		return registeredType;
+	}
+
+	private int payloadType(Object payload) {
+		if (payload instanceof byte[]) {
+			return TYPE_BYTES;
+		}
+		else if (payload instanceof String) {
+			return TYPE_STRING;
+		}
+		return TYPE_SERIALIZED;
+	}
+
+	private Object fromBytes(int payloadType, byte[] bytes) throws IOException {
+		switch (payloadType) {
+			case TYPE_BYTES:
+				return bytes;
+			case TYPE_STRING:
+				return new String(bytes, UTF_8);
+			case TYPE_SERIALIZED:
+				return SerializationUtils.deserialize(bytes);
+			default:
+				throw new IOException("Unknown payload type: " + payloadType);
+		}
+	}
+
+	private void writeBytes(byte[] bytes, DataOutputStream out) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private byte[] readBytes(DataInputStream in) throws IOException {
+		return readBytes(in, in.readInt());
+	}
+
+	private byte[] readBytes(DataInputStream in, int length) throws IOException {
+		if (length < 0) {
+			throw new IOException("Invalid length: " + length);
+		}
+		if (length <= in.available()) {
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			return bytes;
+		}
+		// the length may be corrupt; only allocate as much as is actually read
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(length, 4096));
+		byte[] buffer = new byte[Math.min(length, 4096)];
+		int remaining = length;
+		while (remaining > 0) {
+			int n = in.read(buffer, 0, Math.min(remaining, buffer.length));
+			if (n < 0) {
+				throw new EOFException("Length " + length + " exceeds the remaining input");
+			}
+			out.write(buffer, 0, n);
+			remaining -= n;
+		}
+		return out.toByteArray();
+	}
+
+	private byte[] compress(byte[] bytes) {
+		Deflater deflater = new Deflater(this.compressionLevel);
+		try {
+			deflater.setInput(bytes);
+			deflater.finish();
+			ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 16);
+			byte[] buffer = new byte[4096];
+			while (!deflater.finished()) {
+				int n = deflater.deflate(buffer);
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+	private byte[] decompress(byte[] compressed, int length) throws IOException {
+		// deflate cannot compress by more than 1032:1
+		if (length < 0 || length > compressed.length * 1032L) {
+			throw new IOException("Invalid uncompressed length: " + length);
+		}
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			byte[] bytes = new byte[length];
+			int offset = 0;
+			while (offset < length && !inflater.finished()) {
+				int n = inflater.inflate(bytes, offset, length - offset);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IOException("Truncated compressed payload");
+				}
+				offset += n;
+			}
+			return bytes;
+		}
+		catch (DataFormatException e) {
+			throw new IOException("Invalid compressed payload", e);
+		}
+		finally {
+			inflater.end();
+		}
+	}
+
+
+	/**
+	 * Strategy to write and read header values of a particular type.
+	 *
+	 * @param <T> the type.
+	 */
+	public interface HeaderValueCodec<T> {
+
+		void write(T value, DataOutput out) throws IOException;
+
+		T read(DataInput in) throws IOException;
+
+	}
+
+
+	private static final class RegisteredType {
+
+		private final int typeId;
+
+		private final HeaderValueCodec<?> codec;
+
+		private RegisteredType(int typeId, HeaderValueCodec<?> codec) {
+			this.typeId = typeId;
+			this.codec = codec;
+		}
+
+	}
+
+
+	/**
+	 * Restores the original {@code id} and {@code timestamp} headers.
+	 */
+	@SuppressWarnings("serial")
+	private static final class CompactMessageHeaders extends MessageHeaders {
+
+		private CompactMessageHeaders(Map<String, Object> headers, UUID id, Long timestamp) {
+			super(headers, id, timestamp);
+		}
+
+	}
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Provides classes supporting the serialization of messages, for example
+ * in persistent message stores.
+ */
+package org.springframework.integration.support.serializer;
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.util;
+
+/**
+ * A {@link Pool} with an adjustable limit, where {@link #getItem()} waits for an item
+ * to be released when the limit has been reached.
+ *
+ * @param <T> the item type.
+ *
+ * @since 4.2
+ */
+public interface BoundedPool<T> extends Pool<T> {
+
+	/**
+	 * Adjusts the pool size. When reducing the pool size, idle items are removed; if
+	 * there are not enough idle items, the pool shrinks as in-use items are released.
+	 * @param poolSize The desired pool size.
+	 */
+	void setPoolSize(int poolSize);
+
+	/**
+	 * Sets the time for which {@link #getItem()} waits if no item is available.
+	 * @param waitTimeout The wait timeout in milliseconds.
+	 */
+	void setWaitTimeout(long waitTimeout);
+
+	/**
+	 * Obtains an item from the pool, waiting at most the given time (instead of the
+	 * {@link #setWaitTimeout(long) waitTimeout}) for one to become available.
+	 * @param waitTimeout the time to wait in milliseconds; 0 to not wait.
+	 * @return the item, or null if none became available in time.
+	 */
+	T tryGetItem(long waitTimeout);
+
+}
@@ -0,0 +1,492 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.util;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.util.SimplePool.PoolItemCallback;
+import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link BoundedPool} for highly concurrent use; it has the same semantics as
+ * {@link SimplePool}, but checking items out and in does not take any locks:
+ * <ul>
+ * <li>the number of items in use is bounded by a semaphore;</li>
+ * <li>idle items are kept on a lock-free stack, so the most recently used (warmest)
+ * items are reused first;</li>
+ * <li>each thread first tries to reuse the item it last released, if it is still
+ * idle, without touching the shared stack.</li>
+ * </ul>
+ * Optionally, idle items are validated ({@link PoolItemCallback#isStale(Object)}) and
+ * those idle for longer than the {@link #setMaxIdleTime(long) maxIdleTime} are removed
+ * by a background task, rather than holding on to resources such as connections
+ * indefinitely. Items are still validated when checked out.
+ * <p>
+ * Items are identified by {@code equals()}, as with {@link SimplePool}.
+ *
+ * @param <T> the item type.
+ *
+ * @since 4.2
+ */
+public class ConcurrentPool<T> implements BoundedPool<T>, DisposableBean {
+
+	private static final int IDLE = 0;
+
+	private static final int IN_USE = 1;
+
+	private static final int REMOVED = 2;
+
+	protected final Log logger = LogFactory.getLog(this.getClass());
+
+	private final Semaphore permits = new Semaphore(0);
+
+	private final AtomicInteger poolSize = new AtomicInteger();
+
+	private final AtomicInteger targetPoolSize = new AtomicInteger();
+
+	private final AtomicReference<Node<T>> idleStack = new AtomicReference<Node<T>>();
+
+	private final AtomicInteger idleCount = new AtomicInteger();
+
+	private final AtomicInteger activeCount = new AtomicInteger();
+
+	private final ConcurrentMap<T, Entry<T>> allocated = new ConcurrentHashMap<T, Entry<T>>();
+
+	private final ThreadLocal<Entry<T>> lastReleased = new ThreadLocal<Entry<T>>();
+
+	private final PoolItemCallback<T> callback;
+
+	private volatile long waitTimeout = Long.MAX_VALUE;
+
+	private volatile long maxIdleTime;
+
+	private volatile long evictionInterval = 30000;
+
+	private volatile TaskScheduler taskScheduler;
+
+	private volatile ThreadPoolTaskScheduler privateScheduler;
+
+	private volatile ScheduledFuture<?> evictionFuture;
+
+	/**
+	 * Creates a ConcurrentPool with a specific limit.
+	 * @param poolSize The maximum number of items the pool supports; unlimited if not positive.
+	 * @param callback A {@link PoolItemCallback} implementation called during various
+	 * pool operations.
+	 */
+	public ConcurrentPool(int poolSize, PoolItemCallback<T> callback) {
+		Assert.notNull(callback, "'callback' must not be null");
+		int size = poolSize <= 0 ? Integer.MAX_VALUE : poolSize;
+		this.poolSize.set(size);
+		this.targetPoolSize.set(size);
+		this.permits.release(size);
+		this.callback = callback;
+	}
+
+	@Override
+	public synchronized void setPoolSize(int poolSize) {
+		// resizing is rare; the lock only serializes concurrent resizes
+		int delta = poolSize - this.poolSize.get();
+		this.targetPoolSize.addAndGet(delta);
+		if (delta > 0) {
+			this.poolSize.addAndGet(delta);
+			this.permits.release(delta);
+		}
+		else {
+			while (delta < 0) {
+				if (!this.permits.tryAcquire()) {
+					break;
+				}
+				Entry<T> entry = takeIdle();
+				if (entry == null) {
+					this.permits.release();
+					break;
+				}
+				doRemoveItem(entry);
+				this.poolSize.decrementAndGet();
+				delta++;
+			}
+		}
+		if (delta < 0 && logger.isDebugEnabled()) {
+			logger.debug(String.format("Pool is overcommitted by %d; items will be removed when returned", -delta));
+		}
+	}
+
+	@Override
+	public void setWaitTimeout(long waitTimeout) {
+		this.waitTimeout = waitTimeout;
+	}
+
+	/**
+	 * Idle items that have not been used for this time (in milliseconds) are removed
+	 * by the eviction task, which also removes stale idle items. Default 0 - idle items
+	 * are not evicted.
+	 * @param maxIdleTime the max idle time.
+	 */
+	public void setMaxIdleTime(long maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+		scheduleEviction();
+	}
+
+	/**
+	 * How often (in milliseconds) the eviction task runs. Default 30000.
+	 * @param evictionInterval the eviction interval.
+	 */
+	public void setEvictionInterval(long evictionInterval) {
+		Assert.isTrue(evictionInterval > 0, "'evictionInterval' must be positive");
+		this.evictionInterval = evictionInterval;
+		scheduleEviction();
+	}
+
+	/**
+	 * The scheduler to run the eviction task; by default, a single daemon thread is
+	 * created for the pool when eviction is enabled.
+	 * @param taskScheduler the task scheduler.
+	 */
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+		scheduleEviction();
+	}
+
+	@Override
+	public int getPoolSize() {
+		return this.poolSize.get();
+	}
+
+	@Override
+	public int getIdleCount() {
+		return Math.max(0, this.idleCount.get());
+	}
+
+	@Override
+	public int getActiveCount() {
+		return Math.max(0, this.activeCount.get());
+	}
+
+	@Override
+	public int getAllocatedCount() {
+		return this.allocated.size();
+	}
+
+	/**
+	 * Obtains an item from the pool; waits up to waitTime milliseconds (default infinity).
+	 * @throws MessagingException if no items become available in time.
+	 */
+	@Override
+	public T getItem() {
+		boolean permitted = false;
+		try {
+			try {
+				permitted = this.permits.tryAcquire(this.waitTimeout, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MessagingException("Interrupted awaiting a pooled resource", e);
+			}
+			if (!permitted) {
+				throw new IllegalStateException("Timed out while waiting to acquire a pool entry.");
+			}
+			return doGetItem();
+		}
+		catch (Exception e) {
+			if (permitted) {
+				this.permits.release();
+			}
+			if (e instanceof MessagingException) {
+				throw (MessagingException) e;
+			}
+			throw new MessagingException("Failed to obtain pooled item", e);
+		}
+	}
+
+	@Override
+	public T tryGetItem(long waitTimeout) {
+		boolean permitted;
+		try {
+			permitted = this.permits.tryAcquire(waitTimeout, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MessagingException("Interrupted awaiting a pooled resource", e);
+		}
+		if (!permitted) {
+			return null;
+		}
+		try {
+			return doGetItem();
+		}
+		catch (Exception e) {
+			this.permits.release();
+			if (e instanceof MessagingException) {
+				throw (MessagingException) e;
+			}
+			throw new MessagingException("Failed to obtain pooled item", e);
+		}
+	}
+
+	private T doGetItem() {
+		while (true) {
+			Entry<T> entry = this.lastReleased.get();
+			if (entry != null && entry.state.compareAndSet(IDLE, IN_USE)) {
+				this.idleCount.decrementAndGet();
+			}
+			else {
+				if (entry != null) {
+					this.lastReleased.remove();
+				}
+				entry = takeIdle();
+			}
+			if (entry == null) {
+				T item = this.callback.createForPool();
+				if (logger.isDebugEnabled()) {
+					logger.debug("Obtained new " + item + ".");
+				}
+				entry = new Entry<T>(item);
+				this.allocated.put(item, entry);
+				this.activeCount.incrementAndGet();
+				return item;
+			}
+			if (this.callback.isStale(entry.item)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Received a stale item " + entry.item + ", will attempt to get a new one.");
+				}
+				doRemoveItem(entry);
+				continue;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Obtained " + entry.item + " from pool.");
+			}
+			this.activeCount.incrementAndGet();
+			return entry.item;
+		}
+	}
+
+	/**
+	 * Returns an item to the pool.
+	 */
+	@Override
+	public void releaseItem(T item) {
+		Assert.notNull(item, "Item cannot be null");
+		Entry<T> entry = this.allocated.get(item);
+		Assert.isTrue(entry != null, "You can only release items that were obtained from the pool");
+		if (entry.state.get() != IN_USE) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Ignoring release of " + item + " back to the pool - not in use");
+			}
+			return;
+		}
+		int size = this.poolSize.get();
+		if (size > this.targetPoolSize.get() && this.poolSize.compareAndSet(size, size - 1)) {
+			this.activeCount.decrementAndGet();
+			doRemoveItem(entry);
+			return;
+		}
+		if (!entry.state.compareAndSet(IN_USE, IDLE)) {
+			// concurrent release of the same item
+			return;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Releasing " + item + " back to the pool");
+		}
+		entry.lastUsed = System.currentTimeMillis();
+		this.activeCount.decrementAndGet();
+		this.idleCount.incrementAndGet();
+		this.lastReleased.set(entry);
+		if (entry.inStack.compareAndSet(false, true)) {
+			push(entry);
+		}
+		this.permits.release();
+	}
+
+	@Override
+	public void removeAllIdleItems() {
+		Entry<T> entry;
+		while ((entry = takeIdle()) != null) {
+			doRemoveItem(entry);
+		}
+	}
+
+	/**
+	 * Stops the eviction task, if any, and removes all idle items.
+	 */
+	@Override
+	public synchronized void destroy() {
+		if (this.evictionFuture != null) {
+			this.evictionFuture.cancel(false);
+			this.evictionFuture = null;
+		}
+		if (this.privateScheduler != null) {
+			this.privateScheduler.shutdown();
+			this.privateScheduler = null;
+		}
+		removeAllIdleItems();
+	}
+
+	private void push(Entry<T> entry) {
+		Node<T> node = new Node<T>(entry);
+		Node<T> head;
+		do {
+			head = this.idleStack.get();
+			node.next = head;
+		}
+		while (!this.idleStack.compareAndSet(head, node));
+	}
+
+	/**
+	 * Pop entries until one can be claimed; entries already claimed by their
+	 * thread-affine user, or removed, are discarded. An entry's inStack flag is cleared
+	 * before it is claimed, so a concurrent release of an affine-claimed entry pushes
+	 * it again.
+	 * @return the claimed entry, or null if there are no idle entries.
+	 */
+	private Entry<T> takeIdle() {
+		while (true) {
+			Node<T> head = this.idleStack.get();
+			if (head == null) {
+				return null;
+			}
+			if (!this.idleStack.compareAndSet(head, head.next)) {
+				continue;
+			}
+			Entry<T> entry = head.entry;
+			entry.inStack.set(false);
+			if (entry.state.compareAndSet(IDLE, IN_USE)) {
+				this.idleCount.decrementAndGet();
+				return entry;
+			}
+		}
+	}
+
+	private void doRemoveItem(Entry<T> entry) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Removing " + entry.item + " from the pool");
+		}
+		entry.state.set(REMOVED);
+		this.allocated.remove(entry.item);
+		this.callback.removedFromPool(entry.item);
+	}
+
+	private synchronized void scheduleEviction() {
+		if (this.evictionFuture != null) {
+			this.evictionFuture.cancel(false);
+			this.evictionFuture = null;
+		}
+		if (this.maxIdleTime <= 0) {
+			return;
+		}
+		TaskScheduler scheduler = this.taskScheduler;
+		if (scheduler != null && this.privateScheduler != null) {
+			this.privateScheduler.shutdown();
+			this.privateScheduler = null;
+		}
+		if (scheduler == null) {
+			if (this.privateScheduler == null) {
+				ThreadPoolTaskScheduler privateScheduler = new ThreadPoolTaskScheduler();
+				privateScheduler.setThreadNamePrefix("pool-evictor-");
+				privateScheduler.setDaemon(true);
+				privateScheduler.initialize();
+				this.privateScheduler = privateScheduler;
+			}
+			scheduler = this.privateScheduler;
+		}
+		this.evictionFuture = scheduler.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				evictIdleItems();
+			}
+
+		}, this.evictionInterval);
+	}
+
+	/**
+	 * Remove idle items that are stale or have been idle for longer than the max idle time.
+	 */
+	void evictIdleItems() {
+		long expired = System.currentTimeMillis() - this.maxIdleTime;
+		Iterator<Entry<T>> iterator = this.allocated.values().iterator();
+		while (iterator.hasNext()) {
+			Entry<T> entry = iterator.next();
+			if (entry.state.get() != IDLE) {
+				continue;
+			}
+			boolean evict = entry.lastUsed < expired;
+			if (!evict) {
+				try {
+					evict = this.callback.isStale(entry.item);
+				}
+				catch (Exception e) {
+					logger.debug("Failed to validate " + entry.item, e);
+					evict = true;
+				}
+			}
+			// claim it first, so it cannot be checked out while being removed
+			if (evict && entry.state.compareAndSet(IDLE, IN_USE)) {
+				this.idleCount.decrementAndGet();
+				if (logger.isDebugEnabled()) {
+					logger.debug("Evicting idle " + entry.item);
+				}
+				doRemoveItem(entry);
+			}
+		}
+	}
+
+
+	private static final class Entry<T> {
+
+		private final T item;
+
+		private final AtomicInteger state = new AtomicInteger(IN_USE);
+
+		private final AtomicBoolean inStack = new AtomicBoolean();
+
+		private volatile long lastUsed = System.currentTimeMillis();
+
+		private Entry(T item) {
+			this.item = item;
+		}
+
+	}
+
+	private static final class Node<T> {
+
+		private final Entry<T> entry;
+
+		private Node<T> next;
+
+		private Node(Entry<T> entry) {
+			this.entry = entry;
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -40,7 +40,7 @@ import org.springframework.util.Assert;
  * @since 2.2
  *
  */
-public class SimplePool<T> implements Pool<T> {
+public class SimplePool<T> implements BoundedPool<T> {
 
 	protected final Log logger = LogFactory.getLog(this.getClass());
 
@@ -87,6 +87,7 @@ public class SimplePool<T> implements Pool<T> {
 	 * items are returned.
 	 * @param poolSize The desired target pool size.
 	 */
+	@Override
 	public synchronized void setPoolSize(int poolSize) {
 		int delta = poolSize - this.poolSize.get();
 		this.targetPoolSize.addAndGet(delta);
@@ -145,6 +146,7 @@ public class SimplePool<T> implements Pool<T> {
 	 * Default: infinity.
 	 * @param waitTimeout The wait timeout in milliseconds.
 	 */
+	@Override
 	public void setWaitTimeout(long waitTimeout) {
 		this.waitTimeout = waitTimeout;
 	}
@@ -179,6 +181,31 @@ public class SimplePool<T> implements Pool<T> {
 		}
 	}
 
+	@Override
+	public T tryGetItem(long waitTimeout) {
+		boolean permitted;
+		try {
+			permitted = this.permits.tryAcquire(waitTimeout, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MessagingException("Interrupted awaiting a pooled resource", e);
+		}
+		if (!permitted) {
+			return null;
+		}
+		try {
+			return doGetItem();
+		}
+		catch (Exception e) {
+			this.permits.release();
+			if (e instanceof MessagingException) {
+				throw (MessagingException) e;
+			}
+			throw new MessagingException("Failed to obtain pooled item", e);
+		}
+	}
+
 	private T doGetItem() {
 		T item = this.available.poll();
 		if (item != null && logger.isDebugEnabled()) {
@@ -23,6 +23,7 @@ import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
@@ -62,6 +63,27 @@ public class MessageGroupQueueTests {
 		assertEquals(0, queue.size());
 	}
 
+	@Test
+	public void testSignalMessagesAvailable() throws Exception {
+		SimpleMessageStore messageGroupStore = new SimpleMessageStore();
+		final MessageGroupQueue queue = new MessageGroupQueue(messageGroupStore, "FOO");
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		Future<Message<?>> result = executorService.submit(new Callable<Message<?>>() {
+
+			@Override
+			public Message<?> call() throws Exception {
+				return queue.poll(60, TimeUnit.SECONDS);
+			}
+
+		});
+		// simulate an insert by another process, bypassing the queue
+		Thread.sleep(100);
+		messageGroupStore.addMessageToGroup("FOO", new GenericMessage<String>("foo"));
+		queue.signalMessagesAvailable();
+		assertNotNull(result.get(10, TimeUnit.SECONDS));
+		executorService.shutdown();
+	}
+
 	@Test
 	public void testCapacityAfterExpiry() throws Exception {
 		SimpleMessageStore messageGroupStore = new SimpleMessageStore();
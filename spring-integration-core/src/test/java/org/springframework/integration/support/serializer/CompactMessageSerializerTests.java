@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.support.serializer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import org.springframework.core.serializer.DefaultSerializer;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.ErrorMessage;
+
+/**
+ * @since 4.2
+ */
+public class CompactMessageSerializerTests {
+
+	private final CompactMessageSerializer serializer = new CompactMessageSerializer();
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		UUID uuid = UUID.randomUUID();
+		Date date = new Date();
+		Message<String> message = MessageBuilder.withPayload("foo")
+				.setCorrelationId(uuid)
+				.setSequenceNumber(2)
+				.setSequenceSize(3)
+				.setHeader("string", "bar")
+				.setHeader("long", 42L)
+				.setHeader("bool", true)
+				.setHeader("double", 1.5d)
+				.setHeader("bytes", "baz".getBytes())
+				.setHeader("date", date)
+				.setHeader("null", null)
+				.setHeader("notSerializable", new Object())
+				.build();
+		Message<?> result = roundTrip(message);
+		assertEquals(message.getHeaders().getId(), result.getHeaders().getId());
+		assertEquals(message.getHeaders().getTimestamp(), result.getHeaders().getTimestamp());
+		assertEquals("foo", result.getPayload());
+		IntegrationMessageHeaderAccessor accessor = new IntegrationMessageHeaderAccessor(result);
+		assertEquals(uuid, accessor.getCorrelationId());
+		assertEquals(Integer.valueOf(2), accessor.getSequenceNumber());
+		assertEquals(Integer.valueOf(3), accessor.getSequenceSize());
+		assertEquals("bar", result.getHeaders().get("string"));
+		assertEquals(42L, result.getHeaders().get("long"));
+		assertEquals(Boolean.TRUE, result.getHeaders().get("bool"));
+		assertEquals(1.5d, result.getHeaders().get("double"));
+		assertArrayEquals("baz".getBytes(), (byte[]) result.getHeaders().get("bytes"));
+		assertEquals(date, result.getHeaders().get("date"));
+		assertFalse(result.getHeaders().containsKey("notSerializable"));
+	}
+
+	@Test
+	public void testSerializedPayloadAndErrorMessage() throws Exception {
+		Message<?> result = roundTrip(MessageBuilder.withPayload(Arrays.asList("foo", "bar")).build());
+		assertEquals(Arrays.asList("foo", "bar"), result.getPayload());
+		result = roundTrip(new ErrorMessage(new RuntimeException("foo")));
+		assertTrue(result instanceof ErrorMessage);
+		assertEquals("foo", ((ErrorMessage) result).getPayload().getMessage());
+	}
+
+	@Test
+	public void testCompression() throws Exception {
+		byte[] payload = new byte[10000];
+		Arrays.fill(payload, (byte) 'a');
+		Message<byte[]> message = MessageBuilder.withPayload(payload).build();
+		int uncompressedSize = serialize(message).length;
+		this.serializer.setCompressionThreshold(1024);
+		byte[] compressed = serialize(message);
+		assertThat(compressed.length, lessThan(uncompressedSize / 10));
+		Message<?> result = this.serializer.deserialize(new ByteArrayInputStream(compressed));
+		assertArrayEquals(payload, (byte[]) result.getPayload());
+	}
+
+	@Test
+	public void testCorruptLengthsAreRejected() throws Exception {
+		byte[] bytes = serialize(MessageBuilder.withPayload("foo").build());
+		// the payload length precedes the 3 payload bytes
+		int lengthOffset = bytes.length - 7;
+		ByteBuffer.wrap(bytes).putInt(lengthOffset, Integer.MAX_VALUE);
+		try {
+			this.serializer.deserialize(new ByteArrayInputStream(bytes));
+			fail("EOFException expected");
+		}
+		catch (EOFException e) {
+			assertThat(e.getMessage(), containsString("exceeds the remaining input"));
+		}
+		ByteBuffer.wrap(bytes).putInt(lengthOffset, -1);
+		try {
+			this.serializer.deserialize(new ByteArrayInputStream(bytes));
+			fail("IOException expected");
+		}
+		catch (IOException e) {
+			assertThat(e.getMessage(), containsString("Invalid length: -1"));
+		}
+	}
+
+	@Test
+	public void testSmallerThanJavaSerialization() throws Exception {
+		Message<String> message = MessageBuilder.withPayload("foo")
+				.setCorrelationId("bar")
+				.setSequenceNumber(1)
+				.setSequenceSize(1)
+				.build();
+		ByteArrayOutputStream java = new ByteArrayOutputStream();
+		new DefaultSerializer().serialize(message, java);
+		byte[] compact = serialize(message);
+		assertTrue(CompactMessageSerializer.isCompactMessage(compact));
+		assertThat(compact.length, lessThan(java.size() / 4));
+	}
+
+	@Test
+	public void testReadsJavaSerializedMessages() throws Exception {
+		Message<String> message = MessageBuilder.withPayload("foo").setHeader("bar", "baz").build();
+		ByteArrayOutputStream java = new ByteArrayOutputStream();
+		new DefaultSerializer().serialize(message, java);
+		assertFalse(CompactMessageSerializer.isCompactMessage(java.toByteArray()));
+		Message<?> result = this.serializer.deserialize(new ByteArrayInputStream(java.toByteArray()));
+		assertEquals(message, result);
+	}
+
+	@Test
+	public void testRegisteredHeaderType() throws Exception {
+		this.serializer.registerHeaderType(32, Foo.class, new CompactMessageSerializer.HeaderValueCodec<Foo>() {
+
+			@Override
+			public void write(Foo value, DataOutput out) throws IOException {
+				out.writeUTF(value.bar);
+			}
+
+			@Override
+			public Foo read(DataInput in) throws IOException {
+				return new Foo(in.readUTF());
+			}
+
+		});
+		Message<?> result = roundTrip(MessageBuilder.withPayload("foo").setHeader("foo", new Foo("baz")).build());
+		assertEquals("baz", result.getHeaders().get("foo", Foo.class).bar);
+	}
+
+	private Message<?> roundTrip(Message<?> message) throws IOException {
+		return this.serializer.deserialize(new ByteArrayInputStream(serialize(message)));
+	}
+
+	private byte[] serialize(Message<?> message) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		this.serializer.serialize(message, out);
+		return out.toByteArray();
+	}
+
+	private static class Foo {
+
+		private final String bar;
+
+		private Foo(String bar) {
+			this.bar = bar;
+		}
+
+	}
+
+}
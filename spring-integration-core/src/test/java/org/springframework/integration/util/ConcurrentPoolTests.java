@@ -0,0 +1,241 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.integration.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.integration.test.util.TestUtils;
+import org.springframework.messaging.MessagingException;
+
+/**
+ * @since 4.2
+ */
+public class ConcurrentPoolTests {
+
+	@Test
+	public void testReuseAndStale() {
+		final Set<String> strings = new HashSet<String>();
+		final AtomicBoolean stale = new AtomicBoolean();
+		ConcurrentPool<String> pool = stringPool(2, strings, stale);
+		String s1 = pool.getItem();
+		String s2 = pool.getItem();
+		assertNotSame(s1, s2);
+		pool.releaseItem(s1);
+		String s3 = pool.getItem();
+		assertSame(s1, s3);
+		stale.set(true);
+		pool.releaseItem(s3);
+		s3 = pool.getItem();
+		assertNotSame(s1, s3);
+		assertFalse(strings.remove(s1));
+		assertEquals(2, pool.getAllocatedCount());
+	}
+
+	@Test
+	public void testOverCommitAndResize() {
+		final Set<String> strings = new HashSet<String>();
+		final AtomicBoolean stale = new AtomicBoolean();
+		ConcurrentPool<String> pool = stringPool(2, strings, stale);
+		String s1 = pool.getItem();
+		pool.releaseItem(s1);
+		assertEquals(1, pool.getIdleCount());
+		assertEquals(0, pool.getActiveCount());
+		s1 = pool.getItem();
+		String s2 = pool.getItem();
+		assertNotSame(s1, s2);
+		pool.setWaitTimeout(1);
+		try {
+			pool.getItem();
+			fail("Expected exception");
+		}
+		catch (MessagingException e) {
+		}
+
+		// resize up
+		pool.setPoolSize(4);
+		String s3 = pool.getItem();
+		String s4 = pool.getItem();
+		assertEquals(4, pool.getActiveCount());
+		assertEquals(4, pool.getAllocatedCount());
+		pool.releaseItem(s4);
+		assertEquals(1, pool.getIdleCount());
+
+		// resize down
+		pool.setPoolSize(2);
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(3, pool.getActiveCount());
+		assertEquals(3, pool.getPoolSize());
+		pool.releaseItem(s3);
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(2, pool.getActiveCount());
+		assertEquals(2, pool.getPoolSize());
+		assertEquals(2, pool.getAllocatedCount());
+		pool.releaseItem(s2);
+		pool.releaseItem(s1);
+		assertEquals(2, pool.getIdleCount());
+		assertEquals(0, pool.getActiveCount());
+		assertEquals(2, strings.size());
+		pool.removeAllIdleItems();
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(0, pool.getAllocatedCount());
+		assertEquals(0, strings.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testForeignObject() {
+		ConcurrentPool<String> pool = stringPool(2, new HashSet<String>(), new AtomicBoolean());
+		pool.getItem();
+		pool.releaseItem("Hello, world!");
+	}
+
+	@Test
+	public void testDoubleReturn() {
+		ConcurrentPool<String> pool = stringPool(2, new HashSet<String>(), new AtomicBoolean());
+		Semaphore permits = TestUtils.getPropertyValue(pool, "permits", Semaphore.class);
+		String s1 = pool.getItem();
+		assertEquals(1, permits.availablePermits());
+		pool.releaseItem(s1);
+		assertEquals(2, permits.availablePermits());
+		pool.releaseItem(s1);
+		assertEquals(2, permits.availablePermits());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		final Set<String> strings = Collections.synchronizedSet(new HashSet<String>());
+		ConcurrentPool<String> pool = stringPool(3, strings, new AtomicBoolean());
+		String s1 = pool.getItem();
+		String s2 = pool.getItem();
+		pool.releaseItem(s1);
+		pool.setEvictionInterval(10);
+		pool.setMaxIdleTime(20);
+		int n = 0;
+		while (n++ < 200 && pool.getAllocatedCount() > 1) {
+			Thread.sleep(50);
+		}
+		assertEquals(1, pool.getAllocatedCount());
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(Collections.singleton(s2), strings);
+		pool.releaseItem(s2);
+		pool.destroy();
+		assertEquals(0, pool.getAllocatedCount());
+		assertTrue(strings.isEmpty());
+	}
+
+	@Test
+	public void testConcurrentCheckout() throws Exception {
+		final int poolSize = 4;
+		final AtomicInteger inUse = new AtomicInteger();
+		final AtomicInteger maxInUse = new AtomicInteger();
+		final ConcurrentPool<String> pool = stringPool(poolSize, Collections.synchronizedSet(new HashSet<String>()),
+				new AtomicBoolean());
+		ExecutorService exec = Executors.newFixedThreadPool(10);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int i = 0; i < 10; i++) {
+			futures.add(exec.submit(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					for (int j = 0; j < 10000; j++) {
+						String item = pool.getItem();
+						int current = inUse.incrementAndGet();
+						int max = maxInUse.get();
+						while (current > max && !maxInUse.compareAndSet(max, current)) {
+							max = maxInUse.get();
+						}
+						inUse.decrementAndGet();
+						pool.releaseItem(item);
+					}
+					return null;
+				}
+
+			}));
+		}
+		for (Future<Void> future : futures) {
+			future.get(30, TimeUnit.SECONDS);
+		}
+		exec.shutdown();
+		assertTrue(maxInUse.get() <= poolSize);
+		assertTrue(pool.getAllocatedCount() <= poolSize);
+		assertEquals(0, pool.getActiveCount());
+		assertEquals(pool.getAllocatedCount(), pool.getIdleCount());
+	}
+
+	@Test
+	public void testTryGetItem() {
+		final Set<String> strings = new HashSet<String>();
+		final AtomicBoolean stale = new AtomicBoolean();
+		ConcurrentPool<String> pool = stringPool(1, strings, stale);
+		String s1 = pool.tryGetItem(0);
+		assertNotNull(s1);
+		assertNull(pool.tryGetItem(0));
+		assertNull(pool.tryGetItem(10));
+		pool.releaseItem(s1);
+		assertSame(s1, pool.tryGetItem(0));
+	}
+
+	private ConcurrentPool<String> stringPool(int size, final Set<String> strings, final AtomicBoolean stale) {
+		return new ConcurrentPool<String>(size, new SimplePool.PoolItemCallback<String>() {
+
+			private final AtomicInteger i = new AtomicInteger();
+
+			@Override
+			public String createForPool() {
+				String string = new String("String" + i.getAndIncrement());
+				strings.add(string);
+				return string;
+			}
+
+			@Override
+			public boolean isStale(String item) {
+				if (stale.get()) {
+					strings.remove(item);
+				}
+				return stale.get();
+			}
+
+			@Override
+			public void removedFromPool(String item) {
+				strings.remove(item);
+			}
+
+		});
+	}
+
+}
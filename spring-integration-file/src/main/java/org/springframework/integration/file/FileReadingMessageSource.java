@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,6 +27,8 @@ import java.util.concurrent.PriorityBlockingQueue;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.Lifecycle;
 import org.springframework.integration.aggregator.ResequencingMessageGroupProcessor;
 import org.springframework.integration.context.IntegrationObjectSupport;
 import org.springframework.integration.core.MessageSource;
@@ -59,13 +61,18 @@ import org.springframework.util.Assert;
  * <p>
  * FileReadingMessageSource is fully thread-safe under concurrent
  * <code>receive()</code> invocations and message delivery callbacks.
+ * <p>
+ * If the {@link DirectoryScanner} is a {@link Lifecycle} (such as the
+ * {@link WatchServiceDirectoryScanner}), it is started and stopped with this source,
+ * and stopped when this source is destroyed.
  *
  * @author Iwein Fuld
  * @author Mark Fisher
  * @author Oleg Zhurakousky
  * @author Gary Russell
  */
-public class FileReadingMessageSource extends IntegrationObjectSupport implements MessageSource<File> {
+public class FileReadingMessageSource extends IntegrationObjectSupport implements MessageSource<File>,
+		Lifecycle, DisposableBean {
 
 	private static final int DEFAULT_INTERNAL_QUEUE_CAPACITY = 5;
 
@@ -89,6 +96,8 @@ public class FileReadingMessageSource extends IntegrationObjectSupport implement
 
 	private final ThreadLocal<FileMessageHolder> resources = new ThreadLocal<FileMessageHolder>();
 
+	private volatile boolean running;
+
 	/**
 	 * Creates a FileReadingMessageSource with a naturally ordered queue of unbounded capacity.
 	 */
@@ -242,6 +251,34 @@ public class FileReadingMessageSource extends IntegrationObjectSupport implement
 				"Source directory [" + this.directory + "] is not readable.");
 	}
 
+	@Override
+	public void start() {
+		if (this.scanner instanceof Lifecycle) {
+			((Lifecycle) this.scanner).start();
+		}
+		this.running = true;
+	}
+
+	@Override
+	public void stop() {
+		if (this.scanner instanceof Lifecycle) {
+			((Lifecycle) this.scanner).stop();
+		}
+		this.running = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	public void destroy() {
+		if (this.scanner instanceof Lifecycle) {
+			((Lifecycle) this.scanner).stop();
+		}
+	}
+
 	public Message<File> receive() throws MessagingException {
 		Message<File> message = null;
 
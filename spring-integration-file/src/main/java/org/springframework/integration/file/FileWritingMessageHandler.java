@@ -16,24 +16,35 @@
 
 package org.springframework.integration.file;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.expression.Expression;
 import org.springframework.expression.common.LiteralExpression;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.integration.expression.ExpressionUtils;
+import org.springframework.integration.file.support.FileChannelUtils;
 import org.springframework.integration.file.support.FileExistsMode;
 import org.springframework.integration.handler.AbstractReplyProducingMessageHandler;
 import org.springframework.integration.support.locks.DefaultLockRegistry;
@@ -67,6 +78,10 @@ import org.springframework.util.StringUtils;
  * Likewise, any Object can be converted to a String based on its
  * <code>toString()</code> method by the
  * {@link org.springframework.integration.transformer.ObjectToStringTransformer}.
+ * <p>
+ * When appending, set {@link #setMaxOpenFiles(int) maxOpenFiles} to keep files open
+ * between messages instead of opening and closing the file for each message; see
+ * that method for the flush policy.
  *
  * @author Mark Fisher
  * @author Iwein Fuld
@@ -77,10 +92,17 @@ import org.springframework.util.StringUtils;
  * @author Gary Russell
  * @author Tony Falabella
  */
-public class FileWritingMessageHandler extends AbstractReplyProducingMessageHandler {
+public class FileWritingMessageHandler extends AbstractReplyProducingMessageHandler
+		implements SmartLifecycle, DisposableBean {
 
 	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
+	private static final int DEFAULT_FLUSH_SIZE = 8192;
+
+	private static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
+	private static final long DEFAULT_IDLE_TIMEOUT = 60000;
+
 	private volatile String temporaryFileSuffix =".writing";
 
 	private volatile boolean temporaryFileSuffixSet = false;
@@ -109,6 +131,32 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 
 	private volatile LockRegistry lockRegistry = new PassThruLockRegistry();
 
+	private volatile int maxOpenFiles;
+
+	private volatile int flushSize = DEFAULT_FLUSH_SIZE;
+
+	private volatile long flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+	private volatile long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+	private volatile MessageFlushPredicate flushPredicate = new DefaultFlushPredicate();
+
+	/**
+	 * Open files, keyed by absolute path, in least recently used order; a file's state
+	 * is only used while holding the lock for its path.
+	 */
+	private final Map<String, FileState> fileStates = new LinkedHashMap<String, FileState>(16, 0.75f, true);
+
+	private final AtomicLong flushCount = new AtomicLong();
+
+	private final Object housekeepingMonitor = new Object();
+
+	private volatile ScheduledFuture<?> housekeeping;
+
+	private volatile boolean running;
+
+	private volatile boolean stopped;
+
 	/**
 	 * Constructor which sets the {@link #destinationDirectoryExpression} using
 	 * a {@link LiteralExpression}.
@@ -205,6 +253,78 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 		this.appendNewLine = appendNewLine;
 	}
 
+	/**
+	 * When appending ({@link FileExistsMode#APPEND}), keep up to this number of files
+	 * open between messages, closing the least recently used file when the limit is
+	 * exceeded. The limit is a soft cap: a file that another thread is writing is not
+	 * closed, so more files can be open briefly; they are closed when the limit is next
+	 * enforced, as a file is opened or by the housekeeping task. Data is buffered and
+	 * written to the file when {@link #setFlushSize(int) flushSize} bytes are pending,
+	 * when it has been pending for the {@link #setFlushInterval(long) flushInterval},
+	 * when the file is closed after the {@link #setIdleTimeout(long) idleTimeout}, on
+	 * {@link #trigger(Message)} or {@link #flushIfNeeded(FlushPredicate)}, or when the
+	 * handler is stopped. Data that has not been flushed is lost if the application
+	 * terminates abnormally, and open files should not be moved or deleted; flush them
+	 * first. Default 0 - each message opens and closes the file.
+	 * @param maxOpenFiles the maximum number of open files.
+	 * @since 4.2
+	 */
+	public void setMaxOpenFiles(int maxOpenFiles) {
+		Assert.isTrue(maxOpenFiles >= 0, "'maxOpenFiles' cannot be negative");
+		this.maxOpenFiles = maxOpenFiles;
+	}
+
+	/**
+	 * Set the number of pending bytes that causes an open file to be flushed; also
+	 * the size of each open file's buffer. Default 8192.
+	 * @param flushSize the flush size.
+	 * @since 4.2
+	 * @see #setMaxOpenFiles(int)
+	 */
+	public void setFlushSize(int flushSize) {
+		Assert.isTrue(flushSize > 0, "'flushSize' must be greater than 0");
+		this.flushSize = flushSize;
+	}
+
+	/**
+	 * Set the time (milliseconds) after which pending data is flushed to an open file;
+	 * 0 to flush only on size, close or request. The check is performed by a task on
+	 * the integration task scheduler, so data may be pending for up to twice this time.
+	 * Default 1000.
+	 * @param flushInterval the flush interval.
+	 * @since 4.2
+	 * @see #setMaxOpenFiles(int)
+	 */
+	public void setFlushInterval(long flushInterval) {
+		Assert.isTrue(flushInterval >= 0, "'flushInterval' cannot be negative");
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Set the time (milliseconds) after which an open file that has not been written to
+	 * is closed; 0 to only close files when the limit is exceeded, on request or when
+	 * the handler is stopped. Default 60000.
+	 * @param idleTimeout the idle timeout.
+	 * @since 4.2
+	 * @see #setMaxOpenFiles(int)
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		Assert.isTrue(idleTimeout >= 0, "'idleTimeout' cannot be negative");
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Set the predicate used by {@link #trigger(Message)} to select the open files to
+	 * flush and close. The default predicate treats a {@code String} payload as a regular
+	 * expression that is matched against the absolute path of each file.
+	 * @param flushPredicate the predicate.
+	 * @since 4.2
+	 */
+	public void setFlushPredicate(MessageFlushPredicate flushPredicate) {
+		Assert.notNull(flushPredicate, "'flushPredicate' cannot be null");
+		this.flushPredicate = flushPredicate;
+	}
+
 	protected String getTemporaryFileSuffix() {
 		return temporaryFileSuffix;
 	}
@@ -262,6 +382,131 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 		}
 	}
 
+	@Override
+	public void start() {
+		this.running = true;
+		this.stopped = false;
+		if (isKeepingFilesOpen()) {
+			scheduleHousekeeping();
+		}
+	}
+
+	/**
+	 * Stop the housekeeping task, and flush and close any open files; until the
+	 * handler is started again, files are closed after each write.
+	 */
+	@Override
+	public void stop() {
+		this.running = false;
+		this.stopped = true;
+		synchronized (this.housekeepingMonitor) {
+			if (this.housekeeping != null) {
+				this.housekeeping.cancel(false);
+				this.housekeeping = null;
+			}
+		}
+		flushIfNeeded(new FlushPredicate() {
+
+			@Override
+			public boolean shouldFlush(String fileAbsolutePath, long lastWrite) {
+				return true;
+			}
+
+		});
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return true;
+	}
+
+	/**
+	 * Stopped after the endpoints that send to it (and started before them).
+	 */
+	@Override
+	public int getPhase() {
+		return Integer.MIN_VALUE / 2;
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+
+	/**
+	 * Flush and close any open files, when the handler is a bean that is not
+	 * stopped as a {@link SmartLifecycle}.
+	 */
+	@Override
+	public void destroy() {
+		stop();
+	}
+
+	/**
+	 * @return the number of files currently held open.
+	 * @since 4.2
+	 * @see #setMaxOpenFiles(int)
+	 */
+	public int getOpenFileCount() {
+		synchronized (this.fileStates) {
+			return this.fileStates.size();
+		}
+	}
+
+	/**
+	 * @return the number of times pending data has been flushed to an open file
+	 * (including when it is closed).
+	 * @since 4.2
+	 * @see #setMaxOpenFiles(int)
+	 */
+	public long getFlushCount() {
+		return this.flushCount.get();
+	}
+
+	/**
+	 * Flush and close the open files selected by the {@link MessageFlushPredicate}.
+	 * @param message the message passed to the predicate.
+	 * @since 4.2
+	 * @see #setFlushPredicate(MessageFlushPredicate)
+	 */
+	public void trigger(final Message<?> message) {
+		final MessageFlushPredicate flushPredicate = this.flushPredicate;
+		flushIfNeeded(new FlushPredicate() {
+
+			@Override
+			public boolean shouldFlush(String fileAbsolutePath, long lastWrite) {
+				return flushPredicate.shouldFlush(fileAbsolutePath, lastWrite, message);
+			}
+
+		});
+	}
+
+	/**
+	 * Flush and close the open files selected by the predicate.
+	 * @param flushPredicate the predicate.
+	 * @since 4.2
+	 */
+	public void flushIfNeeded(FlushPredicate flushPredicate) {
+		for (FileState state : openFiles()) {
+			Lock lock = this.lockRegistry.obtain(state.path);
+			lock.lock();
+			try {
+				if (!state.closed && flushPredicate.shouldFlush(state.path, state.lastWrite)) {
+					close(state);
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+	}
+
 	private void validateDestinationDirectory(File destinationDirectory, boolean autoCreateDirectory) {
 
 		if (!destinationDirectory.exists() && autoCreateDirectory) {
@@ -357,36 +602,17 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 	}
 
 	private File handleFileMessage(final File sourceFile, File tempFile, final File resultFile) throws IOException {
+		if (isKeepingFilesOpen()) {
+			appendToOpenFile(resultFile, new FileInputStream(sourceFile), null);
+			this.cleanUpAfterCopy(resultFile, resultFile, sourceFile);
+			return resultFile;
+		}
 		if (FileExistsMode.APPEND.equals(this.fileExistsMode)) {
-			File fileToWriteTo = this.determineFileToWrite(resultFile, tempFile);
-			final BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(fileToWriteTo, true));
-			final BufferedInputStream bis = new BufferedInputStream(new FileInputStream(sourceFile));
+			final File fileToWriteTo = this.determineFileToWrite(resultFile, tempFile);
 			WhileLockedProcessor whileLockedProcessor = new WhileLockedProcessor(this.lockRegistry, fileToWriteTo.getAbsolutePath()){
 				@Override
 				protected void whileLocked() throws IOException {
-					try {
-						byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
-						int bytesRead = -1;
-						while ((bytesRead = bis.read(buffer)) != -1) {
-							bos.write(buffer, 0, bytesRead);
-						}
-						if (FileWritingMessageHandler.this.appendNewLine) {
-							bos.write(LINE_SEPARATOR.getBytes());
-						}
-						bos.flush();
-					}
-					finally {
-						try {
-							bis.close();
-						}
-						catch (IOException ex) {
-						}
-						try {
-							bos.close();
-						}
-						catch (IOException ex) {
-						}
-					}
+					FileChannelUtils.copy(sourceFile, fileToWriteTo, true, newLineIfRequired());
 				}
 			};
 			whileLockedProcessor.doWhileLocked();
@@ -404,38 +630,22 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 				}
 			}
 
-			BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(tempFile));
-			BufferedInputStream bis = new BufferedInputStream(new FileInputStream(sourceFile));
-
-			try {
-				byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
-				int bytesRead = -1;
-				while ((bytesRead = bis.read(buffer)) != -1) {
-					bos.write(buffer, 0, bytesRead);
-				}
-				if (this.appendNewLine) {
-					bos.write(LINE_SEPARATOR.getBytes());
-				}
-				bos.flush();
-			}
-			finally {
-				try {
-					bis.close();
-				}
-				catch (IOException ex) {
-				}
-				try {
-					bos.close();
-				}
-				catch (IOException ex) {
-				}
-			}
+			FileChannelUtils.copy(sourceFile, tempFile, false, newLineIfRequired());
 			this.cleanUpAfterCopy(tempFile, resultFile, sourceFile);
 			return resultFile;
 		}
 	}
 
+	private byte[] newLineIfRequired() {
+		return this.appendNewLine ? LINE_SEPARATOR.getBytes() : null;
+	}
+
 	private File handleByteArrayMessage(final byte[] bytes, File originalFile, File tempFile, final File resultFile) throws IOException {
+		if (isKeepingFilesOpen()) {
+			appendToOpenFile(resultFile, null, bytes);
+			this.cleanUpAfterCopy(resultFile, resultFile, originalFile);
+			return resultFile;
+		}
 		File fileToWriteTo = this.determineFileToWrite(resultFile, tempFile);
 
 		final boolean append = FileExistsMode.APPEND.equals(this.fileExistsMode);
@@ -466,6 +676,11 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 	}
 
 	private File handleStringMessage(final String content, File originalFile, File tempFile, final File resultFile) throws IOException {
+		if (isKeepingFilesOpen()) {
+			appendToOpenFile(resultFile, null, content.getBytes(this.charset));
+			this.cleanUpAfterCopy(resultFile, resultFile, originalFile);
+			return resultFile;
+		}
 		File fileToWriteTo = this.determineFileToWrite(resultFile, tempFile);
 
 		final boolean append = FileExistsMode.APPEND.equals(this.fileExistsMode);
@@ -497,6 +712,209 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 		return resultFile;
 	}
 
+	private boolean isKeepingFilesOpen() {
+		return this.maxOpenFiles > 0 && FileExistsMode.APPEND.equals(this.fileExistsMode) && !this.stopped;
+	}
+
+	/**
+	 * Append the stream (which is closed) or bytes to the open file, opening it if
+	 * necessary, and flush if enough data is pending.
+	 */
+	private void appendToOpenFile(final File file, final InputStream source, final byte[] bytes) throws IOException {
+		final String path = file.getAbsolutePath();
+		WhileLockedProcessor whileLockedProcessor = new WhileLockedProcessor(this.lockRegistry, path) {
+
+			@Override
+			protected void whileLocked() throws IOException {
+				FileState state = getFileState(file, path);
+				try {
+					if (source != null) {
+						byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+						int bytesRead = -1;
+						while ((bytesRead = source.read(buffer)) != -1) {
+							state.write(buffer, bytesRead);
+						}
+					}
+					else {
+						state.write(bytes, bytes.length);
+					}
+					if (FileWritingMessageHandler.this.appendNewLine) {
+						byte[] newLine = LINE_SEPARATOR.getBytes();
+						state.write(newLine, newLine.length);
+					}
+					if (FileWritingMessageHandler.this.stopped) {
+						// stopped while this write was in progress
+						close(state);
+					}
+					else if (state.pending >= FileWritingMessageHandler.this.flushSize) {
+						flush(state);
+					}
+				}
+				catch (IOException e) {
+					close(state);
+					throw e;
+				}
+				finally {
+					if (source != null) {
+						try {
+							source.close();
+						}
+						catch (IOException ex) {
+						}
+					}
+				}
+			}
+
+		};
+		whileLockedProcessor.doWhileLocked();
+	}
+
+	/**
+	 * Called with the lock for the path held.
+	 */
+	private FileState getFileState(File file, String path) throws IOException {
+		FileState state;
+		boolean opened = false;
+		synchronized (this.fileStates) {
+			state = this.fileStates.get(path);
+			if (state == null) {
+				state = new FileState(path,
+						new BufferedOutputStream(new FileOutputStream(file, true), this.flushSize));
+				this.fileStates.put(path, state);
+				opened = true;
+				closeLeastRecentlyUsed(path);
+			}
+		}
+		if (opened && this.housekeeping == null) {
+			scheduleHousekeeping();
+		}
+		return state;
+	}
+
+	/**
+	 * Close the least recently used files, over the limit, whose locks are available
+	 * immediately; busy files are closed later, so that we never wait for a lock while
+	 * holding another (and, until then, more than maxOpenFiles files are open). Called
+	 * with the fileStates monitor held.
+	 */
+	private void closeLeastRecentlyUsed(String currentPath) {
+		Iterator<FileState> iterator = this.fileStates.values().iterator();
+		while (this.fileStates.size() > this.maxOpenFiles && iterator.hasNext()) {
+			FileState state = iterator.next();
+			if (state.path.equals(currentPath)) {
+				continue;
+			}
+			Lock lock = this.lockRegistry.obtain(state.path);
+			if (lock.tryLock()) {
+				try {
+					iterator.remove();
+					closeStream(state);
+				}
+				finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	private void scheduleHousekeeping() {
+		synchronized (this.housekeepingMonitor) {
+			if (this.housekeeping != null || this.stopped) {
+				return;
+			}
+			long period = this.flushInterval;
+			if (this.idleTimeout > 0 && (period == 0 || this.idleTimeout < period)) {
+				period = this.idleTimeout;
+			}
+			if (period > 0 && getTaskScheduler() != null) {
+				this.housekeeping = getTaskScheduler().scheduleAtFixedRate(new Runnable() {
+
+					@Override
+					public void run() {
+						housekeep();
+					}
+
+				}, period);
+			}
+		}
+	}
+
+	/**
+	 * Flush files with data pending for longer than the flush interval and close idle
+	 * files.
+	 */
+	private void housekeep() {
+		synchronized (this.fileStates) {
+			if (this.fileStates.size() > this.maxOpenFiles) {
+				closeLeastRecentlyUsed(null);
+			}
+		}
+		for (FileState state : openFiles()) {
+			Lock lock = this.lockRegistry.obtain(state.path);
+			lock.lock();
+			try {
+				if (state.closed) {
+					continue;
+				}
+				long now = System.currentTimeMillis();
+				if (this.idleTimeout > 0 && now - state.lastWrite >= this.idleTimeout) {
+					close(state);
+				}
+				else if (this.flushInterval > 0 && state.pending > 0
+						&& now - state.firstPendingWrite >= this.flushInterval) {
+					flush(state);
+				}
+			}
+			catch (IOException e) {
+				logger.error("Failed to flush " + state.path, e);
+				close(state);
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private List<FileState> openFiles() {
+		synchronized (this.fileStates) {
+			return new ArrayList<FileState>(this.fileStates.values());
+		}
+	}
+
+	/**
+	 * Called with the lock for the state's path held.
+	 */
+	private void flush(FileState state) throws IOException {
+		state.stream.flush();
+		state.pending = 0;
+		this.flushCount.incrementAndGet();
+	}
+
+	/**
+	 * Called with the lock for the state's path held.
+	 */
+	private void close(FileState state) {
+		synchronized (this.fileStates) {
+			if (this.fileStates.get(state.path) == state) {
+				this.fileStates.remove(state.path);
+			}
+		}
+		closeStream(state);
+	}
+
+	private void closeStream(FileState state) {
+		state.closed = true;
+		if (state.pending > 0) {
+			this.flushCount.incrementAndGet();
+		}
+		try {
+			state.stream.close();
+		}
+		catch (IOException e) {
+			logger.error("Failed to close " + state.path, e);
+		}
+	}
+
 	private File determineFileToWrite(File resultFile, File tempFile){
 
 		final File fileToWriteTo;
@@ -582,4 +1000,84 @@ public class FileWritingMessageHandler extends AbstractReplyProducingMessageHand
 		return destinationDirectory;
 	}
 
+	/**
+	 * Selects open files to flush and close.
+	 * @since 4.2
+	 * @see FileWritingMessageHandler#flushIfNeeded(FlushPredicate)
+	 */
+	public interface FlushPredicate {
+
+		/**
+		 * @param fileAbsolutePath the path of an open file.
+		 * @param lastWrite the time of the last write to the file.
+		 * @return true if the file should be flushed and closed.
+		 */
+		boolean shouldFlush(String fileAbsolutePath, long lastWrite);
+
+	}
+
+	/**
+	 * Selects open files to flush and close, based on a message.
+	 * @since 4.2
+	 * @see FileWritingMessageHandler#trigger(Message)
+	 */
+	public interface MessageFlushPredicate {
+
+		/**
+		 * @param fileAbsolutePath the path of an open file.
+		 * @param lastWrite the time of the last write to the file.
+		 * @param filterMessage the message passed to {@code trigger()}.
+		 * @return true if the file should be flushed and closed.
+		 */
+		boolean shouldFlush(String fileAbsolutePath, long lastWrite, Message<?> filterMessage);
+
+	}
+
+	/**
+	 * Matches a {@code String} payload, as a regular expression, against the file path.
+	 */
+	private static class DefaultFlushPredicate implements MessageFlushPredicate {
+
+		@Override
+		public boolean shouldFlush(String fileAbsolutePath, long lastWrite, Message<?> filterMessage) {
+			Object payload = filterMessage.getPayload();
+			return payload instanceof String && fileAbsolutePath.matches((String) payload);
+		}
+
+	}
+
+	/**
+	 * An open file; only used while holding the lock for its path.
+	 */
+	private static final class FileState {
+
+		private final String path;
+
+		private final BufferedOutputStream stream;
+
+		private volatile long lastWrite;
+
+		private volatile long firstPendingWrite;
+
+		private volatile int pending;
+
+		private volatile boolean closed;
+
+		private FileState(String path, BufferedOutputStream stream) {
+			this.path = path;
+			this.stream = stream;
+		}
+
+		private void write(byte[] bytes, int length) throws IOException {
+			this.stream.write(bytes, 0, length);
+			long now = System.currentTimeMillis();
+			if (this.pending == 0) {
+				this.firstPendingWrite = now;
+			}
+			this.pending += length;
+			this.lastWrite = now;
+		}
+
+	}
+
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.Lifecycle;
+import org.springframework.messaging.MessagingException;
+
+/**
+ * A {@link DirectoryScanner} that lists the whole directory once, then uses a
+ * {@link WatchService} to return only the files created or modified since the previous
+ * scan, so the cost of a scan is proportional to the number of changes rather than the
+ * size of the directory. If the watch service loses events ({@code OVERFLOW}), the
+ * directory is listed again. The returned files are passed through the filter, as with
+ * the {@link DefaultDirectoryScanner}.
+ * <p>
+ * The directory is watched from the first scan, or from {@link #start()} if it is
+ * supplied to the constructor; {@link #stop()} (or {@link #destroy()}) releases the watch
+ * service. A {@link FileReadingMessageSource} passes its own start and stop on to the
+ * scanner, so a scanner set on the source (or declared as an inner bean) is stopped
+ * with the source's adapter. When
+ * {@link #setRecursive(boolean) recursive}, sub-directories (including those created
+ * later) are also watched and only files are returned, as with the
+ * {@link RecursiveLeafOnlyDirectoryScanner}.
+ * <p>
+ * Requires Java 7 or later.
+ *
+ * @since 4.2
+ */
+public class WatchServiceDirectoryScanner extends DefaultDirectoryScanner implements Lifecycle, DisposableBean {
+
+	private final Log logger = LogFactory.getLog(this.getClass());
+
+	private final Object monitor = new Object();
+
+	private final Set<File> pending = new LinkedHashSet<File>();
+
+	private volatile File directory;
+
+	private volatile boolean recursive;
+
+	private volatile WatchService watcher;
+
+	private volatile boolean running;
+
+	/**
+	 * Create a scanner that watches the directory passed to the first scan.
+	 */
+	public WatchServiceDirectoryScanner() {
+		super();
+	}
+
+	/**
+	 * Create a scanner that watches the directory from {@link #start()}.
+	 * @param directory the directory.
+	 */
+	public WatchServiceDirectoryScanner(File directory) {
+		super();
+		this.directory = directory;
+	}
+
+	/**
+	 * Set to true to watch sub-directories and return only files. Default false.
+	 * @param recursive true to watch sub-directories.
+	 */
+	public void setRecursive(boolean recursive) {
+		this.recursive = recursive;
+	}
+
+	@Override
+	public void start() {
+		synchronized (this.monitor) {
+			this.running = true;
+			if (this.watcher == null && this.directory != null) {
+				watch(this.directory);
+			}
+		}
+	}
+
+	@Override
+	public void stop() {
+		synchronized (this.monitor) {
+			this.running = false;
+			closeWatcher();
+			this.pending.clear();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	public void destroy() {
+		stop();
+	}
+
+	@Override
+	protected File[] listEligibleFiles(File directory) {
+		synchronized (this.monitor) {
+			if (this.watcher == null || !directory.equals(this.directory)) {
+				watch(directory);
+			}
+			else {
+				processEvents();
+			}
+			File[] files = this.pending.toArray(new File[this.pending.size()]);
+			this.pending.clear();
+			return files;
+		}
+	}
+
+	private void watch(File directory) {
+		closeWatcher();
+		this.directory = directory;
+		this.pending.clear();
+		try {
+			this.watcher = FileSystems.getDefault().newWatchService();
+		}
+		catch (IOException e) {
+			throw new MessagingException("Failed to create a WatchService for [" + directory + "]", e);
+		}
+		scan(directory);
+	}
+
+	/**
+	 * Register the directory (and, if recursive, its sub-directories) and add its
+	 * contents to the pending files; registering first ensures no file is missed.
+	 */
+	private void scan(File directory) {
+		try {
+			directory.toPath().register(this.watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+		}
+		catch (IOException e) {
+			throw new MessagingException("Failed to watch [" + directory + "]", e);
+		}
+		File[] files = directory.listFiles();
+		if (files == null) {
+			throw new MessagingException("The path [" + directory
+					+ "] does not denote a properly accessible directory.");
+		}
+		for (File file : files) {
+			if (this.recursive && file.isDirectory()) {
+				scan(file);
+			}
+			else {
+				this.pending.add(file);
+			}
+		}
+	}
+
+	private void processEvents() {
+		boolean overflow = false;
+		WatchKey key;
+		while ((key = this.watcher.poll()) != null) {
+			Path parent = (Path) key.watchable();
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == OVERFLOW) {
+					overflow = true;
+					continue;
+				}
+				File file = parent.resolve((Path) event.context()).toFile();
+				if (event.kind() == ENTRY_DELETE) {
+					this.pending.remove(file);
+				}
+				else if (this.recursive && file.isDirectory()) {
+					if (event.kind() == ENTRY_CREATE) {
+						scan(file);
+					}
+				}
+				else {
+					this.pending.add(file);
+				}
+			}
+			if (!key.reset() && this.logger.isDebugEnabled()) {
+				this.logger.debug("No longer watching [" + parent + "]");
+			}
+		}
+		if (overflow) {
+			if (this.logger.isInfoEnabled()) {
+				this.logger.info("Events were lost for [" + this.directory + "]; listing the directory again");
+			}
+			scan(this.directory);
+		}
+	}
+
+	private void closeWatcher() {
+		if (this.watcher != null) {
+			try {
+				this.watcher.close();
+			}
+			catch (IOException e) {
+				if (this.logger.isDebugEnabled()) {
+					this.logger.debug("Failed to close the WatchService", e);
+				}
+			}
+			this.watcher = null;
+		}
+	}
+
+}
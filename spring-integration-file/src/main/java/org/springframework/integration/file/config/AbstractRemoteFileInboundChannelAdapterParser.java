@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -47,6 +47,9 @@ public abstract class AbstractRemoteFileInboundChannelAdapterParser extends Abst
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(synchronizerBuilder, element, "remote-directory");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(synchronizerBuilder, element, "delete-remote-files");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(synchronizerBuilder, element, "preserve-timestamp");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(synchronizerBuilder, element, "max-concurrency");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(synchronizerBuilder, element, "max-fetch-size");
+		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(synchronizerBuilder, element, "task-executor");
 
 		String remoteFileSeparator = element.getAttribute("remote-file-separator");
 		synchronizerBuilder.addPropertyValue("remoteFileSeparator", remoteFileSeparator);
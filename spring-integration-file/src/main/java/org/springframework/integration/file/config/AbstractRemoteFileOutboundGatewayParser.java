@@ -78,6 +78,9 @@ public abstract class AbstractRemoteFileOutboundGatewayParser extends AbstractCo
 			builder.addPropertyValue("localFilenameGeneratorExpression", localFileGeneratorExpressionBuilder.getBeanDefinition());
 		}
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "mode", "fileExistsMode");
+		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "listing-cache");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "listing-concurrency");
+		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "task-executor");
 		return builder;
 	}
 
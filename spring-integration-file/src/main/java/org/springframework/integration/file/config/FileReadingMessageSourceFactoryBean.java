@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.integration.file.DirectoryScanner;
 import org.springframework.integration.file.FileReadingMessageSource;
@@ -38,7 +39,7 @@ import org.springframework.integration.file.locking.AbstractFileLockerFilter;
  * @since 1.0.3
  */
 public class FileReadingMessageSourceFactoryBean implements FactoryBean<FileReadingMessageSource>,
-		BeanFactoryAware {
+		BeanFactoryAware, DisposableBean {
 
 	private static Log logger = LogFactory.getLog(FileReadingMessageSourceFactoryBean.class);
 
@@ -123,6 +124,14 @@ public class FileReadingMessageSourceFactoryBean implements FactoryBean<FileRead
 		return true;
 	}
 
+	@Override
+	public void destroy() {
+		// the container doesn't destroy the objects created by a factory bean
+		if (this.source != null) {
+			this.source.destroy();
+		}
+	}
+
 	private void initSource() {
 		synchronized (this.initializationMonitor) {
 			if (this.source != null) {
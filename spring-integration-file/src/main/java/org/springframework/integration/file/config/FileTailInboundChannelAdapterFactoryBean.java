@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,7 +26,9 @@ import org.springframework.context.SmartLifecycle;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.integration.file.tail.ApacheCommonsFileTailingMessageProducer;
 import org.springframework.integration.file.tail.FileTailingMessageProducerSupport;
+import org.springframework.integration.file.tail.NioFileTailingMessageProducer;
 import org.springframework.integration.file.tail.OSDelegatingFileTailingMessageProducer;
+import org.springframework.integration.metadata.MetadataStore;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.Assert;
@@ -57,6 +59,10 @@ public class FileTailInboundChannelAdapterFactoryBean extends AbstractFactoryBea
 
 	private volatile Boolean reopen;
 
+	private volatile Boolean nio;
+
+	private volatile MetadataStore metadataStore;
+
 	private volatile FileTailingMessageProducerSupport adapter;
 
 	private volatile String beanName;
@@ -105,6 +111,14 @@ public class FileTailInboundChannelAdapterFactoryBean extends AbstractFactoryBea
 		this.reopen = reopen;
 	}
 
+	public void setNio(Boolean nio) {
+		this.nio = nio;
+	}
+
+	public void setMetadataStore(MetadataStore metadataStore) {
+		this.metadataStore = metadataStore;
+	}
+
 	@Override
 	public void setBeanName(String name) {
 		this.beanName = name;
@@ -178,7 +192,21 @@ public class FileTailInboundChannelAdapterFactoryBean extends AbstractFactoryBea
 	@Override
 	protected FileTailingMessageProducerSupport createInstance() throws Exception {
 		FileTailingMessageProducerSupport adapter;
-		if (this.delay == null && this.end == null && this.reopen == null) {
+		if (Boolean.TRUE.equals(this.nio) || this.metadataStore != null) {
+			Assert.isTrue(this.nativeOptions == null && this.reopen == null,
+					"'native-options' and 'reopen' are not allowed with 'nio' or 'metadata-store'");
+			adapter = new NioFileTailingMessageProducer();
+			if (this.delay != null) {
+				((NioFileTailingMessageProducer) adapter).setPollingDelay(this.delay);
+			}
+			if (this.end != null) {
+				((NioFileTailingMessageProducer) adapter).setEnd(this.end);
+			}
+			if (this.metadataStore != null) {
+				((NioFileTailingMessageProducer) adapter).setMetadataStore(this.metadataStore);
+			}
+		}
+		else if (this.delay == null && this.end == null && this.reopen == null) {
 			adapter = new OSDelegatingFileTailingMessageProducer();
 			if (this.nativeOptions != null) {
 				((OSDelegatingFileTailingMessageProducer) adapter).setOptions(this.nativeOptions);
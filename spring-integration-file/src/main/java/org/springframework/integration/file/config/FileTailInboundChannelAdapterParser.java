@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -48,6 +48,8 @@ public class FileTailInboundChannelAdapterParser extends AbstractChannelAdapterP
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "file-delay");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "end");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "reopen");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "nio");
+		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "metadata-store");
 		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "error-channel");
 
 		return builder.getBeanDefinition();
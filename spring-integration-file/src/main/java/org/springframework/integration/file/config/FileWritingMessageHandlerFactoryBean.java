@@ -18,6 +18,7 @@ package org.springframework.integration.file.config;
 
 import java.io.File;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.expression.Expression;
 import org.springframework.integration.config.AbstractSimpleMessageHandlerFactoryBean;
 import org.springframework.integration.file.FileNameGenerator;
@@ -38,7 +39,7 @@ import org.springframework.integration.file.support.FileExistsMode;
  * @since 1.0.3
  */
 public class FileWritingMessageHandlerFactoryBean 
-		extends AbstractSimpleMessageHandlerFactoryBean<FileWritingMessageHandler>{
+		extends AbstractSimpleMessageHandlerFactoryBean<FileWritingMessageHandler> implements DisposableBean {
 
 	private volatile File directory;
 
@@ -64,6 +65,16 @@ public class FileWritingMessageHandlerFactoryBean
 	
 	private volatile Boolean appendNewLine;
 
+	private volatile Integer maxOpenFiles;
+
+	private volatile Integer flushSize;
+
+	private volatile Long flushInterval;
+
+	private volatile Long idleTimeout;
+
+	private volatile FileWritingMessageHandler handler;
+
 	public void setFileExistsMode(String fileExistsModeAsString) {
 		this.fileExistsMode = FileExistsMode.getForString(fileExistsModeAsString);
 	}
@@ -111,6 +122,22 @@ public class FileWritingMessageHandlerFactoryBean
 	public void setAppendNewLine(Boolean appendNewLine) {
 		this.appendNewLine = appendNewLine;
 	}
+
+	public void setMaxOpenFiles(Integer maxOpenFiles) {
+		this.maxOpenFiles = maxOpenFiles;
+	}
+
+	public void setFlushSize(Integer flushSize) {
+		this.flushSize = flushSize;
+	}
+
+	public void setFlushInterval(Long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	public void setIdleTimeout(Long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
 	
 	@Override
 	protected FileWritingMessageHandler createHandler() {
@@ -157,8 +184,30 @@ public class FileWritingMessageHandlerFactoryBean
 		if (this.fileExistsMode != null) {
 			handler.setFileExistsMode(this.fileExistsMode);
 		}
-
+		if (this.maxOpenFiles != null) {
+			handler.setMaxOpenFiles(this.maxOpenFiles);
+		}
+		if (this.flushSize != null) {
+			handler.setFlushSize(this.flushSize);
+		}
+		if (this.flushInterval != null) {
+			handler.setFlushInterval(this.flushInterval);
+		}
+		if (this.idleTimeout != null) {
+			handler.setIdleTimeout(this.idleTimeout);
+		}
+		this.handler = handler;
 		return handler;
 	}
+
+	/**
+	 * Flush and close any files held open by the handler.
+	 */
+	@Override
+	public void destroy() {
+		if (this.handler != null) {
+			this.handler.stop();
+		}
+	}
 	
 }
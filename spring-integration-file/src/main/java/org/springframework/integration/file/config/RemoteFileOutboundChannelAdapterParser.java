@@ -42,6 +42,7 @@ public abstract class RemoteFileOutboundChannelAdapterParser extends AbstractOut
 
 		BeanDefinition templateDefinition = FileParserUtils.parseRemoteFileTemplate(element, parserContext, true,
 				getTemplateClass());
+		postProcessTemplate(element, templateDefinition);
 
 		handlerBuilder.addConstructorArgValue(templateDefinition);
 		String mode = element.getAttribute("mode");
@@ -53,4 +54,13 @@ public abstract class RemoteFileOutboundChannelAdapterParser extends AbstractOut
 
 	protected abstract Class<? extends RemoteFileOperations<?>> getTemplateClass();
 
+	/**
+	 * Subclasses can override to configure protocol-specific properties of the template.
+	 * @param element the element.
+	 * @param templateDefinition the template bean definition.
+	 * @since 4.2
+	 */
+	protected void postProcessTemplate(Element element, BeanDefinition templateDefinition) {
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,7 +33,7 @@ public abstract class AbstractFileListFilter<F> implements FileListFilter<F> {
      * {@inheritDoc}
      */
     @Override
-	public final List<F> filterFiles(F[] files) {
+	public List<F> filterFiles(F[] files) {
         List<F> accepted = new ArrayList<F>();
         if (files != null) {
             for (F file : files) {
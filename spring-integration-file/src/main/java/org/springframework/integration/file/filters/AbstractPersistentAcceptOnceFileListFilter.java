@@ -19,6 +19,7 @@ package org.springframework.integration.file.filters;
 import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.integration.metadata.ConcurrentMetadataStore;
@@ -29,6 +30,13 @@ import org.springframework.util.Assert;
  * The default key is 'prefix' plus the absolute file name; value is the timestamp of the file.
  * Files are deemed as already 'seen' if they exist in the store and have the
  * same modified time as the current file.
+ * <p>
+ * The store's atomic operations are relied upon for concurrent use, so filters do not
+ * serialize on a monitor. When {@link #setFlushOnUpdate(boolean) flushing on update},
+ * the store is flushed once for each {@link #filterFiles(Object[])} or
+ * {@link #rollback(Object, List)} call rather than for each file. An optional
+ * {@link #setLocalCacheCapacity(int) local cache} avoids calling the store for files
+ * that this filter has already seen.
  *
  * @author Gary Russell
  * @since 3.0
@@ -45,7 +53,7 @@ public abstract class AbstractPersistentAcceptOnceFileListFilter<F> extends Abst
 
 	protected volatile boolean flushOnUpdate;
 
-	private final Object monitor = new Object();
+	private volatile FileFingerprints localCache;
 
 	public AbstractPersistentAcceptOnceFileListFilter(ConcurrentMetadataStore store, String prefix) {
 		Assert.notNull(store, "'store' cannot be null");
@@ -69,25 +77,80 @@ public abstract class AbstractPersistentAcceptOnceFileListFilter<F> extends Abst
 		this.flushOnUpdate = flushOnUpdate;
 	}
 
+	/**
+	 * Set the number of files (identified by name and modified time) that have been
+	 * stored, or found in the store, to remember locally; such files are rejected
+	 * without calling the store. Default 0 (no local cache). Only use a cache if keys
+	 * are not removed from the store other than by {@link #rollback(Object, List)} on
+	 * this filter; a file removed from the store by others is not passed again until
+	 * it is evicted from the cache, or modified.
+	 * @param capacity the capacity.
+	 * @since 4.2
+	 */
+	public void setLocalCacheCapacity(int capacity) {
+		Assert.isTrue(capacity >= 0, "'capacity' cannot be negative");
+		this.localCache = capacity > 0
+				? new FileFingerprints(capacity, CompactAcceptOnceFileListFilter.DEFAULT_CONCURRENCY)
+				: null;
+	}
+
 	@Override
-	protected boolean accept(F file) {
-		String key = buildKey(file);
-		synchronized(monitor) {
-			String newValue = value(file);
-			String oldValue = this.store.putIfAbsent(key, newValue);
-			if (oldValue == null) { // not in store
-				flushIfNeeded();
-				return true;
+	public List<F> filterFiles(F[] files) {
+		List<F> accepted = new ArrayList<F>();
+		if (files != null) {
+			for (F file : files) {
+				if (doAccept(file)) {
+					accepted.add(file);
+				}
 			}
-			// same value in store
-			if (!isEqual(file, oldValue)) {
-				if (this.store.replace(key, oldValue, newValue)) {
-					flushIfNeeded();
-					return true;
-				};
+		}
+		if (accepted.size() > 0) {
+			flushIfNeeded();
+		}
+		return accepted;
+	}
+
+	@Override
+	protected boolean accept(F file) {
+		if (doAccept(file)) {
+			flushIfNeeded();
+			return true;
+		}
+		return false;
+	}
+
+	private boolean doAccept(F file) {
+		FileFingerprints localCache = this.localCache;
+		String name = null;
+		long modified = 0;
+		if (localCache != null) {
+			name = this.fileName(file);
+			modified = this.modified(file);
+			if (localCache.contains(name, modified)) {
+				return false;
 			}
-			return false;
 		}
+		String key = buildKey(file);
+		String newValue = value(file);
+		String oldValue = this.store.putIfAbsent(key, newValue);
+		boolean accepted;
+		boolean seen;
+		if (oldValue == null) { // not in store
+			accepted = true;
+			seen = true;
+		}
+		else if (isEqual(file, oldValue)) { // same value in store
+			accepted = false;
+			seen = true;
+		}
+		else {
+			accepted = this.store.replace(key, oldValue, newValue);
+			seen = accepted;
+		}
+		if (localCache != null && seen) {
+			localCache.add(name, modified);
+		}
+		return accepted;
 	}
 
 	/**
@@ -96,6 +159,7 @@ public abstract class AbstractPersistentAcceptOnceFileListFilter<F> extends Abst
 	 */
 	@Override
 	public void rollback(F file, List<F> files) {
+		FileFingerprints localCache = this.localCache;
 		boolean rollingBack = false;
 		for (F fileToRollback : files) {
 			if (fileToRollback.equals(file)) {
@@ -103,9 +167,14 @@ public abstract class AbstractPersistentAcceptOnceFileListFilter<F> extends Abst
 			}
 			if (rollingBack) {
 				this.store.remove(buildKey(fileToRollback));
-				flushIfNeeded();
+				if (localCache != null) {
+					localCache.remove(this.fileName(fileToRollback), this.modified(fileToRollback));
+				}
 			}
 		}
+		if (rollingBack) {
+			flushIfNeeded();
+		}
 	}
 
 	@Override
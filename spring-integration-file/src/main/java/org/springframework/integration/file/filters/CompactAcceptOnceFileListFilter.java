@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.filters;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * A {@link FileListFilter} that passes files only once, like the
+ * {@link AcceptOnceFileListFilter}, but remembers each file as a 64 bit fingerprint
+ * of its absolute path and modified time rather than as a {@link File}, so it can
+ * track millions of files in a fraction of the memory. Because the modified time is
+ * part of the fingerprint, a file that is changed is passed again.
+ * <p>
+ * The fingerprints are held in independently locked stripes, so concurrent scans do
+ * not contend on a single monitor. The oldest fingerprints are evicted when the
+ * (optional) capacity is reached, or when they are older than the (optional) maximum
+ * age; an evicted file is passed again if it is still present.
+ * <p>
+ * Distinct files may, very rarely, share a fingerprint, in which case the second file
+ * is not passed; use the {@link AcceptOnceFileListFilter} if that is not acceptable.
+ * <p>
+ * This implementation is thread safe.
+ *
+ * @since 4.2
+ */
+public class CompactAcceptOnceFileListFilter extends AbstractFileListFilter<File>
+		implements ReversibleFileListFilter<File> {
+
+	/**
+	 * The default number of stripes.
+	 */
+	public static final int DEFAULT_CONCURRENCY = 16;
+
+	private final FileFingerprints seen;
+
+	/**
+	 * Create a filter with no capacity limit.
+	 */
+	public CompactAcceptOnceFileListFilter() {
+		this(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Create a filter that remembers (approximately) at most {@code maxCapacity} files.
+	 * @param maxCapacity the maximum number of files to remember.
+	 */
+	public CompactAcceptOnceFileListFilter(int maxCapacity) {
+		this(maxCapacity, DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * Create a filter that remembers (approximately) at most {@code maxCapacity} files,
+	 * divided between at least {@code concurrency} independently locked stripes.
+	 * @param maxCapacity the maximum number of files to remember.
+	 * @param concurrency the number of stripes.
+	 */
+	public CompactAcceptOnceFileListFilter(int maxCapacity, int concurrency) {
+		this.seen = new FileFingerprints(maxCapacity, concurrency);
+	}
+
+	/**
+	 * Set the time after which a file is forgotten (and passed again if it is still
+	 * present); 0 (the default) for no limit. Without a maximum capacity, applies to files
+	 * passed after it is set; with one, applies to all the files remembered.
+	 * @param maxAge the maximum age in milliseconds.
+	 */
+	public void setMaxAge(long maxAge) {
+		this.seen.setMaxAge(maxAge);
+	}
+
+	/**
+	 * @return the number of files currently remembered.
+	 */
+	public int getSize() {
+		return this.seen.size();
+	}
+
+	@Override
+	protected boolean accept(File file) {
+		return this.seen.add(file.getAbsolutePath(), file.lastModified());
+	}
+
+	@Override
+	public void rollback(File file, List<File> files) {
+		boolean rollingBack = false;
+		for (File fileToRollback : files) {
+			if (fileToRollback.equals(file)) {
+				rollingBack = true;
+			}
+			if (rollingBack) {
+				this.seen.remove(fileToRollback.getAbsolutePath(), fileToRollback.lastModified());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.filters;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.util.Assert;
+
+/**
+ * A set of 64 bit fingerprints of file names and modified times, held in primitive
+ * open addressing tables (16 to 32 bytes per entry, plus 16 when entries can be
+ * evicted). The set is divided into independently locked stripes; when a capacity or
+ * maximum age is set, each stripe evicts its oldest entries in constant time.
+ * <p>
+ * Distinct files may (very rarely) share a fingerprint; with a million entries, the
+ * probability that a new file is mistaken for one already present is about 1 in 10^13.
+ *
+ * @since 4.2
+ */
+final class FileFingerprints {
+
+	private static final int INITIAL_TABLE_SIZE = 64;
+
+	private final Stripe[] stripes;
+
+	private final int stripeMask;
+
+	private volatile long maxAgeNanos;
+
+	/**
+	 * @param capacity the maximum number of fingerprints ({@link Integer#MAX_VALUE}
+	 * for no limit); divided evenly between the stripes, so entries may be evicted a
+	 * little before the set holds this many.
+	 * @param concurrency the minimum number of stripes; rounded up to a power of two.
+	 */
+	FileFingerprints(int capacity, int concurrency) {
+		Assert.isTrue(capacity > 0, "'capacity' must be greater than 0");
+		Assert.isTrue(concurrency > 0, "'concurrency' must be greater than 0");
+		int stripeCount = 1;
+		while (stripeCount < concurrency && stripeCount < capacity) {
+			stripeCount <<= 1;
+		}
+		this.stripes = new Stripe[stripeCount];
+		this.stripeMask = stripeCount - 1;
+		int stripeCapacity = capacity == Integer.MAX_VALUE
+				? Integer.MAX_VALUE
+				: (capacity + stripeCount - 1) / stripeCount;
+		for (int i = 0; i < stripeCount; i++) {
+			this.stripes[i] = new Stripe(stripeCapacity, capacity != Integer.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * Set the time after which fingerprints are evicted; 0 (the default) for no limit.
+	 * When there is no capacity, only fingerprints added after this is set are evicted
+	 * by age; with a capacity, the time each fingerprint was added is always recorded,
+	 * so existing fingerprints are evicted by age too.
+	 * @param maxAge the maximum age in milliseconds.
+	 */
+	void setMaxAge(long maxAge) {
+		Assert.isTrue(maxAge >= 0, "'maxAge' cannot be negative");
+		this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAge);
+	}
+
+	/**
+	 * Add a fingerprint.
+	 * @param name the file name.
+	 * @param modified the modified time.
+	 * @return true if it was not already present.
+	 */
+	boolean add(String name, long modified) {
+		long fingerprint = fingerprint(name, modified);
+		return stripeFor(fingerprint).add(fingerprint, System.nanoTime(), this.maxAgeNanos);
+	}
+
+	boolean contains(String name, long modified) {
+		long fingerprint = fingerprint(name, modified);
+		long maxAge = this.maxAgeNanos;
+		return stripeFor(fingerprint).contains(fingerprint, maxAge > 0 ? System.nanoTime() : 0, maxAge);
+	}
+
+	boolean remove(String name, long modified) {
+		long fingerprint = fingerprint(name, modified);
+		return stripeFor(fingerprint).remove(fingerprint);
+	}
+
+	int size() {
+		int size = 0;
+		for (Stripe stripe : this.stripes) {
+			size += stripe.size();
+		}
+		return size;
+	}
+
+	private Stripe stripeFor(long fingerprint) {
+		// the tables are indexed by the low order bits
+		return this.stripes[(int) (fingerprint >>> 40) & this.stripeMask];
+	}
+
+	static long fingerprint(String name, long modified) {
+		// 64 bit FNV-1a of the name, combined with the modified time
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < name.length(); i++) {
+			hash ^= name.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash = mix(hash ^ mix(modified));
+		// 0 marks an empty slot
+		return hash == 0 ? 1 : hash;
+	}
+
+	private static long mix(long value) {
+		long h = value;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+
+	/**
+	 * A linear probing hash table of fingerprints, with a ring buffer recording the
+	 * order (and time) in which they were added, when eviction is needed.
+	 */
+	private static final class Stripe {
+
+		private final int capacity;
+
+		private final boolean bounded;
+
+		private long[] table = new long[INITIAL_TABLE_SIZE];
+
+		private int size;
+
+		private long[] ring;
+
+		private long[] times;
+
+		private int head;
+
+		private int count;
+
+		Stripe(int capacity, boolean bounded) {
+			this.capacity = capacity;
+			this.bounded = bounded;
+		}
+
+		synchronized boolean add(long fingerprint, long now, long maxAge) {
+			expire(now, maxAge);
+			if (indexOf(fingerprint) >= 0) {
+				return false;
+			}
+			if (this.bounded || maxAge > 0) {
+				enqueue(fingerprint, now);
+			}
+			if ((this.size + 1) * 2 > this.table.length) {
+				resize(this.table.length * 2);
+			}
+			int mask = this.table.length - 1;
+			int i = (int) fingerprint & mask;
+			while (this.table[i] != 0) {
+				i = (i + 1) & mask;
+			}
+			this.table[i] = fingerprint;
+			this.size++;
+			return true;
+		}
+
+		synchronized boolean contains(long fingerprint, long now, long maxAge) {
+			expire(now, maxAge);
+			return indexOf(fingerprint) >= 0;
+		}
+
+		synchronized boolean remove(long fingerprint) {
+			int index = indexOf(fingerprint);
+			if (index < 0) {
+				return false;
+			}
+			removeAt(index);
+			clearRingSlot(fingerprint);
+			return true;
+		}
+
+		synchronized int size() {
+			return this.size;
+		}
+
+		private int indexOf(long fingerprint) {
+			int mask = this.table.length - 1;
+			int i = (int) fingerprint & mask;
+			long entry;
+			while ((entry = this.table[i]) != 0) {
+				if (entry == fingerprint) {
+					return i;
+				}
+				i = (i + 1) & mask;
+			}
+			return -1;
+		}
+
+		/**
+		 * Remove the entry at the index, shifting back any later entries in its probe
+		 * sequence so that no tombstone is needed.
+		 */
+		private void removeAt(int index) {
+			int mask = this.table.length - 1;
+			int hole = index;
+			int i = index;
+			while (true) {
+				i = (i + 1) & mask;
+				long entry = this.table[i];
+				if (entry == 0) {
+					break;
+				}
+				int home = (int) entry & mask;
+				boolean canMove = hole <= i
+						? home <= hole || home > i
+						: home <= hole && home > i;
+				if (canMove) {
+					this.table[hole] = entry;
+					hole = i;
+				}
+			}
+			this.table[hole] = 0;
+			this.size--;
+		}
+
+		private void resize(int length) {
+			long[] old = this.table;
+			this.table = new long[length];
+			int mask = length - 1;
+			for (long entry : old) {
+				if (entry != 0) {
+					int i = (int) entry & mask;
+					while (this.table[i] != 0) {
+						i = (i + 1) & mask;
+					}
+					this.table[i] = entry;
+				}
+			}
+		}
+
+		private void enqueue(long fingerprint, long now) {
+			if (this.ring == null) {
+				int length = Math.min(INITIAL_TABLE_SIZE, this.capacity);
+				this.ring = new long[length];
+				this.times = new long[length];
+			}
+			if (this.count == this.ring.length) {
+				if (this.ring.length < this.capacity) {
+					growRing();
+				}
+				else {
+					evictOldest();
+				}
+			}
+			int tail = (this.head + this.count) % this.ring.length;
+			this.ring[tail] = fingerprint;
+			this.times[tail] = now;
+			this.count++;
+		}
+
+		private void growRing() {
+			int length = (int) Math.min((long) this.ring.length * 2, this.capacity);
+			long[] ring = new long[length];
+			long[] times = new long[length];
+			for (int i = 0; i < this.count; i++) {
+				int from = (this.head + i) % this.ring.length;
+				ring[i] = this.ring[from];
+				times[i] = this.times[from];
+			}
+			this.ring = ring;
+			this.times = times;
+			this.head = 0;
+		}
+
+		/**
+		 * Clear the ring buffer slot of a removed entry, so that it does not evict the
+		 * entry if it is added again; the slot is released when it reaches the head.
+		 * Searches from the most recently added entry, since removed entries are usually
+		 * recent.
+		 */
+		private void clearRingSlot(long fingerprint) {
+			for (int i = this.count - 1; i >= 0; i--) {
+				int slot = (this.head + i) % this.ring.length;
+				if (this.ring[slot] == fingerprint) {
+					this.ring[slot] = 0;
+					return;
+				}
+			}
+		}
+
+		private void expire(long now, long maxAge) {
+			if (maxAge > 0) {
+				while (this.count > 0 && now - this.times[this.head] > maxAge) {
+					evictOldest();
+				}
+			}
+		}
+
+		private void evictOldest() {
+			long fingerprint = this.ring[this.head];
+			// 0 marks the slot of an entry that was removed
+			if (fingerprint != 0) {
+				int index = indexOf(fingerprint);
+				if (index >= 0) {
+					removeAt(index);
+				}
+			}
+			this.head = (this.head + 1) % this.ring.length;
+			this.count--;
+		}
+
+	}
+
+}
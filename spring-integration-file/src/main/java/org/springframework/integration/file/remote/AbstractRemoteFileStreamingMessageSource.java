@@ -0,0 +1,469 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.remote;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.context.Lifecycle;
+import org.springframework.integration.endpoint.AbstractMessageSource;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.filters.AcceptOnceFileListFilter;
+import org.springframework.integration.file.filters.FileListFilter;
+import org.springframework.integration.file.filters.ReversibleFileListFilter;
+import org.springframework.integration.file.remote.session.CachingSessionFactory;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.messaging.MessagingException;
+import org.springframework.util.Assert;
+
+/**
+ * A message source that emits the contents of each remote file that passes the filter
+ * as an {@link InputStream} read directly from the server, rather than copying the
+ * file to a local directory first. The stream holds a {@link Session} from the
+ * template's session factory, which is returned (to the pool, when using a
+ * {@link CachingSessionFactory})
+ * when the stream is closed; the downstream flow <b>must</b> close the stream.
+ * <p>
+ * Optionally, the contents of small files can be prefetched into memory in the
+ * background, up to {@link #setMaxPrefetchBytes(long) maxPrefetchBytes} in total, so
+ * that the next files are ready when they are received; a prefetched file is emitted
+ * as a {@link ByteArrayInputStream} and holds no session.
+ * <p>
+ * The default {@link AcceptOnceFileListFilter} relies on the {@code equals()} method of
+ * the remote file type; protocol implementations set a filter that accepts each file
+ * once by name. Files listed but not yet emitted when the source is stopped are rolled
+ * back if the filter is a {@link ReversibleFileListFilter}.
+ *
+ * @param <F> the remote file type.
+ *
+ * @since 4.2
+ */
+public abstract class AbstractRemoteFileStreamingMessageSource<F> extends AbstractMessageSource<InputStream>
+		implements Lifecycle {
+
+	private final RemoteFileTemplate<F> remoteFileTemplate;
+
+	private final Object monitor = new Object();
+
+	/**
+	 * Files listed but not yet received; guarded by the monitor.
+	 */
+	private final LinkedList<RemoteFile> toBeReceived = new LinkedList<RemoteFile>();
+
+	private volatile String remoteDirectory;
+
+	private volatile FileListFilter<F> filter = new AcceptOnceFileListFilter<F>();
+
+	private volatile int maxFetchSize = Integer.MAX_VALUE;
+
+	private volatile long maxPrefetchBytes;
+
+	private volatile Executor taskExecutor;
+
+	private volatile ExecutorService privateExecutor;
+
+	private volatile boolean running;
+
+	/**
+	 * The bytes prefetched (or being prefetched) and not yet received; guarded by the monitor.
+	 */
+	private long prefetchedBytes;
+
+	/**
+	 * Whether a prefetch task is running; guarded by the monitor.
+	 */
+	private boolean prefetching;
+
+	/**
+	 * Create a source that reads files using sessions from the template's session
+	 * factory.
+	 * @param remoteFileTemplate the template.
+	 */
+	public AbstractRemoteFileStreamingMessageSource(RemoteFileTemplate<F> remoteFileTemplate) {
+		Assert.notNull(remoteFileTemplate, "'remoteFileTemplate' cannot be null");
+		this.remoteFileTemplate = remoteFileTemplate;
+	}
+
+	/**
+	 * Specify the full path to the remote directory.
+	 * @param remoteDirectory The remote directory.
+	 */
+	public void setRemoteDirectory(String remoteDirectory) {
+		this.remoteDirectory = remoteDirectory;
+	}
+
+	/**
+	 * Set the filter to be applied to the remote files; default an
+	 * {@link AcceptOnceFileListFilter}, unless set by a subclass.
+	 * @param filter the file list filter.
+	 */
+	public void setFilter(FileListFilter<F> filter) {
+		Assert.notNull(filter, "'filter' cannot be null");
+		this.filter = filter;
+	}
+
+	/**
+	 * Set the maximum number of files to take from each listing of the remote
+	 * directory; any further files that pass the filter are passed back to it (if it
+	 * is a {@link ReversibleFileListFilter}) to be taken from a later listing.
+	 * Default unlimited.
+	 * @param maxFetchSize the maximum number of files.
+	 */
+	public void setMaxFetchSize(int maxFetchSize) {
+		Assert.isTrue(maxFetchSize > 0, "'maxFetchSize' must be greater than 0");
+		this.maxFetchSize = maxFetchSize;
+	}
+
+	/**
+	 * Set the maximum number of bytes of files, listed but not yet received, to read into
+	 * memory in the background; larger files are always streamed from the server.
+	 * Default 0 (no prefetch).
+	 * @param maxPrefetchBytes the maximum number of bytes.
+	 */
+	public void setMaxPrefetchBytes(long maxPrefetchBytes) {
+		Assert.isTrue(maxPrefetchBytes >= 0, "'maxPrefetchBytes' cannot be negative");
+		this.maxPrefetchBytes = maxPrefetchBytes;
+	}
+
+	/**
+	 * Set the executor used to prefetch files; by default a cached thread pool is
+	 * created when needed, and shut down when the source is stopped.
+	 * @param taskExecutor the executor.
+	 * @see #setMaxPrefetchBytes(long)
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		Assert.notNull(taskExecutor, "'taskExecutor' cannot be null");
+		this.taskExecutor = taskExecutor;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		super.afterPropertiesSet();
+		Assert.notNull(this.remoteDirectory, "remoteDirectory must not be null");
+	}
+
+	@Override
+	public void start() {
+		this.running = true;
+	}
+
+	@Override
+	public void stop() {
+		this.running = false;
+		List<F> notReceived = new ArrayList<F>();
+		synchronized (this.monitor) {
+			for (RemoteFile remoteFile : this.toBeReceived) {
+				notReceived.add(remoteFile.file);
+				remoteFile.discarded = true;
+				if (remoteFile.content != null) {
+					this.prefetchedBytes -= remoteFile.content.length;
+				}
+			}
+			this.toBeReceived.clear();
+		}
+		if (!notReceived.isEmpty() && this.filter instanceof ReversibleFileListFilter) {
+			((ReversibleFileListFilter<F>) this.filter).rollback(notReceived.get(0), notReceived);
+		}
+		ExecutorService privateExecutor = this.privateExecutor;
+		if (privateExecutor != null) {
+			privateExecutor.shutdown();
+			this.privateExecutor = null;
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	protected Object doReceive() {
+		RemoteFile remoteFile = nextFile();
+		if (remoteFile == null) {
+			return null;
+		}
+		InputStream payload;
+		if (remoteFile.content != null) {
+			payload = new ByteArrayInputStream(remoteFile.content);
+		}
+		else {
+			payload = openStream(remoteFile);
+		}
+		return getMessageBuilderFactory().withPayload(payload)
+				.setHeader(FileHeaders.REMOTE_DIRECTORY, this.remoteDirectory)
+				.setHeader(FileHeaders.REMOTE_FILE, getFilename(remoteFile.file))
+				.build();
+	}
+
+	private RemoteFile nextFile() {
+		synchronized (this.monitor) {
+			if (this.toBeReceived.isEmpty()) {
+				listFiles();
+			}
+			RemoteFile remoteFile = this.toBeReceived.poll();
+			if (remoteFile == null) {
+				return null;
+			}
+			try {
+				while (remoteFile.prefetching) {
+					this.monitor.wait();
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				this.toBeReceived.addFirst(remoteFile);
+				throw new MessagingException("Interrupted while waiting for a prefetch", e);
+			}
+			if (remoteFile.content != null) {
+				this.prefetchedBytes -= remoteFile.content.length;
+				startPrefetch();
+			}
+			return remoteFile;
+		}
+	}
+
+	private void listFiles() {
+		F[] files = this.remoteFileTemplate.execute(new SessionCallback<F, F[]>() {
+
+			@Override
+			public F[] doInSession(Session<F> session) throws IOException {
+				return session.list(AbstractRemoteFileStreamingMessageSource.this.remoteDirectory);
+			}
+
+		});
+		if (files == null || files.length == 0) {
+			return;
+		}
+		int count = 0;
+		for (F file : files) {
+			if (file != null && isFile(file)) {
+				files[count++] = file;
+			}
+		}
+		List<F> filtered = this.filter.filterFiles(Arrays.copyOf(files, count));
+		if (filtered.size() > this.maxFetchSize) {
+			if (this.filter instanceof ReversibleFileListFilter) {
+				((ReversibleFileListFilter<F>) this.filter).rollback(filtered.get(this.maxFetchSize), filtered);
+			}
+			filtered = filtered.subList(0, this.maxFetchSize);
+		}
+		for (F file : filtered) {
+			this.toBeReceived.add(new RemoteFile(file));
+		}
+		startPrefetch();
+	}
+
+	private InputStream openStream(RemoteFile remoteFile) {
+		String path = remotePath(remoteFile.file);
+		Session<F> session = this.remoteFileTemplate.getSessionFactory().getSession();
+		try {
+			return new SessionInputStream(session.readRaw(path), session);
+		}
+		catch (Exception e) {
+			if (session instanceof CachingSessionFactory<?>.CachedSession) {
+				((CachingSessionFactory<?>.CachedSession) session).dirty();
+			}
+			session.close();
+			if (this.filter instanceof ReversibleFileListFilter) {
+				((ReversibleFileListFilter<F>) this.filter).rollback(remoteFile.file,
+						Collections.singletonList(remoteFile.file));
+			}
+			throw new MessagingException("Failed to open stream for " + path, e);
+		}
+	}
+
+	private String remotePath(F file) {
+		String separator = this.remoteFileTemplate.getRemoteFileSeparator();
+		String directory = this.remoteDirectory;
+		if (directory.endsWith(separator)) {
+			return directory + getFilename(file);
+		}
+		return directory + separator + getFilename(file);
+	}
+
+	/**
+	 * Start a prefetch task if prefetching is enabled and none is running; the
+	 * monitor must be held.
+	 */
+	private void startPrefetch() {
+		if (this.maxPrefetchBytes > 0 && !this.prefetching && nextToPrefetch(false) != null) {
+			this.prefetching = true;
+			obtainTaskExecutor().execute(new Runnable() {
+
+				@Override
+				public void run() {
+					prefetch();
+				}
+
+			});
+		}
+	}
+
+	/**
+	 * Find the first file, in the order they will be received, that has not been
+	 * prefetched and is small enough to be; return it if it fits within the remaining
+	 * space (and reserve the space if requested). Later files are not prefetched
+	 * before it, so that memory is not taken by files that will be received later.
+	 */
+	private RemoteFile nextToPrefetch(boolean reserve) {
+		Iterator<RemoteFile> iterator = this.toBeReceived.iterator();
+		while (iterator.hasNext()) {
+			RemoteFile remoteFile = iterator.next();
+			long size = getSize(remoteFile.file);
+			if (!remoteFile.attempted && size <= this.maxPrefetchBytes) {
+				if (this.prefetchedBytes + size > this.maxPrefetchBytes) {
+					return null;
+				}
+				if (reserve) {
+					remoteFile.attempted = true;
+					remoteFile.prefetching = true;
+					this.prefetchedBytes += size;
+				}
+				return remoteFile;
+			}
+		}
+		return null;
+	}
+
+	private void prefetch() {
+		while (true) {
+			final RemoteFile remoteFile;
+			synchronized (this.monitor) {
+				remoteFile = nextToPrefetch(true);
+				if (remoteFile == null) {
+					this.prefetching = false;
+					return;
+				}
+			}
+			byte[] content = null;
+			try {
+				content = this.remoteFileTemplate.execute(new SessionCallback<F, byte[]>() {
+
+					@Override
+					public byte[] doInSession(Session<F> session) throws IOException {
+						ByteArrayOutputStream out = new ByteArrayOutputStream((int) getSize(remoteFile.file));
+						session.read(remotePath(remoteFile.file), out);
+						return out.toByteArray();
+					}
+
+				});
+			}
+			catch (Exception e) {
+				// the file is streamed when it is received
+				if (logger.isWarnEnabled()) {
+					logger.warn("Failed to prefetch " + getFilename(remoteFile.file), e);
+				}
+			}
+			synchronized (this.monitor) {
+				remoteFile.prefetching = false;
+				long size = getSize(remoteFile.file);
+				if (content != null && !remoteFile.discarded) {
+					remoteFile.content = content;
+					this.prefetchedBytes += content.length - size;
+				}
+				else {
+					this.prefetchedBytes -= size;
+				}
+				this.monitor.notifyAll();
+				if (content == null) {
+					this.prefetching = false;
+					return;
+				}
+			}
+		}
+	}
+
+	private Executor obtainTaskExecutor() {
+		if (this.taskExecutor != null) {
+			return this.taskExecutor;
+		}
+		if (this.privateExecutor == null) {
+			this.privateExecutor = Executors.newCachedThreadPool();
+		}
+		return this.privateExecutor;
+	}
+
+	protected abstract boolean isFile(F file);
+
+	protected abstract String getFilename(F file);
+
+	protected abstract long getSize(F file);
+
+
+	private final class RemoteFile {
+
+		private final F file;
+
+		private boolean attempted;
+
+		private boolean prefetching;
+
+		private boolean discarded;
+
+		private byte[] content;
+
+		RemoteFile(F file) {
+			this.file = file;
+		}
+
+	}
+
+	/**
+	 * Closes the raw stream, finalizes the transfer, and releases the session, when
+	 * closed.
+	 */
+	private static final class SessionInputStream extends FilterInputStream {
+
+		private final Session<?> session;
+
+		private boolean closed;
+
+		SessionInputStream(InputStream in, Session<?> session) {
+			super(in);
+			this.session = session;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			try {
+				super.close();
+				this.session.finalizeRaw();
+			}
+			finally {
+				this.session.close();
+			}
+		}
+
+	}
+
+}
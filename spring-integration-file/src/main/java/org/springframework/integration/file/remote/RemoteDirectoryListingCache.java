@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.remote;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A cache of remote directory listings, keyed by session factory and directory path,
+ * with a maximum size (the least recently used listings are discarded) and a time to
+ * live. It can be shared by several components that use the same remote servers, so
+ * that changes made through any of them invalidate the affected listings; changes
+ * made by others are seen when a listing expires.
+ * <p>
+ * The cached file objects are shared by all callers and must not be modified.
+ *
+ * @param <F> the type of file.
+ *
+ * @since 4.2
+ */
+public class RemoteDirectoryListingCache<F> {
+
+	/**
+	 * The default maximum number of listings.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	/**
+	 * The default time to live (milliseconds).
+	 */
+	public static final long DEFAULT_TIME_TO_LIVE = 60000;
+
+	private final Map<Key, Listing<F>> listings = new LinkedHashMap<Key, Listing<F>>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Listing<F>> eldest) {
+			return size() > RemoteDirectoryListingCache.this.maxSize;
+		}
+
+	};
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+	private volatile long timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIME_TO_LIVE);
+
+	private long invalidations;
+
+	/**
+	 * Set the maximum number of listings to cache. Default 1000.
+	 * @param maxSize the maximum size.
+	 */
+	public void setMaxSize(int maxSize) {
+		Assert.isTrue(maxSize > 0, "'maxSize' must be greater than 0");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Set the time for which a listing is used. Default 60 seconds.
+	 * @param timeToLive the time to live in milliseconds.
+	 */
+	public void setTimeToLive(long timeToLive) {
+		Assert.isTrue(timeToLive > 0, "'timeToLive' must be greater than 0");
+		this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+	}
+
+	/**
+	 * Get a cached listing.
+	 * @param sessionFactory the session factory.
+	 * @param directory the directory.
+	 * @return a copy of the cached listing, or null if there is none.
+	 */
+	public F[] get(SessionFactory<F> sessionFactory, String directory) {
+		Key key = new Key(sessionFactory, directory);
+		synchronized (this.listings) {
+			Listing<F> listing = this.listings.get(key);
+			if (listing != null) {
+				if (System.nanoTime() - listing.cachedAt < this.timeToLiveNanos) {
+					this.hits.incrementAndGet();
+					return listing.files.clone();
+				}
+				this.listings.remove(key);
+			}
+		}
+		this.misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Cache a listing, unless any listing has been invalidated since
+	 * {@link #getInvalidationCount()} returned {@code invalidationCount} (before the
+	 * directory was listed), because the listing may then be out of date.
+	 * @param sessionFactory the session factory.
+	 * @param directory the directory.
+	 * @param files the listing.
+	 * @param invalidationCount the invalidation count before the directory was listed.
+	 */
+	public void put(SessionFactory<F> sessionFactory, String directory, F[] files, long invalidationCount) {
+		Assert.notNull(files, "'files' cannot be null");
+		Key key = new Key(sessionFactory, directory);
+		synchronized (this.listings) {
+			if (this.invalidations == invalidationCount) {
+				this.listings.put(key, new Listing<F>(files.clone(), System.nanoTime()));
+			}
+		}
+	}
+
+	/**
+	 * @return the number of invalidations so far; pass this to
+	 * {@link #put(SessionFactory, String, Object[], long)}.
+	 */
+	public long getInvalidationCount() {
+		synchronized (this.listings) {
+			return this.invalidations;
+		}
+	}
+
+	/**
+	 * Discard the listing of a directory, if cached.
+	 * @param sessionFactory the session factory.
+	 * @param directory the directory.
+	 */
+	public void invalidate(SessionFactory<F> sessionFactory, String directory) {
+		Key key = new Key(sessionFactory, directory);
+		synchronized (this.listings) {
+			this.invalidations++;
+			this.listings.remove(key);
+		}
+	}
+
+	/**
+	 * Discard all the listings for a session factory.
+	 * @param sessionFactory the session factory.
+	 */
+	public void invalidateAll(SessionFactory<F> sessionFactory) {
+		synchronized (this.listings) {
+			this.invalidations++;
+			Iterator<Key> iterator = this.listings.keySet().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().sessionFactory == sessionFactory) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of listings cached.
+	 */
+	public int getSize() {
+		synchronized (this.listings) {
+			return this.listings.size();
+		}
+	}
+
+	/**
+	 * @return the number of listings found in the cache.
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * @return the number of listings not found in the cache (or expired).
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+
+	private static final class Key {
+
+		private final SessionFactory<?> sessionFactory;
+
+		private final String directory;
+
+		Key(SessionFactory<?> sessionFactory, String directory) {
+			Assert.notNull(sessionFactory, "'sessionFactory' cannot be null");
+			Assert.notNull(directory, "'directory' cannot be null");
+			this.sessionFactory = sessionFactory;
+			this.directory = directory;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.sessionFactory) * 31 + this.directory.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return this.sessionFactory == other.sessionFactory && this.directory.equals(other.directory);
+		}
+
+	}
+
+	private static final class Listing<F> {
+
+		private final F[] files;
+
+		private final long cachedAt;
+
+		Listing(F[] files, long cachedAt) {
+			this.files = files;
+			this.cachedAt = cachedAt;
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2014 the original author or authors.
+ * Copyright 2013-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,11 +17,24 @@ package org.springframework.integration.file.remote;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -41,6 +54,7 @@ import org.springframework.integration.handler.ExpressionEvaluatingMessageProces
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageDeliveryException;
 import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
@@ -58,6 +72,13 @@ import org.springframework.util.StringUtils;
  */
 public class RemoteFileTemplate<F> implements RemoteFileOperations<F>, InitializingBean, BeanFactoryAware {
 
+	/**
+	 * The default size at or above which a file is uploaded in parts (64Mb).
+	 */
+	public static final long DEFAULT_MULTIPART_THRESHOLD = 64 * 1024 * 1024;
+
+	private static final int PART_BUFFER_SIZE = 32 * 1024;
+
 	private final Log logger = LogFactory.getLog(this.getClass());
 
 	/**
@@ -89,6 +110,14 @@ public class RemoteFileTemplate<F> implements RemoteFileOperations<F>, Initializ
 
 	private volatile BeanFactory beanFactory;
 
+	private volatile int uploadConcurrency = 1;
+
+	private volatile long multipartThreshold = DEFAULT_MULTIPART_THRESHOLD;
+
+	private volatile Executor taskExecutor;
+
+	private ThreadPoolExecutor privateExecutor;
+
 	/**
 	 * Construct a {@link RemoteFileTemplate} with the supplied session factory.
 	 * @param sessionFactory the session factory.
@@ -123,6 +152,14 @@ public class RemoteFileTemplate<F> implements RemoteFileOperations<F>, Initializ
 		return remoteFileSeparator;
 	}
 
+	/**
+	 * @return the session factory.
+	 * @since 4.2
+	 */
+	public SessionFactory<F> getSessionFactory() {
+		return this.sessionFactory;
+	}
+
 	/**
 	 * Set the remote directory expression used to determine the remote directory to which
 	 * files will be sent.
@@ -210,6 +247,49 @@ public class RemoteFileTemplate<F> implements RemoteFileOperations<F>, Initializ
 		this.temporaryFileSuffix = temporaryFileSuffix;
 	}
 
+	/**
+	 * Set the maximum number of sessions over which a large {@link File} payload is
+	 * uploaded, as parts written in parallel, when the protocol supports writing at an
+	 * offset (see {@link #openForWrite(Session, String, long)}). Default 1 (files are
+	 * uploaded over one session). Only applies when replacing the remote file. With a
+	 * {@link CachingSessionFactory}, only the sessions that are idle (or can be
+	 * created) at the time are used, without waiting; if there are none, the file is
+	 * uploaded over the one session.
+	 * @param uploadConcurrency the number of sessions.
+	 * @since 4.2
+	 * @see #setMultipartThreshold(long)
+	 */
+	public void setUploadConcurrency(int uploadConcurrency) {
+		Assert.isTrue(uploadConcurrency > 0, "'uploadConcurrency' must be greater than 0");
+		this.uploadConcurrency = uploadConcurrency;
+	}
+
+	/**
+	 * Set the size at or above which a file is uploaded in parts; default 64Mb.
+	 * @param multipartThreshold the threshold in bytes.
+	 * @since 4.2
+	 * @see #setUploadConcurrency(int)
+	 */
+	public void setMultipartThreshold(long multipartThreshold) {
+		Assert.isTrue(multipartThreshold > 0, "'multipartThreshold' must be greater than 0");
+		this.multipartThreshold = multipartThreshold;
+	}
+
+	/**
+	 * Set the executor used to upload the parts of a file (other than the first, which
+	 * is uploaded by the calling thread). Parts that the executor rejects are also
+	 * uploaded by the calling thread. By default, a pool of up to
+	 * {@code uploadConcurrency - 1} daemon threads (that time out when idle) is shared
+	 * by all uploads.
+	 * @param taskExecutor the executor.
+	 * @since 4.2
+	 * @see #setUploadConcurrency(int)
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		Assert.notNull(taskExecutor, "'taskExecutor' cannot be null");
+		this.taskExecutor = taskExecutor;
+	}
+
 
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
@@ -295,7 +375,8 @@ public class RemoteFileTemplate<F> implements RemoteFileOperations<F>, Initializ
 							}
 							fileName = RemoteFileTemplate.this.fileNameGenerator.generateFileName(message);
 							RemoteFileTemplate.this.sendFileToRemoteDirectory(inputStreamHolder.getStream(),
-									temporaryRemoteDirectory, remoteDirectory, fileName, session, mode);
+									inputStreamHolder.getFile(), temporaryRemoteDirectory, remoteDirectory, fileName,
+									session, mode);
 							return remoteDirectory + fileName;
 						}
 						catch (FileNotFoundException e) {
@@ -434,11 +515,13 @@ public class RemoteFileTemplate<F> implements RemoteFileOperations<F>, Initializ
 			Object payload = message.getPayload();
 			InputStream dataInputStream = null;
 			String name = null;
+			File file = null;
 			if (payload instanceof File) {
 				File inputFile = (File) payload;
 				if (inputFile.exists()) {
 					dataInputStream = new BufferedInputStream(new FileInputStream(inputFile));
 					name = inputFile.getAbsolutePath();
+					file = inputFile;
 				}
 			}
 			else if (payload instanceof byte[] || payload instanceof String) {
@@ -461,7 +544,7 @@ public class RemoteFileTemplate<F> implements RemoteFileOperations<F>, Initializ
 				return null;
 			}
 			else {
-				return new StreamHolder(dataInputStream, name);
+				return new StreamHolder(dataInputStream, name, file);
 			}
 		}
 		catch (Exception e) {
@@ -469,7 +552,7 @@ public class RemoteFileTemplate<F> implements RemoteFileOperations<F>, Initializ
 		}
 	}
 
-	private void sendFileToRemoteDirectory(InputStream inputStream, String temporaryRemoteDirectory,
+	private void sendFileToRemoteDirectory(InputStream inputStream, File file, String temporaryRemoteDirectory,
 			String remoteDirectory, String fileName, Session<F> session, FileExistsMode mode) throws IOException {
 
 		remoteDirectory = this.normalizeDirectoryPath(remoteDirectory);
@@ -494,7 +577,9 @@ public class RemoteFileTemplate<F> implements RemoteFileOperations<F>, Initializ
 		try {
 			boolean rename = this.useTemporaryFileName;
 			if (FileExistsMode.REPLACE.equals(mode)) {
-				session.write(inputStream, tempFilePath);
+				if (file == null || !writeInParts(file, tempFilePath, session)) {
+					session.write(inputStream, tempFilePath);
+				}
 			}
 			else if (FileExistsMode.APPEND.equals(mode)) {
 				session.append(inputStream, tempFilePath);
@@ -526,6 +611,196 @@ public class RemoteFileTemplate<F> implements RemoteFileOperations<F>, Initializ
 		}
 	}
 
+	/**
+	 * Upload a large file as parts written in parallel over several sessions, if
+	 * enabled and supported. The caller already holds a session, so additional
+	 * sessions are only taken if they are available immediately; waiting for them
+	 * could deadlock with other uploads holding sessions from a bounded pool.
+	 * @return false if the file is to be uploaded over the one session.
+	 */
+	private boolean writeInParts(File file, String path, Session<F> session) throws IOException {
+		int parts = this.uploadConcurrency;
+		final long size = file.length();
+		if (parts < 2 || size < this.multipartThreshold) {
+			return false;
+		}
+		List<OutputStream> streams = new ArrayList<OutputStream>();
+		List<Session<F>> partSessions = new ArrayList<Session<F>>();
+		FileInputStream inputStream = null;
+		boolean failed = true;
+		try {
+			for (int i = 1; i < parts; i++) {
+				Session<F> partSession = obtainPartSession();
+				if (partSession == null) {
+					break;
+				}
+				partSessions.add(partSession);
+			}
+			if (partSessions.isEmpty()) {
+				failed = false;
+				return false;
+			}
+			final long partSize = (size + partSessions.size()) / (partSessions.size() + 1);
+			// open every part before writing any, since opening may create or truncate the file
+			OutputStream firstStream = openForWrite(session, path, 0);
+			if (firstStream == null) {
+				failed = false;
+				return false;
+			}
+			streams.add(firstStream);
+			for (int i = 1; i <= partSessions.size() && i * partSize < size; i++) {
+				streams.add(openForWrite(partSessions.get(i - 1), path, i * partSize));
+			}
+			inputStream = new FileInputStream(file);
+			final FileChannel channel = inputStream.getChannel();
+			final CountDownLatch latch = new CountDownLatch(streams.size() - 1);
+			final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+			List<Runnable> rejected = new ArrayList<Runnable>();
+			Executor executor = getUploadExecutor();
+			for (int i = 1; i < streams.size(); i++) {
+				final long start = i * partSize;
+				final OutputStream stream = streams.get(i);
+				Runnable part = new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							writePart(channel, start, Math.min(size, start + partSize), stream);
+						}
+						catch (Exception e) {
+							failure.compareAndSet(null, e);
+						}
+						finally {
+							latch.countDown();
+						}
+					}
+
+				};
+				try {
+					executor.execute(part);
+				}
+				catch (RejectedExecutionException e) {
+					rejected.add(part);
+				}
+			}
+			try {
+				writePart(channel, 0, partSize, firstStream);
+			}
+			catch (IOException e) {
+				failure.compareAndSet(null, e);
+			}
+			// parts the executor could not accept are written by the calling thread
+			for (Runnable part : rejected) {
+				part.run();
+			}
+			latch.await();
+			if (failure.get() != null) {
+				throw new MessagingException("Failed to upload part of " + file, failure.get());
+			}
+			failed = false;
+			if (this.logger.isDebugEnabled()) {
+				this.logger.debug("Uploaded " + file + " in " + streams.size() + " parts");
+			}
+			return true;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MessagingException("Interrupted while uploading " + file, e);
+		}
+		finally {
+			if (failed) {
+				// parts that were written closed their own streams
+				for (OutputStream stream : streams) {
+					closeQuietly(stream);
+				}
+			}
+			closeQuietly(inputStream);
+			for (Session<F> partSession : partSessions) {
+				if (failed && partSession instanceof CachingSessionFactory<?>.CachedSession) {
+					((CachingSessionFactory<?>.CachedSession) partSession).dirty();
+				}
+				partSession.close();
+			}
+		}
+	}
+
+	/**
+	 * @return a session for a part, or null if a pooled session is not immediately
+	 * available.
+	 */
+	private Session<F> obtainPartSession() {
+		if (this.sessionFactory instanceof CachingSessionFactory) {
+			return ((CachingSessionFactory<F>) this.sessionFactory).tryGetSession(0);
+		}
+		return this.sessionFactory.getSession();
+	}
+
+	private Executor getUploadExecutor() {
+		if (this.taskExecutor != null) {
+			return this.taskExecutor;
+		}
+		synchronized (this) {
+			if (this.privateExecutor == null) {
+				int threads = Math.max(1, this.uploadConcurrency - 1);
+				CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("remote-file-upload-");
+				threadFactory.setDaemon(true);
+				ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+						new LinkedBlockingQueue<Runnable>(), threadFactory);
+				executor.allowCoreThreadTimeOut(true);
+				this.privateExecutor = executor;
+			}
+			return this.privateExecutor;
+		}
+	}
+
+	private void writePart(FileChannel channel, long start, long end, OutputStream stream) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(PART_BUFFER_SIZE);
+		long position = start;
+		try {
+			while (position < end) {
+				buffer.clear();
+				buffer.limit((int) Math.min(buffer.capacity(), end - position));
+				int read = channel.read(buffer, position);
+				if (read < 0) {
+					throw new IOException("File was truncated while being uploaded");
+				}
+				stream.write(buffer.array(), 0, read);
+				position += read;
+			}
+		}
+		finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Open a stream that writes to the remote file from the offset, to upload a part of
+	 * a large file in parallel with the other parts. The default implementation returns
+	 * null, meaning that such writes are not supported. All the streams for a file are
+	 * opened before any of them is written, so opening a stream may create (or truncate)
+	 * the file.
+	 * @param session the session.
+	 * @param path the path of the remote file.
+	 * @param offset the offset at which to start writing.
+	 * @return the stream, or null if writing at an offset is not supported.
+	 * @throws IOException if the stream cannot be opened.
+	 * @since 4.2
+	 * @see #setUploadConcurrency(int)
+	 */
+	protected OutputStream openForWrite(Session<F> session, String path, long offset) throws IOException {
+		return null;
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			}
+			catch (IOException e) {
+			}
+		}
+	}
+
 	private String normalizeDirectoryPath(String directoryPath){
 		if (!StringUtils.hasText(directoryPath)) {
 			directoryPath = "";
@@ -542,9 +817,12 @@ public class RemoteFileTemplate<F> implements RemoteFileOperations<F>, Initializ
 
 		private final String name;
 
-		private StreamHolder(InputStream stream, String name) {
+		private final File file;
+
+		private StreamHolder(InputStream stream, String name, File file) {
 			this.stream = stream;
 			this.name = name;
+			this.file = file;
 		}
 
 		public InputStream getStream() {
@@ -555,6 +833,10 @@ public class RemoteFileTemplate<F> implements RemoteFileOperations<F>, Initializ
 			return name;
 		}
 
+		public File getFile() {
+			return file;
+		}
+
 	}
 
 }
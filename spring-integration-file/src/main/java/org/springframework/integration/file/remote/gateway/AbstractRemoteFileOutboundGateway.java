@@ -22,15 +22,28 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 import org.springframework.expression.common.LiteralExpression;
@@ -39,8 +52,10 @@ import org.springframework.integration.expression.ExpressionUtils;
 import org.springframework.integration.file.FileHeaders;
 import org.springframework.integration.file.filters.FileListFilter;
 import org.springframework.integration.file.remote.AbstractFileInfo;
+import org.springframework.integration.file.remote.RemoteDirectoryListingCache;
 import org.springframework.integration.file.remote.RemoteFileTemplate;
 import org.springframework.integration.file.remote.SessionCallback;
+import org.springframework.integration.file.remote.session.CachingSessionFactory;
 import org.springframework.integration.file.remote.session.Session;
 import org.springframework.integration.file.remote.session.SessionFactory;
 import org.springframework.integration.file.support.FileExistsMode;
@@ -55,12 +70,18 @@ import org.springframework.util.StringUtils;
 
 /**
  * Base class for Outbound Gateways that perform remote file operations.
+ * <p>
+ * Directory listings can be cached in a {@link #setListingCache(RemoteDirectoryListingCache)
+ * RemoteDirectoryListingCache}; the gateway invalidates the affected listings when it
+ * changes the remote file system (put, mput, rm, mv). Recursive listings can list
+ * sub-directories in parallel, each on its own session.
  *
  * @author Gary Russell
  * @author Artem Bilan
  * @since 2.1
  */
-public abstract class AbstractRemoteFileOutboundGateway<F> extends AbstractReplyProducingMessageHandler {
+public abstract class AbstractRemoteFileOutboundGateway<F> extends AbstractReplyProducingMessageHandler
+		implements DisposableBean {
 
 	private final RemoteFileTemplate<F> remoteFileTemplate;
 
@@ -219,6 +240,14 @@ public abstract class AbstractRemoteFileOutboundGateway<F> extends AbstractReply
 
 	private volatile FileExistsMode fileExistsMode;
 
+	private volatile RemoteDirectoryListingCache<F> listingCache;
+
+	private volatile int listingConcurrency = 1;
+
+	private volatile Executor taskExecutor;
+
+	private volatile ExecutorService privateExecutor;
+
 	public AbstractRemoteFileOutboundGateway(SessionFactory<F> sessionFactory, String command,
 			String expression) {
 		Assert.notNull(sessionFactory, "'sessionFactory' cannot be null");
@@ -357,6 +386,54 @@ public abstract class AbstractRemoteFileOutboundGateway<F> extends AbstractReply
 		}
 	}
 
+	/**
+	 * Set a cache for directory listings (used by ls and recursive mget). Changes
+	 * made through this gateway invalidate the affected listings; the cache can be
+	 * shared with other gateways using the same session factory. The sub-directory
+	 * listings of a recursive listing are only cached if the files can be
+	 * {@link #copyFile(Object) copied}.
+	 * @param listingCache the cache.
+	 * @since 4.2
+	 */
+	public void setListingCache(RemoteDirectoryListingCache<F> listingCache) {
+		this.listingCache = listingCache;
+	}
+
+	/**
+	 * Set the maximum number of directories to list in parallel for recursive
+	 * listings, each on its own session. Default 1. The gateway's session is used
+	 * together with up to {@code listingConcurrency - 1} others; with a
+	 * {@link CachingSessionFactory}, only sessions that are available without waiting
+	 * are used, and if there are none the directories are listed sequentially.
+	 * @param listingConcurrency the concurrency.
+	 * @since 4.2
+	 */
+	public void setListingConcurrency(int listingConcurrency) {
+		Assert.isTrue(listingConcurrency > 0, "'listingConcurrency' must be greater than 0");
+		this.listingConcurrency = listingConcurrency;
+	}
+
+	/**
+	 * Set the executor for parallel recursive listings; by default a cached thread
+	 * pool is created when needed, and shut down when the gateway is destroyed.
+	 * @param taskExecutor the executor.
+	 * @since 4.2
+	 * @see #setListingConcurrency(int)
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		Assert.notNull(taskExecutor, "'taskExecutor' cannot be null");
+		this.taskExecutor = taskExecutor;
+	}
+
+	@Override
+	public void destroy() {
+		ExecutorService privateExecutor = this.privateExecutor;
+		if (privateExecutor != null) {
+			privateExecutor.shutdown();
+			this.privateExecutor = null;
+		}
+	}
+
 	@Override
 	protected void doInit() {
 		Assert.notNull(this.command, "command must not be null");
@@ -486,6 +563,7 @@ public abstract class AbstractRemoteFileOutboundGateway<F> extends AbstractReply
 		String remoteFilename = this.getRemoteFilename(remoteFilePath);
 		String remoteDir = this.getRemoteDirectory(remoteFilePath, remoteFilename);
 		boolean payload = this.remoteFileTemplate.remove(remoteFilePath);
+		invalidateListing(remoteDir);
 		return this.getMessageBuilderFactory().withPayload(payload)
 			.setHeader(FileHeaders.REMOTE_DIRECTORY, remoteDir)
 			.setHeader(FileHeaders.REMOTE_FILE, remoteFilename)
@@ -500,6 +578,9 @@ public abstract class AbstractRemoteFileOutboundGateway<F> extends AbstractReply
 		Assert.hasLength(remoteFileNewPath, "New filename cannot be empty");
 
 		this.remoteFileTemplate.rename(remoteFilePath, remoteFileNewPath);
+		invalidateListing(remoteDir);
+		String newFilename = this.getRemoteFilename(remoteFileNewPath);
+		invalidateListing(this.getRemoteDirectory(remoteFileNewPath, newFilename));
 		return this.getMessageBuilderFactory().withPayload(Boolean.TRUE)
 			.setHeader(FileHeaders.REMOTE_DIRECTORY, remoteDir)
 			.setHeader(FileHeaders.REMOTE_FILE, remoteFilename)
@@ -516,6 +597,7 @@ public abstract class AbstractRemoteFileOutboundGateway<F> extends AbstractReply
 		if (path == null) {
 			throw new MessagingException(requestMessage, "No local file found for " + requestMessage);
 		}
+		invalidateAncestors(path);
 		return path;
 	}
 
@@ -598,9 +680,15 @@ public abstract class AbstractRemoteFileOutboundGateway<F> extends AbstractReply
 	}
 
 	private List<F> listFilesInRemoteDir(Session<F> session, String directory, String subDirectory) throws IOException {
-		List<F> lsFiles = new ArrayList<F>();
-		F[] files = session.list(directory + subDirectory);
 		boolean recursion = this.options.contains(Option.RECURSIVE);
+		if (recursion && this.listingConcurrency > 1 && !StringUtils.hasText(subDirectory)) {
+			List<F> lsFiles = listFilesInRemoteDirInParallel(session, directory);
+			if (lsFiles != null) {
+				return lsFiles;
+			}
+		}
+		List<F> lsFiles = new ArrayList<F>();
+		F[] files = list(session, directory + subDirectory, recursion && StringUtils.hasText(subDirectory));
 		if (!ObjectUtils.isEmpty(files)) {
 			Collection<F> filteredFiles = this.filterFiles(files);
 			for (F file : filteredFiles) {
@@ -624,6 +712,260 @@ public abstract class AbstractRemoteFileOutboundGateway<F> extends AbstractReply
 		return lsFiles;
 	}
 
+	/**
+	 * List the directory tree breadth first, listing up to {@link #listingConcurrency}
+	 * directories at a time, then assemble the results in the same order as a
+	 * sequential (depth first) listing. The caller's session is used by one of the
+	 * listing tasks; the others use sessions that are available without waiting, since
+	 * waiting for more sessions while holding one could deadlock a bounded pool.
+	 * @return the listing, or null if no other sessions are available.
+	 */
+	private List<F> listFilesInRemoteDirInParallel(Session<F> session, final String directory) throws IOException {
+		List<Session<F>> otherSessions = obtainListingSessions();
+		if (otherSessions.isEmpty()) {
+			return null;
+		}
+		Deque<Session<F>> idleSessions = new ArrayDeque<Session<F>>(otherSessions);
+		idleSessions.push(session);
+		List<Future<Listing<F>>> running = new ArrayList<Future<Listing<F>>>();
+		boolean failed = true;
+		try {
+			Map<String, List<F>> listings = new HashMap<String, List<F>>();
+			Deque<String> toList = new ArrayDeque<String>();
+			List<F> rootListing = filterListing(list(session, directory, false));
+			listings.put("", rootListing);
+			addSubDirectories(toList, "", rootListing);
+			CompletionService<Listing<F>> completionService =
+					new ExecutorCompletionService<Listing<F>>(obtainTaskExecutor());
+			while (!toList.isEmpty() || !running.isEmpty()) {
+				while (!toList.isEmpty() && !idleSessions.isEmpty()) {
+					final String subDirectory = toList.poll();
+					final Session<F> listingSession = idleSessions.poll();
+					running.add(completionService.submit(new Callable<Listing<F>>() {
+
+						@Override
+						public Listing<F> call() throws Exception {
+							return new Listing<F>(subDirectory, listingSession,
+									AbstractRemoteFileOutboundGateway.this.list(listingSession,
+											directory + subDirectory, true));
+						}
+
+					}));
+				}
+				Listing<F> listing;
+				try {
+					Future<Listing<F>> future = completionService.take();
+					running.remove(future);
+					listing = future.get();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new MessagingException("Interrupted while listing " + directory, e);
+				}
+				catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					if (cause instanceof IOException) {
+						throw (IOException) cause;
+					}
+					throw new MessagingException("Failed to list " + directory, cause);
+				}
+				idleSessions.push(listing.session);
+				List<F> filtered = filterListing(listing.files);
+				listings.put(listing.subDirectory, filtered);
+				addSubDirectories(toList, listing.subDirectory, filtered);
+			}
+			failed = false;
+			return assembleListing(listings, "");
+		}
+		finally {
+			if (failed) {
+				for (Future<Listing<F>> future : running) {
+					future.cancel(true);
+				}
+				if (!idleSessions.contains(session)) {
+					// a cancelled task may still be using it
+					markDirty(session);
+				}
+			}
+			for (Session<F> otherSession : otherSessions) {
+				if (failed) {
+					markDirty(otherSession);
+				}
+				otherSession.close();
+			}
+		}
+	}
+
+	/**
+	 * @return up to {@code listingConcurrency - 1} sessions; with a caching session
+	 * factory, only those available without waiting.
+	 */
+	private List<Session<F>> obtainListingSessions() {
+		SessionFactory<F> sessionFactory = this.remoteFileTemplate.getSessionFactory();
+		List<Session<F>> sessions = new ArrayList<Session<F>>();
+		for (int i = 1; i < this.listingConcurrency; i++) {
+			Session<F> session = sessionFactory instanceof CachingSessionFactory
+					? ((CachingSessionFactory<F>) sessionFactory).tryGetSession(0)
+					: sessionFactory.getSession();
+			if (session == null) {
+				break;
+			}
+			sessions.add(session);
+		}
+		return sessions;
+	}
+
+	private void markDirty(Session<F> session) {
+		if (session instanceof CachingSessionFactory<?>.CachedSession) {
+			((CachingSessionFactory<?>.CachedSession) session).dirty();
+		}
+	}
+
+	private List<F> filterListing(F[] files) {
+		if (ObjectUtils.isEmpty(files)) {
+			return Collections.emptyList();
+		}
+		return this.filterFiles(files);
+	}
+
+	private void addSubDirectories(Deque<String> toList, String subDirectory, List<F> files) {
+		for (F file : files) {
+			if (file != null && this.isDirectory(file)) {
+				String fileName = this.getFilename(file);
+				if (!".".equals(fileName) && !"..".equals(fileName)) {
+					toList.add(subDirectory + fileName + this.remoteFileTemplate.getRemoteFileSeparator());
+				}
+			}
+		}
+	}
+
+	private List<F> assembleListing(Map<String, List<F>> listings, String subDirectory) {
+		List<F> lsFiles = new ArrayList<F>();
+		for (F file : listings.get(subDirectory)) {
+			if (file != null) {
+				String fileName = this.getFilename(file);
+				if (this.options.contains(Option.SUBDIRS) || !this.isDirectory(file)) {
+					if (StringUtils.hasText(subDirectory)) {
+						lsFiles.add(enhanceNameWithSubDirectory(file, subDirectory));
+					}
+					else {
+						lsFiles.add(file);
+					}
+				}
+				if (this.isDirectory(file) && !(".".equals(fileName)) && !("..".equals(fileName))) {
+					lsFiles.addAll(assembleListing(listings,
+							subDirectory + fileName + this.remoteFileTemplate.getRemoteFileSeparator()));
+				}
+			}
+		}
+		return lsFiles;
+	}
+
+	/**
+	 * List a directory, using the {@link #setListingCache(RemoteDirectoryListingCache)
+	 * listing cache}, if any. The files of a listing that will be renamed with
+	 * {@link #enhanceNameWithSubDirectory(Object, String)} are copies of the cached
+	 * ones; if the files cannot be {@link #copyFile(Object) copied}, the listing is
+	 * neither taken from nor added to the cache.
+	 */
+	private F[] list(Session<F> session, String directory, boolean renaming) throws IOException {
+		RemoteDirectoryListingCache<F> listingCache = this.listingCache;
+		if (listingCache == null) {
+			return session.list(directory);
+		}
+		String key = normalizeDirectory(directory);
+		F[] files = listingCache.get(this.remoteFileTemplate.getSessionFactory(), key);
+		if (files != null) {
+			if (!renaming) {
+				return files;
+			}
+			F[] copies = copyFiles(files);
+			if (copies != null) {
+				return copies;
+			}
+			return session.list(directory);
+		}
+		long invalidationCount = listingCache.getInvalidationCount();
+		files = session.list(directory);
+		if (files != null) {
+			F[] copies = renaming ? copyFiles(files) : files;
+			if (copies != null) {
+				listingCache.put(this.remoteFileTemplate.getSessionFactory(), key, files, invalidationCount);
+				return copies;
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * @return copies of the files, or null if they cannot be copied.
+	 */
+	private F[] copyFiles(F[] files) {
+		F[] copies = files.clone();
+		for (int i = 0; i < copies.length; i++) {
+			if (copies[i] != null) {
+				copies[i] = copyFile(copies[i]);
+				if (copies[i] == null) {
+					return null;
+				}
+			}
+		}
+		return copies;
+	}
+
+	private void invalidateListing(String directory) {
+		RemoteDirectoryListingCache<F> listingCache = this.listingCache;
+		if (listingCache != null) {
+			listingCache.invalidate(this.remoteFileTemplate.getSessionFactory(), normalizeDirectory(directory));
+		}
+	}
+
+	/**
+	 * Invalidate the listings of every directory containing the path, because
+	 * directories may have been created.
+	 */
+	private void invalidateAncestors(String path) {
+		if (this.listingCache != null) {
+			String remoteFileSeparator = this.remoteFileTemplate.getRemoteFileSeparator();
+			String directory = path;
+			int index;
+			// relative paths are listed from the separator (see doLs())
+			while ((index = directory.lastIndexOf(remoteFileSeparator)) > 0) {
+				directory = directory.substring(0, index);
+				invalidateListing(directory);
+			}
+			invalidateListing(remoteFileSeparator);
+		}
+	}
+
+	/**
+	 * Remove any trailing separator so that "foo" and "foo/" share a listing; the root
+	 * directory and the (relative) current directory ("" or ".") are left as is.
+	 */
+	private String normalizeDirectory(String directory) {
+		String remoteFileSeparator = this.remoteFileTemplate.getRemoteFileSeparator();
+		String normalized = directory;
+		while (normalized.length() > remoteFileSeparator.length() && normalized.endsWith(remoteFileSeparator)) {
+			normalized = normalized.substring(0, normalized.length() - remoteFileSeparator.length());
+		}
+		return normalized;
+	}
+
+	private Executor obtainTaskExecutor() {
+		if (this.taskExecutor != null) {
+			return this.taskExecutor;
+		}
+		synchronized (this) {
+			if (this.privateExecutor == null) {
+				this.privateExecutor = Executors.newCachedThreadPool();
+			}
+			return this.privateExecutor;
+		}
+	}
+
 	protected final List<F> filterFiles(F[] files) {
 		return (this.filter != null) ? this.filter.filterFiles(files) : Arrays.asList(files);
 	}
@@ -882,4 +1224,34 @@ public abstract class AbstractRemoteFileOutboundGateway<F> extends AbstractReply
 
 	abstract protected F enhanceNameWithSubDirectory(F file, String directory);
 
+	/**
+	 * Return a copy of a file from a cached listing, which can then be passed to
+	 * {@link #enhanceNameWithSubDirectory(Object, String)} without modifying the cached
+	 * file. The default implementation returns null: the file type cannot be copied,
+	 * so the sub-directory listings of a recursive listing are not cached.
+	 * @param file the file.
+	 * @return the copy, or null if the file cannot be copied.
+	 * @since 4.2
+	 */
+	protected F copyFile(F file) {
+		return null;
+	}
+
+
+	private static final class Listing<F> {
+
+		private final String subDirectory;
+
+		private final Session<F> session;
+
+		private final F[] files;
+
+		Listing(String subDirectory, Session<F> session, F[] files) {
+			this.subDirectory = subDirectory;
+			this.session = session;
+			this.files = files;
+		}
+
+	}
+
 }
@@ -16,6 +16,8 @@
 
 package org.springframework.integration.file.remote.handler;
 
+import java.util.concurrent.Executor;
+
 import org.springframework.expression.Expression;
 import org.springframework.integration.file.FileNameGenerator;
 import org.springframework.integration.file.remote.RemoteFileTemplate;
@@ -131,6 +133,33 @@ public class FileTransferringMessageHandler<F> extends AbstractMessageHandler {
 		this.remoteFileTemplate.setTemporaryFileSuffix(temporaryFileSuffix);
 	}
 
+	/**
+	 * @param uploadConcurrency the number of sessions used to upload a large file.
+	 * @since 4.2
+	 * @see RemoteFileTemplate#setUploadConcurrency(int)
+	 */
+	public void setUploadConcurrency(int uploadConcurrency) {
+		this.remoteFileTemplate.setUploadConcurrency(uploadConcurrency);
+	}
+
+	/**
+	 * @param multipartThreshold the size at or above which a file is uploaded in parts.
+	 * @since 4.2
+	 * @see RemoteFileTemplate#setMultipartThreshold(long)
+	 */
+	public void setMultipartThreshold(long multipartThreshold) {
+		this.remoteFileTemplate.setMultipartThreshold(multipartThreshold);
+	}
+
+	/**
+	 * @param taskExecutor the executor used to upload the parts of a file.
+	 * @since 4.2
+	 * @see RemoteFileTemplate#setTaskExecutor(Executor)
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		this.remoteFileTemplate.setTaskExecutor(taskExecutor);
+	}
+
 	@Override
 	protected void onInit() throws Exception {
 		this.remoteFileTemplate.setBeanFactory(this.getBeanFactory());
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,7 +24,10 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.util.BoundedPool;
+import org.springframework.integration.util.ConcurrentPool;
 import org.springframework.integration.util.SimplePool;
+import org.springframework.util.Assert;
 
 /**
  * A {@link SessionFactory} implementation that caches Sessions for reuse without
@@ -43,7 +46,7 @@ public class CachingSessionFactory<F> implements SessionFactory<F>, DisposableBe
 
 	private final SessionFactory<F> sessionFactory;
 
-	private final SimplePool<Session<F>> pool;
+	private final BoundedPool<Session<F>> pool;
 
 	private final boolean isSharedSessionCapable;
 
@@ -69,8 +72,21 @@ public class CachingSessionFactory<F> implements SessionFactory<F>, DisposableBe
 	 * @param sessionCacheSize The maximum cache size.
 	 */
 	public CachingSessionFactory(SessionFactory<F> sessionFactory, int sessionCacheSize) {
+		this(sessionFactory, sessionCacheSize, false);
+	}
+
+	/**
+	 * Create a CachingSessionFactory with the specified session limit, optionally using a
+	 * {@link ConcurrentPool}, which avoids lock contention when many threads obtain and
+	 * release sessions concurrently.
+	 * @param sessionFactory The underlying session factory.
+	 * @param sessionCacheSize The maximum cache size.
+	 * @param concurrentPool true to use a {@link ConcurrentPool} rather than a {@link SimplePool}.
+	 * @since 4.2
+	 */
+	public CachingSessionFactory(SessionFactory<F> sessionFactory, int sessionCacheSize, boolean concurrentPool) {
 		this.sessionFactory = sessionFactory;
-		this.pool = new SimplePool<Session<F>>(sessionCacheSize, new SimplePool.PoolItemCallback<Session<F>>() {
+		SimplePool.PoolItemCallback<Session<F>> callback = new SimplePool.PoolItemCallback<Session<F>>() {
 			@Override
 			public Session<F> createForPool() {
 				return CachingSessionFactory.this.sessionFactory.getSession();
@@ -85,7 +101,10 @@ public class CachingSessionFactory<F> implements SessionFactory<F>, DisposableBe
 			public void removedFromPool(Session<F> session) {
 				session.close();
 			}
-		});
+		};
+		this.pool = concurrentPool
+				? new ConcurrentPool<Session<F>>(sessionCacheSize, callback)
+				: new SimplePool<Session<F>>(sessionCacheSize, callback);
 		this.isSharedSessionCapable = sessionFactory instanceof SharedSessionCapable;
 	}
 
@@ -110,6 +129,18 @@ public class CachingSessionFactory<F> implements SessionFactory<F>, DisposableBe
 		this.pool.setPoolSize(poolSize);
 	}
 
+	/**
+	 * Close sessions that have been idle for this time (in milliseconds); also closes
+	 * idle sessions that are no longer open. Requires the concurrent pool.
+	 * @param maxIdleTime the max idle time.
+	 * @since 4.2
+	 * @see ConcurrentPool#setMaxIdleTime(long)
+	 */
+	public void setMaxIdleTime(long maxIdleTime) {
+		Assert.state(this.pool instanceof ConcurrentPool, "'maxIdleTime' requires the concurrent pool");
+		((ConcurrentPool<Session<F>>) this.pool).setMaxIdleTime(maxIdleTime);
+	}
+
 	/**
 	 * Get a session from the pool (or block if none available).
 	 */
@@ -118,12 +149,31 @@ public class CachingSessionFactory<F> implements SessionFactory<F>, DisposableBe
 		return new CachedSession(this.pool.getItem(), this.sharedSessionEpoch);
 	}
 
+	/**
+	 * Get a session from the pool, waiting at most the given time for one to become
+	 * available, rather than the {@link #setSessionWaitTimeout(long) sessionWaitTimeout}.
+	 * Useful when a caller that already holds a session wants more, since waiting for
+	 * them could deadlock with other such callers.
+	 * @param waitTimeout the time to wait in milliseconds; 0 to not wait.
+	 * @return the session, or null if none is available.
+	 * @since 4.2
+	 */
+	public Session<F> tryGetSession(long waitTimeout) {
+		Session<F> session = this.pool.tryGetItem(waitTimeout);
+		return session == null ? null : new CachedSession(session, this.sharedSessionEpoch);
+	}
+
 	/**
 	 * Remove (close) any unused sessions in the pool.
 	 */
 	@Override
 	public void destroy() {
-		this.pool.removeAllIdleItems();
+		if (this.pool instanceof ConcurrentPool) {
+			((ConcurrentPool<Session<F>>) this.pool).destroy();
+		}
+		else {
+			this.pool.removeAllIdleItems();
+		}
 	}
 
 	/**
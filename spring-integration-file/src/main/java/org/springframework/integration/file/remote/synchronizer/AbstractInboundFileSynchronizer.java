@@ -22,8 +22,20 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -39,6 +51,7 @@ import org.springframework.integration.file.remote.SessionCallback;
 import org.springframework.integration.file.remote.session.Session;
 import org.springframework.integration.file.remote.session.SessionFactory;
 import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
 
@@ -49,6 +62,14 @@ import org.springframework.util.ObjectUtils;
  * The implementation should run through any configured
  * {@link org.springframework.integration.file.filters.FileListFilter}s to
  * ensure the file entry is acceptable.
+ * <p>
+ * By default, files are downloaded one at a time on the session used to list the
+ * directory. With a {@link #setMaxConcurrency(int) maxConcurrency} greater than 1,
+ * they are downloaded in parallel, each download task using its own session (use a
+ * {@link org.springframework.integration.file.remote.session.CachingSessionFactory}
+ * with at least that many sessions); a synchronization then returns as soon as any
+ * file has been downloaded, and later synchronizations wait for the outstanding
+ * downloads (without listing the directory again) until all have completed.
  *
  * @author Josh Long
  * @author Mark Fisher
@@ -97,6 +118,28 @@ public abstract class AbstractInboundFileSynchronizer<F> implements InboundFileS
 	 */
 	private volatile boolean  preserveTimestamp;
 
+	private volatile int maxConcurrency = 1;
+
+	private volatile int maxFetchSize = Integer.MAX_VALUE;
+
+	private volatile Executor taskExecutor;
+
+	private volatile long downloadWaitTimeout = 30000;
+
+	private volatile ExecutorService privateExecutor;
+
+	private final Object parallelMonitor = new Object();
+
+	/**
+	 * The number of files listed for parallel download that have not yet completed.
+	 */
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	/**
+	 * The outcome (a file name or an exception) of each completed parallel download.
+	 */
+	private final BlockingQueue<Object> completions = new LinkedBlockingQueue<Object>();
+
 	/**
 	 * Create a synchronizer with the {@link SessionFactory} used to acquire {@link Session} instances.
 	 *
@@ -168,6 +211,58 @@ public abstract class AbstractInboundFileSynchronizer<F> implements InboundFileS
 		this.preserveTimestamp = preserveTimestamp;
 	}
 
+	/**
+	 * Set the maximum number of files to download in parallel, each on its own
+	 * session. Default 1 (files are downloaded one at a time).
+	 * @param maxConcurrency the maximum concurrency.
+	 * @since 4.2
+	 */
+	public void setMaxConcurrency(int maxConcurrency) {
+		Assert.isTrue(maxConcurrency > 0, "'maxConcurrency' must be greater than 0");
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	/**
+	 * Set the maximum number of files to download for each listing of the remote
+	 * directory; any further files that pass the filter are passed back to it (if it
+	 * is a {@link ReversibleFileListFilter}) to be downloaded after a later listing.
+	 * Default unlimited.
+	 * @param maxFetchSize the maximum number of files.
+	 * @since 4.2
+	 */
+	public void setMaxFetchSize(int maxFetchSize) {
+		Assert.isTrue(maxFetchSize > 0, "'maxFetchSize' must be greater than 0");
+		this.maxFetchSize = maxFetchSize;
+	}
+
+	/**
+	 * Set the executor used to run parallel downloads; by default a pool of
+	 * {@link #setMaxConcurrency(int) maxConcurrency} daemon threads is created when
+	 * needed, and shut down when the synchronizer is closed. A supplied executor should
+	 * be bounded to no more threads than the session factory has sessions.
+	 * @param taskExecutor the executor.
+	 * @since 4.2
+	 * @see #setMaxConcurrency(int)
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		Assert.notNull(taskExecutor, "'taskExecutor' cannot be null");
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Set the maximum time (milliseconds) that a synchronization waits for a parallel
+	 * download to complete; if none completes in this time, the synchronization returns
+	 * without waiting further and the downloads continue in the background, to be
+	 * awaited by the next synchronization. Default 30 seconds.
+	 * @param downloadWaitTimeout the timeout.
+	 * @since 4.2
+	 * @see #setMaxConcurrency(int)
+	 */
+	public void setDownloadWaitTimeout(long downloadWaitTimeout) {
+		Assert.isTrue(downloadWaitTimeout >= 0, "'downloadWaitTimeout' cannot be negative");
+		this.downloadWaitTimeout = downloadWaitTimeout;
+	}
+
 	@Override
 	public void setIntegrationEvaluationContext(EvaluationContext evaluationContext) {
 		this.evaluationContext = evaluationContext;
@@ -188,6 +283,11 @@ public abstract class AbstractInboundFileSynchronizer<F> implements InboundFileS
 
 	@Override
 	public void close() throws IOException {
+		ExecutorService privateExecutor = this.privateExecutor;
+		if (privateExecutor != null) {
+			privateExecutor.shutdown();
+			this.privateExecutor = null;
+		}
 		if (this.filter instanceof Closeable) {
 			((Closeable) this.filter).close();
 		}
@@ -195,6 +295,10 @@ public abstract class AbstractInboundFileSynchronizer<F> implements InboundFileS
 
 	@Override
 	public void synchronizeToLocalDirectory(final File localDirectory) {
+		if (this.maxConcurrency > 1) {
+			synchronizeInParallel(localDirectory);
+			return;
+		}
 		try {
 			int transferred = this.remoteFileTemplate.execute(new SessionCallback<F, Integer>() {
 
@@ -202,7 +306,8 @@ public abstract class AbstractInboundFileSynchronizer<F> implements InboundFileS
 				public Integer doInSession(Session<F> session) throws IOException {
 					F[] files = session.list(AbstractInboundFileSynchronizer.this.remoteDirectory);
 					if (!ObjectUtils.isEmpty(files)) {
-						List<F> filteredFiles = AbstractInboundFileSynchronizer.this.filterFiles(files);
+						List<F> filteredFiles = AbstractInboundFileSynchronizer.this.limitFiles(
+								AbstractInboundFileSynchronizer.this.filterFiles(files));
 						for (F file : filteredFiles) {
 							try {
 								if (file != null) {
@@ -242,6 +347,200 @@ public abstract class AbstractInboundFileSynchronizer<F> implements InboundFileS
 		}
 	}
 
+	/**
+	 * Start downloading the files that pass the filter in parallel, unless downloads
+	 * from an earlier listing are outstanding, then wait until at least one download
+	 * has completed (or all have failed), or the download wait timeout elapses.
+	 */
+	private void synchronizeInParallel(final File localDirectory) {
+		synchronized (this.parallelMonitor) {
+			try {
+				if (this.inFlight.get() == 0) {
+					this.completions.clear();
+					List<F> files = this.remoteFileTemplate.execute(new SessionCallback<F, List<F>>() {
+
+						@Override
+						public List<F> doInSession(Session<F> session) throws IOException {
+							F[] files = session.list(AbstractInboundFileSynchronizer.this.remoteDirectory);
+							if (ObjectUtils.isEmpty(files)) {
+								return Collections.emptyList();
+							}
+							return AbstractInboundFileSynchronizer.this.limitFiles(
+									AbstractInboundFileSynchronizer.this.filterFiles(files));
+						}
+
+					});
+					if (files.isEmpty()) {
+						return;
+					}
+					startDownloads(files, localDirectory);
+				}
+				awaitDownloads();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MessagingException("Interrupted while synchronizing remote to local directory", e);
+			}
+			catch (MessagingException e) {
+				throw e;
+			}
+			catch (Exception e) {
+				throw new MessagingException("Problem occurred while synchronizing remote to local directory", e);
+			}
+		}
+	}
+
+	private void startDownloads(List<F> files, final File localDirectory) {
+		final Queue<F> toDownload = new ConcurrentLinkedQueue<F>();
+		for (F file : files) {
+			if (file != null) {
+				toDownload.add(file);
+			}
+		}
+		this.inFlight.set(toDownload.size());
+		int workerCount = Math.min(this.maxConcurrency, toDownload.size());
+		final AtomicInteger workers = new AtomicInteger(workerCount);
+		Executor executor = obtainTaskExecutor();
+		for (int i = 0; i < workerCount; i++) {
+			try {
+				executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							AbstractInboundFileSynchronizer.this.remoteFileTemplate.execute(
+									new SessionCallback<F, Void>() {
+
+								@Override
+								public Void doInSession(Session<F> session) throws IOException {
+									F file;
+									while ((file = toDownload.poll()) != null) {
+										download(file, localDirectory, session);
+									}
+									return null;
+								}
+
+							});
+						}
+						catch (Exception e) {
+							if (AbstractInboundFileSynchronizer.this.logger.isWarnEnabled()) {
+								AbstractInboundFileSynchronizer.this.logger.warn("Download task failed", e);
+							}
+							workersDone(workers, 1, toDownload, e);
+							return;
+						}
+						workersDone(workers, 1, toDownload, null);
+					}
+
+				});
+			}
+			catch (RejectedExecutionException e) {
+				if (this.logger.isWarnEnabled()) {
+					this.logger.warn("Download task rejected by the executor; " + i + " of " + workerCount
+							+ " tasks were started", e);
+				}
+				workersDone(workers, workerCount - i, toDownload, e);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Account for download tasks that have ended (or were never started); when none
+	 * remain, any files that were not downloaded have failed.
+	 */
+	private void workersDone(AtomicInteger workers, int count, Queue<F> toDownload, Exception cause) {
+		if (workers.addAndGet(-count) == 0) {
+			F file;
+			while ((file = toDownload.poll()) != null) {
+				failed(file, cause != null ? cause
+						: new IllegalStateException("No download task remains for " + getFilename(file)));
+			}
+		}
+	}
+
+	private void download(F file, File localDirectory, Session<F> session) {
+		try {
+			copyFileToLocalDirectory(this.remoteDirectory, file, localDirectory, session);
+			this.inFlight.decrementAndGet();
+			this.completions.add(getFilename(file));
+		}
+		catch (Exception e) {
+			failed(file, e);
+		}
+	}
+
+	private void failed(F file, Exception e) {
+		if (this.filter instanceof ReversibleFileListFilter) {
+			((ReversibleFileListFilter<F>) this.filter).rollback(file, Collections.singletonList(file));
+		}
+		this.inFlight.decrementAndGet();
+		this.completions.add(e);
+	}
+
+	private void awaitDownloads() throws InterruptedException {
+		Object completion = null;
+		long deadline = System.currentTimeMillis() + this.downloadWaitTimeout;
+		while (completion == null && (this.inFlight.get() > 0 || !this.completions.isEmpty())) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				break;
+			}
+			completion = this.completions.poll(Math.min(remaining, 100), TimeUnit.MILLISECONDS);
+		}
+		List<Object> completed = new ArrayList<Object>();
+		if (completion != null) {
+			completed.add(completion);
+		}
+		this.completions.drainTo(completed);
+		int transferred = 0;
+		Exception failure = null;
+		for (Object result : completed) {
+			if (result instanceof Exception) {
+				failure = (Exception) result;
+			}
+			else {
+				transferred++;
+			}
+		}
+		if (this.logger.isDebugEnabled()) {
+			this.logger.debug(transferred + " files transferred, " + this.inFlight.get() + " outstanding");
+		}
+		if (failure != null) {
+			throw new MessagingException("Failure occurred while copying from remote to local directory", failure);
+		}
+	}
+
+	private Executor obtainTaskExecutor() {
+		if (this.taskExecutor != null) {
+			return this.taskExecutor;
+		}
+		if (this.privateExecutor == null) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("remote-file-download-");
+			threadFactory.setDaemon(true);
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(this.maxConcurrency, this.maxConcurrency, 60,
+					TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+			executor.allowCoreThreadTimeOut(true);
+			this.privateExecutor = executor;
+		}
+		return this.privateExecutor;
+	}
+
+	private List<F> limitFiles(List<F> files) {
+		if (files.size() <= this.maxFetchSize) {
+			return files;
+		}
+		if (this.filter instanceof ReversibleFileListFilter) {
+			((ReversibleFileListFilter<F>) this.filter).rollback(files.get(this.maxFetchSize), files);
+		}
+		else if (this.filter != null && this.logger.isWarnEnabled()) {
+			this.logger.warn((files.size() - this.maxFetchSize) + " files exceeding the 'maxFetchSize' ("
+					+ this.maxFetchSize + ") cannot be passed back to the filter, which is not a "
+					+ "ReversibleFileListFilter; they will only be fetched later if the filter accepts them again");
+		}
+		return files.subList(0, this.maxFetchSize);
+	}
+
 	protected void copyFileToLocalDirectory(String remoteDirectoryPath, F remoteFile, File localDirectory,
 			Session<F> session) throws IOException {
 		String remoteFileName = this.getFilename(remoteFile);
@@ -0,0 +1,411 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.splitter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.springframework.integration.splitter.AbstractMessageSplitter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.util.Assert;
+
+/**
+ * The {@link AbstractMessageSplitter} implementation to split the contents of a binary
+ * {@link File} into chunks of a fixed size, chunks separated by a delimiter, or
+ * records each preceded by a length header.
+ * <p>
+ * The file is mapped into memory (in regions of up to
+ * {@link #setMappingSize(int) mappingSize} bytes) rather than read through a stream,
+ * so the operating system reads the pages directly and no intermediate buffers are
+ * filled. Each chunk is emitted as a {@code byte[]} copy or, with
+ * {@link #setByteBuffers(boolean) byteBuffers}, as a read-only {@link ByteBuffer}
+ * slice of the mapped region, with no copy at all. A mapped region stays valid while
+ * any slice of it is referenced; the file must not be truncated while it is in use.
+ * <p>
+ * With {@code iterator = true} (defaults to {@code true}) the chunks are produced on
+ * demand; otherwise a {@link List} of all chunks is returned. When splitting into
+ * chunks of a fixed size the number of chunks is known in advance, so the
+ * {@code sequenceSize} header is populated in both cases.
+ * <p>
+ * Can accept {@link String} as file path or {@link File} as payload type.
+ * All other types are ignored and returned to the {@link AbstractMessageSplitter} as is.
+ *
+ * @since 4.2
+ */
+public class BinaryFileSplitter extends AbstractMessageSplitter {
+
+	/**
+	 * The default maximum number of bytes mapped at a time.
+	 */
+	public static final int DEFAULT_MAPPING_SIZE = 256 * 1024 * 1024;
+
+	private final boolean iterator;
+
+	private volatile int chunkSize;
+
+	private volatile byte[] delimiter;
+
+	private volatile int lengthHeaderSize;
+
+	private volatile boolean byteBuffers;
+
+	private volatile int mappingSize = DEFAULT_MAPPING_SIZE;
+
+	/**
+	 * Construct a splitter where the {@link #splitMessage(Message)} method returns
+	 * an iterator, and the chunks are produced during iteration.
+	 */
+	public BinaryFileSplitter() {
+		this(true);
+	}
+
+	/**
+	 * Construct a splitter where the {@link #splitMessage(Message)} method returns
+	 * an iterator, and the chunks are produced during iteration, or a list of chunks.
+	 * @param iterator true to return an iterator, false to return a list of chunks.
+	 */
+	public BinaryFileSplitter(boolean iterator) {
+		this.iterator = iterator;
+	}
+
+	/**
+	 * Split the file into chunks of this many bytes; the last chunk may be shorter.
+	 * Must not be greater than the {@link #setMappingSize(int) mappingSize}.
+	 * @param chunkSize the chunk size.
+	 */
+	public void setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "'chunkSize' must be greater than 0");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Split the file at each occurrence of these bytes, which are not included in the
+	 * chunks. Any bytes after the last delimiter form the final chunk.
+	 * @param delimiter the delimiter.
+	 */
+	public void setDelimiter(byte... delimiter) {
+		Assert.isTrue(delimiter != null && delimiter.length > 0, "'delimiter' cannot be empty");
+		this.delimiter = delimiter.clone();
+	}
+
+	/**
+	 * Split the file into records, each preceded by an unsigned, big-endian length header
+	 * of this many bytes (1, 2 or 4). The headers are not included in the chunks.
+	 * @param lengthHeaderSize the size of the length header.
+	 */
+	public void setLengthHeaderSize(int lengthHeaderSize) {
+		Assert.isTrue(lengthHeaderSize == 1 || lengthHeaderSize == 2 || lengthHeaderSize == 4,
+				"'lengthHeaderSize' must be 1, 2 or 4");
+		this.lengthHeaderSize = lengthHeaderSize;
+	}
+
+	/**
+	 * Set to true to emit each chunk as a read-only {@link ByteBuffer} slice of the
+	 * mapped file instead of a {@code byte[]} copy (default false).
+	 * @param byteBuffers true for {@link ByteBuffer} chunks.
+	 */
+	public void setByteBuffers(boolean byteBuffers) {
+		this.byteBuffers = byteBuffers;
+	}
+
+	/**
+	 * Set the maximum number of bytes mapped at a time (default 256Mb); also the maximum
+	 * size of a chunk. Larger files are mapped a region at a time.
+	 * @param mappingSize the mapping size.
+	 */
+	public void setMappingSize(int mappingSize) {
+		Assert.isTrue(mappingSize > 0, "'mappingSize' must be greater than 0");
+		this.mappingSize = mappingSize;
+	}
+
+	@Override
+	protected void doInit() {
+		super.doInit();
+		assertConfiguration();
+	}
+
+	@Override
+	protected Object splitMessage(final Message<?> message) {
+		Object payload = message.getPayload();
+
+		File file;
+		if (payload instanceof String) {
+			file = new File((String) payload);
+		}
+		else if (payload instanceof File) {
+			file = (File) payload;
+		}
+		else {
+			return message;
+		}
+
+		assertConfiguration();
+
+		if (!file.isFile()) {
+			throw new MessageHandlingException(message, "failed to read file [" + payload + "]");
+		}
+
+		final ChunkIterator chunks = new ChunkIterator(message, file);
+
+		if (this.iterator) {
+			if (this.chunkSize > 0) {
+				final long count = (chunks.size + this.chunkSize - 1) / this.chunkSize;
+				return new AbstractCollection<Object>() {
+
+					@Override
+					public Iterator<Object> iterator() {
+						return chunks;
+					}
+
+					@Override
+					public int size() {
+						return (int) Math.min(count, Integer.MAX_VALUE);
+					}
+
+				};
+			}
+			return chunks;
+		}
+		else {
+			List<Object> list = new ArrayList<Object>();
+			while (chunks.hasNext()) {
+				list.add(chunks.next());
+			}
+			return list;
+		}
+	}
+	private void assertConfiguration() {
+		int modes = (this.chunkSize > 0 ? 1 : 0) + (this.delimiter != null ? 1 : 0)
+				+ (this.lengthHeaderSize > 0 ? 1 : 0);
+		Assert.state(modes == 1, "Exactly one of 'chunkSize', 'delimiter' or 'lengthHeaderSize' must be set");
+		// a chunk (or length header) is always read from a single mapped region
+		Assert.state(this.chunkSize <= this.mappingSize, "'chunkSize' (" + this.chunkSize
+				+ ") must not be greater than 'mappingSize' (" + this.mappingSize + ")");
+		Assert.state(this.lengthHeaderSize <= this.mappingSize, "'lengthHeaderSize' (" + this.lengthHeaderSize
+				+ ") must not be greater than 'mappingSize' (" + this.mappingSize + ")");
+	}
+
+	private final class ChunkIterator implements Iterator<Object> {
+
+		private final Message<?> message;
+
+		private final File file;
+
+		private final long size;
+
+		private final int chunkSize = BinaryFileSplitter.this.chunkSize;
+
+		private final byte[] delimiter = BinaryFileSplitter.this.delimiter;
+
+		private final int lengthHeaderSize = BinaryFileSplitter.this.lengthHeaderSize;
+
+		private final boolean byteBuffers = BinaryFileSplitter.this.byteBuffers;
+
+		private final int mappingSize = BinaryFileSplitter.this.mappingSize;
+
+		private ByteBuffer region;
+
+		private long regionStart;
+
+		private long position;
+
+		private Object next;
+
+		ChunkIterator(Message<?> message, File file) {
+			this.message = message;
+			this.file = file;
+			this.size = file.length();
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.next == null) {
+				this.next = readNext();
+			}
+			return this.next != null;
+		}
+
+		@Override
+		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Object chunk = this.next;
+			this.next = null;
+			return chunk;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private Object readNext() {
+			if (this.position >= this.size) {
+				this.region = null;
+				return null;
+			}
+			if (this.chunkSize > 0) {
+				int length = (int) Math.min(this.chunkSize, this.size - this.position);
+				Object chunk = chunk(this.position, length);
+				this.position += length;
+				return chunk;
+			}
+			else if (this.delimiter != null) {
+				return readDelimited();
+			}
+			else {
+				return readLengthPrefixed();
+			}
+		}
+
+		private Object readLengthPrefixed() {
+			if (this.size - this.position < this.lengthHeaderSize) {
+				throw new MessageHandlingException(this.message, "Truncated length header at offset "
+						+ this.position + " in file [" + this.file + "]");
+			}
+			ByteBuffer buffer = map(this.position, this.lengthHeaderSize);
+			int offset = (int) (this.position - this.regionStart);
+			long length;
+			switch (this.lengthHeaderSize) {
+				case 1:
+					length = buffer.get(offset) & 0xff;
+					break;
+				case 2:
+					length = buffer.getShort(offset) & 0xffff;
+					break;
+				default:
+					length = buffer.getInt(offset) & 0xffffffffL;
+			}
+			long start = this.position + this.lengthHeaderSize;
+			if (length > this.size - start) {
+				throw new MessageHandlingException(this.message, "Record of length " + length + " at offset "
+						+ this.position + " extends beyond the end of file [" + this.file + "]");
+			}
+			checkLength(length);
+			Object chunk = chunk(start, (int) length);
+			this.position = start + length;
+			return chunk;
+		}
+
+		private Object readDelimited() {
+			long start = this.position;
+			ByteBuffer buffer = map(start, 0);
+			while (true) {
+				int from = (int) (start - this.regionStart);
+				int found = indexOf(buffer, from);
+				if (found >= 0) {
+					Object chunk = chunk(start, found - from);
+					this.position = this.regionStart + found + this.delimiter.length;
+					return chunk;
+				}
+				long regionEnd = this.regionStart + buffer.limit();
+				if (regionEnd >= this.size) {
+					Object chunk = chunk(start, (int) (this.size - start));
+					this.position = this.size;
+					return chunk;
+				}
+				// the record (or its delimiter) spans the end of the region
+				checkLength(regionEnd - start + 1);
+				buffer = remap(start);
+			}
+		}
+
+		private int indexOf(ByteBuffer buffer, int from) {
+			byte first = this.delimiter[0];
+			int last = buffer.limit() - this.delimiter.length;
+			for (int i = from; i <= last; i++) {
+				if (buffer.get(i) == first) {
+					int j = 1;
+					while (j < this.delimiter.length && buffer.get(i + j) == this.delimiter[j]) {
+						j++;
+					}
+					if (j == this.delimiter.length) {
+						return i;
+					}
+				}
+			}
+			return -1;
+		}
+
+		private void checkLength(long length) {
+			if (length > this.mappingSize) {
+				throw new MessageHandlingException(this.message, "Chunk at offset " + this.position
+						+ " in file [" + this.file + "] is larger than the mapping size (" + this.mappingSize + ")");
+			}
+		}
+
+		private Object chunk(long start, int length) {
+			ByteBuffer buffer = map(start, length).duplicate();
+			int offset = (int) (start - this.regionStart);
+			buffer.limit(offset + length);
+			buffer.position(offset);
+			if (this.byteBuffers) {
+				return buffer.slice();
+			}
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return bytes;
+		}
+
+		/**
+		 * Return the mapped region containing the bytes from {@code start} to
+		 * {@code start + length}, mapping a new region if necessary.
+		 */
+		private ByteBuffer map(long start, int length) {
+			if (this.region == null || start < this.regionStart
+					|| start + length > this.regionStart + this.region.limit()) {
+				return remap(start);
+			}
+			return this.region;
+		}
+
+		private ByteBuffer remap(long start) {
+			long length = Math.min(this.mappingSize, this.size - start);
+			FileInputStream in = null;
+			try {
+				in = new FileInputStream(this.file);
+				// the mapping remains valid after the channel is closed
+				this.region = in.getChannel().map(FileChannel.MapMode.READ_ONLY, start, length);
+				this.regionStart = start;
+				return this.region;
+			}
+			catch (IOException e) {
+				throw new MessageHandlingException(this.message, "IOException while iterating", e);
+			}
+			finally {
+				if (in != null) {
+					try {
+						in.close();
+					}
+					catch (IOException e) {}
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.support;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.springframework.util.Assert;
+
+/**
+ * File operations using {@link FileChannel}s, which avoid copying the data through
+ * heap buffers; file to file copies use {@link FileChannel#transferTo(long, long,
+ * java.nio.channels.WritableByteChannel) transferTo()}, which the operating system
+ * can perform without copying the data into the JVM at all.
+ *
+ * @since 4.2
+ */
+public abstract class FileChannelUtils {
+
+	/**
+	 * Copy the contents of a file to another file.
+	 * @param source the source file.
+	 * @param target the target file.
+	 * @param append true to append to the target file, false to replace its contents.
+	 * @param suffix bytes to write after the contents (e.g. a line separator); may be null.
+	 * @return the number of bytes copied, excluding the suffix.
+	 * @throws IOException if the copy fails.
+	 */
+	public static long copy(File source, File target, boolean append, byte[] suffix) throws IOException {
+		Assert.notNull(source, "'source' cannot be null");
+		Assert.notNull(target, "'target' cannot be null");
+		FileInputStream in = new FileInputStream(source);
+		FileOutputStream out = null;
+		try {
+			out = new FileOutputStream(target, append);
+			FileChannel inChannel = in.getChannel();
+			FileChannel outChannel = out.getChannel();
+			long size = inChannel.size();
+			long position = 0;
+			while (position < size) {
+				long transferred = inChannel.transferTo(position, size - position, outChannel);
+				if (transferred <= 0) {
+					// the source was truncated
+					break;
+				}
+				position += transferred;
+			}
+			if (suffix != null) {
+				ByteBuffer buffer = ByteBuffer.wrap(suffix);
+				while (buffer.hasRemaining()) {
+					outChannel.write(buffer);
+				}
+			}
+			return position;
+		}
+		finally {
+			closeQuietly(in);
+			closeQuietly(out);
+		}
+	}
+
+	/**
+	 * Read the contents of a file into a byte array of the file's size.
+	 * @param file the file.
+	 * @return the contents.
+	 * @throws IOException if the file cannot be read, or is larger than the maximum
+	 * array size.
+	 */
+	public static byte[] readBytes(File file) throws IOException {
+		Assert.notNull(file, "'file' cannot be null");
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File " + file + " is too large (" + size + " bytes) to read into an array");
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			readFully(channel, buffer, file);
+			return buffer.array();
+		}
+		finally {
+			closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Read the contents of a file into a heap {@link ByteBuffer}, or map the file into
+	 * memory if its size is at least the threshold. A mapped buffer remains valid after
+	 * this method returns; it is read-only and the file must not be truncated while it
+	 * is in use. Mapping avoids copying the contents into the heap; the pages are read by
+	 * the operating system when they are accessed.
+	 * @param file the file.
+	 * @param mappingThreshold the size at or above which the file is mapped.
+	 * @return the buffer, ready to be read.
+	 * @throws IOException if the file cannot be read, or is larger than the maximum
+	 * buffer size.
+	 */
+	public static ByteBuffer readBuffer(File file, long mappingThreshold) throws IOException {
+		Assert.notNull(file, "'file' cannot be null");
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File " + file + " is too large (" + size + " bytes) for a ByteBuffer");
+			}
+			if (size >= mappingThreshold) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			readFully(channel, buffer, file);
+			buffer.flip();
+			return buffer;
+		}
+		finally {
+			closeQuietly(in);
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, File file) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new EOFException("File " + file + " was truncated while being read");
+			}
+		}
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			}
+			catch (IOException e) {
+			}
+		}
+	}
+
+}
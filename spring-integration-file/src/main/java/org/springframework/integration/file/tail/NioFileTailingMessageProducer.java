@@ -0,0 +1,481 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.tail;
+
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.integration.metadata.MetadataStore;
+import org.springframework.util.Assert;
+
+/**
+ * A file tailer that reads the file through a {@link FileChannel}, from the position
+ * reached by the previous read, whenever a {@link WatchService} reports that the file
+ * has been modified; the file is also checked every {@link #setPollingDelay(long)
+ * pollingDelay} in case a notification is missed (or the platform does not support
+ * them). Each read takes all the available data (in chunks of up to 64Kb), and sends
+ * a message for each complete line.
+ * <p>
+ * The file is deemed to have been rotated when the file with its name is a different
+ * file (a different inode, on platforms that support file keys), or is shorter than
+ * the position reached; the rest of the old file is read (a final line without a line
+ * terminator is sent as it is), then the new file is read from the beginning. A file
+ * that does not exist when the adapter starts is also read from the beginning when it
+ * appears.
+ * <p>
+ * When a {@link MetadataStore} is provided, the position (and key) of the file is
+ * stored after each read, and the adapter resumes from that position when restarted,
+ * unless the file has since been rotated.
+ * <p>
+ * Lines are separated by {@code \n} (or {@code \r\n}), so the charset must encode
+ * {@code \n} as a single byte (as UTF-8 and the ISO-8859 charsets do).
+ *
+ * @since 4.2
+ */
+public class NioFileTailingMessageProducer extends FileTailingMessageProducerSupport {
+
+	private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+	private volatile long pollingDelay = 1000;
+
+	private volatile boolean end = true;
+
+	private volatile Charset charset = Charset.defaultCharset();
+
+	private volatile MetadataStore metadataStore;
+
+	private volatile String metadataKey;
+
+	private volatile Tailer tailer;
+
+	/**
+	 * The maximum delay between checks of the file for new content in milliseconds,
+	 * when no notification is received. Default 1000.
+	 * @param pollingDelay The delay.
+	 */
+	public void setPollingDelay(long pollingDelay) {
+		Assert.isTrue(pollingDelay > 0, "'pollingDelay' must be > 0");
+		this.pollingDelay = pollingDelay;
+	}
+
+	/**
+	 * If true, tail from the end of the file, otherwise
+	 * include all lines from the beginning. Default true.
+	 * Does not apply when resuming from a position in the {@link MetadataStore}.
+	 * @param end true or false
+	 */
+	public void setEnd(boolean end) {
+		this.end = end;
+	}
+
+	/**
+	 * Set the charset used to decode the lines; default is the platform charset.
+	 * @param charset the charset.
+	 */
+	public void setCharset(Charset charset) {
+		Assert.notNull(charset, "'charset' cannot be null");
+		this.charset = charset;
+	}
+
+	/**
+	 * A {@link MetadataStore} in which to store the position reached in the file, so
+	 * that a restarted adapter resumes from that position.
+	 * @param metadataStore the metadata store.
+	 */
+	public void setMetadataStore(MetadataStore metadataStore) {
+		this.metadataStore = metadataStore;
+	}
+
+	/**
+	 * The key under which the position is stored; default "tail:" followed by the
+	 * absolute path of the file.
+	 * @param metadataKey the key.
+	 */
+	public void setMetadataKey(String metadataKey) {
+		this.metadataKey = metadataKey;
+	}
+
+	@Override
+	public String getComponentType() {
+		return super.getComponentType() + " (nio)";
+	}
+
+	@Override
+	protected void doStart() {
+		super.doStart();
+		File file = this.getFile().getAbsoluteFile();
+		String key = this.metadataKey != null ? this.metadataKey : "tail:" + file.getPath();
+		Tailer tailer = new Tailer(file, key);
+		this.getTaskExecutor().execute(tailer);
+		this.tailer = tailer;
+	}
+
+	@Override
+	protected void doStop() {
+		super.doStop();
+		this.tailer.stop();
+	}
+
+
+	private final class Tailer implements Runnable {
+
+		private final Path path;
+
+		private final String key;
+
+		private final long pollingDelay = NioFileTailingMessageProducer.this.pollingDelay;
+
+		private final Charset charset = NioFileTailingMessageProducer.this.charset;
+
+		private final MetadataStore metadataStore = NioFileTailingMessageProducer.this.metadataStore;
+
+		private volatile boolean stopped;
+
+		private volatile WatchService watcher;
+
+		private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+		private FileChannel channel;
+
+		private Object fileKey;
+
+		/**
+		 * The position of the start of the next line.
+		 */
+		private long position;
+
+		private long storedPosition = -1;
+
+		private boolean resume;
+
+		Tailer(File file, String key) {
+			this.path = file.toPath();
+			this.key = key;
+		}
+
+		void stop() {
+			this.stopped = true;
+			closeWatcher();
+		}
+
+		@Override
+		public void run() {
+			this.watcher = createWatcher();
+			boolean first = true;
+			try {
+				while (!this.stopped) {
+					try {
+						if (this.channel == null) {
+							boolean opened = open(first);
+							first = false;
+							if (!opened) {
+								await(getMissingFileDelay());
+								continue;
+							}
+						}
+						if (!read() && !checkRotation()) {
+							await(this.pollingDelay);
+						}
+					}
+					catch (IOException e) {
+						publish(e.getMessage());
+						if (logger.isDebugEnabled()) {
+							logger.debug("Exception while tailing " + this.path, e);
+						}
+						closeChannel();
+						this.resume = true;
+						await(getMissingFileDelay());
+					}
+				}
+			}
+			finally {
+				closeChannel();
+				closeWatcher();
+				if (this.metadataStore instanceof Flushable) {
+					try {
+						((Flushable) this.metadataStore).flush();
+					}
+					catch (IOException e) {
+						logger.error("Failed to flush the metadata store", e);
+					}
+				}
+			}
+		}
+
+		private boolean open(boolean first) throws IOException {
+			FileChannel channel;
+			try {
+				channel = FileChannel.open(this.path, StandardOpenOption.READ);
+			}
+			catch (NoSuchFileException e) {
+				publish("File not found:" + this.path);
+				return false;
+			}
+			try {
+				Object fileKey = Files.readAttributes(this.path, BasicFileAttributes.class).fileKey();
+				long size = channel.size();
+				long position;
+				if (this.resume) {
+					position = sameFile(fileKey) && this.position <= size ? this.position : 0;
+				}
+				else if (first) {
+					position = initialPosition(fileKey, size);
+				}
+				else {
+					position = 0;
+				}
+				channel.position(position);
+				this.channel = channel;
+				this.fileKey = fileKey;
+				this.position = position;
+				this.resume = false;
+				this.buffer.clear();
+				if (logger.isDebugEnabled()) {
+					logger.debug("Tailing " + this.path + " from position " + position);
+				}
+				return true;
+			}
+			catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+		}
+
+		private boolean sameFile(Object fileKey) {
+			return this.fileKey == null || fileKey == null || this.fileKey.equals(fileKey);
+		}
+
+		private long initialPosition(Object fileKey, long size) {
+			String stored = this.metadataStore != null ? this.metadataStore.get(this.key) : null;
+			if (stored != null) {
+				// "position:fileKey"
+				int colon = stored.indexOf(':');
+				long position = Long.parseLong(colon < 0 ? stored : stored.substring(0, colon));
+				String storedKey = colon < 0 ? "" : stored.substring(colon + 1);
+				boolean sameFile = storedKey.length() == 0 || fileKey == null || storedKey.equals(fileKey.toString());
+				return sameFile && position <= size ? position : 0;
+			}
+			return NioFileTailingMessageProducer.this.end ? size : 0;
+		}
+
+		/**
+		 * Read and send all the complete lines available.
+		 * @return true if any data was read.
+		 */
+		private boolean read() throws IOException {
+			boolean read = false;
+			while (!this.stopped && this.channel.read(this.buffer) > 0) {
+				read = true;
+				sendLines();
+				storePosition();
+			}
+			return read;
+		}
+
+		private void sendLines() {
+			byte[] bytes = this.buffer.array();
+			int limit = this.buffer.position();
+			int start = 0;
+			for (int i = 0; i < limit; i++) {
+				if (bytes[i] == '\n') {
+					int end = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+					String line = new String(bytes, start, end - start, this.charset);
+					start = i + 1;
+					try {
+						send(line);
+					}
+					catch (RuntimeException e) {
+						publish("Failed to send line: " + e.getMessage());
+						logger.error("Failed to send line from " + this.path, e);
+					}
+				}
+			}
+			this.position += start;
+			if (start > 0) {
+				System.arraycopy(bytes, start, bytes, 0, limit - start);
+				this.buffer.position(limit - start);
+			}
+			else if (limit == bytes.length) {
+				// a line longer than the buffer
+				ByteBuffer buffer = ByteBuffer.allocate(bytes.length * 2);
+				buffer.put(bytes, 0, limit);
+				this.buffer = buffer;
+			}
+		}
+
+		/**
+		 * Send the unterminated line (if any) at the end of a file that will no longer
+		 * be read.
+		 */
+		private void sendRemainder() {
+			int limit = this.buffer.position();
+			if (limit > 0) {
+				byte[] bytes = this.buffer.array();
+				int end = bytes[limit - 1] == '\r' ? limit - 1 : limit;
+				try {
+					send(new String(bytes, 0, end, this.charset));
+				}
+				catch (RuntimeException e) {
+					publish("Failed to send line: " + e.getMessage());
+					logger.error("Failed to send line from " + this.path, e);
+				}
+				this.position += limit;
+				this.buffer.clear();
+			}
+		}
+
+		private void storePosition() {
+			if (this.metadataStore != null && this.position != this.storedPosition) {
+				this.metadataStore.put(this.key, this.position + ":" + (this.fileKey == null ? "" : this.fileKey));
+				this.storedPosition = this.position;
+			}
+		}
+
+		/**
+		 * Check whether the file has been replaced or truncated, in which case the old
+		 * file is closed so that the new one is opened.
+		 * @return true if the file has been rotated.
+		 */
+		private boolean checkRotation() throws IOException {
+			BasicFileAttributes attributes;
+			try {
+				attributes = Files.readAttributes(this.path, BasicFileAttributes.class);
+			}
+			catch (NoSuchFileException e) {
+				// renamed or deleted; keep reading the old file until a new one appears
+				return false;
+			}
+			String event;
+			if (!sameFile(attributes.fileKey())) {
+				event = "File rotated:";
+			}
+			else if (attributes.size() < this.channel.position()) {
+				event = "File truncated:";
+			}
+			else {
+				return false;
+			}
+			// anything written to the old file since the last read
+			read();
+			sendRemainder();
+			closeChannel();
+			publish(event + this.path);
+			return true;
+		}
+
+		/**
+		 * Wait for a notification that the file has changed, or the timeout.
+		 */
+		private void await(long timeout) {
+			WatchService watcher = this.watcher;
+			try {
+				if (watcher == null) {
+					Thread.sleep(timeout);
+					return;
+				}
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+				long remaining = timeout;
+				while (remaining > 0) {
+					WatchKey key = watcher.poll(remaining, TimeUnit.MILLISECONDS);
+					if (key == null) {
+						return;
+					}
+					boolean changed = false;
+					for (WatchEvent<?> event : key.pollEvents()) {
+						changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+								|| this.path.getFileName().equals(event.context());
+					}
+					key.reset();
+					if (changed) {
+						return;
+					}
+					remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				this.stopped = true;
+			}
+			catch (ClosedWatchServiceException e) {
+				// stopped
+			}
+		}
+
+		private WatchService createWatcher() {
+			WatchService watcher = null;
+			try {
+				watcher = this.path.getFileSystem().newWatchService();
+				this.path.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+				return watcher;
+			}
+			catch (Exception e) {
+				if (logger.isWarnEnabled()) {
+					logger.warn("Cannot watch " + this.path.getParent() + "; polling every "
+							+ this.pollingDelay + " milliseconds", e);
+				}
+				if (watcher != null) {
+					try {
+						watcher.close();
+					}
+					catch (IOException e1) {
+					}
+				}
+				return null;
+			}
+		}
+
+		private void closeWatcher() {
+			WatchService watcher = this.watcher;
+			if (watcher != null) {
+				try {
+					watcher.close();
+				}
+				catch (IOException e) {
+				}
+			}
+		}
+
+		private void closeChannel() {
+			if (this.channel != null) {
+				try {
+					this.channel.close();
+				}
+				catch (IOException e) {
+				}
+				this.channel = null;
+			}
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2008 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,18 +18,19 @@ package org.springframework.integration.file.transformer;
 
 import java.io.File;
 
-import org.springframework.util.FileCopyUtils;
+import org.springframework.integration.file.support.FileChannelUtils;
 
 /**
  * A payload transformer that copies a File's contents to a byte array.
  * 
  * @author Mark Fisher
+ * @see FileToByteBufferTransformer
  */
 public class FileToByteArrayTransformer extends AbstractFilePayloadTransformer<byte[]> {
 
 	@Override
 	protected final byte[] transformFile(File file) throws Exception {
-		return FileCopyUtils.copyToByteArray(file);
+		return FileChannelUtils.readBytes(file);
 	}
 
 }
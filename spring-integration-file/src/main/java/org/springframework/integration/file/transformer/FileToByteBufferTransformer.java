@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.transformer;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.springframework.integration.file.support.FileChannelUtils;
+import org.springframework.util.Assert;
+
+/**
+ * A payload transformer that converts a File to a {@link ByteBuffer}. Files at least as
+ * large as the {@link #setMappingThreshold(long) mappingThreshold} are mapped into
+ * memory (read-only), so their contents are not copied into the heap; smaller files are
+ * read into a heap buffer. A mapped file must not be truncated, and may not be
+ * deletable on some platforms (so {@code deleteFiles} may fail), while the buffer is in
+ * use.
+ *
+ * @since 4.2
+ */
+public class FileToByteBufferTransformer extends AbstractFilePayloadTransformer<ByteBuffer> {
+
+	private static final long DEFAULT_MAPPING_THRESHOLD = 1024 * 1024;
+
+	private volatile long mappingThreshold = DEFAULT_MAPPING_THRESHOLD;
+
+	/**
+	 * Set the file size at or above which files are mapped into memory; 0 to map all
+	 * files. Default 1 megabyte.
+	 * @param mappingThreshold the threshold.
+	 */
+	public void setMappingThreshold(long mappingThreshold) {
+		Assert.isTrue(mappingThreshold >= 0, "'mappingThreshold' cannot be negative");
+		this.mappingThreshold = mappingThreshold;
+	}
+
+	@Override
+	protected final ByteBuffer transformFile(File file) throws Exception {
+		return FileChannelUtils.readBuffer(file, this.mappingThreshold);
+	}
+
+}
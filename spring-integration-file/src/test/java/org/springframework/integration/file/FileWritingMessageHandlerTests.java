@@ -21,17 +21,22 @@ import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 import org.junit.Before;
 import org.junit.Ignore;
@@ -44,9 +49,13 @@ import org.springframework.integration.channel.NullChannel;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.file.support.FileExistsMode;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.support.locks.LockRegistry;
+import org.springframework.integration.test.util.TestUtils;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHandlingException;
 import org.springframework.messaging.support.GenericMessage;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.util.FileCopyUtils;
 
 /**
@@ -171,6 +180,20 @@ public class FileWritingMessageHandlerTests {
 		assertFileContentIs(result, SAMPLE_CONTENT + System.getProperty("line.separator"));
 	}
 
+	@Test
+	public void filePayloadAppendedToExistingFile() throws Exception {
+		File outFile = new File(outputDirectory, "out.txt");
+		FileCopyUtils.copy("foo".getBytes(DEFAULT_ENCODING), outFile);
+		Message<?> message = MessageBuilder.withPayload(sourceFile).setHeader(FileHeaders.FILENAME, "out.txt").build();
+		handler.setFileExistsMode(FileExistsMode.APPEND);
+		handler.setAppendNewLine(true);
+		handler.setOutputChannel(new NullChannel());
+		handler.handleMessage(message);
+		handler.handleMessage(message);
+		String newLine = System.getProperty("line.separator");
+		assertFileContentIs(outFile, "foo" + SAMPLE_CONTENT + newLine + SAMPLE_CONTENT + newLine);
+	}
+
 	@Test @Ignore // INT-3289 ignored because it won't fail on all OS
 	public void testCreateDirFail() {
 		File dir = new File("/foo");
@@ -341,6 +364,140 @@ public class FileWritingMessageHandlerTests {
 		assertFileContentIs(outFile, "foo");
 	}
 
+	@Test
+	public void appendToOpenFiles() throws Exception {
+		handler.setFileExistsMode(FileExistsMode.APPEND);
+		handler.setMaxOpenFiles(2);
+		handler.setFlushInterval(0);
+		handler.setIdleTimeout(0);
+		handler.setOutputChannel(new NullChannel());
+		for (int i = 0; i < 3; i++) {
+			handler.handleMessage(fileMessage("a.txt", "foo"));
+		}
+		File a = new File(outputDirectory, "a.txt");
+		assertEquals(0, a.length());
+		assertEquals(1, handler.getOpenFileCount());
+
+		handler.handleMessage(fileMessage("b.txt", "bar"));
+		handler.handleMessage(fileMessage("c.txt", "baz"));
+		assertEquals(2, handler.getOpenFileCount());
+		assertFileContentIs(a, "foofoofoo");
+
+		handler.trigger(new GenericMessage<String>(".*b\\.txt"));
+		assertEquals(1, handler.getOpenFileCount());
+		assertFileContentIs(new File(outputDirectory, "b.txt"), "bar");
+
+		handler.stop();
+		assertEquals(0, handler.getOpenFileCount());
+		assertFileContentIs(new File(outputDirectory, "c.txt"), "baz");
+		assertEquals(3, handler.getFlushCount());
+
+		handler.handleMessage(fileMessage("a.txt", "qux"));
+		assertEquals(0, handler.getOpenFileCount());
+		assertFileContentIs(a, "foofoofooqux");
+	}
+
+	@Test
+	public void appendToOpenFileFlushesOnSize() throws Exception {
+		handler.setFileExistsMode(FileExistsMode.APPEND);
+		handler.setMaxOpenFiles(1);
+		handler.setFlushSize(4);
+		handler.setFlushInterval(0);
+		handler.setIdleTimeout(0);
+		handler.setOutputChannel(new NullChannel());
+		handler.handleMessage(fileMessage("a.txt", "foo"));
+		File a = new File(outputDirectory, "a.txt");
+		assertEquals(0, a.length());
+		handler.handleMessage(fileMessage("a.txt", "bar"));
+		assertFileContentIs(a, "foobar");
+		assertEquals(1, handler.getFlushCount());
+		assertEquals(1, handler.getOpenFileCount());
+		handler.stop();
+	}
+
+	@Test
+	public void appendToOpenFileFlushesOnIntervalAndClosesWhenIdle() throws Exception {
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.afterPropertiesSet();
+		BeanFactory beanFactory = mock(BeanFactory.class);
+		when(beanFactory.containsBean("taskScheduler")).thenReturn(true);
+		when(beanFactory.getBean("taskScheduler", TaskScheduler.class)).thenReturn(scheduler);
+		FileWritingMessageHandler handler = new FileWritingMessageHandler(outputDirectory);
+		handler.setBeanFactory(beanFactory);
+		handler.setFileExistsMode(FileExistsMode.APPEND);
+		handler.setMaxOpenFiles(10);
+		handler.setFlushInterval(50);
+		handler.setIdleTimeout(1000);
+		handler.setOutputChannel(new NullChannel());
+		handler.afterPropertiesSet();
+		handler.handleMessage(fileMessage("a.txt", "foo"));
+		File a = new File(outputDirectory, "a.txt");
+		int n = 0;
+		while (n++ < 100 && a.length() == 0) {
+			Thread.sleep(50);
+		}
+		assertFileContentIs(a, "foo");
+		assertEquals(1, handler.getOpenFileCount());
+		n = 0;
+		while (n++ < 100 && handler.getOpenFileCount() > 0) {
+			Thread.sleep(50);
+		}
+		assertEquals(0, handler.getOpenFileCount());
+		handler.stop();
+		scheduler.destroy();
+	}
+
+	@Test
+	public void maxOpenFilesIsSoftCapWhileFileIsBusy() throws Exception {
+		handler.setFileExistsMode(FileExistsMode.APPEND);
+		handler.setMaxOpenFiles(1);
+		handler.setFlushInterval(0);
+		handler.setIdleTimeout(0);
+		handler.setOutputChannel(new NullChannel());
+		handler.handleMessage(fileMessage("a.txt", "foo"));
+		final File a = new File(outputDirectory, "a.txt");
+		final Lock lock = TestUtils.getPropertyValue(handler, "lockRegistry", LockRegistry.class)
+				.obtain(a.getAbsolutePath());
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		Thread holder = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				lock.lock();
+				try {
+					locked.countDown();
+					release.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				finally {
+					lock.unlock();
+				}
+			}
+
+		});
+		holder.start();
+		assertTrue(locked.await(10, TimeUnit.SECONDS));
+		handler.handleMessage(fileMessage("b.txt", "bar"));
+		// 'a.txt' is busy, so it is left open
+		assertEquals(2, handler.getOpenFileCount());
+		release.countDown();
+		holder.join(10000);
+		handler.handleMessage(fileMessage("c.txt", "baz"));
+		assertEquals(1, handler.getOpenFileCount());
+		assertFileContentIs(a, "foo");
+		assertFileContentIs(new File(outputDirectory, "b.txt"), "bar");
+		handler.destroy();
+		assertEquals(0, handler.getOpenFileCount());
+		assertFileContentIs(new File(outputDirectory, "c.txt"), "baz");
+	}
+
+	private Message<String> fileMessage(String fileName, String payload) {
+		return MessageBuilder.withPayload(payload).setHeader(FileHeaders.FILENAME, fileName).build();
+	}
+
 	void assertFileContentIsMatching(Message<?> result) throws IOException, UnsupportedEncodingException {
 		assertFileContentIs(result, SAMPLE_CONTENT);
 	}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.file.filters.AcceptAllFileListFilter;
+import org.springframework.integration.test.util.TestUtils;
+
+/**
+ * @since 4.2
+ */
+public class WatchServiceDirectoryScannerTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void initialFilesThenChangesOnly() throws Exception {
+		File existing = this.folder.newFile("existing");
+		WatchServiceDirectoryScanner scanner = new WatchServiceDirectoryScanner(this.folder.getRoot());
+		scanner.setFilter(new AcceptAllFileListFilter<File>());
+		scanner.start();
+		try {
+			assertThat(scanner.listFiles(this.folder.getRoot()), contains(existing));
+			assertThat(scanner.listFiles(this.folder.getRoot()), empty());
+			File created = this.folder.newFile("created");
+			assertThat(awaitFiles(scanner, this.folder.getRoot()), contains(created));
+			append(existing);
+			assertThat(awaitFiles(scanner, this.folder.getRoot()), contains(existing));
+		}
+		finally {
+			scanner.stop();
+		}
+	}
+
+	@Test
+	public void stoppedWithTheMessageSource() throws Exception {
+		File existing = this.folder.newFile("existing");
+		WatchServiceDirectoryScanner scanner = new WatchServiceDirectoryScanner();
+		FileReadingMessageSource source = new FileReadingMessageSource();
+		source.setDirectory(this.folder.getRoot());
+		source.setScanner(scanner);
+		source.start();
+		assertTrue(scanner.isRunning());
+		assertEquals(existing, source.receive().getPayload());
+		assertNotNull(TestUtils.getPropertyValue(scanner, "watcher"));
+		source.stop();
+		assertFalse(scanner.isRunning());
+		assertNull(TestUtils.getPropertyValue(scanner, "watcher"));
+
+		source.start();
+		source.receive();
+		assertNotNull(TestUtils.getPropertyValue(scanner, "watcher"));
+		source.destroy();
+		assertNull(TestUtils.getPropertyValue(scanner, "watcher"));
+	}
+
+	@Test
+	public void recursiveLeavesOnly() throws Exception {
+		File sub = this.folder.newFolder("sub");
+		File subFile = new File(sub, "subFile");
+		subFile.createNewFile();
+		File topFile = this.folder.newFile("topFile");
+		WatchServiceDirectoryScanner scanner = new WatchServiceDirectoryScanner();
+		scanner.setFilter(new AcceptAllFileListFilter<File>());
+		scanner.setRecursive(true);
+		try {
+			assertThat(scanner.listFiles(this.folder.getRoot()), containsInAnyOrder(subFile, topFile));
+			File newSub = new File(sub, "newSub");
+			newSub.mkdir();
+			File newSubFile = new File(newSub, "newSubFile");
+			newSubFile.createNewFile();
+			assertThat(awaitFiles(scanner, this.folder.getRoot()), contains(newSubFile));
+			File laterFile = new File(newSub, "laterFile");
+			laterFile.createNewFile();
+			assertThat(awaitFiles(scanner, this.folder.getRoot()), contains(laterFile));
+		}
+		finally {
+			scanner.stop();
+		}
+	}
+
+	@Test
+	public void deletedBeforeScanNotReturned() throws Exception {
+		WatchServiceDirectoryScanner scanner = new WatchServiceDirectoryScanner();
+		scanner.setFilter(new AcceptAllFileListFilter<File>());
+		try {
+			assertThat(scanner.listFiles(this.folder.getRoot()), empty());
+			File deleted = this.folder.newFile("deleted");
+			deleted.delete();
+			File kept = this.folder.newFile("kept");
+			assertThat(awaitFiles(scanner, this.folder.getRoot()), contains(kept));
+		}
+		finally {
+			scanner.stop();
+		}
+	}
+
+	private static List<File> awaitFiles(WatchServiceDirectoryScanner scanner, File directory)
+			throws InterruptedException {
+		List<File> files = new ArrayList<File>();
+		// some platforms poll for changes, so allow plenty of time
+		int n = 0;
+		while (files.isEmpty() && n++ < 300) {
+			files.addAll(scanner.listFiles(directory));
+			if (files.isEmpty()) {
+				Thread.sleep(100);
+			}
+		}
+		return files;
+	}
+
+	private static void append(File file) throws IOException {
+		FileOutputStream out = new FileOutputStream(file, true);
+		try {
+			out.write("foo".getBytes());
+		}
+		finally {
+			out.close();
+		}
+	}
+
+}
@@ -32,7 +32,9 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.integration.file.tail.ApacheCommonsFileTailingMessageProducer;
+import org.springframework.integration.file.tail.NioFileTailingMessageProducer;
 import org.springframework.integration.file.tail.OSDelegatingFileTailingMessageProducer;
+import org.springframework.integration.metadata.MetadataStore;
 import org.springframework.integration.test.util.TestUtils;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.scheduling.TaskScheduler;
@@ -61,6 +63,12 @@ public class FileTailInboundChannelAdapterParserTests {
 	@Autowired
 	private ApacheCommonsFileTailingMessageProducer apacheEndReopen;
 
+	@Autowired
+	private NioFileTailingMessageProducer nio;
+
+	@Autowired
+	private MetadataStore tailStore;
+
 	@Autowired
 	private TaskExecutor exec;
 
@@ -130,6 +138,18 @@ public class FileTailInboundChannelAdapterParserTests {
 		assertEquals(Boolean.TRUE, TestUtils.getPropertyValue(apacheEndReopen, "reopen"));
 	}
 
+	@Test
+	public void testNio() {
+		String fileName = TestUtils.getPropertyValue(nio, "file", File.class).getAbsolutePath();
+		String normalizedName = getNormalizedPath(fileName);
+		assertEquals("/tmp/nio", normalizedName);
+		assertSame(exec, TestUtils.getPropertyValue(nio, "taskExecutor"));
+		assertEquals(250L, TestUtils.getPropertyValue(nio, "pollingDelay"));
+		assertEquals(Boolean.FALSE, TestUtils.getPropertyValue(nio, "end"));
+		assertSame(this.tailStore, TestUtils.getPropertyValue(nio, "metadataStore"));
+		assertFalse(TestUtils.getPropertyValue(nio, "autoStartup", Boolean.class));
+	}
+
 	/**
 	 * Fix up windows paths.
 	 */
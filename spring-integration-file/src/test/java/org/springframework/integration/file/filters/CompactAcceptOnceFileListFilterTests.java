@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @since 4.2
+ */
+public class CompactAcceptOnceFileListFilterTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testAcceptOnceUntilModified() throws Exception {
+		CompactAcceptOnceFileListFilter filter = new CompactAcceptOnceFileListFilter();
+		File file = this.folder.newFile("foo");
+		File[] files = new File[] { file };
+		assertEquals(1, filter.filterFiles(files).size());
+		assertEquals(0, filter.filterFiles(files).size());
+		file.setLastModified(file.lastModified() + 5000L);
+		assertEquals(1, filter.filterFiles(files).size());
+		assertEquals(0, filter.filterFiles(files).size());
+	}
+
+	@Test
+	public void testRollback() {
+		CompactAcceptOnceFileListFilter filter = new CompactAcceptOnceFileListFilter();
+		File[] files = new File[] { new File("foo"), new File("bar"), new File("baz") };
+		List<File> passed = filter.filterFiles(files);
+		assertTrue(Arrays.equals(files, passed.toArray()));
+		assertEquals(0, filter.filterFiles(files).size());
+		filter.rollback(passed.get(1), passed);
+		List<File> now = filter.filterFiles(files);
+		assertEquals(2, now.size());
+		assertEquals("bar", now.get(0).getName());
+		assertEquals("baz", now.get(1).getName());
+		assertEquals(0, filter.filterFiles(files).size());
+	}
+
+	@Test
+	public void testCapacity() {
+		CompactAcceptOnceFileListFilter filter = new CompactAcceptOnceFileListFilter(2, 1);
+		assertTrue(filter.accept(new File("foo")));
+		assertTrue(filter.accept(new File("bar")));
+		assertFalse(filter.accept(new File("foo")));
+		assertTrue(filter.accept(new File("baz")));
+		assertEquals(2, filter.getSize());
+		assertTrue(filter.accept(new File("foo")));
+		assertFalse(filter.accept(new File("baz")));
+	}
+
+	@Test
+	public void testMaxAge() throws Exception {
+		CompactAcceptOnceFileListFilter filter = new CompactAcceptOnceFileListFilter();
+		filter.setMaxAge(50);
+		assertTrue(filter.accept(new File("foo")));
+		assertFalse(filter.accept(new File("foo")));
+		Thread.sleep(100);
+		assertTrue(filter.accept(new File("foo")));
+		assertEquals(1, filter.getSize());
+	}
+
+	@Test
+	public void testManyFilesWithEviction() {
+		CompactAcceptOnceFileListFilter filter = new CompactAcceptOnceFileListFilter(10000);
+		for (int i = 0; i < 100000; i++) {
+			assertTrue(filter.accept(new File("file" + i)));
+		}
+		assertTrue(filter.getSize() <= 10000);
+		int remembered = 0;
+		for (int i = 99000; i < 100000; i++) {
+			if (!filter.accept(new File("file" + i))) {
+				remembered++;
+			}
+		}
+		assertEquals(1000, remembered);
+		assertTrue(filter.accept(new File("file0")));
+	}
+
+	@Test
+	public void testFingerprintsRemove() {
+		FileFingerprints fingerprints = new FileFingerprints(Integer.MAX_VALUE, 1);
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(fingerprints.add("file" + i, i));
+		}
+		for (int i = 0; i < 10000; i += 2) {
+			assertTrue(fingerprints.remove("file" + i, i));
+		}
+		assertEquals(5000, fingerprints.size());
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(i % 2 == 1, fingerprints.contains("file" + i, i));
+		}
+	}
+
+	@Test
+	public void testFingerprintsRemoveAndAddAgainWithCapacity() {
+		FileFingerprints fingerprints = new FileFingerprints(3, 1);
+		assertTrue(fingerprints.add("foo", 1));
+		assertTrue(fingerprints.add("bar", 1));
+		assertTrue(fingerprints.remove("foo", 1));
+		assertTrue(fingerprints.add("foo", 1));
+		// the slot of the removed entry is released, without evicting the new one
+		assertTrue(fingerprints.add("baz", 1));
+		assertEquals(3, fingerprints.size());
+		assertTrue(fingerprints.contains("foo", 1));
+		assertTrue(fingerprints.add("qux", 1));
+		assertFalse(fingerprints.contains("bar", 1));
+		assertTrue(fingerprints.contains("foo", 1));
+	}
+
+}
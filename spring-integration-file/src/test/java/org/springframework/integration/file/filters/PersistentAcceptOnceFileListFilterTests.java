@@ -198,4 +198,59 @@ public class PersistentAcceptOnceFileListFilterTests extends AcceptOnceFileListF
 		assertEquals(5, flushes.get());
 	}
 
+	@Test
+	public void testFlushOncePerBatch() throws Exception {
+		final AtomicInteger flushes = new AtomicInteger();
+		class MS extends SimpleMetadataStore implements Flushable {
+
+			@Override
+			public void flush() throws IOException {
+				flushes.incrementAndGet();
+			}
+
+		}
+		FileSystemPersistentAcceptOnceFileListFilter filter = new FileSystemPersistentAcceptOnceFileListFilter(
+				new MS(), "batch:");
+		filter.setFlushOnUpdate(true);
+		File[] files = new File[] {new File("foo"), new File("bar"), new File("baz")};
+		List<File> passed = filter.filterFiles(files);
+		assertEquals(3, passed.size());
+		assertEquals(1, flushes.get());
+		filter.rollback(passed.get(0), passed);
+		assertEquals(2, flushes.get());
+		filter.close();
+	}
+
+	@Test
+	public void testLocalCache() throws Exception {
+		final AtomicInteger calls = new AtomicInteger();
+		ConcurrentMetadataStore store = new SimpleMetadataStore() {
+
+			@Override
+			public String putIfAbsent(String key, String value) {
+				calls.incrementAndGet();
+				return super.putIfAbsent(key, value);
+			}
+
+		};
+		FileSystemPersistentAcceptOnceFileListFilter filter = new FileSystemPersistentAcceptOnceFileListFilter(
+				store, "cache:");
+		filter.setLocalCacheCapacity(100);
+		final File file = File.createTempFile("foo", ".txt");
+		File[] files = new File[] {file};
+		List<File> passed = filter.filterFiles(files);
+		assertEquals(1, passed.size());
+		assertEquals(1, calls.get());
+		assertEquals(0, filter.filterFiles(files).size());
+		assertEquals(1, calls.get());
+		filter.rollback(passed.get(0), passed);
+		assertEquals(1, filter.filterFiles(files).size());
+		assertEquals(2, calls.get());
+		file.setLastModified(file.lastModified() + 5000L);
+		assertEquals(1, filter.filterFiles(files).size());
+		assertEquals(3, calls.get());
+		file.delete();
+		filter.close();
+	}
+
 }
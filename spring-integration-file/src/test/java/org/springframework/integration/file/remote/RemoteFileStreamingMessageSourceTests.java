@@ -0,0 +1,184 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.remote;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.messaging.Message;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * @since 4.2
+ */
+public class RemoteFileStreamingMessageSourceTests {
+
+	private final Map<String, String> contents = new HashMap<String, String>();
+
+	@SuppressWarnings("unchecked")
+	private final Session<String> session = mock(Session.class);
+
+	private TestStreamingMessageSource source;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setup() throws Exception {
+		this.contents.put("foo", "foo");
+		this.contents.put("bar", "bar");
+		this.contents.put("baz", "bazbazbaz");
+		when(this.session.list("dir")).thenReturn(new String[] { "foo", "bar", "baz" });
+		when(this.session.readRaw(anyString())).thenAnswer(new Answer<InputStream>() {
+
+			@Override
+			public InputStream answer(InvocationOnMock invocation) throws Throwable {
+				return new ByteArrayInputStream(contentOf((String) invocation.getArguments()[0]));
+			}
+
+		});
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				OutputStream out = (OutputStream) invocation.getArguments()[1];
+				out.write(contentOf((String) invocation.getArguments()[0]));
+				return null;
+			}
+
+		}).when(this.session).read(anyString(), any(OutputStream.class));
+		SessionFactory<String> sessionFactory = mock(SessionFactory.class);
+		when(sessionFactory.getSession()).thenReturn(this.session);
+		this.source = new TestStreamingMessageSource(new RemoteFileTemplate<String>(sessionFactory));
+		this.source.setRemoteDirectory("dir");
+		this.source.afterPropertiesSet();
+	}
+
+	@Test
+	public void testStreamReleasesSessionWhenClosed() throws Exception {
+		this.source.start();
+		Message<InputStream> received = this.source.receive();
+		assertNotNull(received);
+		assertEquals("dir", received.getHeaders().get(FileHeaders.REMOTE_DIRECTORY));
+		assertEquals("foo", received.getHeaders().get(FileHeaders.REMOTE_FILE));
+		// the list session has been released
+		verify(this.session, times(1)).close();
+		assertEquals("foo", new String(FileCopyUtils.copyToByteArray(received.getPayload())));
+		verify(this.session).finalizeRaw();
+		verify(this.session, times(2)).close();
+		assertEquals("bar", new String(FileCopyUtils.copyToByteArray(this.source.receive().getPayload())));
+		assertEquals("bazbazbaz", new String(FileCopyUtils.copyToByteArray(this.source.receive().getPayload())));
+		assertNull(this.source.receive());
+		verify(this.session, times(2)).list("dir");
+		verify(this.session, never()).read(anyString(), any(OutputStream.class));
+	}
+
+	@Test
+	public void testPrefetchWithinLimit() throws Exception {
+		this.source.setMaxPrefetchBytes(5);
+		this.source.setTaskExecutor(new SyncTaskExecutor());
+		this.source.start();
+		Message<InputStream> received = this.source.receive();
+		assertThat(received.getPayload(), instanceOf(ByteArrayInputStream.class));
+		assertEquals("foo", new String(FileCopyUtils.copyToByteArray(received.getPayload())));
+		verify(this.session).read(eq("dir/foo"), any(OutputStream.class));
+		// bar did not fit until foo was received
+		verify(this.session).read(eq("dir/bar"), any(OutputStream.class));
+		received = this.source.receive();
+		assertThat(received.getPayload(), instanceOf(ByteArrayInputStream.class));
+		assertEquals("bar", new String(FileCopyUtils.copyToByteArray(received.getPayload())));
+		// baz is larger than the limit, so it is streamed
+		received = this.source.receive();
+		assertThat(received.getPayload(), not(instanceOf(ByteArrayInputStream.class)));
+		assertEquals("bazbazbaz", new String(FileCopyUtils.copyToByteArray(received.getPayload())));
+		verify(this.session, times(2)).read(anyString(), any(OutputStream.class));
+		verify(this.session).readRaw("dir/baz");
+	}
+
+	@Test
+	public void testMaxFetchSizeAndRollbackOnStop() throws Exception {
+		this.source.setMaxFetchSize(2);
+		this.source.start();
+		assertEquals("foo", this.source.receive().getHeaders().get(FileHeaders.REMOTE_FILE));
+		// bar was listed but not received, so it is passed again after a restart
+		this.source.stop();
+		this.source.start();
+		assertEquals("bar", this.source.receive().getHeaders().get(FileHeaders.REMOTE_FILE));
+		assertEquals("baz", this.source.receive().getHeaders().get(FileHeaders.REMOTE_FILE));
+		assertNull(this.source.receive());
+	}
+
+	private byte[] contentOf(String path) {
+		return this.contents.get(path.substring(path.lastIndexOf('/') + 1)).getBytes();
+	}
+
+
+	private class TestStreamingMessageSource extends AbstractRemoteFileStreamingMessageSource<String> {
+
+		TestStreamingMessageSource(RemoteFileTemplate<String> template) {
+			super(template);
+		}
+
+		@Override
+		public String getComponentType() {
+			return "test";
+		}
+
+		@Override
+		protected boolean isFile(String file) {
+			return true;
+		}
+
+		@Override
+		protected String getFilename(String file) {
+			return file;
+		}
+
+		@Override
+		protected long getSize(String file) {
+			return RemoteFileStreamingMessageSourceTests.this.contents.get(file).length();
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -46,6 +46,8 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Rule;
@@ -60,12 +62,16 @@ import org.springframework.expression.common.LiteralExpression;
 import org.springframework.integration.file.FileHeaders;
 import org.springframework.integration.file.filters.AbstractSimplePatternFileListFilter;
 import org.springframework.integration.file.remote.AbstractFileInfo;
+import org.springframework.integration.file.remote.RemoteDirectoryListingCache;
 import org.springframework.integration.file.remote.RemoteFileTemplate;
 import org.springframework.integration.file.remote.handler.FileTransferringMessageHandler;
+import org.springframework.integration.file.remote.session.CachingSessionFactory;
 import org.springframework.integration.file.remote.session.Session;
 import org.springframework.integration.file.remote.session.SessionFactory;
 import org.springframework.integration.file.support.FileExistsMode;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.test.util.TestUtils;
+import org.springframework.integration.util.SimplePool;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHandlingException;
 import org.springframework.messaging.MessagingException;
@@ -451,6 +457,188 @@ public class RemoteFileOutboundGatewayTests {
 				out.getHeaders().get(FileHeaders.REMOTE_DIRECTORY));
 	}
 
+	@Test
+	public void testLs_f_R_parallel() throws Exception {
+		SessionFactory sessionFactory = mock(SessionFactory.class);
+		Session session = mock(Session.class);
+		TestRemoteFileOutboundGateway gw = new TestRemoteFileOutboundGateway
+				(sessionFactory, "ls", "payload");
+		gw.setOptions("-f -R -dirs");
+		gw.setListingConcurrency(3);
+		gw.afterPropertiesSet();
+		when(sessionFactory.getSession()).thenReturn(session);
+		when(session.list("testremote/x/")).thenReturn(level1List());
+		when(session.list("testremote/x/d1/")).thenReturn(level2List());
+		when(session.list("testremote/x/d1/d2/")).thenReturn(level3List());
+		@SuppressWarnings("unchecked")
+		Message<List<TestLsEntry>> out = (Message<List<TestLsEntry>>) gw
+				.handleRequestMessage(new GenericMessage<String>("testremote/x"));
+		assertEquals(6, out.getPayload().size());
+		assertEquals("f1", out.getPayload().get(0).getFilename());
+		assertEquals("d1", out.getPayload().get(1).getFilename());
+		assertEquals("d1/d2", out.getPayload().get(2).getFilename());
+		assertEquals("d1/d2/f4", out.getPayload().get(3).getFilename());
+		assertEquals("d1/f3", out.getPayload().get(4).getFilename());
+		assertEquals("f2", out.getPayload().get(5).getFilename());
+		verify(sessionFactory, times(3)).getSession();
+		gw.destroy();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLs_f_R_parallelBoundedPool() throws Exception {
+		SessionFactory sessionFactory = mock(SessionFactory.class);
+		when(sessionFactory.getSession()).thenAnswer(new Answer<Session>() {
+
+			@Override
+			public Session answer(InvocationOnMock invocation) throws Throwable {
+				return listingSession();
+			}
+
+		});
+		CachingSessionFactory<TestLsEntry> cachingSessionFactory = new CachingSessionFactory<TestLsEntry>(sessionFactory, 2);
+		TestRemoteFileOutboundGateway gw = new TestRemoteFileOutboundGateway
+				(cachingSessionFactory, "ls", "payload");
+		gw.setOptions("-f -R -dirs");
+		gw.setListingConcurrency(3);
+		gw.afterPropertiesSet();
+		// only one other session is available
+		Message<List<TestLsEntry>> out = (Message<List<TestLsEntry>>) gw
+				.handleRequestMessage(new GenericMessage<String>("testremote/x"));
+		assertEquals(6, out.getPayload().size());
+		assertEquals("d1/d2/f4", out.getPayload().get(3).getFilename());
+		verify(sessionFactory, times(2)).getSession();
+		// no other session is available; listed sequentially rather than waiting for one
+		Session<TestLsEntry> held = cachingSessionFactory.getSession();
+		out = (Message<List<TestLsEntry>>) gw.handleRequestMessage(new GenericMessage<String>("testremote/x"));
+		assertEquals(6, out.getPayload().size());
+		assertEquals("d1/d2/f4", out.getPayload().get(3).getFilename());
+		held.close();
+		SimplePool<?> pool = TestUtils.getPropertyValue(cachingSessionFactory, "pool", SimplePool.class);
+		assertEquals(0, pool.getActiveCount());
+		gw.destroy();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLs_f_R_parallelFailureCancelsSiblings() throws Exception {
+		SessionFactory sessionFactory = mock(SessionFactory.class);
+		Session session = mock(Session.class);
+		when(sessionFactory.getSession()).thenReturn(session);
+		TestRemoteFileOutboundGateway gw = new TestRemoteFileOutboundGateway
+				(sessionFactory, "ls", "payload");
+		gw.setOptions("-f -R");
+		gw.setListingConcurrency(3);
+		gw.afterPropertiesSet();
+		when(session.list("testremote/x/")).thenReturn(new TestLsEntry[] {
+				new TestLsEntry("d1", 0, true, false, 12345, "drw-r--r--"),
+				new TestLsEntry("d2", 0, true, false, 12345, "drw-r--r--")
+		});
+		final CountDownLatch listingD2 = new CountDownLatch(1);
+		final CountDownLatch interrupted = new CountDownLatch(1);
+		when(session.list("testremote/x/d1/")).thenAnswer(new Answer<TestLsEntry[]>() {
+
+			@Override
+			public TestLsEntry[] answer(InvocationOnMock invocation) throws Throwable {
+				listingD2.await(10, TimeUnit.SECONDS);
+				throw new IOException("test");
+			}
+
+		});
+		when(session.list("testremote/x/d2/")).thenAnswer(new Answer<TestLsEntry[]>() {
+
+			@Override
+			public TestLsEntry[] answer(InvocationOnMock invocation) throws Throwable {
+				listingD2.countDown();
+				try {
+					Thread.sleep(10000);
+				}
+				catch (InterruptedException e) {
+					interrupted.countDown();
+				}
+				return new TestLsEntry[0];
+			}
+
+		});
+		try {
+			gw.handleRequestMessage(new GenericMessage<String>("testremote/x"));
+			fail("Expected exception");
+		}
+		catch (MessagingException e) {
+			assertEquals("test", e.getCause().getMessage());
+		}
+		assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+		gw.destroy();
+	}
+
+	private Session listingSession() throws IOException {
+		Session session = mock(Session.class);
+		when(session.isOpen()).thenReturn(true);
+		when(session.list("testremote/x/")).thenAnswer(new Answer<TestLsEntry[]>() {
+
+			@Override
+			public TestLsEntry[] answer(InvocationOnMock invocation) throws Throwable {
+				return level1List();
+			}
+
+		});
+		when(session.list("testremote/x/d1/")).thenAnswer(new Answer<TestLsEntry[]>() {
+
+			@Override
+			public TestLsEntry[] answer(InvocationOnMock invocation) throws Throwable {
+				return level2List();
+			}
+
+		});
+		when(session.list("testremote/x/d1/d2/")).thenAnswer(new Answer<TestLsEntry[]>() {
+
+			@Override
+			public TestLsEntry[] answer(InvocationOnMock invocation) throws Throwable {
+				return level3List();
+			}
+
+		});
+		return session;
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLsCached() throws Exception {
+		SessionFactory sessionFactory = mock(SessionFactory.class);
+		Session session = mock(Session.class);
+		RemoteDirectoryListingCache<TestLsEntry> cache = new RemoteDirectoryListingCache<TestLsEntry>();
+		TestRemoteFileOutboundGateway gw = new TestRemoteFileOutboundGateway
+				(sessionFactory, "ls", "payload");
+		gw.setOptions("-f -R");
+		gw.setListingCache(cache);
+		gw.afterPropertiesSet();
+		TestRemoteFileOutboundGateway rmGw = new TestRemoteFileOutboundGateway
+				(sessionFactory, "rm", "payload");
+		rmGw.setListingCache(cache);
+		rmGw.afterPropertiesSet();
+		when(sessionFactory.getSession()).thenReturn(session);
+		when(session.list("testremote/x/")).thenReturn(level1List());
+		when(session.list("testremote/x/d1/")).thenReturn(level2List());
+		when(session.list("testremote/x/d1/d2/")).thenReturn(level3List());
+		for (int i = 0; i < 2; i++) {
+			Message<List<TestLsEntry>> out = (Message<List<TestLsEntry>>) gw
+					.handleRequestMessage(new GenericMessage<String>("testremote/x"));
+			assertEquals(4, out.getPayload().size());
+			assertEquals("d1/d2/f4", out.getPayload().get(1).getFilename());
+			assertEquals("d1/f3", out.getPayload().get(2).getFilename());
+		}
+		verify(session).list("testremote/x/");
+		verify(session).list("testremote/x/d1/");
+		assertEquals(3, cache.getSize());
+		assertEquals(3, cache.getHits());
+
+		rmGw.handleRequestMessage(new GenericMessage<String>("testremote/x/d1/f3"));
+		assertEquals(2, cache.getSize());
+		gw.handleRequestMessage(new GenericMessage<String>("testremote/x"));
+		verify(session).list("testremote/x/");
+		verify(session, times(2)).list("testremote/x/d1/");
+	}
+
 	@Test
 	public void testLs_None() throws Exception {
 		SessionFactory sessionFactory = mock(SessionFactory.class);
@@ -1146,6 +1334,12 @@ class TestRemoteFileOutboundGateway extends AbstractRemoteFileOutboundGateway<Te
 		return file;
 	}
 
+	@Override
+	protected TestLsEntry copyFile(TestLsEntry file) {
+		return new TestLsEntry(file.getFilename(), file.getSize(), file.isDirectory(), file.isLink(),
+				file.getModified(), file.getPermissions());
+	}
+
 }
 
 class TestLsEntry extends AbstractFileInfo<TestLsEntry> {
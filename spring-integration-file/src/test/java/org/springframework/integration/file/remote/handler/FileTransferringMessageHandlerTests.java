@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,21 +19,38 @@ package org.springframework.integration.file.remote.handler;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -42,6 +59,7 @@ import org.springframework.beans.factory.BeanFactory;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.common.LiteralExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.integration.file.remote.RemoteFileTemplate;
 import org.springframework.integration.file.remote.session.CachingSessionFactory;
 import org.springframework.integration.file.remote.session.Session;
 import org.springframework.integration.file.remote.session.SessionFactory;
@@ -58,6 +76,9 @@ import org.springframework.messaging.Message;
  */
 public class FileTransferringMessageHandlerTests {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@SuppressWarnings("unchecked")
 	@Test
 	public <F> void testRemoteDirWithEmptyString() throws Exception{
@@ -196,6 +217,142 @@ public class FileTransferringMessageHandlerTests {
 		assertSame(session3, TestUtils.getPropertyValue(pool, "allocated", Set.class).iterator().next());
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testMultipartUpload() throws Exception {
+		SessionFactory<String> sf = mock(SessionFactory.class);
+		Session<String> session = mock(Session.class);
+		when(sf.getSession()).thenReturn(session);
+		final byte[] remote = new byte[10];
+		RemoteFileTemplate<String> template = new RemoteFileTemplate<String>(sf) {
+
+			@Override
+			protected OutputStream openForWrite(Session<String> session, String path, final long offset) {
+				assertTrue(path.startsWith("foo/") && path.endsWith(".writing"));
+				return new ByteArrayOutputStream() {
+
+					@Override
+					public void close() throws IOException {
+						synchronized (remote) {
+							System.arraycopy(toByteArray(), 0, remote, (int) offset, size());
+						}
+					}
+
+				};
+			}
+
+		};
+		template.setRemoteDirectoryExpression(new LiteralExpression("foo"));
+		FileTransferringMessageHandler<String> handler = new FileTransferringMessageHandler<String>(template);
+		handler.setUploadConcurrency(3);
+		handler.setMultipartThreshold(10);
+		handler.setBeanFactory(mock(BeanFactory.class));
+		handler.afterPropertiesSet();
+
+		handler.handleMessage(new GenericMessage<File>(newFile("0123456789")));
+		assertEquals("0123456789", new String(remote));
+		// one session for each of the three parts
+		verify(sf, times(3)).getSession();
+		verify(session, never()).write(any(InputStream.class), anyString());
+		verify(session).rename(anyString(), anyString());
+
+		// a file below the threshold is uploaded over one session
+		handler.handleMessage(new GenericMessage<File>(newFile("abc")));
+		verify(sf, times(4)).getSession();
+		verify(session).write(any(InputStream.class), anyString());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testMultipartUploadWithBoundedPool() throws Exception {
+		SessionFactory<String> sf = mock(SessionFactory.class);
+		when(sf.getSession()).thenAnswer(new Answer<Session<String>>() {
+
+			@Override
+			public Session<String> answer(InvocationOnMock invocation) throws Throwable {
+				Session<String> session = mock(Session.class);
+				when(session.isOpen()).thenReturn(true);
+				return session;
+			}
+
+		});
+		CachingSessionFactory<String> csf = new CachingSessionFactory<String>(sf, 2);
+		final Map<String, byte[]> remote = new ConcurrentHashMap<String, byte[]>();
+		final AtomicInteger partsOpened = new AtomicInteger();
+		RemoteFileTemplate<String> template = new RemoteFileTemplate<String>(csf) {
+
+			@Override
+			protected OutputStream openForWrite(Session<String> session, final String path, final long offset) {
+				partsOpened.incrementAndGet();
+				if (!remote.containsKey(path)) {
+					remote.put(path, new byte[10]);
+				}
+				return new ByteArrayOutputStream() {
+
+					@Override
+					public void close() throws IOException {
+						byte[] file = remote.get(path);
+						synchronized (file) {
+							System.arraycopy(toByteArray(), 0, file, (int) offset, size());
+						}
+					}
+
+				};
+			}
+
+		};
+		template.setRemoteDirectoryExpression(new LiteralExpression("foo"));
+		final FileTransferringMessageHandler<String> handler = new FileTransferringMessageHandler<String>(template);
+		handler.setUploadConcurrency(4);
+		handler.setMultipartThreshold(10);
+		handler.setBeanFactory(mock(BeanFactory.class));
+		handler.afterPropertiesSet();
+
+		// only one other session is available
+		handler.handleMessage(new GenericMessage<File>(newFile("0123456789")));
+		assertEquals(2, partsOpened.get());
+		assertEquals("0123456789", new String(remote.values().iterator().next()));
+
+		// no other session is available, so the file is written over the one session
+		Session<String> held = csf.getSession();
+		handler.handleMessage(new GenericMessage<File>(newFile("0123456789")));
+		assertEquals(2, partsOpened.get());
+		held.close();
+
+		// concurrent uploads never wait for a session while holding one
+		ExecutorService exec = Executors.newFixedThreadPool(4);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int i = 0; i < 20; i++) {
+			final File file = newFile("abcdefghij");
+			futures.add(exec.submit(new Runnable() {
+
+				@Override
+				public void run() {
+					handler.handleMessage(new GenericMessage<File>(file));
+				}
+
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get(10, TimeUnit.SECONDS);
+		}
+		exec.shutdownNow();
+		SimplePool<?> pool = TestUtils.getPropertyValue(csf, "pool", SimplePool.class);
+		assertEquals(0, pool.getActiveCount());
+	}
+
+	private File newFile(String content) throws IOException {
+		File file = this.folder.newFile();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes());
+		}
+		finally {
+			out.close();
+		}
+		return file;
+	}
+
 	private <F> Session<F> newSession() throws IOException {
 		@SuppressWarnings("unchecked")
 		Session<F> session = mock(Session.class);
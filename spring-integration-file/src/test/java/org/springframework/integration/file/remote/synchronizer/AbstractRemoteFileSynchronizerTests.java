@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,8 +17,10 @@
 package org.springframework.integration.file.remote.synchronizer;
 
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
@@ -26,11 +28,18 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.integration.file.filters.AcceptOnceFileListFilter;
 import org.springframework.integration.file.remote.session.Session;
 import org.springframework.integration.file.remote.session.SessionFactory;
@@ -43,6 +52,8 @@ import org.springframework.messaging.MessagingException;
  */
 public class AbstractRemoteFileSynchronizerTests {
 
+	private final AtomicInteger lists = new AtomicInteger();
+
 	@Test
 	public void testRollback() {
 		final AtomicBoolean failWhenCopyingBar = new AtomicBoolean(true);
@@ -91,6 +102,235 @@ public class AbstractRemoteFileSynchronizerTests {
 		assertEquals(3, count.get());
 	}
 
+	@Test
+	public void testMaxFetchSize() {
+		final List<String> copied = new CopyOnWriteArrayList<String>();
+		AbstractInboundFileSynchronizer<String> sync = createSynchronizer(copied, null);
+		sync.setFilter(new AcceptOnceFileListFilter<String>());
+		sync.setMaxFetchSize(2);
+		sync.synchronizeToLocalDirectory(mock(File.class));
+		assertThat(copied, containsInAnyOrder("foo", "bar"));
+		sync.synchronizeToLocalDirectory(mock(File.class));
+		assertThat(copied, containsInAnyOrder("foo", "bar", "baz"));
+		sync.synchronizeToLocalDirectory(mock(File.class));
+		assertEquals(3, copied.size());
+	}
+
+	@Test
+	public void testParallel() throws Exception {
+		final List<String> copied = new CopyOnWriteArrayList<String>();
+		final CountDownLatch latch = new CountDownLatch(1);
+		AbstractInboundFileSynchronizer<String> sync = createSynchronizer(copied, latch);
+		sync.setFilter(new AcceptOnceFileListFilter<String>());
+		sync.setMaxConcurrency(3);
+		sync.synchronizeToLocalDirectory(mock(File.class));
+		// returns as soon as 'foo' lands; the others are blocked
+		assertThat(copied, containsInAnyOrder("foo"));
+		assertEquals(1, this.lists.get());
+		latch.countDown();
+		sync.synchronizeToLocalDirectory(mock(File.class));
+		int n = 0;
+		while (copied.size() < 3 && n++ < 100) {
+			sync.synchronizeToLocalDirectory(mock(File.class));
+			Thread.sleep(10);
+		}
+		assertThat(copied, containsInAnyOrder("foo", "bar", "baz"));
+		// the directory is only listed again after the outstanding downloads complete
+		assertTrue(this.lists.get() < 2 + n);
+		sync.synchronizeToLocalDirectory(mock(File.class));
+		assertEquals(3, copied.size());
+		sync.close();
+	}
+
+	@Test
+	public void testParallelRollback() throws Exception {
+		final List<String> copied = new CopyOnWriteArrayList<String>();
+		final AtomicBoolean failWhenCopyingBar = new AtomicBoolean(true);
+		AbstractInboundFileSynchronizer<String> sync = new AbstractInboundFileSynchronizer<String>(
+				new StringSessionFactory()) {
+
+			@Override
+			protected boolean isFile(String file) {
+				return true;
+			}
+
+			@Override
+			protected String getFilename(String file) {
+				return file;
+			}
+
+			@Override
+			protected long getModified(String file) {
+				return 0;
+			}
+
+			@Override
+			protected void copyFileToLocalDirectory(String remoteDirectoryPath, String remoteFile, File localDirectory,
+					Session<String> session) throws IOException {
+				if ("bar".equals(remoteFile) && failWhenCopyingBar.getAndSet(false)) {
+					throw new IOException("fail");
+				}
+				copied.add(remoteFile);
+			}
+
+		};
+		sync.setFilter(new AcceptOnceFileListFilter<String>());
+		sync.setMaxConcurrency(2);
+		int failures = 0;
+		int n = 0;
+		while (copied.size() < 3 && n++ < 100) {
+			try {
+				sync.synchronizeToLocalDirectory(mock(File.class));
+			}
+			catch (MessagingException e) {
+				assertThat(e.getCause(), instanceOf(IOException.class));
+				failures++;
+			}
+		}
+		assertEquals(1, failures);
+		assertThat(copied, containsInAnyOrder("foo", "bar", "baz"));
+		sync.close();
+	}
+
+	@Test
+	public void testParallelRejected() throws Exception {
+		final List<String> copied = new CopyOnWriteArrayList<String>();
+		AbstractInboundFileSynchronizer<String> sync = createSynchronizer(copied, null);
+		sync.setFilter(new AcceptOnceFileListFilter<String>());
+		sync.setMaxConcurrency(2);
+		final AtomicInteger submitted = new AtomicInteger();
+		sync.setTaskExecutor(new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				if (submitted.getAndIncrement() > 0) {
+					throw new RejectedExecutionException("busy");
+				}
+				command.run();
+			}
+
+		});
+		sync.synchronizeToLocalDirectory(mock(File.class));
+		assertThat(copied, containsInAnyOrder("foo", "bar", "baz"));
+
+		sync = createSynchronizer(copied, null);
+		sync.setFilter(new AcceptOnceFileListFilter<String>());
+		sync.setMaxConcurrency(2);
+		sync.setTaskExecutor(new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException("busy");
+			}
+
+		});
+		copied.clear();
+		try {
+			sync.synchronizeToLocalDirectory(mock(File.class));
+			fail("expected exception");
+		}
+		catch (MessagingException e) {
+			assertThat(e.getCause(), instanceOf(RejectedExecutionException.class));
+		}
+		assertEquals(0, copied.size());
+		sync.setTaskExecutor(new SyncTaskExecutor());
+		sync.synchronizeToLocalDirectory(mock(File.class));
+		// the filter was rolled back for the files that were never downloaded
+		assertThat(copied, containsInAnyOrder("foo", "bar", "baz"));
+	}
+
+	@Test
+	public void testParallelWaitIsBounded() throws Exception {
+		final List<String> copied = new CopyOnWriteArrayList<String>();
+		final CountDownLatch latch = new CountDownLatch(1);
+		AbstractInboundFileSynchronizer<String> sync = new AbstractInboundFileSynchronizer<String>(
+				new StringSessionFactory()) {
+
+			@Override
+			protected boolean isFile(String file) {
+				return true;
+			}
+
+			@Override
+			protected String getFilename(String file) {
+				return file;
+			}
+
+			@Override
+			protected long getModified(String file) {
+				return 0;
+			}
+
+			@Override
+			protected void copyFileToLocalDirectory(String remoteDirectoryPath, String remoteFile, File localDirectory,
+					Session<String> session) throws IOException {
+				try {
+					latch.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				copied.add(remoteFile);
+			}
+
+		};
+		sync.setFilter(new AcceptOnceFileListFilter<String>());
+		sync.setMaxConcurrency(3);
+		sync.setDownloadWaitTimeout(100);
+		long start = System.currentTimeMillis();
+		sync.synchronizeToLocalDirectory(mock(File.class));
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertEquals(0, copied.size());
+		latch.countDown();
+		sync.setDownloadWaitTimeout(10000);
+		int n = 0;
+		while (copied.size() < 3 && n++ < 100) {
+			sync.synchronizeToLocalDirectory(mock(File.class));
+		}
+		assertThat(copied, containsInAnyOrder("foo", "bar", "baz"));
+		// the downloads that outlived the first wait were not listed again
+		assertTrue(this.lists.get() <= 2);
+		sync.close();
+	}
+
+	private AbstractInboundFileSynchronizer<String> createSynchronizer(final List<String> copied,
+			final CountDownLatch latch) {
+		AbstractInboundFileSynchronizer<String> sync = new AbstractInboundFileSynchronizer<String>(
+				new StringSessionFactory()) {
+
+			@Override
+			protected boolean isFile(String file) {
+				return true;
+			}
+
+			@Override
+			protected String getFilename(String file) {
+				return file;
+			}
+
+			@Override
+			protected long getModified(String file) {
+				return 0;
+			}
+
+			@Override
+			protected void copyFileToLocalDirectory(String remoteDirectoryPath, String remoteFile, File localDirectory,
+					Session<String> session) throws IOException {
+				if (latch != null && !"foo".equals(remoteFile)) {
+					try {
+						latch.await(10, TimeUnit.SECONDS);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				copied.add(remoteFile);
+			}
+
+		};
+		return sync;
+	}
+
 	private class StringSessionFactory implements SessionFactory<String> {
 
 		@Override
@@ -109,6 +349,7 @@ public class AbstractRemoteFileSynchronizerTests {
 
 		@Override
 		public String[] list(String path) throws IOException {
+			lists.incrementAndGet();
 			return new String[] {"foo", "bar", "baz"};
 		}
 
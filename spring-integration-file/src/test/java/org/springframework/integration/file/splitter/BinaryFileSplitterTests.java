@@ -0,0 +1,197 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.splitter;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.support.GenericMessage;
+
+/**
+ * @since 4.2
+ */
+public class BinaryFileSplitterTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final QueueChannel output = new QueueChannel();
+
+	@Test
+	public void testFixedSize() throws Exception {
+		File file = write("0123456789".getBytes());
+		BinaryFileSplitter splitter = new BinaryFileSplitter();
+		splitter.setChunkSize(4);
+		// chunks span the mapped regions
+		splitter.setMappingSize(6);
+		splitter.setOutputChannel(this.output);
+		splitter.handleMessage(new GenericMessage<File>(file));
+		assertChunk("0123", 3);
+		assertChunk("4567", 3);
+		assertChunk("89", 3);
+		assertNull(this.output.receive(0));
+	}
+
+	@Test
+	public void testDelimiterByteBuffers() throws Exception {
+		File file = write("foo\r\n\r\nbarbaz\r\nqux".getBytes());
+		BinaryFileSplitter splitter = new BinaryFileSplitter();
+		splitter.setDelimiter((byte) '\r', (byte) '\n');
+		splitter.setByteBuffers(true);
+		splitter.setMappingSize(8);
+		splitter.setOutputChannel(this.output);
+		splitter.handleMessage(new GenericMessage<String>(file.getAbsolutePath()));
+		assertBuffer("foo");
+		assertBuffer("");
+		assertBuffer("barbaz");
+		assertBuffer("qux");
+		assertNull(this.output.receive(0));
+	}
+
+	@Test
+	public void testLengthHeaderList() throws Exception {
+		File file = write(new byte[] { 0, 3, 'f', 'o', 'o', 0, 0, 0, 6, 'b', 'a', 'r', 'b', 'a', 'z' });
+		BinaryFileSplitter splitter = new BinaryFileSplitter(false);
+		splitter.setLengthHeaderSize(2);
+		splitter.setMappingSize(6);
+		splitter.setOutputChannel(this.output);
+		splitter.handleMessage(new GenericMessage<File>(file));
+		assertChunk("foo", 3);
+		assertChunk("", 3);
+		assertChunk("barbaz", 3);
+		assertNull(this.output.receive(0));
+	}
+
+	@Test
+	public void testTruncatedRecord() throws Exception {
+		File file = write(new byte[] { 5, 'f', 'o', 'o' });
+		BinaryFileSplitter splitter = new BinaryFileSplitter();
+		splitter.setLengthHeaderSize(1);
+		splitter.setOutputChannel(this.output);
+		try {
+			splitter.handleMessage(new GenericMessage<File>(file));
+			fail("MessageHandlingException expected");
+		}
+		catch (MessageHandlingException e) {
+			assertThat(e.getMessage(), containsString("extends beyond the end of file"));
+		}
+	}
+
+	@Test
+	public void testRecordLargerThanMapping() throws Exception {
+		File file = write("foo,barbazqux".getBytes());
+		BinaryFileSplitter splitter = new BinaryFileSplitter();
+		splitter.setDelimiter((byte) ',');
+		splitter.setMappingSize(5);
+		splitter.setOutputChannel(this.output);
+		try {
+			splitter.handleMessage(new GenericMessage<File>(file));
+			fail("MessageHandlingException expected");
+		}
+		catch (MessageHandlingException e) {
+			assertThat(e.getMessage(), containsString("larger than the mapping size"));
+		}
+		assertChunk("foo", 0);
+	}
+
+	@Test
+	public void testChunkSizeLargerThanMapping() throws Exception {
+		BinaryFileSplitter splitter = new BinaryFileSplitter();
+		splitter.setChunkSize(8);
+		splitter.setMappingSize(6);
+		splitter.setOutputChannel(this.output);
+		try {
+			splitter.afterPropertiesSet();
+			fail("IllegalStateException expected");
+		}
+		catch (IllegalStateException e) {
+			assertThat(e.getMessage(), containsString("'chunkSize' (8) must not be greater than 'mappingSize' (6)"));
+		}
+		try {
+			splitter.handleMessage(new GenericMessage<File>(write("0123456789".getBytes())));
+			fail("MessageHandlingException expected");
+		}
+		catch (MessageHandlingException e) {
+			assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+		}
+		assertNull(this.output.receive(0));
+	}
+
+	@Test
+	public void testOtherPayloadsAndEmptyFile() throws Exception {
+		BinaryFileSplitter splitter = new BinaryFileSplitter();
+		splitter.setChunkSize(10);
+		splitter.setOutputChannel(this.output);
+		splitter.handleMessage(new GenericMessage<Integer>(42));
+		Message<?> received = this.output.receive(0);
+		assertNotNull(received);
+		assertEquals(42, received.getPayload());
+		splitter.handleMessage(new GenericMessage<File>(write(new byte[0])));
+		assertNull(this.output.receive(0));
+	}
+
+	private File write(byte[] bytes) throws IOException {
+		File file = this.folder.newFile();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes);
+		}
+		finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private void assertChunk(String expected, int sequenceSize) {
+		Message<?> received = this.output.receive(0);
+		assertNotNull(received);
+		assertArrayEquals(expected.getBytes(), (byte[]) received.getPayload());
+		assertEquals(sequenceSize, received.getHeaders().get(IntegrationMessageHeaderAccessor.SEQUENCE_SIZE));
+	}
+
+	private void assertBuffer(String expected) {
+		Message<?> received = this.output.receive(0);
+		assertNotNull(received);
+		assertThat(received.getPayload(), instanceOf(ByteBuffer.class));
+		ByteBuffer buffer = (ByteBuffer) received.getPayload();
+		assertTrue(buffer.isReadOnly());
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		assertArrayEquals(expected.getBytes(), bytes);
+	}
+
+}
@@ -17,6 +17,7 @@ package org.springframework.integration.file.tail;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
@@ -39,6 +40,7 @@ import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.file.tail.FileTailingMessageProducerSupport.FileTailingEvent;
+import org.springframework.integration.metadata.SimpleMetadataStore;
 import org.springframework.messaging.Message;
 
 /**
@@ -92,6 +94,100 @@ public class FileTailingMessageProducerTests {
 		testGuts(adapter, "tailer");
 	}
 
+	@Test
+	public void testNio() throws Exception {
+		NioFileTailingMessageProducer adapter = new NioFileTailingMessageProducer();
+		adapter.setPollingDelay(100);
+		adapter.setEnd(false);
+		testGuts(adapter, "tailer");
+	}
+
+	@Test
+	public void testNioResume() throws Exception {
+		File file = new File(testDir, "resume");
+		file.delete();
+		appendLines(file, 0, 10);
+		SimpleMetadataStore store = new SimpleMetadataStore();
+		QueueChannel outputChannel = new QueueChannel();
+		NioFileTailingMessageProducer adapter = nioAdapter(file, store, outputChannel);
+		adapter.setEnd(false);
+		adapter.afterPropertiesSet();
+		adapter.start();
+		for (int i = 0; i < 10; i++) {
+			Message<?> message = outputChannel.receive(5000);
+			assertNotNull("expected a non-null message", message);
+			assertEquals("hello" + i, message.getPayload());
+		}
+		adapter.stop();
+		appendLines(file, 10, 20);
+		adapter = nioAdapter(file, store, outputChannel);
+		adapter.afterPropertiesSet();
+		adapter.start();
+		for (int i = 10; i < 20; i++) {
+			Message<?> message = outputChannel.receive(5000);
+			assertNotNull("expected a non-null message", message);
+			assertEquals("hello" + i, message.getPayload());
+		}
+		assertNull(outputChannel.receive(100));
+		file.delete();
+	}
+
+	@Test
+	public void testNioRotationWithUnterminatedLine() throws Exception {
+		File file = new File(testDir, "unterminated");
+		File renamed = new File(testDir, "unterminated.1");
+		file.delete();
+		renamed.delete();
+		FileOutputStream out = new FileOutputStream(file);
+		out.write("hello0\nhello1".getBytes());
+		out.close();
+		QueueChannel outputChannel = new QueueChannel();
+		NioFileTailingMessageProducer adapter = nioAdapter(file, null, outputChannel);
+		adapter.setEnd(false);
+		adapter.afterPropertiesSet();
+		adapter.start();
+		Message<?> message = outputChannel.receive(5000);
+		assertNotNull("expected a non-null message", message);
+		assertEquals("hello0", message.getPayload());
+		// the line is incomplete until the file is rotated
+		assertNull(outputChannel.receive(500));
+		file.renameTo(renamed);
+		appendLines(file, 2, 3);
+		message = outputChannel.receive(5000);
+		assertNotNull("expected a non-null message", message);
+		assertEquals("hello1", message.getPayload());
+		message = outputChannel.receive(5000);
+		assertNotNull("expected a non-null message", message);
+		assertEquals("hello2", message.getPayload());
+		assertNull(outputChannel.receive(100));
+		file.delete();
+		renamed.delete();
+	}
+
+	private NioFileTailingMessageProducer nioAdapter(File file, SimpleMetadataStore store,
+			QueueChannel outputChannel) {
+		NioFileTailingMessageProducer adapter = new NioFileTailingMessageProducer();
+		this.adapter = adapter;
+		adapter.setFile(file);
+		adapter.setPollingDelay(100);
+		adapter.setMetadataStore(store);
+		adapter.setOutputChannel(outputChannel);
+		adapter.setBeanFactory(mock(BeanFactory.class));
+		return adapter;
+	}
+
+	private void appendLines(File file, int from, int to) throws IOException {
+		FileOutputStream out = new FileOutputStream(file, true);
+		try {
+			for (int i = from; i < to; i++) {
+				out.write(("hello" + i + "\n").getBytes());
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
 	@Test
 	@TailAvailable
 	public void canRecalculateCommandWhenFileOrOptionsChanged() throws IOException {
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.file.transformer;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.messaging.Message;
+
+/**
+ * @since 4.2
+ */
+public class FileToByteBufferTransformerTests extends
+		AbstractFilePayloadTransformerTests<FileToByteBufferTransformer> {
+
+	@Before
+	public void setUp() {
+		transformer = new FileToByteBufferTransformer();
+	}
+
+	@Test
+	public void transform_withSmallFile_readIntoHeapBuffer() throws Exception {
+		Message<?> result = transformer.transform(message);
+		assertThat(result.getPayload(), is(instanceOf(ByteBuffer.class)));
+		ByteBuffer buffer = (ByteBuffer) result.getPayload();
+		assertFalse(buffer instanceof MappedByteBuffer);
+		assertThat(contents(buffer), is(SAMPLE_CONTENT.getBytes(DEFAULT_ENCODING)));
+	}
+
+	@Test
+	public void transform_withThresholdReached_fileMapped() throws Exception {
+		transformer.setMappingThreshold(0);
+		Message<?> result = transformer.transform(message);
+		ByteBuffer buffer = (ByteBuffer) result.getPayload();
+		assertTrue(buffer instanceof MappedByteBuffer);
+		assertTrue(buffer.isReadOnly());
+		assertThat(contents(buffer), is(SAMPLE_CONTENT.getBytes(DEFAULT_ENCODING)));
+	}
+
+	private byte[] contents(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+}
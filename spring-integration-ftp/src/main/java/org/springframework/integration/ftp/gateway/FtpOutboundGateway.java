@@ -91,5 +91,25 @@ public class FtpOutboundGateway extends AbstractRemoteFileOutboundGateway<FTPFil
 		return file;
 	}
 
+	@Override
+	protected FTPFile copyFile(FTPFile file) {
+		FTPFile copy = new FTPFile();
+		copy.setName(file.getName());
+		copy.setType(file.getType());
+		copy.setSize(file.getSize());
+		copy.setTimestamp(file.getTimestamp());
+		copy.setRawListing(file.getRawListing());
+		copy.setLink(file.getLink());
+		copy.setUser(file.getUser());
+		copy.setGroup(file.getGroup());
+		copy.setHardLinkCount(file.getHardLinkCount());
+		for (int access = FTPFile.USER_ACCESS; access <= FTPFile.WORLD_ACCESS; access++) {
+			for (int permission = FTPFile.READ_PERMISSION; permission <= FTPFile.EXECUTE_PERMISSION; permission++) {
+				copy.setPermission(access, permission, file.hasPermission(access, permission));
+			}
+		}
+		return copy;
+	}
+
 
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ftp.inbound;
+
+import org.apache.commons.net.ftp.FTPFile;
+
+import org.springframework.integration.file.remote.AbstractRemoteFileStreamingMessageSource;
+import org.springframework.integration.file.remote.RemoteFileTemplate;
+import org.springframework.integration.ftp.filters.FtpPersistentAcceptOnceFileListFilter;
+import org.springframework.integration.metadata.SimpleMetadataStore;
+
+/**
+ * A {@link org.springframework.integration.core.MessageSource} implementation for FTP
+ * that emits each remote file as an {@link java.io.InputStream}. By default, each file
+ * is emitted once by name (and modified time), using an in-memory
+ * {@link FtpPersistentAcceptOnceFileListFilter}.
+ *
+ * @since 4.2
+ */
+public class FtpStreamingMessageSource extends AbstractRemoteFileStreamingMessageSource<FTPFile> {
+
+	public FtpStreamingMessageSource(RemoteFileTemplate<FTPFile> template) {
+		super(template);
+		setFilter(new FtpPersistentAcceptOnceFileListFilter(new SimpleMetadataStore(), "ftpStreamingMessageSource"));
+	}
+
+	@Override
+	public String getComponentType() {
+		return "FTP Streaming Message Source";
+	}
+
+	@Override
+	protected boolean isFile(FTPFile file) {
+		return file.isFile();
+	}
+
+	@Override
+	protected String getFilename(FTPFile file) {
+		return file.getName();
+	}
+
+	@Override
+	protected long getSize(FTPFile file) {
+		return file.getSize();
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ftp.inbound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Calendar;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.remote.RemoteFileTemplate;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.messaging.Message;
+
+/**
+ * @since 4.2
+ */
+public class FtpStreamingMessageSourceTests {
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testFileEmittedOnceAcrossListings() throws Exception {
+		Session<FTPFile> session = mock(Session.class);
+		final Calendar timestamp = Calendar.getInstance();
+		// each listing returns new FTPFile instances, which do not override equals()
+		when(session.list("dir")).thenAnswer(new Answer<FTPFile[]>() {
+
+			@Override
+			public FTPFile[] answer(InvocationOnMock invocation) throws Throwable {
+				FTPFile file = new FTPFile();
+				file.setName("foo");
+				file.setType(FTPFile.FILE_TYPE);
+				file.setTimestamp(timestamp);
+				file.setSize(3);
+				return new FTPFile[] { file };
+			}
+
+		});
+		when(session.readRaw("dir/foo")).thenReturn(new ByteArrayInputStream("foo".getBytes()));
+		SessionFactory<FTPFile> sessionFactory = mock(SessionFactory.class);
+		when(sessionFactory.getSession()).thenReturn(session);
+		FtpStreamingMessageSource source = new FtpStreamingMessageSource(
+				new RemoteFileTemplate<FTPFile>(sessionFactory));
+		source.setRemoteDirectory("dir");
+		source.afterPropertiesSet();
+		source.start();
+		Message<InputStream> received = source.receive();
+		assertEquals("foo", received.getHeaders().get(FileHeaders.REMOTE_FILE));
+		received.getPayload().close();
+		assertNull(source.receive());
+		verify(session, times(2)).list("dir");
+		verify(session).readRaw("dir/foo");
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -70,6 +70,14 @@ public abstract class IpAdapterParserUtils {
 
 	static final String USING_DIRECT_BUFFERS = "using-direct-buffers";
 
+	static final String USING_BYTE_BUFFER_DESERIALIZER = "using-byte-buffer-deserializer";
+
+	static final String READ_SELECTOR_COUNT = "read-selector-count";
+
+	static final String READ_BACKPRESSURE = "read-backpressure";
+
+	static final String MAX_PENDING_PACKETS = "max-pending-packets";
+
 	static final String MESSAGE_FORMAT = "message-format";
 
 	static final String SO_LINGER = "so-linger";
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -44,6 +44,7 @@ import org.springframework.integration.ip.tcp.connection.TcpNioServerConnectionF
 import org.springframework.integration.ip.tcp.connection.TcpSSLContextSupport;
 import org.springframework.integration.ip.tcp.connection.TcpSocketFactorySupport;
 import org.springframework.integration.ip.tcp.connection.TcpSocketSupport;
+import org.springframework.integration.ip.tcp.serializer.BufferPool;
 import org.springframework.integration.ip.tcp.serializer.ByteArrayCrLfSerializer;
 import org.springframework.util.Assert;
 
@@ -103,6 +104,24 @@ public class TcpConnectionFactoryFactoryBean extends AbstractFactoryBean<Abstrac
 
 	private volatile boolean usingDirectBuffers;
 
+	private volatile boolean usingByteBufferDeserializer;
+
+	private volatile BufferPool bufferPool;
+
+	private volatile int readSelectorCount;
+
+	private volatile boolean writeBatching;
+
+	private volatile boolean readBackpressure;
+
+	private volatile long maxWriteLatency;
+
+	private volatile int maxWriteBatchSize = 64 * 1024;
+
+	private volatile int maxPendingWriteBytes = 1024 * 1024;
+
+	private volatile long pendingWriteTimeout = 60000;
+
 	private volatile String beanName;
 
 	private volatile boolean applySequence;
@@ -143,6 +162,7 @@ public class TcpConnectionFactoryFactoryBean extends AbstractFactoryBean<Abstrac
 				this.setCommonAttributes(connectionFactory);
 				this.setServerAttributes(connectionFactory);
 				connectionFactory.setUsingDirectBuffers(this.usingDirectBuffers);
+				this.setNioAttributes(connectionFactory);
 				connectionFactory.setTcpNioConnectionSupport(this.obtainNioConnectionSupport());
 				this.connectionFactory = connectionFactory;
 			} else {
@@ -150,6 +170,7 @@ public class TcpConnectionFactoryFactoryBean extends AbstractFactoryBean<Abstrac
 						this.host, this.port);
 				this.setCommonAttributes(connectionFactory);
 				connectionFactory.setUsingDirectBuffers(this.usingDirectBuffers);
+				this.setNioAttributes(connectionFactory);
 				connectionFactory.setTcpNioConnectionSupport(this.obtainNioConnectionSupport());
 				this.connectionFactory = connectionFactory;
 			}
@@ -201,6 +222,18 @@ public class TcpConnectionFactoryFactoryBean extends AbstractFactoryBean<Abstrac
 		factory.setBacklog(this.backlog);
 	}
 
+	private void setNioAttributes(AbstractConnectionFactory factory) {
+		factory.setUsingByteBufferDeserializer(this.usingByteBufferDeserializer);
+		factory.setBufferPool(this.bufferPool);
+		factory.setReadSelectorCount(this.readSelectorCount);
+		factory.setWriteBatching(this.writeBatching);
+		factory.setMaxWriteLatency(this.maxWriteLatency);
+		factory.setMaxWriteBatchSize(this.maxWriteBatchSize);
+		factory.setMaxPendingWriteBytes(this.maxPendingWriteBytes);
+		factory.setPendingWriteTimeout(this.pendingWriteTimeout);
+		factory.setReadBackpressure(this.readBackpressure);
+	}
+
 	private TcpSocketFactorySupport obtainSocketFactorySupport() {
 		if (this.socketFactorySupport != null) {
 			return this.socketFactorySupport;
@@ -342,6 +375,87 @@ public class TcpConnectionFactoryFactoryBean extends AbstractFactoryBean<Abstrac
 		this.usingDirectBuffers = usingDirectBuffers;
 	}
 
+	/**
+	 * @param usingByteBufferDeserializer the usingByteBufferDeserializer to set.
+	 * @since 4.2
+	 * @see AbstractConnectionFactory#setUsingByteBufferDeserializer(boolean)
+	 */
+	public void setUsingByteBufferDeserializer(boolean usingByteBufferDeserializer) {
+		this.usingByteBufferDeserializer = usingByteBufferDeserializer;
+	}
+
+	/**
+	 * @param bufferPool the bufferPool to set.
+	 * @since 4.2
+	 * @see AbstractConnectionFactory#setBufferPool(BufferPool)
+	 */
+	public void setBufferPool(BufferPool bufferPool) {
+		this.bufferPool = bufferPool;
+	}
+
+	/**
+	 * @param readSelectorCount the readSelectorCount to set.
+	 * @since 4.2
+	 * @see AbstractConnectionFactory#setReadSelectorCount(int)
+	 */
+	public void setReadSelectorCount(int readSelectorCount) {
+		this.readSelectorCount = readSelectorCount;
+	}
+
+	/**
+	 * @param writeBatching the writeBatching to set.
+	 * @since 4.2
+	 * @see AbstractConnectionFactory#setWriteBatching(boolean)
+	 */
+	public void setWriteBatching(boolean writeBatching) {
+		this.writeBatching = writeBatching;
+	}
+
+	/**
+	 * @param maxWriteLatency the maxWriteLatency to set.
+	 * @since 4.2
+	 * @see AbstractConnectionFactory#setMaxWriteLatency(long)
+	 */
+	public void setMaxWriteLatency(long maxWriteLatency) {
+		this.maxWriteLatency = maxWriteLatency;
+	}
+
+	/**
+	 * @param maxWriteBatchSize the maxWriteBatchSize to set.
+	 * @since 4.2
+	 * @see AbstractConnectionFactory#setMaxWriteBatchSize(int)
+	 */
+	public void setMaxWriteBatchSize(int maxWriteBatchSize) {
+		this.maxWriteBatchSize = maxWriteBatchSize;
+	}
+
+	/**
+	 * @param maxPendingWriteBytes the maxPendingWriteBytes to set.
+	 * @since 4.2
+	 * @see AbstractConnectionFactory#setMaxPendingWriteBytes(int)
+	 */
+	public void setMaxPendingWriteBytes(int maxPendingWriteBytes) {
+		this.maxPendingWriteBytes = maxPendingWriteBytes;
+	}
+
+	/**
+	 * @param pendingWriteTimeout the pendingWriteTimeout to set.
+	 * @since 4.2
+	 * @see AbstractConnectionFactory#setPendingWriteTimeout(long)
+	 */
+	public void setPendingWriteTimeout(long pendingWriteTimeout) {
+		this.pendingWriteTimeout = pendingWriteTimeout;
+	}
+
+	/**
+	 * @param readBackpressure the readBackpressure to set.
+	 * @since 4.2
+	 * @see AbstractConnectionFactory#setReadBackpressure(boolean)
+	 */
+	public void setReadBackpressure(boolean readBackpressure) {
+		this.readBackpressure = readBackpressure;
+	}
+
 	/**
 	 * @param taskExecutor The task executor.
 	 * @see org.springframework.integration.ip.tcp.connection.AbstractConnectionFactory#setTaskExecutor(java.util.concurrent.Executor)
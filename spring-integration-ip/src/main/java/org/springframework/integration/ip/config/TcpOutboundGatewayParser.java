@@ -55,6 +55,8 @@ public class TcpOutboundGatewayParser extends AbstractConsumerEndpointParser {
 		}
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element,
 				IpAdapterParserUtils.REPLY_TIMEOUT, "sendTimeout");
+		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "correlation-strategy");
+		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "reply-correlation-strategy");
 		return builder;
 	}
 
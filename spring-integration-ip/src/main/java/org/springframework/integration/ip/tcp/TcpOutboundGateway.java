@@ -18,6 +18,7 @@ package org.springframework.integration.ip.tcp;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +30,7 @@ import org.springframework.expression.Expression;
 import org.springframework.expression.common.LiteralExpression;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.integration.MessageTimeoutException;
+import org.springframework.integration.aggregator.CorrelationStrategy;
 import org.springframework.integration.expression.IntegrationEvaluationContextAware;
 import org.springframework.integration.handler.AbstractReplyProducingMessageHandler;
 import org.springframework.integration.ip.IpHeaders;
@@ -49,7 +51,14 @@ import org.springframework.util.Assert;
  * for single-use connections, each request is sent on a new connection; if the factory does not use
  * single use connections, each request is blocked until the previous response is received
  * (or times out). Asynchronous requests/responses over the same connection are not
- * supported - use a pair of outbound/inbound adapters for that use case.
+ * supported - use a pair of outbound/inbound adapters for that use case - unless
+ * a {@link #setCorrelationStrategy(CorrelationStrategy) correlationStrategy} is provided.
+ * <p>
+ * When the remote system includes a correlation id in each reply frame, a
+ * {@link CorrelationStrategy} that extracts that id from the request and reply messages
+ * enables multiplexing: concurrent requests are sent over the same connection without
+ * waiting for previous replies, and each reply is routed to its request by correlation
+ * id, so a single connection can carry many in-flight requests.
  * <p>
  * {@link SmartLifecycle} methods delegate to the underlying {@link AbstractConnectionFactory}
  *
@@ -72,6 +81,13 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler
 
 	private volatile EvaluationContext evaluationContext = new StandardEvaluationContext();
 
+	private volatile CorrelationStrategy correlationStrategy;
+
+	private volatile CorrelationStrategy replyCorrelationStrategy;
+
+	private final ConcurrentMap<String, ConcurrentMap<Object, AsyncReply>> multiplexedReplies =
+			new ConcurrentHashMap<String, ConcurrentMap<Object, AsyncReply>>();
+
 	/**
 	 * @param requestTimeout the requestTimeout to set
 	 */
@@ -93,6 +109,34 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler
 		this.remoteTimeoutExpression = remoteTimeoutExpression;
 	}
 
+	/**
+	 * Enable multiplexing: the strategy determines the correlation id of each request
+	 * message (as mapped from the reply frame, it is also used to determine the
+	 * correlation id of each reply, unless a {@link #setReplyCorrelationStrategy(CorrelationStrategy)
+	 * replyCorrelationStrategy} is provided). Requests are not serialized; each request
+	 * waits only for its own reply, for up to the remote timeout. On a timeout, the
+	 * connection is not closed (other requests may be in flight), and a late reply is
+	 * discarded. Correlation ids must be unique among the requests in flight on a
+	 * connection.
+	 * @param correlationStrategy the correlation strategy.
+	 * @since 4.2
+	 */
+	public void setCorrelationStrategy(CorrelationStrategy correlationStrategy) {
+		this.correlationStrategy = correlationStrategy;
+	}
+
+	/**
+	 * The strategy to determine the correlation id of reply messages, when it differs from
+	 * that for request messages, for example when the id is in the payload of the replies
+	 * but in a header of the requests.
+	 * @param replyCorrelationStrategy the reply correlation strategy.
+	 * @since 4.2
+	 * @see #setCorrelationStrategy(CorrelationStrategy)
+	 */
+	public void setReplyCorrelationStrategy(CorrelationStrategy replyCorrelationStrategy) {
+		this.replyCorrelationStrategy = replyCorrelationStrategy;
+	}
+
 	@Override
 	public void setIntegrationEvaluationContext(EvaluationContext evaluationContext) {
 		this.evaluationContext = evaluationContext;
@@ -102,6 +146,9 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler
 	protected Object handleRequestMessage(Message<?> requestMessage) {
 		Assert.notNull(connectionFactory, this.getClass().getName() +
 				" requires a client connection factory");
+		if (this.correlationStrategy != null) {
+			return handleMultiplexedRequestMessage(requestMessage);
+		}
 		boolean haveSemaphore = false;
 		String connectionId = null;
 		try {
@@ -162,6 +209,61 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler
 		}
 	}
 
+	private Object handleMultiplexedRequestMessage(Message<?> requestMessage) {
+		Object correlationId = this.correlationStrategy.getCorrelationKey(requestMessage);
+		if (correlationId == null) {
+			throw new MessagingException(requestMessage, "No correlation id for request");
+		}
+		String connectionId = null;
+		ConcurrentMap<Object, AsyncReply> replies = null;
+		try {
+			TcpConnection connection = this.connectionFactory.getConnection();
+			connectionId = connection.getConnectionId();
+			AsyncReply reply = new AsyncReply(this.remoteTimeoutExpression.getValue(this.evaluationContext,
+					requestMessage, Long.class));
+			replies = this.multiplexedReplies.get(connectionId);
+			if (replies == null) {
+				replies = new ConcurrentHashMap<Object, AsyncReply>();
+				ConcurrentMap<Object, AsyncReply> existing = this.multiplexedReplies.putIfAbsent(connectionId, replies);
+				if (existing != null) {
+					replies = existing;
+				}
+			}
+			if (replies.putIfAbsent(correlationId, reply) != null) {
+				replies = null;
+				throw new MessagingException(requestMessage, "A request with correlation id '" + correlationId
+						+ "' is already in flight on connection " + connectionId);
+			}
+			connection.send(requestMessage);
+			Message<?> replyMessage = reply.getReply();
+			if (replyMessage == null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Remote Timeout for " + correlationId + " on " + connectionId);
+				}
+				throw new MessageTimeoutException(requestMessage, "Timed out waiting for response");
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Response " + replyMessage);
+			}
+			return replyMessage;
+		}
+		catch (Exception e) {
+			logger.error("Tcp Gateway exception", e);
+			if (e instanceof MessagingException) {
+				throw (MessagingException) e;
+			}
+			throw new MessagingException("Failed to send or receive", e);
+		}
+		finally {
+			if (replies != null) {
+				replies.remove(correlationId);
+			}
+			if (this.connectionFactory instanceof CloseDeferrable) {
+				((CloseDeferrable) this.connectionFactory).closeDeferred(connectionId);
+			}
+		}
+	}
+
 	@Override
 	public boolean onMessage(Message<?> message) {
 		String connectionId = (String) message.getHeaders().get(IpHeaders.CONNECTION_ID);
@@ -172,6 +274,10 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler
 		if (logger.isTraceEnabled()) {
 			logger.trace("onMessage: " + connectionId + "(" + message + ")");
 		}
+		if (this.correlationStrategy != null) {
+			onMultiplexedMessage(connectionId, message);
+			return false;
+		}
 		AsyncReply reply = pendingReplies.get(connectionId);
 		if (reply == null) {
 			if (message instanceof ErrorMessage) {
@@ -190,6 +296,30 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler
 		return false;
 	}
 
+	private void onMultiplexedMessage(String connectionId, Message<?> message) {
+		ConcurrentMap<Object, AsyncReply> replies = this.multiplexedReplies.get(connectionId);
+		if (message instanceof ErrorMessage) {
+			// the connection failed; convey the error to all its waiting requests
+			if (replies != null) {
+				for (AsyncReply reply : replies.values()) {
+					reply.setReply(message);
+				}
+			}
+			return;
+		}
+		CorrelationStrategy strategy = this.replyCorrelationStrategy != null
+				? this.replyCorrelationStrategy
+				: this.correlationStrategy;
+		Object correlationId = strategy.getCorrelationKey(message);
+		AsyncReply reply = correlationId == null || replies == null ? null : replies.get(correlationId);
+		if (reply == null) {
+			logger.error("Cannot correlate response - no pending reply for correlation id '" + correlationId
+					+ "' on connection " + connectionId + "; it may have timed out");
+			return;
+		}
+		reply.setReply(message);
+	}
+
 	public void setConnectionFactory(AbstractConnectionFactory connectionFactory) {
 		// TODO: In 3.0 Change parameter type to AbstractClientConnectionFactory
 		Assert.isTrue(connectionFactory instanceof AbstractClientConnectionFactory,
@@ -201,12 +331,19 @@ public class TcpOutboundGateway extends AbstractReplyProducingMessageHandler
 
 	@Override
 	public void addNewConnection(TcpConnection connection) {
-		// do nothing - no asynchronous multiplexing supported
+		// do nothing
 	}
 
 	@Override
 	public void removeDeadConnection(TcpConnection connection) {
-		// do nothing - no asynchronous multiplexing supported
+		ConcurrentMap<Object, AsyncReply> replies = this.multiplexedReplies.remove(connection.getConnectionId());
+		if (replies != null && !replies.isEmpty()) {
+			ErrorMessage closed = new ErrorMessage(new MessagingException("Connection "
+					+ connection.getConnectionId() + " closed while awaiting reply"));
+			for (AsyncReply reply : replies.values()) {
+				reply.setReply(closed);
+			}
+		}
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -48,12 +48,18 @@ import org.springframework.context.SmartLifecycle;
 import org.springframework.core.serializer.Deserializer;
 import org.springframework.core.serializer.Serializer;
 import org.springframework.integration.context.IntegrationObjectSupport;
+import org.springframework.integration.ip.tcp.serializer.BufferPool;
 import org.springframework.integration.ip.tcp.serializer.ByteArrayCrLfSerializer;
+import org.springframework.integration.ip.tcp.serializer.ByteBufferDeserializer;
 import org.springframework.messaging.MessagingException;
 import org.springframework.util.Assert;
 
 /**
  * Base class for all connection factories.
+ * <p>
+ * Statistics for the factory's connections are available from {@link #getMetrics()};
+ * to expose them as managed metrics, declare a {@link ConnectionFactoryManagedMetrics}
+ * bean for the factory.
  *
  * @author Gary Russell
  * @since 2.0
@@ -114,6 +120,10 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 
 	private final List<TcpConnectionSupport> connections = new LinkedList<TcpConnectionSupport>();
 
+	private final TcpConnectionMetrics closedConnectionMetrics = new TcpConnectionMetrics();
+
+	private volatile boolean latencyHistograms;
+
 	private volatile TcpSocketSupport tcpSocketSupport = new DefaultTcpSocketSupport();
 
 	protected final Object lifecycleMonitor = new Object();
@@ -122,6 +132,26 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 
 	private volatile int nioHarvestInterval = DEFAULT_NIO_HARVEST_INTERVAL;
 
+	private volatile boolean usingByteBufferDeserializer;
+
+	private volatile BufferPool bufferPool;
+
+	private volatile int readSelectorCount;
+
+	private volatile boolean writeBatching;
+
+	private volatile long maxWriteLatency;
+
+	private volatile int maxWriteBatchSize = 64 * 1024;
+
+	private volatile int maxPendingWriteBytes = 1024 * 1024;
+
+	private volatile long pendingWriteTimeout = 60000;
+
+	private volatile boolean readBackpressure;
+
+	private final TcpNioSSLMetrics sslMetrics = new TcpNioSSLMetrics();
+
 	private volatile ApplicationEventPublisher applicationEventPublisher;
 
 	private final BlockingQueue<PendingIO> delayedReads = new LinkedBlockingQueue<AbstractConnectionFactory.PendingIO>();
@@ -396,6 +426,18 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 	}
 
 
+	/**
+	 * Set to true to record histograms of the decode and queueing times of each
+	 * connection; each connection then keeps three {@link LatencyHistogram}s. Other
+	 * statistics are always recorded. Default false.
+	 * @param latencyHistograms true to record the times.
+	 * @since 4.2
+	 * @see TcpConnectionMetrics
+	 */
+	public void setLatencyHistograms(boolean latencyHistograms) {
+		this.latencyHistograms = latencyHistograms;
+	}
+
 	public void setInterceptorFactoryChain(TcpConnectionInterceptorFactoryChain interceptorFactoryChain) {
 		this.interceptorFactoryChain = interceptorFactoryChain;
 	}
@@ -428,6 +470,14 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 		this.nioHarvestInterval = nioHarvestInterval;
 	}
 
+	/**
+	 * @return the interval (in milliseconds) at which closed NIO connections are harvested.
+	 * @since 4.2
+	 */
+	protected int getNioHarvestInterval() {
+		return this.nioHarvestInterval;
+	}
+
 	protected BlockingQueue<PendingIO> getDelayedReads() {
 		return delayedReads;
 	}
@@ -446,6 +496,144 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 		this.readDelay = readDelay;
 	}
 
+	/**
+	 * When set to true, NIO connections created by this factory decode frames directly
+	 * from the read buffer, if the deserializer is a {@link ByteBufferDeserializer}.
+	 * @param usingByteBufferDeserializer true to decode from the read buffer.
+	 * @since 4.2
+	 * @see TcpNioConnection#setUsingByteBufferDeserializer(boolean)
+	 */
+	public void setUsingByteBufferDeserializer(boolean usingByteBufferDeserializer) {
+		this.usingByteBufferDeserializer = usingByteBufferDeserializer;
+	}
+
+	/**
+	 * A pool from which NIO connections created by this factory obtain their read buffers.
+	 * @param bufferPool the pool.
+	 * @since 4.2
+	 * @see TcpNioConnection#setBufferPool(BufferPool)
+	 */
+	public void setBufferPool(BufferPool bufferPool) {
+		this.bufferPool = bufferPool;
+	}
+
+	/**
+	 * The number of selectors used by a NIO factory to detect read readiness. By default
+	 * (0), a single selector, running on one thread, detects when any connection is
+	 * ready for reading (and, for a server, accepts new connections). With a large
+	 * number of connections, that thread can become the bottleneck; when set to a
+	 * positive value (typically the number of cores), new connections are assigned to
+	 * this number of read selectors in turn, each running on its own thread from the
+	 * task executor. A connection stays with its read selector for its lifetime.
+	 * <p>The default is not the number of cores because each read selector occupies a
+	 * task executor thread for as long as the factory runs, which a bounded executor
+	 * shared with the reads may not be sized for.
+	 * @param readSelectorCount the number of read selectors.
+	 * @since 4.2
+	 */
+	public void setReadSelectorCount(int readSelectorCount) {
+		Assert.isTrue(readSelectorCount >= 0, "'readSelectorCount' must not be negative");
+		this.readSelectorCount = readSelectorCount;
+	}
+
+	/**
+	 * @return the number of read selectors.
+	 * @since 4.2
+	 */
+	protected int getReadSelectorCount() {
+		return this.readSelectorCount;
+	}
+
+	/**
+	 * If true, NIO connections created by this factory batch concurrent sends into
+	 * gathering writes.
+	 * @param writeBatching true to batch writes.
+	 * @since 4.2
+	 * @see TcpNioConnection#setWriteBatching(boolean)
+	 */
+	public void setWriteBatching(boolean writeBatching) {
+		this.writeBatching = writeBatching;
+	}
+
+	/**
+	 * @param maxWriteLatency the max time (ms) to wait for more frames when batching writes.
+	 * @since 4.2
+	 * @see TcpNioConnection#setMaxWriteLatency(long)
+	 */
+	public void setMaxWriteLatency(long maxWriteLatency) {
+		this.maxWriteLatency = maxWriteLatency;
+	}
+
+	/**
+	 * @param maxWriteBatchSize the max bytes per batch when batching writes.
+	 * @since 4.2
+	 * @see TcpNioConnection#setMaxWriteBatchSize(int)
+	 */
+	public void setMaxWriteBatchSize(int maxWriteBatchSize) {
+		Assert.isTrue(maxWriteBatchSize > 0, "'maxWriteBatchSize' must be positive");
+		this.maxWriteBatchSize = maxWriteBatchSize;
+	}
+
+	/**
+	 * @param maxPendingWriteBytes the max bytes queued but not yet written when
+	 * batching writes.
+	 * @since 4.2
+	 * @see TcpNioConnection#setMaxPendingWriteBytes(int)
+	 */
+	public void setMaxPendingWriteBytes(int maxPendingWriteBytes) {
+		Assert.isTrue(maxPendingWriteBytes > 0, "'maxPendingWriteBytes' must be positive");
+		this.maxPendingWriteBytes = maxPendingWriteBytes;
+	}
+
+	/**
+	 * @param pendingWriteTimeout the max time (ms) a sender waits for pending writes when
+	 * batching writes.
+	 * @since 4.2
+	 * @see TcpNioConnection#setPendingWriteTimeout(long)
+	 */
+	public void setPendingWriteTimeout(long pendingWriteTimeout) {
+		this.pendingWriteTimeout = pendingWriteTimeout;
+	}
+
+	/**
+	 * If true, NIO connections created by this factory stop reading while data already
+	 * read has not been consumed.
+	 * @param readBackpressure true to suspend reads while data is pending.
+	 * @since 4.2
+	 * @see TcpNioConnection#setReadBackpressure(boolean)
+	 */
+	public void setReadBackpressure(boolean readBackpressure) {
+		this.readBackpressure = readBackpressure;
+	}
+
+	/**
+	 * @return the TLS handshake and throughput statistics of the NIO SSL connections
+	 * created by this factory.
+	 * @since 4.2
+	 */
+	public TcpNioSSLMetrics getSSLMetrics() {
+		return this.sslMetrics;
+	}
+
+	/**
+	 * Apply the NIO settings of this factory to a new connection.
+	 * @param connection the connection.
+	 * @since 4.2
+	 */
+	protected void configureNioConnection(TcpNioConnection connection) {
+		connection.setUsingByteBufferDeserializer(this.usingByteBufferDeserializer);
+		connection.setBufferPool(this.bufferPool);
+		connection.setWriteBatching(this.writeBatching);
+		connection.setMaxWriteLatency(this.maxWriteLatency);
+		connection.setMaxWriteBatchSize(this.maxWriteBatchSize);
+		connection.setMaxPendingWriteBytes(this.maxPendingWriteBytes);
+		connection.setPendingWriteTimeout(this.pendingWriteTimeout);
+		connection.setReadBackpressure(this.readBackpressure);
+		if (connection instanceof TcpNioSSLConnection) {
+			((TcpNioSSLConnection) connection).setSSLMetrics(this.sslMetrics);
+		}
+	}
+
 	@Override
 	protected void onInit() throws Exception {
 		super.onInit();
@@ -487,9 +675,10 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 		synchronized (this.connections) {
 			Iterator<TcpConnectionSupport> iterator = this.connections.iterator();
 			while (iterator.hasNext()) {
-				TcpConnection connection = iterator.next();
+				TcpConnectionSupport connection = iterator.next();
 				connection.close();
 				iterator.remove();
+				retireMetrics(connection);
 			}
 		}
 		synchronized (this.lifecycleMonitor) {
@@ -624,10 +813,12 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 						final TcpNioConnection connection;
 						connection = (TcpNioConnection) key.attachment();
 						connection.setLastRead(System.currentTimeMillis());
+						final long selected = System.nanoTime();
 						try {
 							this.taskExecutor.execute(new Runnable() {
 								@Override
 								public void run() {
+									connection.getMetrics().readQueued(System.nanoTime() - selected);
 									boolean delayed = false;
 									try {
 										connection.readPacket();
@@ -649,8 +840,10 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 									}
 									if (!delayed) {
 										if (key.channel().isOpen()) {
-											key.interestOps(SelectionKey.OP_READ);
-											selector.wakeup();
+											if (!connection.suspendReadingIfBusy(key)) {
+												key.interestOps(SelectionKey.OP_READ);
+												selector.wakeup();
+											}
 										}
 										else {
 											connection.sendExceptionToListener(new EOFException("Connection is closed"));
@@ -709,12 +902,23 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 	private void rescheduleDelayedReads(Selector selector, long now) {
 		boolean wakeSelector = false;
 		try {
-			while (this.delayedReads.size() > 0) {
-				if (this.delayedReads.peek().failedAt + this.readDelay < now) {
-					PendingIO pendingRead = this.delayedReads.take();
+			PendingIO pendingRead;
+			// read selectors share the queue, so only remove the read that was found to have expired
+			while ((pendingRead = this.delayedReads.peek()) != null) {
+				if (pendingRead.failedAt + this.readDelay < now) {
+					if (!this.delayedReads.remove(pendingRead)) {
+						// rescheduled by another selector
+						continue;
+					}
 					if (pendingRead.key.channel().isOpen()) {
 						pendingRead.key.interestOps(SelectionKey.OP_READ);
-						wakeSelector = true;
+						if (pendingRead.key.selector() == selector) {
+							wakeSelector = true;
+						}
+						else {
+							// the key belongs to another read selector
+							pendingRead.key.selector().wakeup();
+						}
 						if (logger.isDebugEnabled()) {
 							logger.debug("Rescheduling delayed read for " + ((TcpNioConnection) pendingRead.key.attachment()).getConnectionId());
 						}
@@ -729,9 +933,6 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 				}
 			}
 		}
-		catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
-		}
 		finally {
 			if (wakeSelector) {
 				selector.wakeup();
@@ -775,6 +976,12 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 				connection.close();
 				return;
 			}
+			if (this.latencyHistograms) {
+				TcpConnectionMetrics metrics = connection.getMetrics();
+				if (metrics != null) {
+					metrics.enableLatencyHistograms();
+				}
+			}
 			this.connections.add(connection);
 		}
 	}
@@ -788,9 +995,10 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 			List<String> openConnectionIds = new ArrayList<String>();
 			Iterator<TcpConnectionSupport> iterator = this.connections.iterator();
 			while (iterator.hasNext()) {
-				TcpConnection connection = iterator.next();
+				TcpConnectionSupport connection = iterator.next();
 				if (!connection.isOpen()) {
 					iterator.remove();
+					retireMetrics(connection);
 				}
 				else {
 					openConnectionIds.add(connection.getConnectionId());
@@ -807,6 +1015,56 @@ public abstract class AbstractConnectionFactory extends IntegrationObjectSupport
 		this.removeClosedConnectionsAndReturnOpenConnectionIds();
 	}
 
+	/**
+	 * Fold the statistics of a removed connection into those of the factory.
+	 */
+	private void retireMetrics(TcpConnectionSupport connection) {
+		TcpConnectionMetrics metrics = connection.getMetrics();
+		if (metrics != null) {
+			metrics.queueDepth(0);
+			this.closedConnectionMetrics.add(metrics);
+		}
+	}
+
+	/**
+	 * Return the aggregate statistics for all the connections created by this factory,
+	 * including those that have been closed. The result is a snapshot, so this method
+	 * is intended for occasional monitoring rather than frequent calls.
+	 * @return the statistics.
+	 * @since 4.2
+	 */
+	public TcpConnectionMetrics getMetrics() {
+		TcpConnectionMetrics metrics = new TcpConnectionMetrics();
+		synchronized (this.connections) {
+			metrics.add(this.closedConnectionMetrics);
+			for (TcpConnectionSupport connection : this.connections) {
+				TcpConnectionMetrics connectionMetrics = connection.getMetrics();
+				if (connectionMetrics != null) {
+					metrics.add(connectionMetrics);
+				}
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * Return the statistics for an open connection.
+	 * @param connectionId the connection id.
+	 * @return the statistics, or null if there is no such connection.
+	 * @since 4.2
+	 */
+	public TcpConnectionMetrics getConnectionMetrics(String connectionId) {
+		Assert.notNull(connectionId, "'connectionId' must not be null");
+		synchronized (this.connections) {
+			for (TcpConnectionSupport connection : this.connections) {
+				if (connectionId.equals(connection.getConnectionId())) {
+					return connection.getMetrics();
+				}
+			}
+		}
+		return null;
+	}
+
 	@Override
 	public boolean isRunning() {
 		return this.active;
@@ -22,14 +22,18 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.core.serializer.Deserializer;
 import org.springframework.core.serializer.Serializer;
 import org.springframework.integration.ip.IpHeaders;
 import org.springframework.integration.support.AbstractIntegrationMessageBuilder;
+import org.springframework.integration.util.BoundedPool;
+import org.springframework.integration.util.ConcurrentPool;
 import org.springframework.integration.util.SimplePool;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.util.Assert;
 
 /**
  * Connection factory that caches connections from the underlying target factory. The underlying
@@ -41,11 +45,12 @@ import org.springframework.messaging.support.ErrorMessage;
  * @since 2.2
  *
  */
-public class CachingClientConnectionFactory extends AbstractClientConnectionFactory implements CloseDeferrable {
+public class CachingClientConnectionFactory extends AbstractClientConnectionFactory implements CloseDeferrable,
+		DisposableBean {
 
 	private final AbstractClientConnectionFactory targetConnectionFactory;
 
-	private final SimplePool<TcpConnectionSupport> pool;
+	private final BoundedPool<TcpConnectionSupport> pool;
 
 	private final Map<String, CachedConnection> deferredClosures =
 			new ConcurrentHashMap<String, CachedConnection>();
@@ -61,11 +66,25 @@ public class CachingClientConnectionFactory extends AbstractClientConnectionFact
 	 * @param poolSize the number of connections to allow.
 	 */
 	public CachingClientConnectionFactory(AbstractClientConnectionFactory target, int poolSize) {
+		this(target, poolSize, false);
+	}
+
+	/**
+	 * Construct a caching connection factory that delegates to the provided factory, with
+	 * the provided pool size, optionally using a {@link ConcurrentPool}, which avoids lock
+	 * contention when many threads check connections out and in concurrently.
+	 * @param target the target factory.
+	 * @param poolSize the number of connections to allow.
+	 * @param concurrentPool true to use a {@link ConcurrentPool} rather than a {@link SimplePool}.
+	 * @since 4.2
+	 */
+	public CachingClientConnectionFactory(AbstractClientConnectionFactory target, int poolSize,
+			boolean concurrentPool) {
 		super("", 0);
 		// override single-use to true to force "close" after use
 		target.setSingleUse(true);
 		this.targetConnectionFactory = target;
-		this.pool = new SimplePool<TcpConnectionSupport>(poolSize,
+		SimplePool.PoolItemCallback<TcpConnectionSupport> callback =
 				new SimplePool.PoolItemCallback<TcpConnectionSupport>() {
 
 					@Override
@@ -88,7 +107,10 @@ public class CachingClientConnectionFactory extends AbstractClientConnectionFact
 						connection.close();
 					}
 
-				});
+				};
+		this.pool = concurrentPool
+				? new ConcurrentPool<TcpConnectionSupport>(poolSize, callback)
+				: new SimplePool<TcpConnectionSupport>(poolSize, callback);
 	}
 
 	/**
@@ -99,6 +121,18 @@ public class CachingClientConnectionFactory extends AbstractClientConnectionFact
 		this.pool.setWaitTimeout(connectionWaitTimeout);
 	}
 
+	/**
+	 * Close connections that have been idle for this time (in milliseconds); also closes
+	 * idle connections that have been closed by the peer. Requires the concurrent pool.
+	 * @param maxIdleTime the max idle time.
+	 * @since 4.2
+	 * @see ConcurrentPool#setMaxIdleTime(long)
+	 */
+	public void setMaxIdleTime(long maxIdleTime) {
+		Assert.state(this.pool instanceof ConcurrentPool, "'maxIdleTime' requires the concurrent pool");
+		((ConcurrentPool<TcpConnectionSupport>) this.pool).setMaxIdleTime(maxIdleTime);
+	}
+
 	/**
 	 * @param poolSize the new pool size.
 	 * @see SimplePool#setPoolSize(int)
@@ -508,6 +542,13 @@ public class CachingClientConnectionFactory extends AbstractClientConnectionFact
 		this.pool.removeAllIdleItems();
 	}
 
+	@Override
+	public void destroy() {
+		if (this.pool instanceof ConcurrentPool) {
+			((ConcurrentPool<TcpConnectionSupport>) this.pool).destroy();
+		}
+	}
+
 	@Override
 	public int getPhase() {
 		return this.targetConnectionFactory.getPhase();
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ip.tcp.connection;
+
+import org.springframework.integration.support.management.IntegrationManagedResource;
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.jmx.support.MetricType;
+import org.springframework.util.Assert;
+
+/**
+ * Exposes the {@link AbstractConnectionFactory#getMetrics() statistics} of a connection
+ * factory as managed metrics; declare a bean of this type for each factory that should
+ * be monitored over JMX. The metrics are read from a snapshot that is refreshed at
+ * most once per second.
+ *
+ * @since 4.2
+ */
+@ManagedResource
+@IntegrationManagedResource
+public class ConnectionFactoryManagedMetrics {
+
+	private static final long METRICS_SNAPSHOT_INTERVAL = 1000;
+
+	private final AbstractConnectionFactory connectionFactory;
+
+	private volatile TcpConnectionMetrics metricsSnapshot;
+
+	private volatile long metricsSnapshotTime;
+
+	public ConnectionFactoryManagedMetrics(AbstractConnectionFactory connectionFactory) {
+		Assert.notNull(connectionFactory, "'connectionFactory' cannot be null");
+		this.connectionFactory = connectionFactory;
+	}
+
+	/**
+	 * Return the aggregate statistics of the factory; reading each metric would
+	 * otherwise merge the statistics of every connection, so a snapshot is reused for
+	 * up to a second.
+	 */
+	private TcpConnectionMetrics getMetricsSnapshot() {
+		long now = System.currentTimeMillis();
+		TcpConnectionMetrics snapshot = this.metricsSnapshot;
+		if (snapshot == null || now - this.metricsSnapshotTime >= METRICS_SNAPSHOT_INTERVAL) {
+			snapshot = this.connectionFactory.getMetrics();
+			this.metricsSnapshot = snapshot;
+			this.metricsSnapshotTime = now;
+		}
+		return snapshot;
+	}
+
+	@ManagedOperation(description = "Describe the statistics for an open connection")
+	public String describeConnectionMetrics(String connectionId) {
+		TcpConnectionMetrics metrics = this.connectionFactory.getConnectionMetrics(connectionId);
+		return metrics == null ? "No open connection " + connectionId : metrics.toString();
+	}
+
+	@ManagedMetric(metricType = MetricType.COUNTER, displayName = "Bytes Read")
+	public long getBytesRead() {
+		return getMetricsSnapshot().getBytesRead();
+	}
+
+	@ManagedMetric(metricType = MetricType.COUNTER, displayName = "Bytes Written")
+	public long getBytesWritten() {
+		return getMetricsSnapshot().getBytesWritten();
+	}
+
+	@ManagedMetric(metricType = MetricType.COUNTER, displayName = "Messages Received")
+	public long getMessagesReceived() {
+		return getMetricsSnapshot().getMessagesReceived();
+	}
+
+	@ManagedMetric(metricType = MetricType.COUNTER, displayName = "Messages Sent")
+	public long getMessagesSent() {
+		return getMetricsSnapshot().getMessagesSent();
+	}
+
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Mean Decode Time (ms)")
+	public double getMeanDecodeTime() {
+		return getMetricsSnapshot().getDecodeTimes().getMean();
+	}
+
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "99th Percentile Decode Time (ms)")
+	public double getDecodeTime99thPercentile() {
+		return getMetricsSnapshot().getDecodeTimes().getPercentile(99);
+	}
+
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Max Decode Time (ms)")
+	public double getMaxDecodeTime() {
+		return getMetricsSnapshot().getDecodeTimes().getMax();
+	}
+
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Mean Read Queue Time (ms)")
+	public double getMeanReadQueueTime() {
+		return getMetricsSnapshot().getReadQueueTimes().getMean();
+	}
+
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "99th Percentile Read Queue Time (ms)")
+	public double getReadQueueTime99thPercentile() {
+		return getMetricsSnapshot().getReadQueueTimes().getPercentile(99);
+	}
+
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Max Read Queue Time (ms)")
+	public double getMaxReadQueueTime() {
+		return getMetricsSnapshot().getReadQueueTimes().getMax();
+	}
+
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Mean Assembler Queue Time (ms)")
+	public double getMeanAssemblerQueueTime() {
+		return getMetricsSnapshot().getAssemblerQueueTimes().getMean();
+	}
+
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "99th Percentile Assembler Queue Time (ms)")
+	public double getAssemblerQueueTime99thPercentile() {
+		return getMetricsSnapshot().getAssemblerQueueTimes().getPercentile(99);
+	}
+
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Max Assembler Queue Time (ms)")
+	public double getMaxAssemblerQueueTime() {
+		return getMetricsSnapshot().getAssemblerQueueTimes().getMax();
+	}
+
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Assembler Queue Depth")
+	public int getQueueDepth() {
+		return getMetricsSnapshot().getQueueDepth();
+	}
+
+	@ManagedMetric(metricType = MetricType.GAUGE, displayName = "Max Assembler Queue Depth")
+	public int getMaxQueueDepth() {
+		return getMetricsSnapshot().getMaxQueueDepth();
+	}
+
+}
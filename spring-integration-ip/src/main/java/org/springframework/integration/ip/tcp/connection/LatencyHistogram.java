@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ip.tcp.connection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.util.Assert;
+
+/**
+ * A fixed size histogram of elapsed times with power of two microsecond buckets;
+ * bucket {@code 0} counts times under one microsecond and bucket {@code n} counts
+ * times from {@code 2^(n-1)} up to (but excluding) {@code 2^n} microseconds. Recording
+ * a time costs a few atomic increments and no allocation; percentiles are estimated
+ * as the upper bound of the bucket in which they fall.
+ *
+ * @since 4.2
+ */
+public class LatencyHistogram {
+
+	/**
+	 * The number of buckets; the last bucket also counts any longer times
+	 * (over 2^22 microseconds, about four seconds).
+	 */
+	public static final int BUCKETS = 24;
+
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong totalNanos = new AtomicLong();
+
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * Record an elapsed time; negative times are ignored.
+	 * @param nanos the time in nanoseconds.
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			return;
+		}
+		this.buckets.incrementAndGet(bucketFor(nanos));
+		this.count.incrementAndGet();
+		this.totalNanos.addAndGet(nanos);
+		long max = this.maxNanos.get();
+		while (nanos > max && !this.maxNanos.compareAndSet(max, nanos)) {
+			max = this.maxNanos.get();
+		}
+	}
+
+	/**
+	 * Add the times recorded by another histogram to this one.
+	 * @param other the other histogram.
+	 */
+	public void add(LatencyHistogram other) {
+		Assert.notNull(other, "'other' cannot be null");
+		for (int i = 0; i < BUCKETS; i++) {
+			long n = other.buckets.get(i);
+			if (n > 0) {
+				this.buckets.addAndGet(i, n);
+			}
+		}
+		this.count.addAndGet(other.count.get());
+		this.totalNanos.addAndGet(other.totalNanos.get());
+		long otherMax = other.maxNanos.get();
+		long max = this.maxNanos.get();
+		while (otherMax > max && !this.maxNanos.compareAndSet(max, otherMax)) {
+			max = this.maxNanos.get();
+		}
+	}
+
+	/**
+	 * @return the number of times recorded.
+	 */
+	public long getCount() {
+		return this.count.get();
+	}
+
+	/**
+	 * @return the mean time in milliseconds.
+	 */
+	public double getMean() {
+		long count = this.count.get();
+		return count == 0 ? 0 : this.totalNanos.get() / NANOS_PER_MILLI / count;
+	}
+
+	/**
+	 * @return the longest time in milliseconds.
+	 */
+	public double getMax() {
+		return this.maxNanos.get() / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * Estimate a percentile; the result is the upper bound of the bucket containing
+	 * the percentile, limited to the longest time recorded.
+	 * @param percentile the percentile (greater than 0, up to 100).
+	 * @return the estimated time in milliseconds; 0 if no times have been recorded.
+	 */
+	public double getPercentile(double percentile) {
+		Assert.isTrue(percentile > 0 && percentile <= 100, "'percentile' must be greater than 0 and at most 100");
+		long[] counts = getCounts();
+		long total = 0;
+		for (long n : counts) {
+			total += n;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long target = (long) Math.ceil(total * percentile / 100);
+		long cumulative = 0;
+		int bucket = 0;
+		while (bucket < BUCKETS - 1) {
+			cumulative += counts[bucket];
+			if (cumulative >= target) {
+				break;
+			}
+			bucket++;
+		}
+		return Math.min(TimeUnit.MICROSECONDS.toNanos(1L << bucket), this.maxNanos.get()) / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @return a copy of the bucket counts.
+	 */
+	public long[] getCounts() {
+		long[] counts = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = this.buckets.get(i);
+		}
+		return counts;
+	}
+
+	private static int bucketFor(long nanos) {
+		long micros = nanos / 1000;
+		int bucket = 64 - Long.numberOfLeadingZeros(micros);
+		return bucket < BUCKETS ? bucket : BUCKETS - 1;
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyHistogram [count=" + getCount()
+				+ ", mean=" + getMean()
+				+ ", max=" + getMax() + "]";
+	}
+
+}
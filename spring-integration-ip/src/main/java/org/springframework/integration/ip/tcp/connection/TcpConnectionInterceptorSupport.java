@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -99,6 +99,11 @@ public abstract class TcpConnectionInterceptorSupport extends TcpConnectionSuppo
 		return this.theConnection.getConnectionId();
 	}
 
+	@Override
+	public TcpConnectionMetrics getMetrics() {
+		return this.theConnection.getMetrics();
+	}
+
 	@Override
 	public boolean isSingleUse() {
 		return this.theConnection.isSingleUse();
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ip.tcp.connection;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.Assert;
+
+/**
+ * Statistics for a {@link TcpConnection}, or the aggregate for all the connections
+ * of a connection factory: bytes and messages transferred, the time taken to decode
+ * messages, the time data waits for a read or assembler thread and the depth of the
+ * assembler queue.
+ * <p>
+ * Each connection has its own instance, so recording is uncontended; the bytes and
+ * queue depth are only maintained by {@link TcpNioConnection}s, the queueing times only
+ * for connections that are not blocking on reads, and the decode times only for NIO
+ * connections using a
+ * {@link org.springframework.integration.ip.tcp.serializer.ByteBufferDeserializer}. A connection
+ * only records times when its factory has
+ * {@link AbstractConnectionFactory#setLatencyHistograms(boolean) latencyHistograms}
+ * enabled; otherwise the histograms are empty.
+ *
+ * @since 4.2
+ */
+public class TcpConnectionMetrics {
+
+	private final AtomicLong bytesRead = new AtomicLong();
+
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	private final AtomicLong messagesReceived = new AtomicLong();
+
+	private final AtomicLong messagesSent = new AtomicLong();
+
+	private volatile LatencyHistogram decodeTimes;
+
+	private volatile LatencyHistogram readQueueTimes;
+
+	private volatile LatencyHistogram assemblerQueueTimes;
+
+	private final AtomicInteger queueDepth = new AtomicInteger();
+
+	private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+	/**
+	 * Create an instance that records times, such as an aggregate.
+	 */
+	public TcpConnectionMetrics() {
+		this(true);
+	}
+
+	TcpConnectionMetrics(boolean latencyHistograms) {
+		if (latencyHistograms) {
+			enableLatencyHistograms();
+		}
+	}
+
+	/**
+	 * Start recording times; a connection's histograms are only allocated when its
+	 * factory enables them.
+	 */
+	void enableLatencyHistograms() {
+		if (this.decodeTimes == null) {
+			this.decodeTimes = new LatencyHistogram();
+			this.readQueueTimes = new LatencyHistogram();
+			this.assemblerQueueTimes = new LatencyHistogram();
+		}
+	}
+
+	void bytesRead(int bytes) {
+		this.bytesRead.addAndGet(bytes);
+	}
+
+	void bytesWritten(long bytes) {
+		this.bytesWritten.addAndGet(bytes);
+	}
+
+	void messageReceived() {
+		this.messagesReceived.incrementAndGet();
+	}
+
+	void messageSent() {
+		this.messagesSent.incrementAndGet();
+	}
+
+	void decoded(long nanos) {
+		this.messagesReceived.incrementAndGet();
+		LatencyHistogram histogram = this.decodeTimes;
+		if (histogram != null) {
+			histogram.record(nanos);
+		}
+	}
+
+	void readQueued(long nanos) {
+		LatencyHistogram histogram = this.readQueueTimes;
+		if (histogram != null) {
+			histogram.record(nanos);
+		}
+	}
+
+	void assemblerQueued(long nanos) {
+		LatencyHistogram histogram = this.assemblerQueueTimes;
+		if (histogram != null) {
+			histogram.record(nanos);
+		}
+	}
+
+	void queueDepth(int depth) {
+		if (this.queueDepth.get() != depth) {
+			this.queueDepth.set(depth);
+		}
+		int max = this.maxQueueDepth.get();
+		while (depth > max && !this.maxQueueDepth.compareAndSet(max, depth)) {
+			max = this.maxQueueDepth.get();
+		}
+	}
+
+	/**
+	 * Add the statistics of another instance to this one; the current queue depths
+	 * are summed.
+	 * @param other the other instance.
+	 */
+	public void add(TcpConnectionMetrics other) {
+		Assert.notNull(other, "'other' cannot be null");
+		this.bytesRead.addAndGet(other.bytesRead.get());
+		this.bytesWritten.addAndGet(other.bytesWritten.get());
+		this.messagesReceived.addAndGet(other.messagesReceived.get());
+		this.messagesSent.addAndGet(other.messagesSent.get());
+		if (other.decodeTimes != null) {
+			enableLatencyHistograms();
+			this.decodeTimes.add(other.decodeTimes);
+			this.readQueueTimes.add(other.readQueueTimes);
+			this.assemblerQueueTimes.add(other.assemblerQueueTimes);
+		}
+		this.queueDepth.addAndGet(other.queueDepth.get());
+		int otherMax = other.maxQueueDepth.get();
+		int max = this.maxQueueDepth.get();
+		while (otherMax > max && !this.maxQueueDepth.compareAndSet(max, otherMax)) {
+			max = this.maxQueueDepth.get();
+		}
+	}
+
+	/**
+	 * @return the number of bytes read from the network.
+	 */
+	public long getBytesRead() {
+		return this.bytesRead.get();
+	}
+
+	/**
+	 * @return the number of bytes written to the network.
+	 */
+	public long getBytesWritten() {
+		return this.bytesWritten.get();
+	}
+
+	/**
+	 * @return the number of messages received.
+	 */
+	public long getMessagesReceived() {
+		return this.messagesReceived.get();
+	}
+
+	/**
+	 * @return the number of messages sent.
+	 */
+	public long getMessagesSent() {
+		return this.messagesSent.get();
+	}
+
+	/**
+	 * @return the times taken to decode and convert inbound messages; only recorded
+	 * when a {@link org.springframework.integration.ip.tcp.serializer.ByteBufferDeserializer}
+	 * is in use, since a stream deserializer blocks waiting for the remainder of a message.
+	 */
+	public LatencyHistogram getDecodeTimes() {
+		return histogramOrEmpty(this.decodeTimes);
+	}
+
+	/**
+	 * @return the times between the selector detecting data and a thread starting
+	 * to read it.
+	 */
+	public LatencyHistogram getReadQueueTimes() {
+		return histogramOrEmpty(this.readQueueTimes);
+	}
+
+	/**
+	 * @return the times between data being queued for the message assembler and an
+	 * assembler thread starting to process it.
+	 */
+	public LatencyHistogram getAssemblerQueueTimes() {
+		return histogramOrEmpty(this.assemblerQueueTimes);
+	}
+
+	/**
+	 * @return the number of buffers or frames currently awaiting the assembler.
+	 */
+	public int getQueueDepth() {
+		return this.queueDepth.get();
+	}
+
+	/**
+	 * @return the largest number of buffers or frames that awaited the assembler.
+	 */
+	public int getMaxQueueDepth() {
+		return this.maxQueueDepth.get();
+	}
+
+	private static LatencyHistogram histogramOrEmpty(LatencyHistogram histogram) {
+		return histogram != null ? histogram : new LatencyHistogram();
+	}
+
+	@Override
+	public String toString() {
+		return "TcpConnectionMetrics [bytesRead=" + getBytesRead()
+				+ ", bytesWritten=" + getBytesWritten()
+				+ ", messagesReceived=" + getMessagesReceived()
+				+ ", messagesSent=" + getMessagesSent()
+				+ ", decodeTimes=" + getDecodeTimes()
+				+ ", readQueueTimes=" + getReadQueueTimes()
+				+ ", assemblerQueueTimes=" + getAssemblerQueueTimes()
+				+ ", queueDepth=" + getQueueDepth()
+				+ ", maxQueueDepth=" + getMaxQueueDepth() + "]";
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2001-2014 the original author or authors.
+ * Copyright 2001-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -88,6 +88,8 @@ public abstract class TcpConnectionSupport implements TcpConnection {
 
 	private volatile boolean noReadErrorOnClose;
 
+	private final TcpConnectionMetrics metrics = new TcpConnectionMetrics(false);
+
 	public TcpConnectionSupport() {
 		this(null);
 	}
@@ -140,6 +142,7 @@ public abstract class TcpConnectionSupport implements TcpConnection {
 	}
 
 	public void afterSend(Message<?> message) throws Exception {
+		this.metrics.messageSent();
 		if (logger.isDebugEnabled()) {
 			logger.debug("Message sent " + message);
 		}
@@ -327,6 +330,14 @@ public abstract class TcpConnectionSupport implements TcpConnection {
 		return this.hostName;
 	}
 
+	/**
+	 * @return the statistics for this connection.
+	 * @since 4.2
+	 */
+	public TcpConnectionMetrics getMetrics() {
+		return this.metrics;
+	}
+
 	@Override
 	public String getConnectionId() {
 		return this.connectionId;
@@ -157,6 +157,9 @@ public class TcpNetConnection extends TcpConnectionSupport implements Scheduling
 			try {
 				message = this.getMapper().toMessage(this);
 				this.lastRead = System.currentTimeMillis();
+				if (message != null) {
+					getMetrics().messageReceived();
+				}
 			}
 			catch (Exception e) {
 				this.publishConnectionExceptionEvent(e);
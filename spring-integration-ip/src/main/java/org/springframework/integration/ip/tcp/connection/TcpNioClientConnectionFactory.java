@@ -46,6 +46,8 @@ public class TcpNioClientConnectionFactory extends
 
 	private volatile boolean usingDirectBuffers;
 
+	private volatile TcpNioReadSelectorGroup readSelectorGroup;
+
 	private volatile Selector selector;
 
 	private final Map<SocketChannel, TcpNioConnection> channelMap = new ConcurrentHashMap<SocketChannel, TcpNioConnection>();
@@ -67,7 +69,7 @@ public class TcpNioClientConnectionFactory extends
 	protected void checkActive() throws IOException {
 		super.checkActive();
 		int n = 0;
-		while (this.selector == null) {
+		while (this.selector == null && this.readSelectorGroup == null) {
 			try {
 				Thread.sleep(100);
 			} catch (InterruptedException e) {
@@ -86,6 +88,7 @@ public class TcpNioClientConnectionFactory extends
 		TcpNioConnection connection = this.tcpNioConnectionSupport.createNewConnection(
 				socketChannel, false, this.isLookupHost(), this.getApplicationEventPublisher(), this.getComponentName());
 		connection.setUsingDirectBuffers(this.usingDirectBuffers);
+		configureNioConnection(connection);
 		connection.setTaskExecutor(this.getTaskExecutor());
 		TcpConnectionSupport wrappedConnection = wrapConnection(connection);
 		initializeConnection(wrappedConnection, socketChannel.socket());
@@ -93,9 +96,15 @@ public class TcpNioClientConnectionFactory extends
 		if (this.getSoTimeout() > 0) {
 			connection.setLastRead(System.currentTimeMillis());
 		}
-		this.channelMap.put(socketChannel, connection);
-		newChannels.add(socketChannel);
-		selector.wakeup();
+		TcpNioReadSelectorGroup readSelectorGroup = this.readSelectorGroup;
+		if (readSelectorGroup != null) {
+			readSelectorGroup.register(socketChannel, connection);
+		}
+		else {
+			this.channelMap.put(socketChannel, connection);
+			newChannels.add(socketChannel);
+			selector.wakeup();
+		}
 		return wrappedConnection;
 	}
 
@@ -129,6 +138,10 @@ public class TcpNioClientConnectionFactory extends
 				logger.error("Error closing selector", e);
 			}
 		}
+		if (this.readSelectorGroup != null) {
+			this.readSelectorGroup.close();
+			this.readSelectorGroup = null;
+		}
 		super.stop();
 	}
 
@@ -137,7 +150,22 @@ public class TcpNioClientConnectionFactory extends
 		synchronized (this.lifecycleMonitor) {
 			if (!this.isActive()) {
 				this.setActive(true);
-				this.getTaskExecutor().execute(this);
+				int readSelectorCount = getReadSelectorCount();
+				if (readSelectorCount > 0) {
+					try {
+						TcpNioReadSelectorGroup readSelectorGroup =
+								new TcpNioReadSelectorGroup(this, readSelectorCount);
+						readSelectorGroup.start(this.getTaskExecutor());
+						this.readSelectorGroup = readSelectorGroup;
+					}
+					catch (IOException e) {
+						this.setActive(false);
+						throw new IllegalStateException("Failed to open read selectors", e);
+					}
+				}
+				else {
+					this.getTaskExecutor().execute(this);
+				}
 			}
 		}
 		super.start();
@@ -201,9 +229,13 @@ public class TcpNioClientConnectionFactory extends
 	}
 
 	/**
-	 * @return the connections
+	 * @return the connections; a snapshot when using read selectors.
 	 */
 	protected Map<SocketChannel, TcpNioConnection> getConnections() {
+		TcpNioReadSelectorGroup readSelectorGroup = this.readSelectorGroup;
+		if (readSelectorGroup != null) {
+			return readSelectorGroup.getConnections();
+		}
 		return channelMap;
 	}
 
@@ -17,16 +17,22 @@
 package org.springframework.integration.ip.tcp.connection;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
@@ -34,10 +40,15 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.serializer.Serializer;
+import org.springframework.integration.ip.tcp.serializer.BufferPool;
+import org.springframework.integration.ip.tcp.serializer.ByteBufferDeserializer;
 import org.springframework.integration.ip.tcp.serializer.SoftEndOfStreamException;
 import org.springframework.integration.util.CompositeExecutor;
 import org.springframework.messaging.Message;
@@ -55,6 +66,12 @@ public class TcpNioConnection extends TcpConnectionSupport {
 
 	private static final long DEFAULT_PIPE_TIMEOUT = 60000;
 
+	private static final int FRAME_LIMIT = 1000;
+
+	private static final int DEFAULT_MAX_WRITE_BATCH_SIZE = 64 * 1024;
+
+	private static final int DEFAULT_MAX_PENDING_WRITE_BYTES = 1024 * 1024;
+
 	private final SocketChannel socketChannel;
 
 	private final ChannelOutputStream channelOutputStream;
@@ -83,6 +100,52 @@ public class TcpNioConnection extends TcpConnectionSupport {
 
 	private volatile long pipeTimeout = DEFAULT_PIPE_TIMEOUT;
 
+	private volatile boolean usingByteBufferDeserializer;
+
+	private volatile ByteBufferDeserializer<?> byteBufferDeserializer;
+
+	private final BlockingQueue<Object> frames = new LinkedBlockingQueue<Object>(FRAME_LIMIT);
+
+	private volatile ByteBuffer frameBuffer;
+
+	private volatile ByteBuffer undecodedBuffer;
+
+	private volatile BufferPool bufferPool;
+
+	private final Object buffersMonitor = new Object();
+
+	private int buffersInUse;
+
+	private boolean buffersClosed;
+
+	private volatile boolean writeBatching;
+
+	private volatile long maxWriteLatency;
+
+	private volatile int maxWriteBatchSize = DEFAULT_MAX_WRITE_BATCH_SIZE;
+
+	private final Queue<ByteBuffer> pendingWrites = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	private final AtomicInteger pendingWriteBytes = new AtomicInteger();
+
+	private final Object pendingWritesMonitor = new Object();
+
+	private volatile int maxPendingWriteBytes = DEFAULT_MAX_PENDING_WRITE_BYTES;
+
+	private volatile long pendingWriteTimeout = DEFAULT_PIPE_TIMEOUT;
+
+	private volatile boolean pendingWritesClosed;
+
+	private final AtomicBoolean flushing = new AtomicBoolean();
+
+	private volatile Thread flusher;
+
+	private volatile boolean readBackpressure;
+
+	private final AtomicReference<SelectionKey> suspendedReadKey = new AtomicReference<SelectionKey>();
+
+	private volatile long assemblerQueuedAt;
+
 	/**
 	 * Constructs a TcpNetConnection for the SocketChannel.
 	 * @param socketChannel The socketChannel.
@@ -124,9 +187,79 @@ public class TcpNioConnection extends TcpConnectionSupport {
 			this.socketChannel.close();
 		}
 		catch (Exception e) {}
+		synchronized (this.buffersMonitor) {
+			if (!this.buffersClosed) {
+				this.buffersClosed = true;
+				if (this.buffersInUse == 0) {
+					releaseBuffers();
+				}
+			}
+		}
+		synchronized (this.pendingWritesMonitor) {
+			this.pendingWritesClosed = true;
+			this.pendingWritesMonitor.notifyAll();
+		}
 		super.close();
 	}
 
+	/**
+	 * Register a thread that is about to use the connection's buffers; pooled buffers
+	 * are only returned to the pool on close once no thread is using them.
+	 * @return false if the connection is closed, in which case the buffers must not
+	 * be used.
+	 * @since 4.2
+	 * @see #endBufferUse()
+	 */
+	protected boolean beginBufferUse() {
+		synchronized (this.buffersMonitor) {
+			if (this.buffersClosed) {
+				return false;
+			}
+			this.buffersInUse++;
+			return true;
+		}
+	}
+
+	/**
+	 * Deregister a thread that used the connection's buffers, releasing the buffers if
+	 * the connection was closed in the meantime.
+	 * @since 4.2
+	 * @see #beginBufferUse()
+	 */
+	protected void endBufferUse() {
+		synchronized (this.buffersMonitor) {
+			if (--this.buffersInUse == 0 && this.buffersClosed) {
+				releaseBuffers();
+			}
+		}
+	}
+
+	/**
+	 * Return the connection's buffers to the {@link BufferPool}, if any, after the
+	 * connection is closed and no thread is using them. Subclasses holding other
+	 * buffers obtained from {@link #allocate(int)} should override this method to
+	 * release them too, calling {@code super.releaseBuffers()}.
+	 * @since 4.2
+	 */
+	protected void releaseBuffers() {
+		release(this.rawBuffer);
+		this.rawBuffer = null;
+		release(this.frameBuffer);
+		this.frameBuffer = null;
+	}
+
+	/**
+	 * Return a buffer obtained from {@link #allocate(int)} to the {@link BufferPool},
+	 * if any.
+	 * @param buffer the buffer (may be null).
+	 * @since 4.2
+	 */
+	protected void release(ByteBuffer buffer) {
+		if (this.bufferPool != null && buffer != null) {
+			this.bufferPool.release(buffer);
+		}
+	}
+
 	@Override
 	public boolean isOpen() {
 		return this.socketChannel.isOpen();
@@ -135,6 +268,10 @@ public class TcpNioConnection extends TcpConnectionSupport {
 	@Override
 	@SuppressWarnings("unchecked")
 	public void send(Message<?> message) throws Exception {
+		if (this.writeBatching && !this.isSingleUse()) {
+			sendBatched(message);
+			return;
+		}
 		synchronized(this.socketChannel) {
 			if (this.bufferedOutputStream == null) {
 				int writeBufferSize = this.socketChannel.socket().getSendBufferSize();
@@ -156,8 +293,138 @@ public class TcpNioConnection extends TcpConnectionSupport {
 		}
 	}
 
+	/**
+	 * Serialize the message and queue the frame; then, unless another sender is already
+	 * flushing, become the flusher and write all queued frames using gathering writes.
+	 * @param message the message.
+	 * @throws Exception if the message cannot be serialized or the frames written.
+	 */
+	@SuppressWarnings("unchecked")
+	private void sendBatched(Message<?> message) throws Exception {
+		Object object = this.getMapper().fromMessage(message);
+		ByteArrayOutputStream frame = new ByteArrayOutputStream(256);
+		((Serializer<Object>) this.getSerializer()).serialize(object, frame);
+		awaitPendingWriteSpace(frame.size());
+		this.lastSend = System.currentTimeMillis();
+		this.pendingWrites.add(ByteBuffer.wrap(frame.toByteArray()));
+		if (this.pendingWriteBytes.addAndGet(frame.size()) >= this.maxWriteBatchSize) {
+			Thread flusher = this.flusher;
+			if (flusher != null) {
+				LockSupport.unpark(flusher);
+			}
+		}
+		try {
+			flushPendingWrites();
+		}
+		catch (Exception e) {
+			this.publishConnectionExceptionEvent(e);
+			this.closeConnection(true);
+			throw e;
+		}
+		this.afterSend(message);
+	}
+
+	private void flushPendingWrites() throws IOException {
+		while (!this.pendingWrites.isEmpty() && this.flushing.compareAndSet(false, true)) {
+			try {
+				this.flusher = Thread.currentThread();
+				awaitWriteBatch();
+				int batchSize = this.maxWriteBatchSize;
+				List<ByteBuffer> batch = new ArrayList<ByteBuffer>();
+				while (true) {
+					int bytes = 0;
+					ByteBuffer buffer;
+					while (bytes < batchSize && (buffer = this.pendingWrites.poll()) != null) {
+						batch.add(buffer);
+						bytes += buffer.remaining();
+					}
+					if (batch.isEmpty()) {
+						break;
+					}
+					this.pendingWriteBytes.addAndGet(-bytes);
+					synchronized (this.pendingWritesMonitor) {
+						this.pendingWritesMonitor.notifyAll();
+					}
+					if (logger.isTraceEnabled()) {
+						logger.trace(this.getConnectionId() + " writing batch of " + batch.size() + " frames");
+					}
+					synchronized (this.socketChannel) {
+						this.getChannelOutputStream().doWrite(batch.toArray(new ByteBuffer[batch.size()]));
+					}
+					batch.clear();
+				}
+			}
+			finally {
+				this.flusher = null;
+				this.flushing.set(false);
+			}
+		}
+	}
+
+	/**
+	 * Wait up to the pending write timeout while queueing the frame would exceed the
+	 * max pending write bytes; a frame is always accepted when nothing is pending.
+	 * @param frameSize the size of the frame to be queued.
+	 * @throws IOException if the timeout expires, the thread is interrupted or the
+	 * connection is closed while waiting.
+	 */
+	private void awaitPendingWriteSpace(int frameSize) throws IOException {
+		int limit = this.maxPendingWriteBytes;
+		int pending = this.pendingWriteBytes.get();
+		if (pending == 0 || pending + frameSize <= limit) {
+			return;
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.pendingWriteTimeout);
+		synchronized (this.pendingWritesMonitor) {
+			while (true) {
+				pending = this.pendingWriteBytes.get();
+				if (pending == 0 || pending + frameSize <= limit) {
+					return;
+				}
+				if (this.pendingWritesClosed) {
+					throw new IOException("Connection closed while waiting for pending writes");
+				}
+				long wait = deadline - System.nanoTime();
+				if (wait <= 0) {
+					throw new IOException("Timed out waiting for pending writes; " + pending + " bytes pending");
+				}
+				try {
+					TimeUnit.NANOSECONDS.timedWait(this.pendingWritesMonitor, wait);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while waiting for pending writes");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Wait up to the max write latency for more frames to be queued, unless the
+	 * queued frames already fill a batch.
+	 */
+	private void awaitWriteBatch() {
+		long latency = this.maxWriteLatency;
+		if (latency <= 0) {
+			return;
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(latency);
+		while (this.pendingWriteBytes.get() < this.maxWriteBatchSize && !Thread.currentThread().isInterrupted()) {
+			long wait = deadline - System.nanoTime();
+			if (wait <= 0) {
+				break;
+			}
+			LockSupport.parkNanos(this, wait);
+		}
+	}
+
 	@Override
 	public Object getPayload() throws Exception {
+		if (this.byteBufferDeserializer != null) {
+			Object frame = this.frames.poll();
+			resumeReadingIfPossible();
+			return frame;
+		}
 		return this.getDeserializer().deserialize(this.channelInputStream);
 	}
 
@@ -173,14 +440,19 @@ public class TcpNioConnection extends TcpConnectionSupport {
 
 	/**
 	 * Allocates a ByteBuffer of the requested length using normal or
-	 * direct buffers, depending on the usingDirectBuffers field.
+	 * direct buffers, depending on the usingDirectBuffers field; or, if
+	 * a {@link BufferPool} is configured, obtains a buffer of at least
+	 * the requested length from the pool.
 	 *
 	 * @param length The buffer length.
 	 * @return The buffer.
 	 */
 	protected ByteBuffer allocate(int length) {
 		ByteBuffer buffer;
-		if (this.usingDirectBuffers) {
+		if (this.bufferPool != null) {
+			buffer = this.bufferPool.acquire(length);
+		}
+		else if (this.usingDirectBuffers) {
 			buffer = ByteBuffer.allocateDirect(length);
 		} else {
 			buffer = ByteBuffer.allocate(length);
@@ -201,6 +473,10 @@ public class TcpNioConnection extends TcpConnectionSupport {
 		if (logger.isTraceEnabled()) {
 			logger.trace(this.getConnectionId() + " Nio message assembler running...");
 		}
+		long queuedAt = this.assemblerQueuedAt;
+		if (queuedAt != 0) {
+			getMetrics().assemblerQueued(System.nanoTime() - queuedAt);
+		}
 		boolean moreDataAvailable = true;
 		while(moreDataAvailable) {
 			try {
@@ -210,12 +486,25 @@ public class TcpNioConnection extends TcpConnectionSupport {
 				}
 				try {
 					if (dataAvailable()) {
+						long start = System.nanoTime();
 						Message<?> message = convert();
+						if (message != null) {
+							// a stream deserializer blocks waiting for data, so only frames
+							// decoded from the read buffers are timed
+							if (this.byteBufferDeserializer != null) {
+								getMetrics().decoded(System.nanoTime() - start);
+							}
+							else {
+								getMetrics().messageReceived();
+							}
+						}
+						getMetrics().queueDepth(getQueueDepth());
 						if (dataAvailable()) {
 							// there is more data in the pipe; run another assembler
 							// to assemble the next message, while we send ours
 							this.executionControl.incrementAndGet();
 							try {
+								this.assemblerQueuedAt = System.nanoTime();
 								this.taskExecutor.execute2(this);
 							}
 							catch (RejectedExecutionException e) {
@@ -297,6 +586,9 @@ public class TcpNioConnection extends TcpConnectionSupport {
 	}
 
 	private boolean dataAvailable() throws IOException {
+		if (this.byteBufferDeserializer != null) {
+			return !this.frames.isEmpty();
+		}
 		if (logger.isTraceEnabled()) {
 			logger.trace(getConnectionId() + " checking data avail: " + this.channelInputStream.available() +
 					" pending: " + (this.writingToPipe));
@@ -315,7 +607,12 @@ public class TcpNioConnection extends TcpConnectionSupport {
 			logger.trace(getConnectionId() + " checking data avail (convert): " + this.channelInputStream.available() +
 					" pending: " + (this.writingToPipe));
 		}
-		if (this.channelInputStream.available() <= 0) {
+		if (this.byteBufferDeserializer != null) {
+			if (this.frames.isEmpty()) {
+				return null;
+			}
+		}
+		else if (this.channelInputStream.available() <= 0) {
 			try {
 				if (this.writingLatch.await(60, TimeUnit.SECONDS)) {
 					if (this.channelInputStream.available() <= 0) {
@@ -385,7 +682,23 @@ public class TcpNioConnection extends TcpConnectionSupport {
 	}
 
 	private void doRead() throws Exception {
+		if (!beginBufferUse()) {
+			return;
+		}
+		try {
+			doReadIntoBuffer();
+		}
+		finally {
+			endBufferUse();
+		}
+	}
+
+	private void doReadIntoBuffer() throws Exception {
 		if (this.rawBuffer == null) {
+			if (this.byteBufferDeserializer == null && this.usingByteBufferDeserializer
+					&& getDeserializer() instanceof ByteBufferDeserializer) {
+				this.byteBufferDeserializer = (ByteBufferDeserializer<?>) getDeserializer();
+			}
 			this.rawBuffer = allocate(maxMessageSize);
 		}
 
@@ -396,8 +709,10 @@ public class TcpNioConnection extends TcpConnectionSupport {
 				ExecutorService executor = Executors.newCachedThreadPool();
 				this.taskExecutor = new CompositeExecutor(executor, executor);
 			}
-			// If there is no assembler running, start one
-			checkForAssembler();
+			if (this.byteBufferDeserializer == null) {
+				// If there is no assembler running, start one
+				checkForAssembler();
+			}
 
 			if (logger.isTraceEnabled()) {
 				logger.trace("Before read:" + this.rawBuffer.position() + "/" + this.rawBuffer.limit());
@@ -407,6 +722,9 @@ public class TcpNioConnection extends TcpConnectionSupport {
 				this.writingToPipe = false;
 				this.closeConnection(true);
 			}
+			else {
+				getMetrics().bytesRead(len);
+			}
 			if (logger.isTraceEnabled()) {
 				logger.trace("After read:" + this.rawBuffer.position() + "/" + this.rawBuffer.limit());
 			}
@@ -418,6 +736,15 @@ public class TcpNioConnection extends TcpConnectionSupport {
 				logger.debug("Read " + rawBuffer.limit() + " into raw buffer");
 			}
 			this.sendToPipe(rawBuffer);
+			getMetrics().queueDepth(getQueueDepth());
+			if (this.bufferPool != null && this.rawBuffer.position() == 0) {
+				// no partial data retained; return the buffer to the pool until the next read
+				release(this.rawBuffer);
+				this.rawBuffer = null;
+			}
+			if (this.byteBufferDeserializer != null && !this.frames.isEmpty()) {
+				checkForAssembler();
+			}
 		}
 		catch (RejectedExecutionException e) {
 			throw e;
@@ -437,10 +764,113 @@ public class TcpNioConnection extends TcpConnectionSupport {
 		if (logger.isTraceEnabled()) {
 			logger.trace(this.getConnectionId() + " Sending " + rawBuffer.limit() + " to pipe");
 		}
-		this.channelInputStream.write(rawBuffer.array(), rawBuffer.limit());
+		if (this.byteBufferDeserializer != null) {
+			decodeFrames(rawBuffer);
+			return;
+		}
+		this.channelInputStream.write(rawBuffer);
 		rawBuffer.clear();
 	}
 
+	/**
+	 * Decode the complete frames in the buffer and queue them for the assembler;
+	 * a trailing partial frame is retained until more data is read. The read buffer is
+	 * decoded in place; other buffers (e.g. decrypted data) are accumulated first.
+	 */
+	private void decodeFrames(ByteBuffer buffer) throws IOException {
+		if (buffer != this.rawBuffer) {
+			this.frameBuffer = ensureCapacity(this.frameBuffer, buffer.remaining());
+			this.frameBuffer.put(buffer);
+			buffer.clear();
+			decodeFrameBuffer();
+			return;
+		}
+		deserializeFrames(buffer);
+		if (!buffer.hasRemaining() && this.undecodedBuffer == null) {
+			// a partial frame fills the buffer; the deserializer enforces the max size
+			this.rawBuffer = ensureCapacity(buffer, buffer.capacity());
+		}
+	}
+
+	/**
+	 * When a {@link ByteBufferDeserializer} is in use, return the buffer (in write mode)
+	 * in which frames are accumulated, with room for at least the requested number of
+	 * bytes. Subclasses that transform the network data (e.g. decrypt it) can write
+	 * directly into this buffer, then call {@link #decodeFrameBuffer()}, instead of
+	 * passing an intermediate buffer to {@link #sendToPipe(ByteBuffer)}.
+	 * @param required the number of bytes required.
+	 * @return the buffer, or null if no {@link ByteBufferDeserializer} is in use.
+	 * @since 4.2
+	 */
+	protected ByteBuffer getFrameBuffer(int required) {
+		if (this.byteBufferDeserializer == null) {
+			return null;
+		}
+		this.frameBuffer = ensureCapacity(this.frameBuffer, required);
+		return this.frameBuffer;
+	}
+
+	/**
+	 * Decode the complete frames accumulated in the frame buffer.
+	 * @throws IOException if the frames cannot be queued.
+	 * @since 4.2
+	 * @see #getFrameBuffer(int)
+	 */
+	protected void decodeFrameBuffer() throws IOException {
+		this.frameBuffer.flip();
+		deserializeFrames(this.frameBuffer);
+	}
+
+	/**
+	 * Queue the complete frames in the source (in read mode) and compact it. With read
+	 * backpressure, decoding stops when the frame queue is full; the remaining data is
+	 * retained in the source, and reads stay suspended, until the assembler has drained
+	 * the queue.
+	 */
+	private void deserializeFrames(ByteBuffer source) throws IOException {
+		Object frame;
+		while (true) {
+			if (this.readBackpressure && this.frames.remainingCapacity() == 0) {
+				if (source.hasRemaining()) {
+					this.undecodedBuffer = source;
+				}
+				break;
+			}
+			frame = this.byteBufferDeserializer.deserialize(source);
+			if (frame == null) {
+				break;
+			}
+			try {
+				if (!this.frames.offer(frame, this.pipeTimeout, TimeUnit.MILLISECONDS)) {
+					throw new IOException("Timed out waiting for buffer space");
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for buffer space", e);
+			}
+		}
+		source.compact();
+	}
+
+	/**
+	 * Return a buffer, in write mode, containing the data of the supplied buffer (which
+	 * is in write mode), with room for at least the additional number of bytes.
+	 */
+	private ByteBuffer ensureCapacity(ByteBuffer buffer, int additional) {
+		if (buffer == null) {
+			return allocate(Math.max(additional, this.maxMessageSize));
+		}
+		if (buffer.remaining() >= additional) {
+			return buffer;
+		}
+		ByteBuffer newBuffer = allocate(Math.max(buffer.position() + additional, buffer.capacity() * 2));
+		buffer.flip();
+		newBuffer.put(buffer);
+		release(buffer);
+		return newBuffer;
+	}
+
 	private void checkForAssembler() {
 		synchronized(this.executionControl) {
 			if (this.executionControl.incrementAndGet() <= 1) {
@@ -450,6 +880,7 @@ public class TcpNioConnection extends TcpConnectionSupport {
 					logger.debug(this.getConnectionId() + " Running an assembler");
 				}
 				try {
+					this.assemblerQueuedAt = System.nanoTime();
 					this.taskExecutor.execute2(this);
 				}
 				catch (RejectedExecutionException e) {
@@ -467,6 +898,120 @@ public class TcpNioConnection extends TcpConnectionSupport {
 		}
 	}
 
+	/**
+	 * Invoked by the factory after a read; if {@link #setReadBackpressure(boolean)
+	 * readBackpressure} is enabled and the data already read has not yet been consumed
+	 * by the assembler, the key is retained, without read interest, until the assembler
+	 * takes the next buffer or frame.
+	 * @param key the selection key for this connection.
+	 * @return true if reading is suspended, in which case the caller must not restore
+	 * the key's read interest.
+	 */
+	boolean suspendReadingIfBusy(SelectionKey key) {
+		if (!this.readBackpressure || (!isReadBufferFull() && this.undecodedBuffer == null)) {
+			return false;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug(this.getConnectionId() + " Suspending reads; unconsumed data pending");
+		}
+		this.suspendedReadKey.set(key);
+		// the assembler may have caught up before it could see the suspended key
+		if (!isReadBufferFull()) {
+			if (this.undecodedBuffer == null) {
+				if (this.suspendedReadKey.compareAndSet(key, null)) {
+					return false;
+				}
+			}
+			else {
+				resumeReadingIfPossible();
+			}
+		}
+		return true;
+	}
+
+	private void resumeReadingIfPossible() {
+		if (this.suspendedReadKey.get() != null && !isReadBufferFull()) {
+			SelectionKey key = this.suspendedReadKey.getAndSet(null);
+			if (key != null) {
+				if (this.undecodedBuffer != null) {
+					decodeRetainedFrames();
+					if (isReadBufferFull() || this.undecodedBuffer != null) {
+						// the queue is full again; the assembler resumes reading later
+						this.suspendedReadKey.set(key);
+						return;
+					}
+				}
+				if (logger.isDebugEnabled()) {
+					logger.debug(this.getConnectionId() + " Resuming reads");
+				}
+				try {
+					key.interestOps(SelectionKey.OP_READ);
+					key.selector().wakeup();
+				}
+				catch (CancelledKeyException e) {
+					if (logger.isDebugEnabled()) {
+						logger.debug(this.getConnectionId() + " Channel closed while reads were suspended");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Decode the frames retained when the frame queue was full; only invoked while reads
+	 * are suspended, so the buffer is not in use by a reading thread.
+	 */
+	private void decodeRetainedFrames() {
+		if (!beginBufferUse()) {
+			return;
+		}
+		try {
+			ByteBuffer buffer = this.undecodedBuffer;
+			this.undecodedBuffer = null;
+			buffer.flip();
+			if (buffer == this.rawBuffer) {
+				decodeFrames(buffer);
+			}
+			else {
+				deserializeFrames(buffer);
+			}
+		}
+		catch (IOException e) {
+			logger.error("Failed to decode frames on " + this.getConnectionId(), e);
+			this.closeConnection(true);
+			return;
+		}
+		finally {
+			endBufferUse();
+		}
+		if (!this.frames.isEmpty()) {
+			checkForAssembler();
+		}
+	}
+
+	/**
+	 * @return the number of frames (or, without a byte buffer deserializer, read
+	 * buffers) waiting for the assembler.
+	 */
+	private int getQueueDepth() {
+		if (this.byteBufferDeserializer != null) {
+			return this.frames.size();
+		}
+		return this.channelInputStream.size();
+	}
+
+	/**
+	 * @return true if the next read might have to wait for buffer space; the stream
+	 * must have room for one more read buffer, and at least half the frame queue must
+	 * be free.
+	 */
+	private boolean isReadBufferFull() {
+		if (this.byteBufferDeserializer != null) {
+			return this.frames.size() >= FRAME_LIMIT / 2;
+		}
+		return this.channelInputStream.isFull();
+	}
+
 	/**
 	 * Invoked by the factory when there is data to be read.
 	 */
@@ -523,6 +1068,116 @@ public class TcpNioConnection extends TcpConnectionSupport {
 		this.usingDirectBuffers = usingDirectBuffers;
 	}
 
+	/**
+	 * If true, and the deserializer is a {@link ByteBufferDeserializer}, frames are
+	 * decoded directly from the read buffer by the reading thread; only complete
+	 * frames are handed to the assembler thread for mapping, avoiding the intermediate
+	 * copy and stream. Otherwise (default), data is passed to the deserializer through
+	 * an {@link InputStream}.
+	 * @param usingByteBufferDeserializer true to decode from the read buffer.
+	 * @since 4.2
+	 */
+	public void setUsingByteBufferDeserializer(boolean usingByteBufferDeserializer) {
+		this.usingByteBufferDeserializer = usingByteBufferDeserializer;
+	}
+
+	/**
+	 * If true, {@link #send(Message)} serializes the message to a separate buffer and
+	 * queues it; concurrent senders do not wait for each other. The sender that finds
+	 * no write in progress writes all queued frames, up to {@link #setMaxWriteBatchSize(int)
+	 * maxWriteBatchSize} bytes at a time, with a single gathering write, so that many
+	 * small messages result in few system calls. Consequently, a send may return before
+	 * its frame is written; write failures are reported to the flushing sender and by
+	 * a {@link TcpConnectionExceptionEvent}, and the connection is closed. Queued frames
+	 * are discarded when the connection is closed. The bytes queued are bounded by
+	 * {@link #setMaxPendingWriteBytes(int) maxPendingWriteBytes}. Ignored for single-use
+	 * connections. Default false.
+	 * @param writeBatching true to batch writes.
+	 * @since 4.2
+	 */
+	public void setWriteBatching(boolean writeBatching) {
+		this.writeBatching = writeBatching;
+	}
+
+	/**
+	 * When batching writes, the time (in milliseconds) the flushing sender waits for more
+	 * frames to be queued before writing, unless a full batch is already queued. Trades
+	 * latency for fewer, larger writes. Default 0 - frames queued while a write is in
+	 * progress are batched, but the flusher does not wait.
+	 * @param maxWriteLatency the max latency.
+	 * @since 4.2
+	 */
+	public void setMaxWriteLatency(long maxWriteLatency) {
+		this.maxWriteLatency = maxWriteLatency;
+	}
+
+	/**
+	 * When batching writes, the number of bytes after which a batch is written.
+	 * Default 65536.
+	 * @param maxWriteBatchSize the max batch size.
+	 * @since 4.2
+	 */
+	public void setMaxWriteBatchSize(int maxWriteBatchSize) {
+		Assert.isTrue(maxWriteBatchSize > 0, "'maxWriteBatchSize' must be positive");
+		this.maxWriteBatchSize = maxWriteBatchSize;
+	}
+
+	/**
+	 * When batching writes, the number of serialized bytes that may be queued but not
+	 * yet written. A sender whose frame would exceed the limit blocks until the flusher
+	 * has written enough queued frames, for up to the
+	 * {@link #setPendingWriteTimeout(long) pendingWriteTimeout}, after which the send
+	 * fails with an {@link IOException}; the connection remains open. A frame larger than
+	 * the limit is queued once nothing else is pending. Bounds the memory used when
+	 * messages are sent faster than the peer reads them. Default 1048576.
+	 * @param maxPendingWriteBytes the max pending bytes.
+	 * @since 4.2
+	 */
+	public void setMaxPendingWriteBytes(int maxPendingWriteBytes) {
+		Assert.isTrue(maxPendingWriteBytes > 0, "'maxPendingWriteBytes' must be positive");
+		this.maxPendingWriteBytes = maxPendingWriteBytes;
+	}
+
+	/**
+	 * When batching writes, the time (in milliseconds) a sender waits for the pending
+	 * writes to fall below {@link #setMaxPendingWriteBytes(int) maxPendingWriteBytes}.
+	 * Default 60000.
+	 * @param pendingWriteTimeout the timeout.
+	 * @since 4.2
+	 */
+	public void setPendingWriteTimeout(long pendingWriteTimeout) {
+		this.pendingWriteTimeout = pendingWriteTimeout;
+	}
+
+	/**
+	 * If true, stop reading from the socket (by removing read interest from the
+	 * selection key) while previously read data has not yet been consumed, instead of
+	 * blocking the reading thread (and closing the connection after the pipe timeout).
+	 * Reads resume as the assembler consumes the data; when the downstream flow blocks
+	 * the assembler, unread data remains in the socket buffers and TCP flow control
+	 * throttles the sender. With a {@link ByteBufferDeserializer}, the frames of a read
+	 * that do not fit in the frame queue are left undecoded in the read buffer, rather
+	 * than blocking the reading thread, and are decoded as the queue drains.
+	 * Default false.
+	 * @param readBackpressure true to suspend reads while data is pending.
+	 * @since 4.2
+	 */
+	public void setReadBackpressure(boolean readBackpressure) {
+		this.readBackpressure = readBackpressure;
+	}
+
+	/**
+	 * A pool from which the read buffer is obtained; the buffer is returned to the pool
+	 * after each read unless it retains a partial frame or SSL packet, so that idle
+	 * connections do not each hold a buffer. The pool may supply heap or direct buffers;
+	 * without a {@link ByteBufferDeserializer} the data is copied out of the buffer.
+	 * @param bufferPool the pool.
+	 * @since 4.2
+	 */
+	public void setBufferPool(BufferPool bufferPool) {
+		this.bufferPool = bufferPool;
+	}
+
 	protected boolean isUsingDirectBuffers() {
 		return usingDirectBuffers;
 	}
@@ -597,25 +1252,69 @@ public class TcpNioConnection extends TcpConnectionSupport {
 			if (logger.isDebugEnabled()) {
 				logger.debug(getConnectionId() + " writing " + buffer.remaining());
 			}
+			getMetrics().bytesWritten(buffer.remaining());
 			socketChannel.write(buffer);
 			int remaining = buffer.remaining();
 			if (remaining == 0) {
 				return;
 			}
+			registerForWrite();
+			while (remaining > 0) {
+				awaitWritable();
+				socketChannel.write(buffer);
+				remaining = buffer.remaining();
+			}
+		}
+
+		/**
+		 * Write the buffers using gathering writes.
+		 * @param buffers the buffers.
+		 * @throws IOException an IOException.
+		 * @since 4.2
+		 */
+		protected synchronized void doWrite(ByteBuffer[] buffers) throws IOException {
+			if (logger.isDebugEnabled()) {
+				logger.debug(getConnectionId() + " writing " + buffers.length + " buffers");
+			}
+			long bytes = 0;
+			for (ByteBuffer buffer : buffers) {
+				bytes += buffer.remaining();
+			}
+			getMetrics().bytesWritten(bytes);
+			socketChannel.write(buffers);
+			if (!hasRemaining(buffers)) {
+				return;
+			}
+			registerForWrite();
+			while (hasRemaining(buffers)) {
+				awaitWritable();
+				socketChannel.write(buffers);
+			}
+		}
+
+		private boolean hasRemaining(ByteBuffer[] buffers) {
+			for (int i = buffers.length - 1; i >= 0; i--) {
+				if (buffers[i].hasRemaining()) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void registerForWrite() throws IOException {
 			if (this.selector == null) {
 				this.selector = Selector.open();
 				this.soTimeout = socketChannel.socket().getSoTimeout();
 			}
 			socketChannel.register(selector, SelectionKey.OP_WRITE);
-			while (remaining > 0) {
-				int selectionCount = this.selector.select(this.soTimeout);
-				if (selectionCount == 0) {
-					throw new SocketTimeoutException("Timeout on write");
-				}
-				selector.selectedKeys().clear();
-				socketChannel.write(buffer);
-				remaining = buffer.remaining();
+		}
+
+		private void awaitWritable() throws IOException {
+			int selectionCount = this.selector.select(this.soTimeout);
+			if (selectionCount == 0) {
+				throw new SocketTimeoutException("Timeout on write");
 			}
+			selector.selectedKeys().clear();
 		}
 
 	}
@@ -697,6 +1396,9 @@ public class TcpNioConnection extends TcpConnectionSupport {
 					if (buffer == null && this.isClosed) {
 						return null;
 					}
+					if (buffer != null) {
+						resumeReadingIfPossible();
+					}
 				}
 				catch (InterruptedException e) {
 					Thread.currentThread().interrupt();
@@ -716,21 +1418,40 @@ public class TcpNioConnection extends TcpConnectionSupport {
 			if (bytesToWrite > 0) {
 				byte[] buffer = new byte[bytesToWrite];
 				System.arraycopy(array, 0, buffer, 0, bytesToWrite);
-				this.available.addAndGet(bytesToWrite);
-				if (TcpNioConnection.this.writingLatch != null) {
-					TcpNioConnection.this.writingLatch.countDown();
-				}
-				try {
-					if (!this.buffers.offer(buffer, pipeTimeout, TimeUnit.MILLISECONDS)) {
-						throw new IOException("Timed out waiting for buffer space");
-					}
-				}
-				catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-					throw new IOException("Interrupted while waiting for buffer space", e);
+				enqueue(buffer);
+			}
+		}
+
+		/**
+		 * Copies the remaining data from a heap or direct buffer; blocks if the blocking
+		 * queue already contains 5 buffers.
+		 * @param source the buffer.
+		 * @throws IOException
+		 */
+		void write(ByteBuffer source) throws IOException {
+			int bytesToWrite = source.remaining();
+			if (bytesToWrite > 0) {
+				byte[] buffer = new byte[bytesToWrite];
+				source.get(buffer);
+				enqueue(buffer);
+			}
+		}
+
+		private void enqueue(byte[] buffer) throws IOException {
+			this.available.addAndGet(buffer.length);
+			if (TcpNioConnection.this.writingLatch != null) {
+				TcpNioConnection.this.writingLatch.countDown();
+			}
+			try {
+				if (!this.buffers.offer(buffer, pipeTimeout, TimeUnit.MILLISECONDS)) {
+					throw new IOException("Timed out waiting for buffer space");
 				}
-				TcpNioConnection.this.writingLatch = new CountDownLatch(1);
 			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for buffer space", e);
+			}
+			TcpNioConnection.this.writingLatch = new CountDownLatch(1);
 		}
 
 		@Override
@@ -744,5 +1465,16 @@ public class TcpNioConnection extends TcpConnectionSupport {
 			return this.available.get();
 		}
 
+		/**
+		 * @return true if there is no room for a further buffer after the next write.
+		 */
+		boolean isFull() {
+			return this.buffers.remainingCapacity() <= 1;
+		}
+
+		int size() {
+			return this.buffers.size();
+		}
+
 	}
 }
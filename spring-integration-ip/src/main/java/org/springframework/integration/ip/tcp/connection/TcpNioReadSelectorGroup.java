@@ -0,0 +1,223 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ip.tcp.connection;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A group of selectors, each running on its own thread, that detect read readiness
+ * for the connections of a NIO connection factory. Each connection is assigned to one
+ * selector (round-robin) for its lifetime, so the selection work for many connections
+ * is spread over several threads instead of a single one. The reads themselves are
+ * still performed using the factory's task executor.
+ *
+ * @since 4.2
+ */
+class TcpNioReadSelectorGroup {
+
+	private static final Log logger = LogFactory.getLog(TcpNioReadSelectorGroup.class);
+
+	private final AbstractConnectionFactory connectionFactory;
+
+	private final ReadSelector[] readSelectors;
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	/**
+	 * Open the selectors.
+	 * @param connectionFactory the factory owning the connections.
+	 * @param size the number of selectors.
+	 * @throws IOException if a selector cannot be opened.
+	 */
+	TcpNioReadSelectorGroup(AbstractConnectionFactory connectionFactory, int size) throws IOException {
+		this.connectionFactory = connectionFactory;
+		this.readSelectors = new ReadSelector[size];
+		try {
+			for (int i = 0; i < size; i++) {
+				this.readSelectors[i] = new ReadSelector(i, Selector.open());
+			}
+		}
+		catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Run each selector using the executor; each one occupies a thread until the
+	 * group is closed or the factory is stopped.
+	 * @param executor the executor.
+	 */
+	void start(Executor executor) {
+		for (ReadSelector readSelector : this.readSelectors) {
+			executor.execute(readSelector);
+		}
+	}
+
+	/**
+	 * Assign the channel to the next selector; it is registered for read
+	 * interest by the selector's thread.
+	 * @param channel the channel, which must be in non-blocking mode.
+	 * @param connection the connection.
+	 */
+	void register(SocketChannel channel, TcpNioConnection connection) {
+		int index = (this.next.getAndIncrement() & Integer.MAX_VALUE) % this.readSelectors.length;
+		this.readSelectors[index].register(channel, connection);
+	}
+
+	/**
+	 * @return a snapshot of the connections assigned to the selectors.
+	 */
+	Map<SocketChannel, TcpNioConnection> getConnections() {
+		Map<SocketChannel, TcpNioConnection> connections = new HashMap<SocketChannel, TcpNioConnection>();
+		for (ReadSelector readSelector : this.readSelectors) {
+			if (readSelector != null) {
+				connections.putAll(readSelector.channelMap);
+			}
+		}
+		return connections;
+	}
+
+	/**
+	 * Close the selectors, which terminates their threads.
+	 */
+	void close() {
+		for (ReadSelector readSelector : this.readSelectors) {
+			if (readSelector != null) {
+				try {
+					readSelector.selector.close();
+				}
+				catch (Exception e) {
+					logger.error("Error closing selector", e);
+				}
+			}
+		}
+	}
+
+
+	private class ReadSelector implements Runnable {
+
+		private final int index;
+
+		private final Selector selector;
+
+		private final Map<SocketChannel, TcpNioConnection> channelMap =
+				new ConcurrentHashMap<SocketChannel, TcpNioConnection>();
+
+		private final BlockingQueue<SocketChannel> newChannels = new LinkedBlockingQueue<SocketChannel>();
+
+		private long nextCheckForClosedChannels;
+
+		private ReadSelector(int index, Selector selector) {
+			this.index = index;
+			this.selector = selector;
+		}
+
+		private void register(SocketChannel channel, TcpNioConnection connection) {
+			this.channelMap.put(channel, connection);
+			this.newChannels.add(channel);
+			this.selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			AbstractConnectionFactory factory = TcpNioReadSelectorGroup.this.connectionFactory;
+			if (logger.isDebugEnabled()) {
+				logger.debug("Read selector " + this.index + " running for " + factory);
+			}
+			try {
+				while (factory.isActive() && this.selector.isOpen()) {
+					int soTimeout = factory.getSoTimeout();
+					int selectionCount = 0;
+					try {
+						long timeout = soTimeout < 0 ? 0 : soTimeout;
+						if (factory.getDelayedReads().size() > 0
+								&& (timeout == 0 || factory.getReadDelay() < timeout)) {
+							timeout = factory.getReadDelay();
+						}
+						selectionCount = this.selector.select(timeout);
+					}
+					catch (CancelledKeyException cke) {
+						if (logger.isDebugEnabled()) {
+							logger.debug("CancelledKeyException during Selector.select()");
+						}
+					}
+					SocketChannel newChannel;
+					while ((newChannel = this.newChannels.poll()) != null) {
+						try {
+							newChannel.register(this.selector, SelectionKey.OP_READ, this.channelMap.get(newChannel));
+						}
+						catch (ClosedChannelException cce) {
+							if (logger.isDebugEnabled()) {
+								logger.debug("Channel closed before registering with selector for reading");
+							}
+						}
+					}
+					/*
+					 * The factory's periodic check for closed channels is shared by all
+					 * selectors; make sure ours are removed even while this selector is busy.
+					 */
+					long now = System.currentTimeMillis();
+					if (now >= this.nextCheckForClosedChannels) {
+						this.nextCheckForClosedChannels = now + factory.getNioHarvestInterval();
+						removeClosedChannels();
+					}
+					factory.processNioSelections(selectionCount, this.selector, null, this.channelMap);
+				}
+			}
+			catch (ClosedSelectorException cse) {
+				if (factory.isActive()) {
+					logger.error("Selector closed", cse);
+				}
+			}
+			catch (Exception e) {
+				logger.error("Exception in read selector thread", e);
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Read selector " + this.index + " exiting for " + factory);
+			}
+		}
+
+		private void removeClosedChannels() {
+			Iterator<SocketChannel> iterator = this.channelMap.keySet().iterator();
+			while (iterator.hasNext()) {
+				if (!iterator.next().isOpen()) {
+					iterator.remove();
+				}
+			}
+		}
+
+	}
+
+}
@@ -20,6 +20,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
@@ -44,7 +45,11 @@ import org.springframework.util.Assert;
  * encrypt/decrypt the data.<p>
  * Also, it may be deemed necessary to re-perform handshaking.<p>
  * This class supports the management of handshaking as necessary, both from the
- * initiating and receiving peers.
+ * initiating and receiving peers.<p>
+ * The encryption buffers are sized from the SSL session and are obtained from the
+ * connection's {@link org.springframework.integration.ip.tcp.serializer.BufferPool}, if
+ * any. When a {@link org.springframework.integration.ip.tcp.serializer.ByteBufferDeserializer}
+ * is used, data is decrypted directly into the buffer from which frames are decoded.
  * @author Gary Russell
  * @since 2.2
  *
@@ -67,6 +72,10 @@ public class TcpNioSSLConnection extends TcpNioConnection {
 
 	private boolean needMoreNetworkData;
 
+	private volatile TcpNioSSLMetrics sslMetrics;
+
+	private final AtomicLong handshakeStarted = new AtomicLong();
+
 	public TcpNioSSLConnection(SocketChannel socketChannel, boolean server, boolean lookupHost,
 			ApplicationEventPublisher applicationEventPublisher, String connectionFactoryName,
 			SSLEngine sslEngine) throws Exception {
@@ -88,6 +97,7 @@ public class TcpNioSSLConnection extends TcpNioConnection {
 		if (logger.isDebugEnabled()) {
 			logger.debug("sendToPipe " + sslEngine.getHandshakeStatus() + ", remaining:" + networkBuffer.remaining());
 		}
+		ensureEncodedBuffer();
 		SSLEngineResult result = null;
 		while (!this.needMoreNetworkData) {
 			result = decode(networkBuffer);
@@ -125,29 +135,44 @@ public class TcpNioSSLConnection extends TcpNioConnection {
 		case NEED_UNWRAP:
 		case FINISHED:
 		case NOT_HANDSHAKING:
-			this.decoded.clear();
-			result = this.sslEngine.unwrap(networkBuffer, this.decoded);
-			if (logger.isDebugEnabled()) {
-				logger.debug("After unwrap:" + resultToString(result));
+			int applicationBufferSize = this.sslEngine.getSession().getApplicationBufferSize();
+			ByteBuffer frameBuffer = getFrameBuffer(applicationBufferSize);
+			if (frameBuffer != null) {
+				// decrypt straight into the deserializer's buffer
+				result = unwrap(networkBuffer, frameBuffer);
+				if (result.bytesProduced() > 0) {
+					decodeFrameBuffer();
+				}
 			}
-			Status status = result.getStatus();
-			if (status == Status.BUFFER_OVERFLOW) {
-				this.decoded = this.allocateEncryptionBuffer(this.sslEngine.getSession().getApplicationBufferSize());
+			else {
+				if (this.decoded == null) {
+					this.decoded = allocate(applicationBufferSize);
+				}
+				this.decoded.clear();
+				result = unwrap(networkBuffer, this.decoded);
+				if (result.getStatus() == Status.BUFFER_OVERFLOW) {
+					release(this.decoded);
+					this.decoded = allocate(this.sslEngine.getSession().getApplicationBufferSize());
+				}
+				if (result.bytesProduced() > 0) {
+					this.decoded.flip();
+					super.sendToPipe(this.decoded);
+				}
 			}
-			if (result.bytesProduced() > 0) {
-				this.decoded.flip();
-				super.sendToPipe(this.decoded);
+			if (logger.isDebugEnabled()) {
+				logger.debug("After unwrap:" + resultToString(result));
 			}
 			break;
 		case NEED_WRAP:
 			if (!resumeWriterIfNeeded()) {
 				this.encoded.clear();
-				result = this.sslEngine.wrap(networkBuffer, this.encoded);
+				result = wrap(networkBuffer, this.encoded);
 				if (logger.isDebugEnabled()) {
 					logger.debug("After wrap:" + resultToString(result));
 				}
 				if (result.getStatus() == Status.BUFFER_OVERFLOW) {
-					this.encoded = this.allocateEncryptionBuffer(this.sslEngine.getSession().getPacketBufferSize());
+					release(this.encoded);
+					this.encoded = allocate(this.sslEngine.getSession().getPacketBufferSize());
 				}
 				else {
 					this.encoded.flip();
@@ -216,24 +241,91 @@ public class TcpNioSSLConnection extends TcpNioConnection {
 	}
 
 	/**
-	 * Initializes the SSLEngine and sets up the encryption/decryption buffers.
+	 * Initializes the SSLEngine; the encryption/decryption buffers are allocated when
+	 * first needed, so that they are obtained according to the connection's final
+	 * buffer configuration.
 	 *
 	 * @throws IOException Any IOException.
 	 */
 	public void init() throws IOException {
-		if (this.decoded == null) {
-			this.decoded = allocateEncryptionBuffer(2048);
-			this.encoded = allocateEncryptionBuffer(2048);
-			this.initilizeEngine();
+		this.initilizeEngine();
+	}
+
+	/**
+	 * @param sslMetrics the metrics to which handshake and encryption statistics are added.
+	 * @since 4.2
+	 */
+	public void setSSLMetrics(TcpNioSSLMetrics sslMetrics) {
+		this.sslMetrics = sslMetrics;
+	}
+
+	@Override
+	protected void releaseBuffers() {
+		super.releaseBuffers();
+		synchronized (this.monitorLock) {
+			release(this.decoded);
+			this.decoded = null;
+			release(this.encoded);
+			this.encoded = null;
 		}
 	}
 
-	private ByteBuffer allocateEncryptionBuffer(int size) {
-		if (this.isUsingDirectBuffers()) {
-			return ByteBuffer.allocateDirect(size);
+	private void ensureEncodedBuffer() {
+		synchronized (this.monitorLock) {
+			if (this.encoded == null) {
+				this.encoded = allocate(this.sslEngine.getSession().getPacketBufferSize());
+			}
 		}
-		else {
-			return ByteBuffer.allocate(size);
+	}
+
+	private SSLEngineResult unwrap(ByteBuffer networkBuffer, ByteBuffer plainText) throws SSLException {
+		TcpNioSSLMetrics metrics = this.sslMetrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		SSLEngineResult result = this.sslEngine.unwrap(networkBuffer, plainText);
+		if (metrics != null && result.bytesProduced() > 0) {
+			metrics.decrypted(result.bytesProduced(), System.nanoTime() - start);
+		}
+		trackHandshake(result);
+		return result;
+	}
+
+	private SSLEngineResult wrap(ByteBuffer plainText, ByteBuffer networkBuffer) throws SSLException {
+		TcpNioSSLMetrics metrics = this.sslMetrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		SSLEngineResult result = this.sslEngine.wrap(plainText, networkBuffer);
+		if (metrics != null && result.bytesConsumed() > 0) {
+			metrics.encrypted(result.bytesConsumed(), System.nanoTime() - start);
+		}
+		trackHandshake(result);
+		return result;
+	}
+
+	private SSLEngineResult wrap(ByteBuffer[] plainText, ByteBuffer networkBuffer) throws SSLException {
+		TcpNioSSLMetrics metrics = this.sslMetrics;
+		long start = metrics == null ? 0 : System.nanoTime();
+		SSLEngineResult result = this.sslEngine.wrap(plainText, networkBuffer);
+		if (metrics != null && result.bytesConsumed() > 0) {
+			metrics.encrypted(result.bytesConsumed(), System.nanoTime() - start);
+		}
+		trackHandshake(result);
+		return result;
+	}
+
+	/**
+	 * Times handshakes, from the first operation that reports handshaking until one
+	 * reports that the handshake is finished; either peer's thread may observe either.
+	 */
+	private void trackHandshake(SSLEngineResult result) {
+		HandshakeStatus status = result.getHandshakeStatus();
+		if (status == HandshakeStatus.FINISHED) {
+			long started = this.handshakeStarted.getAndSet(0);
+			TcpNioSSLMetrics metrics = this.sslMetrics;
+			if (started != 0 && metrics != null) {
+				metrics.handshakeCompleted(System.nanoTime() - started);
+			}
+		}
+		else if (status != HandshakeStatus.NOT_HANDSHAKING && this.handshakeStarted.get() == 0) {
+			this.handshakeStarted.compareAndSet(0, System.nanoTime());
 		}
 	}
 
@@ -286,40 +378,69 @@ public class TcpNioSSLConnection extends TcpNioConnection {
 		 * and multiple writes will be necessary.
 		 */
 		@Override
-		protected synchronized void doWrite(ByteBuffer plainText)
-				throws IOException {
+		protected synchronized void doWrite(ByteBuffer plainText) throws IOException {
+			doWrite(new ByteBuffer[] { plainText });
+		}
+
+		/**
+		 * Encrypts the buffers with gathering wraps, so that small buffers share
+		 * SSL records, and writes the records to the SocketChannel. Will participate
+		 * in SSL handshaking as necessary.
+		 */
+		@Override
+		protected synchronized void doWrite(ByteBuffer[] plainText) throws IOException {
+			if (!beginBufferUse()) {
+				throw new IOException("Connection " + getConnectionId() + " is closed");
+			}
 			try {
+				ensureEncodedBuffer();
 				TcpNioSSLConnection.this.writerActive = true;
-				int remaining = plainText.remaining();
+				long remaining = remaining(plainText);
 				while (remaining > 0) {
 					SSLEngineResult result = encode(plainText);
 					if (logger.isDebugEnabled()) {
 						logger.debug("doWrite: " + resultToString(result));
 					}
 					if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING) {
-						writeEncodedIfAny();
-						if (plainText.remaining() >= remaining) {
+						if (TcpNioSSLConnection.this.encoded.remaining()
+								< TcpNioSSLConnection.this.sslEngine.getSession().getPacketBufferSize()) {
+							writeEncodedIfAny();
+						}
+						long stillRemaining = remaining(plainText);
+						if (stillRemaining >= remaining) {
 							throw new MessagingException(
 									"Unexpected condition - SSL wrap did not consume any data; remaining = "
 											+ remaining);
 						}
-						remaining = plainText.remaining();
-					} else {
+						remaining = stillRemaining;
+					}
+					else {
 						doClientSideHandshake(plainText, result);
 						writeEncodedIfAny();
+						remaining = remaining(plainText);
 					}
 				}
+				writeEncodedIfAny();
 			}
 			finally {
 				TcpNioSSLConnection.this.writerActive = false;
+				endBufferUse();
+			}
+		}
+
+		private long remaining(ByteBuffer[] buffers) {
+			long remaining = 0;
+			for (ByteBuffer buffer : buffers) {
+				remaining += buffer.remaining();
 			}
+			return remaining;
 		}
 
 		/**
 		 * Handles SSL handshaking; when network data is needed from the peer, suspends
 		 * until that data is received.
 		 */
-		private void doClientSideHandshake(ByteBuffer plainText,
+		private void doClientSideHandshake(ByteBuffer[] plainText,
 				SSLEngineResult result) throws IOException, SSLException {
 			TcpNioSSLConnection.this.semaphore.drainPermits();
 			HandshakeStatus status = TcpNioSSLConnection.this.sslEngine.getHandshakeStatus();
@@ -347,7 +468,9 @@ public class TcpNioSSLConnection extends TcpNioConnection {
 
 		private void writeEncodedIfAny() throws IOException {
 			TcpNioSSLConnection.this.encoded.flip();
-			writeEncoded(TcpNioSSLConnection.this.encoded);
+			if (TcpNioSSLConnection.this.encoded.hasRemaining()) {
+				writeEncoded(TcpNioSSLConnection.this.encoded);
+			}
 			TcpNioSSLConnection.this.encoded.clear();
 		}
 
@@ -375,18 +498,25 @@ public class TcpNioSSLConnection extends TcpNioConnection {
 		}
 
 		/**
-		 * Encrypts plain text data. The result may indicate handshaking is needed.
+		 * Encrypts plain text data into the remaining space of the encoded buffer,
+		 * writing any records already there first if the space is insufficient.
+		 * The result may indicate handshaking is needed.
 		 */
-		private SSLEngineResult encode(ByteBuffer plainText)
+		private SSLEngineResult encode(ByteBuffer[] plainText)
 				throws SSLException, IOException {
-			TcpNioSSLConnection.this.encoded.clear();
-			SSLEngineResult result = TcpNioSSLConnection.this.sslEngine.wrap(plainText, TcpNioSSLConnection.this.encoded);
+			SSLEngineResult result = wrap(plainText, TcpNioSSLConnection.this.encoded);
 			if (logger.isDebugEnabled()) {
-				logger.debug("After wrap:" + resultToString(result) + " Plaintext buffer @" + plainText.position() + "/" + plainText.limit());
+				logger.debug("After wrap:" + resultToString(result) + " Plaintext remaining " + remaining(plainText));
 			}
 			if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
-				TcpNioSSLConnection.this.encoded = allocateEncryptionBuffer(sslEngine.getSession().getPacketBufferSize());
-				result = TcpNioSSLConnection.this.sslEngine.wrap(plainText, TcpNioSSLConnection.this.encoded);
+				if (TcpNioSSLConnection.this.encoded.position() > 0) {
+					writeEncodedIfAny();
+				}
+				else {
+					release(TcpNioSSLConnection.this.encoded);
+					TcpNioSSLConnection.this.encoded = allocate(sslEngine.getSession().getPacketBufferSize());
+				}
+				result = wrap(plainText, TcpNioSSLConnection.this.encoded);
 			}
 			return result;
 		}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ip.tcp.connection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TLS statistics for the {@link TcpNioSSLConnection}s created by a connection factory:
+ * handshake count and times, and the amount of data encrypted and decrypted together
+ * with the time spent in the {@link javax.net.ssl.SSLEngine}, from which the
+ * encryption and decryption throughput is derived.
+ *
+ * @since 4.2
+ */
+public class TcpNioSSLMetrics {
+
+	private final AtomicLong handshakeCount = new AtomicLong();
+
+	private final AtomicLong handshakeNanos = new AtomicLong();
+
+	private final AtomicLong maxHandshakeNanos = new AtomicLong();
+
+	private final AtomicLong bytesEncrypted = new AtomicLong();
+
+	private final AtomicLong encryptionNanos = new AtomicLong();
+
+	private final AtomicLong bytesDecrypted = new AtomicLong();
+
+	private final AtomicLong decryptionNanos = new AtomicLong();
+
+	void handshakeCompleted(long nanos) {
+		this.handshakeCount.incrementAndGet();
+		this.handshakeNanos.addAndGet(nanos);
+		long max = this.maxHandshakeNanos.get();
+		while (nanos > max && !this.maxHandshakeNanos.compareAndSet(max, nanos)) {
+			max = this.maxHandshakeNanos.get();
+		}
+	}
+
+	void encrypted(int bytes, long nanos) {
+		this.bytesEncrypted.addAndGet(bytes);
+		this.encryptionNanos.addAndGet(nanos);
+	}
+
+	void decrypted(int bytes, long nanos) {
+		this.bytesDecrypted.addAndGet(bytes);
+		this.decryptionNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * @return the number of completed handshakes (including renegotiations).
+	 */
+	public long getHandshakeCount() {
+		return this.handshakeCount.get();
+	}
+
+	/**
+	 * @return the mean handshake time in milliseconds.
+	 */
+	public double getMeanHandshakeTime() {
+		long count = this.handshakeCount.get();
+		return count == 0 ? 0 : (double) this.handshakeNanos.get() / count / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * @return the longest handshake time in milliseconds.
+	 */
+	public double getMaxHandshakeTime() {
+		return (double) this.maxHandshakeNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * @return the number of plain text bytes encrypted.
+	 */
+	public long getBytesEncrypted() {
+		return this.bytesEncrypted.get();
+	}
+
+	/**
+	 * @return the number of plain text bytes produced by decryption.
+	 */
+	public long getBytesDecrypted() {
+		return this.bytesDecrypted.get();
+	}
+
+	/**
+	 * @return the encryption throughput, in megabytes of plain text per second spent
+	 * encrypting.
+	 */
+	public double getEncryptionThroughput() {
+		return throughput(this.bytesEncrypted.get(), this.encryptionNanos.get());
+	}
+
+	/**
+	 * @return the decryption throughput, in megabytes of plain text per second spent
+	 * decrypting.
+	 */
+	public double getDecryptionThroughput() {
+		return throughput(this.bytesDecrypted.get(), this.decryptionNanos.get());
+	}
+
+	private double throughput(long bytes, long nanos) {
+		return nanos == 0 ? 0 : (bytes / (1024.0 * 1024.0)) / ((double) nanos / TimeUnit.SECONDS.toNanos(1));
+	}
+
+	@Override
+	public String toString() {
+		return "TcpNioSSLMetrics [handshakeCount=" + getHandshakeCount()
+				+ ", meanHandshakeTime=" + getMeanHandshakeTime()
+				+ ", maxHandshakeTime=" + getMaxHandshakeTime()
+				+ ", bytesEncrypted=" + getBytesEncrypted()
+				+ ", bytesDecrypted=" + getBytesDecrypted() + "]";
+	}
+
+}
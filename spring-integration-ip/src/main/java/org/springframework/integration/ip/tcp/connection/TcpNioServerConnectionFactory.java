@@ -47,6 +47,8 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 
 	private volatile boolean usingDirectBuffers;
 
+	private volatile TcpNioReadSelectorGroup readSelectorGroup;
+
 	private final Map<SocketChannel, TcpNioConnection> channelMap = new HashMap<SocketChannel, TcpNioConnection>();
 
 	private volatile Selector selector;
@@ -96,6 +98,11 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 			}
 			final Selector selector = Selector.open();
 			this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+			int readSelectorCount = getReadSelectorCount();
+			if (readSelectorCount > 0) {
+				this.readSelectorGroup = new TcpNioReadSelectorGroup(this, readSelectorCount);
+				this.readSelectorGroup.start(getTaskExecutor());
+			}
 			setListening(true);
 			this.selector = selector;
 			doSelect(this.serverChannel, selector);
@@ -117,7 +124,7 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 	 * Listens for incoming connections and for notifications that a connected
 	 * socket is ready for reading.
 	 * Accepts incoming connections, registers the new socket with the
-	 * selector for reading.
+	 * selector (or one of the read selectors) for reading.
 	 * When a socket is ready for reading, unregisters the read interest and
 	 * schedules a call to doRead which reads all available data. When the read
 	 * is complete, the socket is again registered for read interest.
@@ -183,8 +190,14 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 				}
 				connection.setTaskExecutor(getTaskExecutor());
 				connection.setLastRead(now);
-				this.channelMap.put(channel, connection);
-				channel.register(selector, SelectionKey.OP_READ, connection);
+				TcpNioReadSelectorGroup readSelectorGroup = this.readSelectorGroup;
+				if (readSelectorGroup != null) {
+					readSelectorGroup.register(channel, connection);
+				}
+				else {
+					this.channelMap.put(channel, connection);
+					channel.register(selector, SelectionKey.OP_READ, connection);
+				}
 				connection.publishConnectionOpenEvent();
 			}
 			catch (Exception e) {
@@ -199,6 +212,7 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 			TcpNioConnection connection = this.tcpNioConnectionSupport.createNewConnection(socketChannel, true,
 							isLookupHost(), getApplicationEventPublisher(), getComponentName());
 			connection.setUsingDirectBuffers(this.usingDirectBuffers);
+			configureNioConnection(connection);
 			TcpConnectionSupport wrappedConnection = wrapConnection(connection);
 			initializeConnection(wrappedConnection, socketChannel.socket());
 			return connection;
@@ -220,6 +234,10 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 				logger.error("Error closing selector", e);
 			}
 		}
+		if (this.readSelectorGroup != null) {
+			this.readSelectorGroup.close();
+			this.readSelectorGroup = null;
+		}
 		if (this.serverChannel != null) {
 			try {
 				this.serverChannel.close();
@@ -258,9 +276,13 @@ public class TcpNioServerConnectionFactory extends AbstractServerConnectionFacto
 	}
 
 	/**
-	 * @return the connections
+	 * @return the connections; a snapshot when using read selectors.
 	 */
 	protected Map<SocketChannel, TcpNioConnection> getConnections() {
+		TcpNioReadSelectorGroup readSelectorGroup = this.readSelectorGroup;
+		if (readSelectorGroup != null) {
+			return readSelectorGroup.getConnections();
+		}
 		return channelMap;
 	}
 
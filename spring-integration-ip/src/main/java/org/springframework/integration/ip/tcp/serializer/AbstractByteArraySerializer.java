@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.integration.ip.tcp.serializer;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -25,6 +26,7 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.core.serializer.Deserializer;
 import org.springframework.core.serializer.Serializer;
+import org.springframework.util.Assert;
 
 /**
  * Base class for (de)serializers that provide a mechanism to
@@ -45,6 +47,8 @@ public abstract class AbstractByteArraySerializer implements
 
 	private ApplicationEventPublisher applicationEventPublisher;
 
+	private volatile BufferPool bufferPool;
+
 	/**
 	 * The maximum supported message size for this serializer.
 	 * Default 2048.
@@ -63,6 +67,58 @@ public abstract class AbstractByteArraySerializer implements
 		this.maxMessageSize = maxMessageSize;
 	}
 
+	/**
+	 * The pool providing the scratch buffers used to assemble messages; the assembled
+	 * data is copied to a new array of the exact size, and the scratch buffer is returned
+	 * to the pool. By default, there is no pool, and a new scratch buffer is allocated
+	 * for each message. A pool, such as a heap {@link SizeClassedBufferPool}, can be
+	 * shared by several serializers.
+	 * @param bufferPool the buffer pool.
+	 * @since 4.2
+	 */
+	public void setBufferPool(BufferPool bufferPool) {
+		Assert.notNull(bufferPool, "'bufferPool' must not be null");
+		this.bufferPool = bufferPool;
+	}
+
+	public BufferPool getBufferPool() {
+		return this.bufferPool;
+	}
+
+	/**
+	 * Obtain a scratch array of at least the max message size from the buffer pool, if
+	 * any, or allocate one. The array must be returned with {@link #releaseBuffer(byte[])}
+	 * once the data has been copied out, unless it is retained (e.g. in an exception
+	 * event).
+	 * @return the array.
+	 * @since 4.2
+	 */
+	protected byte[] acquireBuffer() {
+		BufferPool bufferPool = this.bufferPool;
+		if (bufferPool == null) {
+			return new byte[this.maxMessageSize];
+		}
+		ByteBuffer buffer = bufferPool.acquire(this.maxMessageSize);
+		if (buffer.hasArray() && buffer.arrayOffset() == 0) {
+			return buffer.array();
+		}
+		// direct pool
+		bufferPool.release(buffer);
+		return new byte[this.maxMessageSize];
+	}
+
+	/**
+	 * Return a scratch array obtained from {@link #acquireBuffer()} to the pool, if any.
+	 * @param buffer the array.
+	 * @since 4.2
+	 */
+	protected void releaseBuffer(byte[] buffer) {
+		BufferPool bufferPool = this.bufferPool;
+		if (bufferPool != null) {
+			bufferPool.release(ByteBuffer.wrap(buffer));
+		}
+	}
+
 	@Override
 	public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
 		this.applicationEventPublisher = applicationEventPublisher;
@@ -91,6 +147,55 @@ public abstract class AbstractByteArraySerializer implements
 		return assembledData;
 	}
 
+	/**
+	 * Find a byte in the buffer, using absolute gets.
+	 * @param buffer The buffer.
+	 * @param from The index from which to search.
+	 * @param to The index (exclusive) at which to stop searching.
+	 * @param value The byte to find.
+	 * @return The index, or -1 if not found.
+	 * @since 4.2
+	 */
+	protected int indexOf(ByteBuffer buffer, int from, int to, int value) {
+		for (int i = from; i < to; i++) {
+			if (buffer.get(i) == (byte) value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Copy the data of a complete frame out of the buffer and position the buffer
+	 * after the frame.
+	 * @param buffer The buffer.
+	 * @param offset The index of the first data byte.
+	 * @param length The number of data bytes.
+	 * @param frameEnd The index following the last byte of the frame.
+	 * @return The data.
+	 * @since 4.2
+	 */
+	protected byte[] consumeFrame(ByteBuffer buffer, int offset, int length, int frameEnd) {
+		byte[] data = new byte[length];
+		buffer.position(offset);
+		buffer.get(data);
+		buffer.position(frameEnd);
+		return data;
+	}
+
+	/**
+	 * Publish a {@link TcpDeserializationExceptionEvent} with the undecoded data
+	 * (up to the max message size) of a buffer.
+	 * @param cause The cause.
+	 * @param buffer The buffer; its position is not changed.
+	 * @since 4.2
+	 */
+	protected void publishEvent(Exception cause, ByteBuffer buffer) {
+		byte[] data = new byte[Math.min(buffer.remaining(), this.maxMessageSize)];
+		buffer.duplicate().get(data);
+		publishEvent(cause, data, data.length);
+	}
+
 	protected void publishEvent(Exception cause, byte[] buffer, int offset) {
 		TcpDeserializationExceptionEvent event = new TcpDeserializationExceptionEvent(this, cause, buffer, offset);
 		if (this.applicationEventPublisher != null) {
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ip.tcp.serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A pool of reusable {@link ByteBuffer}s, used for transient buffers such as the
+ * scratch buffers of deserializers and the read buffers of NIO connections.
+ * A buffer must not be used after it has been released.
+ *
+ * @since 4.2
+ */
+public interface BufferPool {
+
+	/**
+	 * Obtain a cleared buffer with at least the requested capacity.
+	 * @param capacity the minimum capacity.
+	 * @return the buffer.
+	 */
+	ByteBuffer acquire(int capacity);
+
+	/**
+	 * Return a buffer obtained from {@link #acquire(int)} to the pool.
+	 * @param buffer the buffer.
+	 */
+	void release(ByteBuffer buffer);
+
+}
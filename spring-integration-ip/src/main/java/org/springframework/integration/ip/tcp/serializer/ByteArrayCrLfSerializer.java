@@ -19,16 +19,18 @@ package org.springframework.integration.ip.tcp.serializer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Reads data in an InputStream to a byte[]; data must be terminated by \r\n
  * (not included in resulting byte[]).
  * Writes a byte[] to an OutputStream and adds \r\n.
+ * Can also decode frames directly from a {@link ByteBuffer}.
  *
  * @author Gary Russell
  * @since 2.0
  */
-public class ByteArrayCrLfSerializer extends AbstractByteArraySerializer {
+public class ByteArrayCrLfSerializer extends AbstractByteArraySerializer implements ByteBufferDeserializer<byte[]> {
 
 	private static final byte[] CRLF = "\r\n".getBytes();
 
@@ -40,9 +42,12 @@ public class ByteArrayCrLfSerializer extends AbstractByteArraySerializer {
 	 */
 	@Override
 	public byte[] deserialize(InputStream inputStream) throws IOException {
-		byte[] buffer = new byte[this.maxMessageSize];
+		byte[] buffer = acquireBuffer();
 		int n = this.fillToCrLf(inputStream, buffer);
-		return this.copyToSizedArray(buffer, n);
+		byte[] assembledData = new byte[n];
+		System.arraycopy(buffer, 0, assembledData, 0, n);
+		releaseBuffer(buffer);
+		return assembledData;
 	}
 
 	public int fillToCrLf(InputStream inputStream, byte[] buffer) throws IOException {
@@ -82,6 +87,29 @@ public class ByteArrayCrLfSerializer extends AbstractByteArraySerializer {
 		}
 	}
 
+	/**
+	 * Decodes the data up to the next CRLF (\r\n) in the buffer.
+	 * @since 4.2
+	 */
+	@Override
+	public byte[] deserialize(ByteBuffer buffer) throws IOException {
+		int start = buffer.position();
+		int end = Math.min(buffer.limit(), start + this.maxMessageSize);
+		int cr = start - 1;
+		while ((cr = indexOf(buffer, cr + 1, end - 1, '\r')) >= 0) {
+			if (buffer.get(cr + 1) == '\n') {
+				return consumeFrame(buffer, start, cr - start, cr + 2);
+			}
+		}
+		if (buffer.limit() - start >= this.maxMessageSize) {
+			IOException e = new IOException("CRLF not found before max message length: "
+					+ this.maxMessageSize);
+			publishEvent(e, buffer);
+			throw e;
+		}
+		return null;
+	}
+
 	/**
 	 * Writes the byte[] to the stream and appends \r\n.
 	 */
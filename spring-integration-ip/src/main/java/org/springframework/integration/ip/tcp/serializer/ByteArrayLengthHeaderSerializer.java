@@ -37,12 +37,14 @@ import org.apache.commons.logging.LogFactory;
  * Other options are an unsigned byte, and unsigned short.
  *
  * For other header formats, override {@link #readHeader(InputStream)} and
- * {@link #writeHeader(OutputStream, int)}.
+ * {@link #writeHeader(OutputStream, int)} (and {@link #readHeader(ByteBuffer)} when
+ * frames are decoded directly from a {@link ByteBuffer}).
  *
  * @author Gary Russell
  * @since 2.0
  */
-public class ByteArrayLengthHeaderSerializer extends AbstractByteArraySerializer {
+public class ByteArrayLengthHeaderSerializer extends AbstractByteArraySerializer
+		implements ByteBufferDeserializer<byte[]> {
 
 
 	/**
@@ -122,6 +124,31 @@ public class ByteArrayLengthHeaderSerializer extends AbstractByteArraySerializer
 		}
 	}
 
+	/**
+	 * Decodes the next frame from the buffer if both the header and the data
+	 * are present.
+	 * @since 4.2
+	 */
+	@Override
+	public byte[] deserialize(ByteBuffer buffer) throws IOException {
+		int start = buffer.position();
+		int messageLength = this.readHeader(buffer);
+		if (messageLength < 0) {
+			return null;
+		}
+		if (messageLength > this.maxMessageSize) {
+			IOException e = new IOException("Message length " + messageLength +
+					" exceeds max message length: " + this.maxMessageSize);
+			publishEvent(e, buffer);
+			throw e;
+		}
+		int dataStart = start + this.headerSize;
+		if (buffer.limit() - dataStart < messageLength) {
+			return null;
+		}
+		return consumeFrame(buffer, dataStart, messageLength, dataStart + messageLength);
+	}
+
 	/**
 	 * Writes the byte[] to the output stream, preceded by a 4 byte
 	 * length in network byte order (big endian).
@@ -203,6 +230,44 @@ public class ByteArrayLengthHeaderSerializer extends AbstractByteArraySerializer
 		outputStream.write(lengthPart.array());
 	}
 
+	/**
+	 * Reads the header at the buffer's position, without changing the position, and
+	 * returns the length of the data part.
+	 *
+	 * @param buffer The buffer.
+	 * @return The length of the data part, or -1 if the header is not complete.
+	 * @throws IOException Any IOException.
+	 * @since 4.2
+	 */
+	protected int readHeader(ByteBuffer buffer) throws IOException {
+		int start = buffer.position();
+		if (buffer.limit() - start < this.headerSize) {
+			return -1;
+		}
+		int messageLength;
+		switch (this.headerSize) {
+		case HEADER_SIZE_INT:
+			messageLength = buffer.getInt(start);
+			if (messageLength < 0) {
+				IllegalArgumentException e = new IllegalArgumentException("Length header:"
+						+ messageLength
+						+ " is negative");
+				publishEvent(e, buffer);
+				throw e;
+			}
+			break;
+		case HEADER_SIZE_UNSIGNED_BYTE:
+			messageLength = buffer.get(start) & 0xff;
+			break;
+		case HEADER_SIZE_UNSIGNED_SHORT:
+			messageLength = buffer.getShort(start) & 0xffff;
+			break;
+		default:
+			throw new IllegalArgumentException("Bad header size:" + headerSize);
+		}
+		return messageLength;
+	}
+
 	/**
 	 * Reads the header and returns the length of the data part.
 	 *
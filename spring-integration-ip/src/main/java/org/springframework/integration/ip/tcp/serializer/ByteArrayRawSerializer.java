@@ -43,7 +43,7 @@ public class ByteArrayRawSerializer extends AbstractByteArraySerializer {
 
 	@Override
 	public byte[] deserialize(InputStream inputStream) throws IOException {
-		byte[] buffer = new byte[this.maxMessageSize];
+		byte[] buffer = acquireBuffer();
 		int n = 0;
 		int bite = 0;
 		if (logger.isDebugEnabled()) {
@@ -66,9 +66,12 @@ public class ByteArrayRawSerializer extends AbstractByteArraySerializer {
 			}
 			byte[] assembledData = new byte[n];
 			System.arraycopy(buffer, 0, assembledData, 0, n);
+			releaseBuffer(buffer);
 			return assembledData;
 		}
 		catch (SoftEndOfStreamException e) {
+			// the normal end of a connection for this serializer; the buffer is not retained
+			releaseBuffer(buffer);
 			throw e;
 		}
 		catch (IOException e) {
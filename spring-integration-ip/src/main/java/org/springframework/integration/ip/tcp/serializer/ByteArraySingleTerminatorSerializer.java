@@ -19,16 +19,19 @@ package org.springframework.integration.ip.tcp.serializer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Reads data in an InputStream to a byte[]; data must be terminated by a single
  * byte (not included in resulting byte[]).
  * Writes a byte[] to an OutputStream and adds the terminator.
+ * Can also decode frames directly from a {@link ByteBuffer}.
  *
  * @author Gary Russell
  * @since 2.2
  */
-public class ByteArraySingleTerminatorSerializer extends AbstractByteArraySerializer {
+public class ByteArraySingleTerminatorSerializer extends AbstractByteArraySerializer
+		implements ByteBufferDeserializer<byte[]> {
 
 	private final byte terminator;
 
@@ -44,7 +47,7 @@ public class ByteArraySingleTerminatorSerializer extends AbstractByteArraySerial
 	 */
 	@Override
 	public byte[] deserialize(InputStream inputStream) throws IOException {
-		byte[] buffer = new byte[this.maxMessageSize];
+		byte[] buffer = acquireBuffer();
 		int n = 0;
 		int bite;
 		if (logger.isDebugEnabled()) {
@@ -69,6 +72,7 @@ public class ByteArraySingleTerminatorSerializer extends AbstractByteArraySerial
 			}
 			byte[] assembledData = new byte[n];
 			System.arraycopy(buffer, 0, assembledData, 0, n);
+			releaseBuffer(buffer);
 			return assembledData;
 		}
 		catch (SoftEndOfStreamException e) {
@@ -84,6 +88,27 @@ public class ByteArraySingleTerminatorSerializer extends AbstractByteArraySerial
 		}
 	}
 
+	/**
+	 * Decodes the data up to the next terminator in the buffer.
+	 * @since 4.2
+	 */
+	@Override
+	public byte[] deserialize(ByteBuffer buffer) throws IOException {
+		int start = buffer.position();
+		int index = indexOf(buffer, start, Math.min(buffer.limit(), start + this.maxMessageSize), this.terminator);
+		if (index >= 0) {
+			return consumeFrame(buffer, start, index - start, index + 1);
+		}
+		if (buffer.limit() - start >= this.maxMessageSize) {
+			IOException e = new IOException("Terminator '0x" + Integer.toHexString(terminator & 0xff)
+					+ "' not found before max message length: "
+					+ this.maxMessageSize);
+			publishEvent(e, buffer);
+			throw e;
+		}
+		return null;
+	}
+
 	/**
 	 * Writes the byte[] to the stream and appends the terminator.
 	 */
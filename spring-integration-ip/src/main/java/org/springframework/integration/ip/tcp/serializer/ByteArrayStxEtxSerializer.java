@@ -19,6 +19,7 @@ package org.springframework.integration.ip.tcp.serializer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.springframework.integration.mapping.MessageMappingException;
 
@@ -26,11 +27,12 @@ import org.springframework.integration.mapping.MessageMappingException;
  * Reads data in an InputStream to a byte[]; data must be prefixed by &lt;stx&gt; and
  * terminated by &lt;etx&gt; (not included in resulting byte[]).
  * Writes a byte[] to an OutputStream prefixed by &lt;stx&gt; terminated by &lt;etx&gt;
+ * Can also decode frames directly from a {@link ByteBuffer}.
  *
  * @author Gary Russell
  * @since 2.0
  */
-public class ByteArrayStxEtxSerializer extends AbstractByteArraySerializer {
+public class ByteArrayStxEtxSerializer extends AbstractByteArraySerializer implements ByteBufferDeserializer<byte[]> {
 
 	public static final int STX = 0x02;
 
@@ -56,7 +58,7 @@ public class ByteArrayStxEtxSerializer extends AbstractByteArraySerializer {
 			if (bite != STX) {
 				throw new MessageMappingException("Expected STX to begin message");
 			}
-			buffer = new byte[this.maxMessageSize];
+			buffer = acquireBuffer();
 			while ((bite = inputStream.read()) != ETX) {
 				checkClosure(bite);
 				buffer[n++] = (byte) bite;
@@ -67,6 +69,7 @@ public class ByteArrayStxEtxSerializer extends AbstractByteArraySerializer {
 			}
 			byte[] assembledData = new byte[n];
 			System.arraycopy(buffer, 0, assembledData, 0, n);
+			releaseBuffer(buffer);
 			return assembledData;
 		}
 		catch (IOException e) {
@@ -79,6 +82,34 @@ public class ByteArrayStxEtxSerializer extends AbstractByteArraySerializer {
 		}
 	}
 
+	/**
+	 * Decodes the data between an STX and the next ETX in the buffer.
+	 * @since 4.2
+	 */
+	@Override
+	public byte[] deserialize(ByteBuffer buffer) throws IOException {
+		int start = buffer.position();
+		if (start >= buffer.limit()) {
+			return null;
+		}
+		if (buffer.get(start) != STX) {
+			MessageMappingException e = new MessageMappingException("Expected STX to begin message");
+			publishEvent(e, buffer);
+			throw e;
+		}
+		int index = indexOf(buffer, start + 1, Math.min(buffer.limit(), start + 1 + this.maxMessageSize), ETX);
+		if (index >= 0) {
+			return consumeFrame(buffer, start + 1, index - start - 1, index + 1);
+		}
+		if (buffer.limit() - start - 1 >= this.maxMessageSize) {
+			IOException e = new IOException("ETX not found before max message length: "
+					+ this.maxMessageSize);
+			publishEvent(e, buffer);
+			throw e;
+		}
+		return null;
+	}
+
 	/**
 	 * Writes the byte[] to the stream, prefixed by an ASCII STX character and
 	 * terminated with an ASCII ETX character.
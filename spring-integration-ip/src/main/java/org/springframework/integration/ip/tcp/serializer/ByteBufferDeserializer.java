@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ip.tcp.serializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A non-blocking deserializer that decodes complete frames directly from a
+ * {@link ByteBuffer}, as filled by a {@link java.nio.channels.SocketChannel} read.
+ * Unlike an {@link org.springframework.core.serializer.Deserializer}, it never waits
+ * for more data; it is invoked again when more data has been appended to the buffer.
+ * Implementations must be stateless, or keep their state in the buffer, since the
+ * same instance is shared by all connections.
+ *
+ * @param <T> the decoded type.
+ *
+ * @since 4.2
+ */
+public interface ByteBufferDeserializer<T> {
+
+	/**
+	 * Decode the next frame from the buffer, which is ready for reading (the data is
+	 * between its position and limit). If the buffer contains a complete frame, the
+	 * frame (including any framing bytes) is consumed by advancing the position and
+	 * the decoded object is returned; otherwise the position is left unchanged and
+	 * null is returned.
+	 * @param buffer the buffer.
+	 * @return the decoded object, or null if the buffer does not contain a complete frame.
+	 * @throws IOException if the data is invalid, for example a frame exceeds the
+	 * maximum message size.
+	 */
+	T deserialize(ByteBuffer buffer) throws IOException;
+
+}
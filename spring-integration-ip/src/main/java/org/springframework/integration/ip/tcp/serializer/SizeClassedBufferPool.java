@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ip.tcp.serializer;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.Assert;
+
+/**
+ * A {@link BufferPool} that keeps idle buffers in size classes (powers of two, from
+ * {@value #MIN_POOLED_CAPACITY} bytes up to the {@code maxPooledCapacity}). Requests are
+ * rounded up to the next size class; larger requests are allocated on demand and are not
+ * retained when released. Each size class retains at most {@code maxIdlePerClass} buffers.
+ * <p>
+ * Buffers are either all heap or all direct buffers. The counters can be used to
+ * determine the pool's hit ratio.
+ *
+ * @since 4.2
+ */
+public class SizeClassedBufferPool implements BufferPool {
+
+	/**
+	 * The capacity of the smallest size class.
+	 */
+	public static final int MIN_POOLED_CAPACITY = 256;
+
+	private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_POOLED_CAPACITY);
+
+	private final boolean direct;
+
+	private final int maxPooledCapacity;
+
+	private final int maxIdlePerClass;
+
+	private final Queue<ByteBuffer>[] idle;
+
+	private final AtomicInteger[] idleCounts;
+
+	private final AtomicLong acquireCount = new AtomicLong();
+
+	private final AtomicLong allocationCount = new AtomicLong();
+
+	private final AtomicLong releaseCount = new AtomicLong();
+
+	private final AtomicLong discardCount = new AtomicLong();
+
+	/**
+	 * Construct a heap buffer pool for buffers up to 1MB, retaining up to 64 idle
+	 * buffers per size class.
+	 */
+	public SizeClassedBufferPool() {
+		this(false);
+	}
+
+	/**
+	 * Construct a pool for buffers up to 1MB, retaining up to 64 idle buffers per
+	 * size class.
+	 * @param direct true for direct buffers.
+	 */
+	public SizeClassedBufferPool(boolean direct) {
+		this(direct, 1024 * 1024, 64);
+	}
+
+	/**
+	 * Construct a pool.
+	 * @param direct true for direct buffers.
+	 * @param maxPooledCapacity the capacity of the largest size class; rounded up to a
+	 * power of two.
+	 * @param maxIdlePerClass the maximum number of idle buffers retained per size class.
+	 */
+	@SuppressWarnings("unchecked")
+	public SizeClassedBufferPool(boolean direct, int maxPooledCapacity, int maxIdlePerClass) {
+		Assert.isTrue(maxPooledCapacity >= MIN_POOLED_CAPACITY && maxPooledCapacity <= 1 << 30,
+				"'maxPooledCapacity' must be between " + MIN_POOLED_CAPACITY + " and 2^30");
+		Assert.isTrue(maxIdlePerClass >= 0, "'maxIdlePerClass' must not be negative");
+		this.direct = direct;
+		int classes = sizeClass(maxPooledCapacity) + 1;
+		this.maxPooledCapacity = MIN_POOLED_CAPACITY << (classes - 1);
+		this.maxIdlePerClass = maxIdlePerClass;
+		this.idle = new Queue[classes];
+		this.idleCounts = new AtomicInteger[classes];
+		for (int i = 0; i < classes; i++) {
+			this.idle[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+			this.idleCounts[i] = new AtomicInteger();
+		}
+	}
+
+	@Override
+	public ByteBuffer acquire(int capacity) {
+		Assert.isTrue(capacity >= 0, "'capacity' must not be negative");
+		this.acquireCount.incrementAndGet();
+		if (capacity > this.maxPooledCapacity) {
+			return allocate(capacity);
+		}
+		int sizeClass = sizeClass(capacity);
+		ByteBuffer buffer = this.idle[sizeClass].poll();
+		if (buffer == null) {
+			return allocate(MIN_POOLED_CAPACITY << sizeClass);
+		}
+		this.idleCounts[sizeClass].decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	@Override
+	public void release(ByteBuffer buffer) {
+		if (buffer == null) {
+			return;
+		}
+		this.releaseCount.incrementAndGet();
+		int capacity = buffer.capacity();
+		if (buffer.isDirect() != this.direct || capacity > this.maxPooledCapacity
+				|| capacity < MIN_POOLED_CAPACITY || Integer.bitCount(capacity) != 1) {
+			this.discardCount.incrementAndGet();
+			return;
+		}
+		int sizeClass = sizeClass(capacity);
+		if (this.idleCounts[sizeClass].incrementAndGet() > this.maxIdlePerClass) {
+			this.idleCounts[sizeClass].decrementAndGet();
+			this.discardCount.incrementAndGet();
+			return;
+		}
+		this.idle[sizeClass].offer(buffer);
+	}
+
+	private ByteBuffer allocate(int capacity) {
+		this.allocationCount.incrementAndGet();
+		return this.direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+	}
+
+	private static int sizeClass(int capacity) {
+		if (capacity <= MIN_POOLED_CAPACITY) {
+			return 0;
+		}
+		return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SHIFT;
+	}
+
+	public boolean isDirect() {
+		return this.direct;
+	}
+
+	/**
+	 * @return the number of buffers acquired.
+	 */
+	public long getAcquireCount() {
+		return this.acquireCount.get();
+	}
+
+	/**
+	 * @return the number of buffers allocated because no idle buffer was available.
+	 */
+	public long getAllocationCount() {
+		return this.allocationCount.get();
+	}
+
+	/**
+	 * @return the number of buffers released.
+	 */
+	public long getReleaseCount() {
+		return this.releaseCount.get();
+	}
+
+	/**
+	 * @return the number of released buffers that were not retained.
+	 */
+	public long getDiscardCount() {
+		return this.discardCount.get();
+	}
+
+	/**
+	 * @return the number of idle buffers currently retained.
+	 */
+	public int getIdleCount() {
+		int count = 0;
+		for (AtomicInteger idleCount : this.idleCounts) {
+			count += idleCount.get();
+		}
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		return "SizeClassedBufferPool [direct=" + this.direct + ", acquired=" + getAcquireCount()
+				+ ", allocated=" + getAllocationCount() + ", released=" + getReleaseCount()
+				+ ", discarded=" + getDiscardCount() + ", idle=" + getIdleCount() + "]";
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,8 @@ package org.springframework.integration.ip.udp;
 
 import java.io.UnsupportedEncodingException;
 import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.UUID;
 import java.util.regex.Matcher;
@@ -196,38 +198,63 @@ public class DatagramPacketMessageMapper implements InboundMessageMapper<Datagra
 
 	@Override
 	public Message<byte[]> toMessage(DatagramPacket packet) throws Exception {
-		int offset = packet.getOffset();
-		int length = packet.getLength();
+		ByteBuffer buffer = ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength());
+		return doToMessage(buffer, packet.getAddress(), packet.getPort());
+	}
+
+	/**
+	 * Convert a datagram received into a buffer (for example by a
+	 * {@link java.nio.channels.DatagramChannel}) to a message. The data between the
+	 * buffer's position and limit is copied exactly once, into the payload; the buffer
+	 * may be reused as soon as this method returns.
+	 * @param buffer the buffer containing the datagram.
+	 * @param sender the address of the sender.
+	 * @return the message, or null if the datagram was empty.
+	 * @throws Exception any exception.
+	 * @since 4.2
+	 */
+	public Message<byte[]> toMessage(ByteBuffer buffer, InetSocketAddress sender) throws Exception {
+		return doToMessage(buffer, sender.getAddress(), sender.getPort());
+	}
+
+	private Message<byte[]> doToMessage(ByteBuffer buffer, InetAddress address, int port) throws Exception {
+		int length = buffer.remaining();
 		byte[] payload;
-		ByteBuffer buffer = ByteBuffer.wrap(packet.getData(), offset, length);
 		Message<byte[]> message = null;
 		if (this.lengthCheck) {
 			int declaredLength = buffer.getInt();
 			if (declaredLength != (length - 4)) {
 				throw new MessageMappingException("Incorrect length; expected " + (declaredLength + 4) + ", received " + length);
 			}
-			offset += 4;
 			length -= 4;
 		}
-		String hostAddress = packet.getAddress().getHostAddress();
+		String hostAddress = address.getHostAddress();
 		String hostName;
 		if (this.lookupHost) {
-			hostName = packet.getAddress().getHostName();
+			hostName = address.getHostName();
 		} else {
 			hostName = hostAddress;
 		}
-		int port = packet.getPort();
 		// Peek at the message in case they didn't configure us for ack but the sending
 		// side expects it.
 		if (this.acknowledge || startsWith(buffer, IpHeaders.ACK_ADDRESS)) {
 			try {
-				String headers = new String(packet.getData(), offset, length, this.charset);
+				String headers;
+				if (buffer.hasArray()) {
+					headers = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, this.charset);
+				}
+				else {
+					byte[] bytes = new byte[length];
+					buffer.duplicate().get(bytes);
+					headers = new String(bytes, this.charset);
+				}
 				Matcher matcher = udpHeadersPattern.matcher(headers);
 				if (matcher.find()) {
 					// Strip off the ack headers and put in Message headers
 					length = length - matcher.end();
 					payload = new byte[length];
-					System.arraycopy(packet.getData(), offset + matcher.end(), payload, 0, length);
+					buffer.position(buffer.position() + matcher.end());
+					buffer.get(payload);
 					message = getMessageBuilderFactory().withPayload(payload)
 							.setHeader(IpHeaders.ACK_ID, UUID.fromString(matcher.group(2)))
 							.setHeader(IpHeaders.ACK_ADDRESS, matcher.group(1))
@@ -243,7 +270,7 @@ public class DatagramPacketMessageMapper implements InboundMessageMapper<Datagra
 		}
 		if (message == null) {
 			payload = new byte[length];
-			System.arraycopy(packet.getData(), offset, payload, 0, length);
+			buffer.get(payload);
 			if (payload.length > 0) {
 				message = getMessageBuilderFactory().withPayload(payload)
 						.setHeader(IpHeaders.HOSTNAME, hostName)
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ip.udp;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.util.Enumeration;
+
+/**
+ * Creates the {@link DatagramChannel} used by a {@link MulticastReceivingChannelAdapter}
+ * when {@link MulticastReceivingChannelAdapter#setUsingNio(boolean) usingNio}; kept
+ * separate because joining a group with a channel requires Java 7 or later.
+ *
+ * @since 4.2
+ */
+final class MulticastDatagramChannelFactory {
+
+	private MulticastDatagramChannelFactory() {
+		super();
+	}
+
+	/**
+	 * Create a channel bound to the port and join the group on the interface with the
+	 * local address or, if none is set, on the first multicast capable interface that
+	 * is up and is not a loopback interface.
+	 * @param group the multicast group.
+	 * @param port the port.
+	 * @param localAddress the local address, or null.
+	 * @param soReceiveBufferSize the receive buffer size, if greater than 0.
+	 * @return the channel.
+	 * @throws IOException if the channel cannot be created or the group joined.
+	 */
+	static DatagramChannel createChannel(String group, int port, String localAddress, int soReceiveBufferSize)
+			throws IOException {
+		InetAddress groupAddress = InetAddress.getByName(group);
+		DatagramChannel channel = DatagramChannel.open(groupAddress instanceof Inet6Address
+				? StandardProtocolFamily.INET6 : StandardProtocolFamily.INET);
+		try {
+			channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			if (soReceiveBufferSize > 0) {
+				channel.setOption(StandardSocketOptions.SO_RCVBUF, soReceiveBufferSize);
+			}
+			channel.bind(new InetSocketAddress(port));
+			channel.join(groupAddress, getMulticastInterface(localAddress));
+			return channel;
+		}
+		catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static NetworkInterface getMulticastInterface(String localAddress) throws IOException {
+		if (localAddress != null) {
+			NetworkInterface nic = NetworkInterface.getByInetAddress(InetAddress.getByName(localAddress));
+			if (nic == null) {
+				throw new IOException("No network interface has the address " + localAddress);
+			}
+			return nic;
+		}
+		Enumeration<NetworkInterface> nics = NetworkInterface.getNetworkInterfaces();
+		while (nics.hasMoreElements()) {
+			NetworkInterface nic = nics.nextElement();
+			if (nic.isUp() && nic.supportsMulticast() && !nic.isLoopback()) {
+				return nic;
+			}
+		}
+		throw new IOException("No multicast network interface found; set the 'localAddress'");
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,8 +20,11 @@ import java.io.IOException;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.MulticastSocket;
+import java.nio.channels.DatagramChannel;
 
 import org.springframework.messaging.MessagingException;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
 /**
  * Channel adapter that joins a multicast group and receives incoming packets and
@@ -32,6 +35,9 @@ import org.springframework.messaging.MessagingException;
  */
 public class MulticastReceivingChannelAdapter extends UnicastReceivingChannelAdapter {
 
+	private static final boolean nioMulticastAvailable = ClassUtils.isPresent("java.net.StandardProtocolFamily",
+			MulticastReceivingChannelAdapter.class.getClassLoader());
+
 	private String group;
 
 
@@ -80,4 +86,25 @@ public class MulticastReceivingChannelAdapter extends UnicastReceivingChannelAda
 		return super.getSocket();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>Requires Java 7 or later.
+	 */
+	@Override
+	public void setUsingNio(boolean usingNio) {
+		Assert.state(!usingNio || nioMulticastAvailable, "'usingNio' requires Java 7 or later for multicast");
+		super.setUsingNio(usingNio);
+	}
+
+	/**
+	 * Create a channel bound to the port and join the group on the interface with the
+	 * local address or, if none is set, on the first multicast capable interface that
+	 * is up and is not a loopback interface.
+	 */
+	@Override
+	protected DatagramChannel createChannel() throws IOException {
+		return MulticastDatagramChannelFactory.createChannel(this.group, this.getPort(), this.getLocalAddress(),
+				this.getSoReceiveBufferSize());
+	}
+
 }
@@ -21,21 +21,36 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.springframework.integration.ip.AbstractInternetProtocolReceivingChannelAdapter;
 import org.springframework.integration.ip.IpHeaders;
+import org.springframework.integration.ip.tcp.serializer.BufferPool;
+import org.springframework.integration.ip.tcp.serializer.SizeClassedBufferPool;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.MessagingException;
+import org.springframework.util.Assert;
 
 /**
  * A channel adapter to receive incoming UDP packets. Packets can optionally be preceded by a
  * 4 byte length field, used to validate that all data was received. Packets may also contain
  * information indicating an acknowledgment needs to be sent.
+ * <p>
+ * By default, packets are received on a single thread using a {@link DatagramSocket}.
+ * When {@link #setUsingNio(boolean) usingNio} is set, packets are instead received from a
+ * {@link DatagramChannel} into pooled buffers; each packet is copied once, directly into
+ * the message payload.
  *
  * @author Gary Russell
  * @since 2.0
@@ -48,6 +63,22 @@ public class UnicastReceivingChannelAdapter extends AbstractInternetProtocolRece
 
 	private volatile int soSendBufferSize = -1;
 
+	private volatile boolean usingNio;
+
+	private volatile BufferPool bufferPool;
+
+	private volatile int maxPendingPackets = 1000;
+
+	private volatile Semaphore pendingPackets;
+
+	private volatile DatagramChannel channel;
+
+	private final AtomicLong receivedCount = new AtomicLong();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private final AtomicLong oversizedCount = new AtomicLong();
+
 	private static Pattern addressPattern = Pattern.compile("([^:]*):([0-9]*)");
 
 
@@ -77,6 +108,75 @@ public class UnicastReceivingChannelAdapter extends AbstractInternetProtocolRece
 		return true;
 	}
 
+	/**
+	 * If true, receive packets from a {@link DatagramChannel} into pooled buffers instead
+	 * of from a {@link DatagramSocket}; default false. Packets are received on a single
+	 * thread, which only copies each packet into a buffer; mapping and sending the
+	 * messages happens on the task executor. Additional receiving threads would not help,
+	 * since {@link DatagramChannel#receive(ByteBuffer)} is serialized: concurrent
+	 * receives on a channel wait for each other. {@code soTimeout} does not apply.
+	 * Packets larger than the {@link #setReceiveBufferSize(int) receiveBufferSize} are
+	 * discarded rather than truncated.
+	 * @param usingNio true to receive from a {@link DatagramChannel}.
+	 * @since 4.2
+	 */
+	public void setUsingNio(boolean usingNio) {
+		this.usingNio = usingNio;
+	}
+
+	/**
+	 * Set the pool from which receive buffers are obtained when
+	 * {@link #setUsingNio(boolean) usingNio}; by default, a
+	 * {@link SizeClassedBufferPool} of direct buffers.
+	 * @param bufferPool the buffer pool.
+	 * @since 4.2
+	 */
+	public void setBufferPool(BufferPool bufferPool) {
+		Assert.notNull(bufferPool, "'bufferPool' cannot be null");
+		this.bufferPool = bufferPool;
+	}
+
+	/**
+	 * Set the maximum number of packets received from the channel (when
+	 * {@link #setUsingNio(boolean) usingNio}) that may be awaiting mapping on the task
+	 * executor, each holding a
+	 * pooled buffer; when this number is reached, further packets are dropped (and
+	 * counted) rather than queued. Default 1000.
+	 * @param maxPendingPackets the maximum number of pending packets.
+	 * @since 4.2
+	 */
+	public void setMaxPendingPackets(int maxPendingPackets) {
+		Assert.isTrue(maxPendingPackets > 0, "'maxPendingPackets' must be greater than 0");
+		this.maxPendingPackets = maxPendingPackets;
+	}
+
+	/**
+	 * @return the number of packets received.
+	 * @since 4.2
+	 */
+	public long getReceivedCount() {
+		return this.receivedCount.get();
+	}
+
+	/**
+	 * @return the number of packets dropped because they could not be mapped to a
+	 * message, because the task executor rejected them or because
+	 * {@link #setMaxPendingPackets(int) maxPendingPackets} were already pending.
+	 * @since 4.2
+	 */
+	public long getDroppedCount() {
+		return this.droppedCount.get();
+	}
+
+	/**
+	 * @return the number of packets received from the channel that were discarded
+	 * because they exceeded the receive buffer size.
+	 * @since 4.2
+	 */
+	public long getOversizedCount() {
+		return this.oversizedCount.get();
+	}
+
 	@Override
 	protected void onInit() {
 		super.onInit();
@@ -89,13 +189,20 @@ public class UnicastReceivingChannelAdapter extends AbstractInternetProtocolRece
 			logger.debug("UDP Receiver running on port:" + this.getPort());
 		}
 
+		if (this.usingNio) {
+			runChannelReceiver();
+			return;
+		}
+
 		this.setListening(true);
 
 		// Do as little as possible here so we can loop around and catch the next packet.
 		// Just schedule the packet for processing.
 		while (this.isActive()) {
 			try {
-				asyncSendMessage(receive());
+				DatagramPacket packet = receive();
+				this.receivedCount.incrementAndGet();
+				asyncSendMessage(packet);
 			}
 			catch (SocketTimeoutException e) {
 				// continue
@@ -154,6 +261,7 @@ public class UnicastReceivingChannelAdapter extends AbstractInternetProtocolRece
 					}
 				}
 				catch (Exception e) {
+					droppedCount.incrementAndGet();
 					logger.error("Failed to map packet to message ", e);
 				}
 				if (message != null) {
@@ -166,6 +274,113 @@ public class UnicastReceivingChannelAdapter extends AbstractInternetProtocolRece
 		return true;
 	}
 
+	private void runChannelReceiver() {
+		if (this.bufferPool == null) {
+			this.bufferPool = new SizeClassedBufferPool(true, 1024 * 1024, 1024);
+		}
+		this.pendingPackets = new Semaphore(this.maxPendingPackets);
+		DatagramChannel channel = this.getChannel();
+		this.setListening(true);
+		receiveFromChannel(channel);
+		this.setListening(false);
+	}
+
+	private void receiveFromChannel(DatagramChannel channel) {
+		BufferPool bufferPool = this.bufferPool;
+		// one extra byte so that we can detect (and discard) truncated packets
+		int bufferSize = this.getReceiveBufferSize() + 1;
+		while (this.isActive()) {
+			ByteBuffer buffer = bufferPool.acquire(bufferSize);
+			boolean dispatched = false;
+			try {
+				buffer.limit(bufferSize);
+				SocketAddress sender = channel.receive(buffer);
+				if (sender == null) {
+					continue;
+				}
+				this.receivedCount.incrementAndGet();
+				buffer.flip();
+				if (buffer.remaining() == bufferSize) {
+					this.oversizedCount.incrementAndGet();
+					if (logger.isDebugEnabled()) {
+						logger.debug("Discarding packet from " + sender + "; larger than receiveBufferSize ("
+								+ this.getReceiveBufferSize() + ")");
+					}
+				}
+				else if (!this.pendingPackets.tryAcquire()) {
+					this.droppedCount.incrementAndGet();
+					if (logger.isDebugEnabled()) {
+						logger.debug("Dropped packet from " + sender + "; " + this.maxPendingPackets
+								+ " packets are already pending");
+					}
+				}
+				else {
+					dispatched = asyncSendMessage(buffer, (InetSocketAddress) sender, bufferPool);
+					if (!dispatched) {
+						this.pendingPackets.release();
+					}
+				}
+			}
+			catch (ClosedChannelException e) {
+				break;
+			}
+			catch (IOException e) {
+				if (this.isActive()) {
+					logger.error("Failed to receive DatagramPacket", e);
+					this.stop();
+				}
+				break;
+			}
+			finally {
+				if (!dispatched) {
+					bufferPool.release(buffer);
+				}
+			}
+		}
+	}
+
+	private boolean asyncSendMessage(final ByteBuffer buffer, final InetSocketAddress sender,
+			final BufferPool bufferPool) {
+		try {
+			this.getTaskExecutor().execute(new Runnable() {
+
+				@Override
+				public void run() {
+					Message<byte[]> message = null;
+					try {
+						message = mapper.toMessage(buffer, sender);
+						if (logger.isDebugEnabled()) {
+							logger.debug("Received:" + message);
+						}
+					}
+					catch (Exception e) {
+						droppedCount.incrementAndGet();
+						logger.error("Failed to map packet to message ", e);
+					}
+					finally {
+						bufferPool.release(buffer);
+						pendingPackets.release();
+					}
+					if (message != null) {
+						if (message.getHeaders().containsKey(IpHeaders.ACK_ADDRESS)) {
+							sendAck(message);
+						}
+						sendMessage(message);
+					}
+				}
+
+			});
+			return true;
+		}
+		catch (RejectedExecutionException e) {
+			this.droppedCount.incrementAndGet();
+			if (logger.isDebugEnabled()) {
+				logger.debug("Dropped packet from " + sender + "; task executor rejected it", e);
+			}
+			return false;
+		}
+	}
+
 	protected DatagramPacket receive() throws Exception {
 		DatagramSocket socket = this.getSocket();
 		final byte[] buffer = new byte[this.getReceiveBufferSize()];
@@ -206,6 +421,46 @@ public class UnicastReceivingChannelAdapter extends AbstractInternetProtocolRece
 		return this.socket;
 	}
 
+	/**
+	 * @return the channel used when {@link #setUsingNio(boolean) usingNio}, creating it
+	 * if necessary.
+	 * @since 4.2
+	 */
+	protected synchronized DatagramChannel getChannel() {
+		if (this.channel == null) {
+			try {
+				this.channel = createChannel();
+			}
+			catch (IOException e) {
+				throw new MessagingException("failed to create DatagramChannel", e);
+			}
+		}
+		return this.channel;
+	}
+
+	/**
+	 * Create and bind the channel used when {@link #setUsingNio(boolean) usingNio}.
+	 * @return the channel.
+	 * @throws IOException if the channel cannot be created.
+	 * @since 4.2
+	 */
+	protected DatagramChannel createChannel() throws IOException {
+		DatagramChannel channel = DatagramChannel.open();
+		DatagramSocket socket = channel.socket();
+		int soReceiveBufferSize = this.getSoReceiveBufferSize();
+		if (soReceiveBufferSize > 0) {
+			socket.setReceiveBufferSize(soReceiveBufferSize);
+		}
+		String localAddress = this.getLocalAddress();
+		if (localAddress == null) {
+			socket.bind(new InetSocketAddress(this.getPort()));
+		}
+		else {
+			socket.bind(new InetSocketAddress(InetAddress.getByName(localAddress), this.getPort()));
+		}
+		return channel;
+	}
+
 	/**
 	 * Sets timeout and receive buffer size
 	 *
@@ -232,6 +487,16 @@ public class UnicastReceivingChannelAdapter extends AbstractInternetProtocolRece
 		catch (Exception e) {
 			// ignore
 		}
+		DatagramChannel channel = this.channel;
+		if (channel != null) {
+			this.channel = null;
+			try {
+				channel.close();
+			}
+			catch (IOException e) {
+				// ignore
+			}
+		}
 	}
 
 	@Override
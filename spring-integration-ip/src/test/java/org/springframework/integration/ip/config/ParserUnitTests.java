@@ -296,6 +296,8 @@ public class ParserUnitTests {
 		assertFalse((Boolean)mapperAccessor.getPropertyValue("lookupHost"));
 		assertFalse(TestUtils.getPropertyValue(udpIn, "autoStartup", Boolean.class));
 		assertEquals(1234, dfa.getPropertyValue("phase"));
+		assertTrue((Boolean) dfa.getPropertyValue("usingNio"));
+		assertEquals(33, dfa.getPropertyValue("maxPendingPackets"));
 	}
 
 	@Test
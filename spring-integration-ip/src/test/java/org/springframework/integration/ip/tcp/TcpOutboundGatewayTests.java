@@ -41,6 +41,7 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -59,6 +60,7 @@ import org.springframework.core.serializer.DefaultDeserializer;
 import org.springframework.core.serializer.DefaultSerializer;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.integration.MessageTimeoutException;
+import org.springframework.integration.aggregator.CorrelationStrategy;
 import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.ip.tcp.connection.AbstractClientConnectionFactory;
 import org.springframework.integration.ip.tcp.connection.AbstractConnectionFactory;
@@ -301,6 +303,89 @@ public class TcpOutboundGatewayTests {
 		testGoodNetGWTimeoutGuts(port, cccf);
 	}
 
+	@Test
+	public void testCorrelatedMultiplexing() throws Exception {
+		final int port = SocketUtils.findAvailableServerSocket();
+		final int numberOfRequests = 10;
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicReference<ServerSocket> serverSocket = new AtomicReference<ServerSocket>();
+		Executors.newSingleThreadExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					ServerSocket server = ServerSocketFactory.getDefault().createServerSocket(port, 10);
+					serverSocket.set(server);
+					latch.countDown();
+					Socket socket = server.accept();
+					List<String> requests = new ArrayList<String>();
+					// all requests must be in flight before any reply is sent
+					for (int i = 0; i < numberOfRequests; i++) {
+						ObjectInputStream ois = new ObjectInputStream(socket.getInputStream());
+						requests.add((String) ois.readObject());
+					}
+					Collections.reverse(requests);
+					for (String request : requests) {
+						ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
+						oos.writeObject(request.replace("Test", "Reply"));
+					}
+				}
+				catch (Exception e) {
+					if (!done.get()) {
+						e.printStackTrace();
+					}
+				}
+			}
+		});
+		AbstractConnectionFactory ccf = new TcpNetClientConnectionFactory("localhost", port);
+		ccf.setSerializer(new DefaultSerializer());
+		ccf.setDeserializer(new DefaultDeserializer());
+		ccf.setSoTimeout(10000);
+		ccf.setSingleUse(false);
+		ccf.start();
+		assertTrue(latch.await(10000, TimeUnit.MILLISECONDS));
+		final TcpOutboundGateway gateway = new TcpOutboundGateway();
+		gateway.setConnectionFactory(ccf);
+		gateway.setCorrelationStrategy(new CorrelationStrategy() {
+
+			@Override
+			public Object getCorrelationKey(Message<?> message) {
+				String payload = (String) message.getPayload();
+				return payload.substring(payload.indexOf(':') + 1);
+			}
+
+		});
+		gateway.setRemoteTimeout(10000);
+		gateway.setRequiresReply(true);
+		List<Future<Object>> futures = new ArrayList<Future<Object>>();
+		ExecutorService exec = Executors.newFixedThreadPool(numberOfRequests);
+		for (int i = 0; i < numberOfRequests; i++) {
+			final int n = i;
+			futures.add(exec.submit(new Callable<Object>() {
+
+				@Override
+				public Object call() throws Exception {
+					QueueChannel replyChannel = new QueueChannel();
+					gateway.handleMessage(MessageBuilder.withPayload("Test:" + n)
+							.setReplyChannel(replyChannel)
+							.build());
+					return replyChannel.receive(0).getPayload();
+				}
+
+			}));
+		}
+		for (int i = 0; i < numberOfRequests; i++) {
+			assertEquals("Reply:" + i, futures.get(i).get(20, TimeUnit.SECONDS));
+		}
+		Map<?, ?> replies = TestUtils.getPropertyValue(gateway, "multiplexedReplies", Map.class);
+		assertEquals(1, replies.size());
+		assertTrue(((Map<?, ?>) replies.values().iterator().next()).isEmpty());
+		exec.shutdownNow();
+		done.set(true);
+		ccf.stop();
+		serverSocket.get().close();
+	}
+
 	private AbstractClientConnectionFactory buildCF(final int port) {
 		AbstractClientConnectionFactory ccf = new TcpNetClientConnectionFactory("localhost", port);
 		ccf.setSerializer(new DefaultSerializer());
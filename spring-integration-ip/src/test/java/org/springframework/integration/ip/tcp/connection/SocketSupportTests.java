@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,7 @@ import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -41,6 +42,7 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.springframework.messaging.Message;
 import org.springframework.integration.ip.tcp.serializer.ByteArrayCrLfSerializer;
+import org.springframework.integration.ip.tcp.serializer.SizeClassedBufferPool;
 import org.springframework.integration.ip.util.TestingUtilities;
 import org.springframework.messaging.support.GenericMessage;
 import org.springframework.integration.test.util.SocketUtils;
@@ -363,6 +365,62 @@ Certificate fingerprints:
 		assertEquals("Hello, world!", new String((byte[]) messages.get(0).getPayload()));
 	}
 
+	@Test
+	public void testNioSSLDecryptIntoFrameBufferWithBatchedWrites() throws Exception {
+		int port = SocketUtils.findAvailableServerSocket();
+		TcpNioServerConnectionFactory server = new TcpNioServerConnectionFactory(port);
+		DefaultTcpSSLContextSupport sslContextSupport = new DefaultTcpSSLContextSupport("test.ks",
+				"test.truststore.ks", "secret", "secret");
+		sslContextSupport.setProtocol("SSL");
+		DefaultTcpNioSSLConnectionSupport tcpNioConnectionSupport = new DefaultTcpNioSSLConnectionSupport(sslContextSupport);
+		tcpNioConnectionSupport.afterPropertiesSet();
+		server.setTcpNioConnectionSupport(tcpNioConnectionSupport);
+		server.setUsingByteBufferDeserializer(true);
+		server.setBufferPool(new SizeClassedBufferPool(true));
+		final int messageCount = 100;
+		final List<Message<?>> messages = Collections.synchronizedList(new ArrayList<Message<?>>());
+		final CountDownLatch latch = new CountDownLatch(messageCount);
+		server.registerListener(new TcpListener() {
+			public boolean onMessage(Message<?> message) {
+				messages.add(message);
+				latch.countDown();
+				return false;
+			}
+		});
+		server.start();
+		TestingUtilities.waitListening(server, null);
+
+		TcpNioClientConnectionFactory client = new TcpNioClientConnectionFactory("localhost", port);
+		client.setTcpNioConnectionSupport(tcpNioConnectionSupport);
+		client.setWriteBatching(true);
+		client.setMaxWriteLatency(10);
+		client.registerListener(new TcpListener() {
+			public boolean onMessage(Message<?> message) {
+				return false;
+			}
+		});
+		client.start();
+
+		TcpConnection connection = client.getConnection();
+		for (int i = 0; i < messageCount; i++) {
+			connection.send(new GenericMessage<String>("Hello, world! " + i));
+		}
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		for (int i = 0; i < messageCount; i++) {
+			assertEquals("Hello, world! " + i, new String((byte[]) messages.get(i).getPayload()));
+		}
+		TcpNioSSLMetrics serverMetrics = server.getSSLMetrics();
+		TcpNioSSLMetrics clientMetrics = client.getSSLMetrics();
+		assertEquals(1, serverMetrics.getHandshakeCount());
+		assertEquals(1, clientMetrics.getHandshakeCount());
+		assertTrue(clientMetrics.getMaxHandshakeTime() > 0);
+		assertTrue(clientMetrics.getBytesEncrypted() >= messageCount * 16);
+		assertEquals(clientMetrics.getBytesEncrypted(), serverMetrics.getBytesDecrypted());
+		assertTrue(serverMetrics.getDecryptionThroughput() > 0);
+		client.stop();
+		server.stop();
+	}
+
 	@Test
 	public void testNioClientAndServerSSLDifferentContextsLargeDataWithReply() throws Exception {
 		System.setProperty("javax.net.debug", "all"); // SSL activity in the console
@@ -99,6 +99,40 @@ public class TcpNioConnectionReadTests {
 
 
 
+	@Test
+	public void testReadLengthWithByteBufferDeserializer() throws Exception {
+		int port = SocketUtils.findAvailableServerSocket();
+		ByteArrayLengthHeaderSerializer serializer = new ByteArrayLengthHeaderSerializer();
+		final List<Message<?>> responses = new ArrayList<Message<?>>();
+		final Semaphore semaphore = new Semaphore(0);
+		TcpNioServerConnectionFactory scf = new TcpNioServerConnectionFactory(port);
+		scf.setSerializer(serializer);
+		scf.setDeserializer(serializer);
+		scf.setUsingByteBufferDeserializer(true);
+		scf.registerListener(new TcpListener() {
+			@Override
+			public boolean onMessage(Message<?> message) {
+				responses.add(message);
+				semaphore.release();
+				return false;
+			}
+		});
+		scf.start();
+		TestingUtilities.waitListening(scf, null);
+
+		CountDownLatch done = SocketTestUtils.testSendLength(port, latch);
+		latch.countDown();
+		assertTrue(semaphore.tryAcquire(1, 10000, TimeUnit.MILLISECONDS));
+		assertTrue(semaphore.tryAcquire(1, 10000, TimeUnit.MILLISECONDS));
+		assertEquals("Did not receive data", 2, responses.size());
+		assertEquals("Data", SocketTestUtils.TEST_STRING + SocketTestUtils.TEST_STRING,
+				new String((byte[]) responses.get(0).getPayload()));
+		assertEquals("Data", SocketTestUtils.TEST_STRING + SocketTestUtils.TEST_STRING,
+				new String((byte[]) responses.get(1).getPayload()));
+		scf.stop();
+		done.countDown();
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test
 	public void testFragmented() throws Exception {
@@ -18,7 +18,9 @@ package org.springframework.integration.ip.tcp.serializer;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
@@ -27,7 +29,9 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.net.ServerSocketFactory;
@@ -119,6 +123,40 @@ public class DeserializationTests {
 		server.close();
 	}
 
+	@Test
+	public void testReadRawReleasesBuffer() throws Exception {
+		ByteArrayRawSerializer serializer = new ByteArrayRawSerializer();
+		final AtomicInteger acquired = new AtomicInteger();
+		final AtomicInteger released = new AtomicInteger();
+		final BufferPool pool = new SizeClassedBufferPool();
+		serializer.setBufferPool(new BufferPool() {
+
+			@Override
+			public ByteBuffer acquire(int capacity) {
+				acquired.incrementAndGet();
+				return pool.acquire(capacity);
+			}
+
+			@Override
+			public void release(ByteBuffer buffer) {
+				released.incrementAndGet();
+				pool.release(buffer);
+			}
+
+		});
+		assertEquals("foo", new String(serializer.deserialize(new ByteArrayInputStream("foo".getBytes()))));
+		assertEquals(1, acquired.get());
+		assertEquals(1, released.get());
+		try {
+			serializer.deserialize(new ByteArrayInputStream(new byte[0]));
+			fail("expected exception");
+		}
+		catch (SoftEndOfStreamException e) {
+			assertEquals(2, acquired.get());
+			assertEquals(2, released.get());
+		}
+	}
+
 	@Test
 	public void testReadSerialized() throws Exception {
 		int port = SocketUtils.findAvailableServerSocket();
@@ -288,6 +326,55 @@ public class DeserializationTests {
 		assertEquals(2, event.getOffset());
 	}
 
+	@Test
+	public void testByteBufferDeserializers() throws Exception {
+		ByteArrayLengthHeaderSerializer lengthHeader = new ByteArrayLengthHeaderSerializer();
+		ByteBuffer buffer = ByteBuffer.allocate(100);
+		buffer.putInt(3).put("foo".getBytes()).putInt(3).put("ba".getBytes());
+		buffer.flip();
+		assertEquals("foo", new String(lengthHeader.deserialize(buffer)));
+		assertNull(lengthHeader.deserialize(buffer));
+		assertEquals(7, buffer.position());
+		buffer.compact();
+		buffer.put("r".getBytes()).flip();
+		assertEquals("bar", new String(lengthHeader.deserialize(buffer)));
+		assertFalse(buffer.hasRemaining());
+
+		doDeserializeBuffer(new ByteArrayCrLfSerializer(), "foo\r\nbar\r", "foo");
+		doDeserializeBuffer(new ByteArrayLfSerializer(), "foo\nbar", "foo");
+		doDeserializeBuffer(new ByteArraySingleTerminatorSerializer((byte) 'x'), "fooxbar", "foo");
+		doDeserializeBuffer(new ByteArrayStxEtxSerializer(), "\u0002foo\u0003\u0002bar", "foo");
+
+		ByteArrayCrLfSerializer crLf = new ByteArrayCrLfSerializer();
+		crLf.setMaxMessageSize(5);
+		try {
+			crLf.deserialize(ByteBuffer.wrap("foobar".getBytes()));
+			fail("expected exception");
+		}
+		catch (IOException e) {
+			assertThat(e.getMessage(), containsString("CRLF not found before max message length: 5"));
+		}
+		lengthHeader.setMaxMessageSize(5);
+		buffer.clear();
+		buffer.putInt(6).flip();
+		try {
+			lengthHeader.deserialize(buffer);
+			fail("expected exception");
+		}
+		catch (IOException e) {
+			assertThat(e.getMessage(), containsString("Message length 6 exceeds max message length: 5"));
+		}
+	}
+
+	private void doDeserializeBuffer(ByteBufferDeserializer<byte[]> deserializer, String data, String expected)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(data.getBytes());
+		assertEquals(expected, new String(deserializer.deserialize(buffer)));
+		int position = buffer.position();
+		assertNull(deserializer.deserialize(buffer));
+		assertEquals(position, buffer.position());
+	}
+
 	private TcpDeserializationExceptionEvent doDeserialize(AbstractByteArraySerializer deser, String expectedMessage) {
 		return doDeserialize(deser, expectedMessage, "foobar".getBytes(), 5);
 	}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.ip.tcp.serializer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * @since 4.2
+ */
+public class SizeClassedBufferPoolTests {
+
+	@Test
+	public void testSizeClasses() {
+		SizeClassedBufferPool pool = new SizeClassedBufferPool(false, 4096, 2);
+		assertEquals(256, pool.acquire(1).capacity());
+		assertEquals(256, pool.acquire(256).capacity());
+		assertEquals(512, pool.acquire(257).capacity());
+		assertEquals(4096, pool.acquire(4096).capacity());
+		assertEquals(4097, pool.acquire(4097).capacity());
+		assertEquals(5, pool.getAllocationCount());
+	}
+
+	@Test
+	public void testReuse() {
+		SizeClassedBufferPool pool = new SizeClassedBufferPool(true, 4096, 1);
+		ByteBuffer buffer = pool.acquire(1000);
+		assertTrue(buffer.isDirect());
+		buffer.put((byte) 1);
+		pool.release(buffer);
+		ByteBuffer reused = pool.acquire(600);
+		assertSame(buffer, reused);
+		assertEquals(0, reused.position());
+		assertEquals(1024, reused.limit());
+		pool.release(reused);
+		pool.release(pool.acquire(1000));
+		pool.release(ByteBuffer.allocateDirect(1024));
+		pool.release(ByteBuffer.allocate(1024));
+		pool.release(pool.acquire(5000));
+		assertEquals(1, pool.getIdleCount());
+		assertEquals(2, pool.getAllocationCount());
+		assertEquals(3, pool.getDiscardCount());
+		assertEquals(6, pool.getReleaseCount());
+		assertEquals(4, pool.getAcquireCount());
+	}
+
+	@Test
+	public void testDeserializerScratchBuffersArePooled() throws Exception {
+		ByteArrayCrLfSerializer serializer = new ByteArrayCrLfSerializer();
+		SizeClassedBufferPool pool = new SizeClassedBufferPool();
+		serializer.setBufferPool(pool);
+		ByteArrayInputStream inputStream = new ByteArrayInputStream("foo\r\nbar\r\nbaz\r\n".getBytes());
+		assertEquals("foo", new String(serializer.deserialize(inputStream)));
+		assertEquals("bar", new String(serializer.deserialize(inputStream)));
+		assertEquals("baz", new String(serializer.deserialize(inputStream)));
+		assertEquals(3, pool.getAcquireCount());
+		assertEquals(1, pool.getAllocationCount());
+		assertFalse(pool.isDirect());
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@ package org.springframework.integration.ip.udp;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
@@ -25,7 +26,10 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.Inet4Address;
 import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -190,6 +194,37 @@ public class UdpChannelAdapterTests {
 		adapter.stop();
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test @Ignore
+	public void testMulticastChannelReceiver() throws Exception {
+		QueueChannel channel = new QueueChannel(2);
+		int port = SocketUtils.findAvailableUdpSocket();
+		MulticastReceivingChannelAdapter adapter = new MulticastReceivingChannelAdapter("225.6.7.10", port);
+		adapter.setOutputChannel(channel);
+		String nic = SocketTestUtils.chooseANic(true);
+		if (nic == null) {	// no multicast support
+			LogFactory.getLog(this.getClass()).error("No Multicast support");
+			return;
+		}
+		adapter.setLocalAddress(nic);
+		adapter.setUsingNio(true);
+		adapter.start();
+		SocketTestUtils.waitListening(adapter);
+
+		Message<byte[]> message = MessageBuilder.withPayload("ABCD".getBytes()).build();
+		DatagramPacketMessageMapper mapper = new DatagramPacketMessageMapper();
+		DatagramPacket packet = mapper.fromMessage(message);
+		packet.setSocketAddress(new InetSocketAddress("225.6.7.10", port));
+		DatagramSocket datagramSocket = new DatagramSocket(0, Inet4Address.getByName(nic));
+		datagramSocket.send(packet);
+		datagramSocket.close();
+
+		Message<byte[]> receivedMessage = (Message<byte[]>) channel.receive(2000);
+		assertNotNull(receivedMessage);
+		assertEquals(new String(message.getPayload()), new String(receivedMessage.getPayload()));
+		adapter.stop();
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test @Ignore
 	public void testMulticastSender() throws Exception {
@@ -217,6 +252,101 @@ public class UdpChannelAdapterTests {
 		adapter.stop();
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testUnicastChannelReceivers() throws Exception {
+		QueueChannel channel = new QueueChannel(20);
+		int port = SocketUtils.findAvailableUdpSocket();
+		UnicastReceivingChannelAdapter adapter = new UnicastReceivingChannelAdapter(port);
+		adapter.setOutputChannel(channel);
+		adapter.setUsingNio(true);
+		adapter.setReceiveBufferSize(100);
+		adapter.setLookupHost(false);
+		adapter.start();
+		SocketTestUtils.waitListening(adapter);
+
+		DatagramPacketMessageMapper mapper = new DatagramPacketMessageMapper();
+		DatagramSocket datagramSocket = new DatagramSocket(SocketUtils.findAvailableUdpSocket());
+		for (int i = 0; i < 10; i++) {
+			DatagramPacket packet = mapper.fromMessage(MessageBuilder.withPayload("ABCD" + i).build());
+			packet.setSocketAddress(new InetSocketAddress("localhost", port));
+			datagramSocket.send(packet);
+		}
+		DatagramPacket packet = mapper.fromMessage(MessageBuilder.withPayload(new byte[101]).build());
+		packet.setSocketAddress(new InetSocketAddress("localhost", port));
+		datagramSocket.send(packet);
+		datagramSocket.close();
+		Set<String> payloads = new HashSet<String>();
+		for (int i = 0; i < 10; i++) {
+			Message<byte[]> receivedMessage = (Message<byte[]>) channel.receive(10000);
+			assertNotNull(receivedMessage);
+			payloads.add(new String(receivedMessage.getPayload()));
+		}
+		assertEquals(10, payloads.size());
+		assertTrue(payloads.contains("ABCD9"));
+		int n = 0;
+		while (n++ < 100 && adapter.getOversizedCount() < 1) {
+			Thread.sleep(100);
+		}
+		assertEquals(11, adapter.getReceivedCount());
+		assertEquals(1, adapter.getOversizedCount());
+		assertEquals(0, adapter.getDroppedCount());
+		assertNull(channel.receive(0));
+		adapter.stop();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testUnicastChannelReceiversDropWhenTooManyPending() throws Exception {
+		QueueChannel channel = new QueueChannel(20);
+		int port = SocketUtils.findAvailableUdpSocket();
+		UnicastReceivingChannelAdapter adapter = new UnicastReceivingChannelAdapter(port);
+		adapter.setOutputChannel(channel);
+		adapter.setUsingNio(true);
+		adapter.setMaxPendingPackets(2);
+		adapter.setLookupHost(false);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		final CountDownLatch mappingBlocked = new CountDownLatch(1);
+		// occupy the only thread available for mapping packets
+		executor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					mappingBlocked.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+		});
+		adapter.setTaskExecutor(executor);
+		adapter.start();
+		SocketTestUtils.waitListening(adapter);
+
+		DatagramPacketMessageMapper mapper = new DatagramPacketMessageMapper();
+		DatagramSocket datagramSocket = new DatagramSocket(SocketUtils.findAvailableUdpSocket());
+		for (int i = 0; i < 10; i++) {
+			DatagramPacket packet = mapper.fromMessage(MessageBuilder.withPayload("ABCD" + i).build());
+			packet.setSocketAddress(new InetSocketAddress("localhost", port));
+			datagramSocket.send(packet);
+		}
+		datagramSocket.close();
+		int n = 0;
+		while (n++ < 100 && adapter.getReceivedCount() < 10) {
+			Thread.sleep(100);
+		}
+		assertEquals(10, adapter.getReceivedCount());
+		assertEquals(8, adapter.getDroppedCount());
+		mappingBlocked.countDown();
+		assertNotNull(channel.receive(10000));
+		assertNotNull(channel.receive(10000));
+		assertNull(channel.receive(100));
+		adapter.stop();
+		executor.shutdownNow();
+	}
+
 	@Test
 	public void testUnicastReceiverException() throws Exception {
 		SubscribableChannel channel = new DirectChannel();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -24,6 +24,8 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionException;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.integration.util.AbstractExpressionEvaluator;
 import org.springframework.jdbc.core.namedparam.AbstractSqlParameterSource;
@@ -46,6 +48,9 @@ public class ExpressionEvaluatingSqlParameterSourceFactory extends AbstractExpre
 
 	private static final ExpressionParser PARSER = new SpelExpressionParser();
 
+	private static final ExpressionParser COMPILING_PARSER =
+			new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, null));
+
 	private static final Object ERROR = new Object();
 
 	private volatile Map<String, ?> staticParameters;
@@ -58,6 +63,10 @@ public class ExpressionEvaluatingSqlParameterSourceFactory extends AbstractExpre
 	 */
 	private volatile Map<String, Expression[]> parameterExpressions;
 
+	private volatile Map<String, String> parameterExpressionStrings = new HashMap<String, String>();
+
+	private volatile ExpressionParser parser = PARSER;
+
 	public ExpressionEvaluatingSqlParameterSourceFactory() {
 		this.staticParameters = Collections.unmodifiableMap(new HashMap<String, Object>());
 		this.parameterExpressions = new HashMap<String, Expression[]>();
@@ -112,15 +121,30 @@ public class ExpressionEvaluatingSqlParameterSourceFactory extends AbstractExpre
 	public void setParameterExpressions(Map<String, String> parameterExpressions) {
 		Map<String, Expression[]> paramExpressions = new HashMap<String, Expression[]>(parameterExpressions.size());
 		for (Map.Entry<String, String> entry : parameterExpressions.entrySet()) {
-			String key = entry.getKey();
-			String expression = entry.getValue();
-			Expression[] expressions = new Expression[] {
-					PARSER.parseExpression(expression),
-					PARSER.parseExpression("#root.![" + expression + "]")
-			};
-			paramExpressions.put(key, expressions);
+			paramExpressions.put(entry.getKey(), parseExpressions(entry.getValue()));
 		}
 		this.parameterExpressions = paramExpressions;
+		this.parameterExpressionStrings = new HashMap<String, String>(parameterExpressions);
+	}
+
+	/**
+	 * Set to true to parse the parameter expressions with the SpEL compiler enabled
+	 * ({@link SpelCompilerMode#MIXED}); frequently evaluated expressions are then compiled
+	 * to byte code after a few interpreted evaluations. Default false.
+	 *
+	 * @param compileExpressions true to compile expressions.
+	 * @since 4.2
+	 */
+	public void setCompileExpressions(boolean compileExpressions) {
+		this.parser = compileExpressions ? COMPILING_PARSER : PARSER;
+		setParameterExpressions(this.parameterExpressionStrings);
+	}
+
+	private Expression[] parseExpressions(String expression) {
+		return new Expression[] {
+				this.parser.parseExpression(expression),
+				this.parser.parseExpression("#root.![" + expression + "]")
+		};
 	}
 
 	@Override
@@ -178,10 +202,7 @@ public class ExpressionEvaluatingSqlParameterSourceFactory extends AbstractExpre
 			}
 
 			if (!parameterExpressions.containsKey(paramName)) {
-				Expression[] expressions = new Expression[] {
-						PARSER.parseExpression(paramName),
-						PARSER.parseExpression("#root.![" + paramName + "]")
-				};
+				Expression[] expressions = parseExpressions(paramName);
 				ExpressionEvaluatingSqlParameterSourceFactory.this.parameterExpressions.put(paramName, expressions);
 				this.parameterExpressions.put(paramName, expressions);
 			}
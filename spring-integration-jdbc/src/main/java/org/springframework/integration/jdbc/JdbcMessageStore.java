@@ -19,9 +19,12 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -39,10 +42,13 @@ import org.springframework.core.serializer.Serializer;
 import org.springframework.core.serializer.support.DeserializingConverter;
 import org.springframework.core.serializer.support.SerializingConverter;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
 import org.springframework.integration.jdbc.store.JdbcChannelMessageStore;
 import org.springframework.integration.store.AbstractMessageGroupStore;
 import org.springframework.integration.store.MessageGroup;
+import org.springframework.integration.store.MessageGroupMetadata;
 import org.springframework.integration.store.MessageStore;
+import org.springframework.integration.store.SequenceCheckingMessageGroup;
 import org.springframework.integration.store.SimpleMessageGroup;
 import org.springframework.integration.util.UUIDConverter;
 import org.springframework.jdbc.core.JdbcOperations;
@@ -90,8 +96,6 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 	public static final String DEFAULT_TABLE_PREFIX = "INT_";
 
 	private enum Query {
-		GROUP_EXISTS("SELECT COUNT(GROUP_KEY) FROM %PREFIX%MESSAGE_GROUP where GROUP_KEY=? and REGION=?"),
-
 		CREATE_MESSAGE_GROUP("INSERT into %PREFIX%MESSAGE_GROUP" +
 			"(GROUP_KEY, REGION, MARKED, COMPLETE, LAST_RELEASED_SEQUENCE, CREATED_DATE, UPDATED_DATE)"
 			+ " values (?, ?, 0, 0, 0, ?, ?)"),
@@ -110,9 +114,13 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 				"from %PREFIX%MESSAGE where MESSAGE_ID in (select MESSAGE_ID from %PREFIX%GROUP_TO_MESSAGE where GROUP_KEY=? and REGION=?) " +
 				"ORDER BY CREATED_DATE"),
 
-		LIST_MESSAGES_BY_GROUP_KEY("SELECT MESSAGE_ID, MESSAGE_BYTES, CREATED_DATE " +
-				"from %PREFIX%MESSAGE where MESSAGE_ID in (SELECT MESSAGE_ID from %PREFIX%GROUP_TO_MESSAGE where GROUP_KEY = ?) and REGION=? " +
-				"ORDER BY CREATED_DATE"),
+		LIST_MESSAGEIDS_IN_GROUP("SELECT MESSAGE_ID from %PREFIX%GROUP_TO_MESSAGE where GROUP_KEY=? and REGION=?"),
+
+		LIST_MESSAGES_BY_GROUP_KEY("SELECT m.MESSAGE_ID, m.MESSAGE_BYTES, m.CREATED_DATE " +
+				"from %PREFIX%MESSAGE m join %PREFIX%GROUP_TO_MESSAGE g " +
+				"on m.MESSAGE_ID = g.MESSAGE_ID and m.REGION = g.REGION " +
+				"where g.GROUP_KEY = ? and g.REGION = ? " +
+				"ORDER BY m.CREATED_DATE"),
 
 		POLL_FROM_GROUP("SELECT %PREFIX%MESSAGE.MESSAGE_ID, %PREFIX%MESSAGE.MESSAGE_BYTES from %PREFIX%MESSAGE " +
 				"where %PREFIX%MESSAGE.MESSAGE_ID = " +
@@ -129,6 +137,10 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 		GET_GROUP_INFO("SELECT COMPLETE, LAST_RELEASED_SEQUENCE, CREATED_DATE, UPDATED_DATE" +
 				" from %PREFIX%MESSAGE_GROUP where GROUP_KEY = ? and REGION=?"),
 
+		GET_GROUP_INFO_WITH_SIZE("SELECT COMPLETE, LAST_RELEASED_SEQUENCE, CREATED_DATE, UPDATED_DATE, " +
+				"(SELECT COUNT(MESSAGE_ID) from %PREFIX%GROUP_TO_MESSAGE where GROUP_KEY = ? and REGION = ?) as GROUP_SIZE" +
+				" from %PREFIX%MESSAGE_GROUP where GROUP_KEY = ? and REGION=?"),
+
 		GET_MESSAGE("SELECT MESSAGE_ID, CREATED_DATE, MESSAGE_BYTES from %PREFIX%MESSAGE where MESSAGE_ID=? and REGION=?"),
 
 		GET_GROUP_CREATED_DATE("SELECT CREATED_DATE from %PREFIX%MESSAGE_GROUP where GROUP_KEY=? and REGION=?"),
@@ -169,6 +181,8 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 
 	public static final int DEFAULT_LONG_STRING_LENGTH = 2500;
 
+	public static final int DEFAULT_SEQUENCE_NUMBER_CACHE_SIZE = 10000;
+
 	/**
 	 * The name of the message header that stores a flag to indicate that the message has been saved. This is an
 	 * optimization for the put method.
@@ -196,6 +210,26 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 
 	private volatile Map<Query, String> queryCache = new HashMap<Query, String>();
 
+	private volatile boolean lazyLoadMessageGroups;
+
+	private volatile int sequenceNumberCacheSize = DEFAULT_SEQUENCE_NUMBER_CACHE_SIZE;
+
+	/**
+	 * The sequence numbers of recently stored (or checked) messages, by message id, so
+	 * that a lazy group can check sequence numbers without deserializing its messages.
+	 * Messages are immutable, so an entry cannot become stale.
+	 */
+	@SuppressWarnings("serial")
+	private final Map<String, Integer> sequenceNumbers = Collections.synchronizedMap(
+			new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+					return size() > JdbcMessageStore.this.sequenceNumberCacheSize;
+				}
+
+			});
+
 	/**
 	 * Convenient constructor for configuration use.
 	 */
@@ -285,6 +319,40 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 		this.deserializer = new DeserializingConverter((Deserializer) deserializer);
 	}
 
+	/**
+	 * When true, {@link #getMessageGroup(Object)} (and therefore {@link #addMessageToGroup(Object, Message)})
+	 * returns a group that is populated with its metadata and size only, using a single query.
+	 * The messages are fetched from the database on the first call to {@link MessageGroup#getMessages()}
+	 * and a single message is fetched on demand for {@link MessageGroup#getOne()}.
+	 * This avoids loading and deserializing every message of the group each time a message is
+	 * added, for example by an aggregator. The group checks sequence numbers for a sequence
+	 * aware aggregator by listing the message ids of the group only; the sequence numbers of
+	 * messages stored by this store are remembered. Defaults to {@code false}.
+	 *
+	 * @param lazyLoadMessageGroups true to load group messages lazily.
+	 * @since 4.2
+	 * @see #setSequenceNumberCacheSize(int)
+	 */
+	public void setLazyLoadMessageGroups(boolean lazyLoadMessageGroups) {
+		this.lazyLoadMessageGroups = lazyLoadMessageGroups;
+	}
+
+	/**
+	 * The number of message sequence numbers remembered for the sequence checks of
+	 * {@link #setLazyLoadMessageGroups(boolean) lazy} groups. When a group contains a
+	 * message whose sequence number is not remembered, the messages of the group are
+	 * fetched with a single query, so this should be at least the number of messages in
+	 * all the groups being aggregated concurrently. Defaults to
+	 * {@value #DEFAULT_SEQUENCE_NUMBER_CACHE_SIZE}.
+	 *
+	 * @param sequenceNumberCacheSize the cache size.
+	 * @since 4.2
+	 */
+	public void setSequenceNumberCacheSize(int sequenceNumberCacheSize) {
+		Assert.isTrue(sequenceNumberCacheSize >= 0, "'sequenceNumberCacheSize' cannot be negative");
+		this.sequenceNumberCacheSize = sequenceNumberCacheSize;
+	}
+
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		Assert.state(jdbcTemplate != null, "A DataSource or JdbcTemplate must be provided");
@@ -296,6 +364,7 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 		if (message == null) {
 			return null;
 		}
+		this.sequenceNumbers.remove(getKey(id));
 		int updated = jdbcTemplate.update(getQuery(Query.DELETE_MESSAGE), new Object[] { getKey(id), region }, new int[] {
 				Types.VARCHAR, Types.VARCHAR });
 		if (updated != 0) {
@@ -361,13 +430,13 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 	public MessageGroup addMessageToGroup(Object groupId, Message<?> message) {
 		final String groupKey = getKey(groupId);
 		final String messageId = getKey(message.getHeaders().getId());
-		boolean groupNotExist = jdbcTemplate.queryForObject(this.getQuery(Query.GROUP_EXISTS), Integer.class, groupKey, region) < 1;
+		List<Timestamp> existingCreatedDate = jdbcTemplate.queryForList(getQuery(Query.GET_GROUP_CREATED_DATE),
+				Timestamp.class, groupKey, region);
+		boolean groupNotExist = existingCreatedDate.isEmpty();
 
 		final Timestamp updatedDate = new Timestamp(System.currentTimeMillis());
 
-		final Timestamp createdDate = groupNotExist ?
-				updatedDate :
-			    jdbcTemplate.queryForObject(getQuery(Query.GET_GROUP_CREATED_DATE), new Object[] { groupKey, region}, Timestamp.class);
+		final Timestamp createdDate = groupNotExist ? updatedDate : existingCreatedDate.get(0);
 
 		if (groupNotExist){
 			try {
@@ -382,6 +451,9 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 		}
 
 		this.addMessage(message);
+		if (this.lazyLoadMessageGroups) {
+			this.sequenceNumbers.put(messageId, new IntegrationMessageHeaderAccessor(message).getSequenceNumber());
+		}
 
 		jdbcTemplate.update(getQuery(Query.CREATE_GROUP_TO_MESSAGE), new PreparedStatementSetter() {
 			@Override
@@ -419,13 +491,17 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 
 	@Override
 	public MessageGroup getMessageGroup(Object groupId) {
+		if (this.lazyLoadMessageGroups) {
+			MessageGroup messageGroup = doGetLazyMessageGroup(groupId);
+			return messageGroup != null ? messageGroup : new SimpleMessageGroup(groupId);
+		}
 		String key = getKey(groupId);
 		final AtomicReference<Date> createDate = new AtomicReference<Date>();
 		final AtomicReference<Date> updateDate = new AtomicReference<Date>();
 		final AtomicReference<Boolean> completeFlag = new AtomicReference<Boolean>();
 		final AtomicReference<Integer> lastReleasedSequenceRef = new AtomicReference<Integer>();
 
-		List<Message<?>> messages = jdbcTemplate.query(getQuery(Query.LIST_MESSAGES_BY_GROUP_KEY), new Object[] { key, region }, mapper);
+		List<Message<?>> messages = doListMessagesForGroup(key);
 
 		jdbcTemplate.query(getQuery(Query.GET_GROUP_INFO), new Object[] { key, region},
 				new RowCallbackHandler() {
@@ -462,6 +538,20 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 		return messageGroup;
 	}
 
+	@Override
+	public MessageGroupMetadata getGroupMetadata(Object groupId) {
+		MessageGroup messageGroup = doGetLazyMessageGroup(groupId);
+		if (messageGroup == null) {
+			return null;
+		}
+		return new MessageGroupMetadata(messageGroup, false, null);
+	}
+
+	@Override
+	public Message<?> getOneMessageFromGroup(Object groupId) {
+		return doGetFirstMessageForGroup(getKey(groupId));
+	}
+
 	@Override
 	public MessageGroup removeMessageFromGroup(Object groupId, Message<?> messageToRemove) {
 		final String groupKey = getKey(groupId);
@@ -635,6 +725,94 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 		return null;
 	}
 
+	private List<Message<?>> doListMessagesForGroup(String groupKey) {
+		return jdbcTemplate.query(getQuery(Query.LIST_MESSAGES_BY_GROUP_KEY), new Object[] { groupKey, region }, mapper);
+	}
+
+	/**
+	 * Fetch the oldest message of the group, in the same order as the messages of a
+	 * loaded group, limiting the result to a single row.
+	 * @param groupKey the group key.
+	 * @return the message or null if the group is empty.
+	 */
+	private Message<?> doGetFirstMessageForGroup(final String groupKey) {
+		List<Message<?>> messages = jdbcTemplate.query(getQuery(Query.LIST_MESSAGES_BY_GROUP_KEY),
+				new PreparedStatementSetter() {
+
+					@Override
+					public void setValues(PreparedStatement ps) throws SQLException {
+						ps.setMaxRows(1);
+						ps.setString(1, groupKey);
+						ps.setString(2, region);
+					}
+
+				}, mapper);
+		return messages.isEmpty() ? null : messages.get(0);
+	}
+
+	/**
+	 * Determine whether the group contains a message with the sequence number. Only the
+	 * message ids of the group are listed; if the sequence number of any of them is not
+	 * known, e.g. when it was added by another store instance, the messages of the group
+	 * are fetched with a single query.
+	 * @param groupKey the group key.
+	 * @param sequenceNumber the sequence number.
+	 * @return true if a message in the group has the sequence number.
+	 */
+	private boolean doContainsSequenceNumber(String groupKey, int sequenceNumber) {
+		List<String> messageIds = jdbcTemplate.queryForList(getQuery(Query.LIST_MESSAGEIDS_IN_GROUP), String.class,
+				groupKey, region);
+		boolean unknown = false;
+		for (String messageId : messageIds) {
+			Integer memberSequenceNumber = this.sequenceNumbers.get(messageId);
+			if (memberSequenceNumber == null) {
+				unknown = true;
+			}
+			else if (memberSequenceNumber == sequenceNumber) {
+				return true;
+			}
+		}
+		if (!unknown) {
+			return false;
+		}
+		boolean found = false;
+		for (Message<?> member : doListMessagesForGroup(groupKey)) {
+			Integer memberSequenceNumber = new IntegrationMessageHeaderAccessor(member).getSequenceNumber();
+			this.sequenceNumbers.put(getKey(member.getHeaders().getId()), memberSequenceNumber);
+			if (memberSequenceNumber == sequenceNumber) {
+				found = true;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Load the group state and size with a single query; messages are not fetched.
+	 * @param groupId the group id.
+	 * @return the lazy group or null if the group does not exist.
+	 */
+	private LazyMessageGroup doGetLazyMessageGroup(final Object groupId) {
+		final String key = getKey(groupId);
+		List<LazyMessageGroup> groups = jdbcTemplate.query(getQuery(Query.GET_GROUP_INFO_WITH_SIZE),
+				new Object[] { key, region, key, region }, new RowMapper<LazyMessageGroup>() {
+
+					@Override
+					public LazyMessageGroup mapRow(ResultSet rs, int rowNum) throws SQLException {
+						LazyMessageGroup messageGroup = new LazyMessageGroup(groupId, key,
+								rs.getTimestamp("CREATED_DATE").getTime(), rs.getInt("COMPLETE") > 0,
+								rs.getInt("GROUP_SIZE"));
+						messageGroup.setLastReleasedMessageSequenceNumber(rs.getInt("LAST_RELEASED_SEQUENCE"));
+						Timestamp updatedDate = rs.getTimestamp("UPDATED_DATE");
+						if (updatedDate != null) {
+							messageGroup.setLastModified(updatedDate.getTime());
+						}
+						return messageGroup;
+					}
+
+				});
+		return groups.isEmpty() ? null : groups.get(0);
+	}
+
 	private void doCreateMessageGroup(final String groupKey, final Timestamp createdDate){
 		jdbcTemplate.update(getQuery(Query.CREATE_MESSAGE_GROUP), new PreparedStatementSetter() {
 			@Override
@@ -714,4 +892,162 @@ public class JdbcMessageStore extends AbstractMessageGroupStore implements Messa
 
 	}
 
+	/**
+	 * A {@link MessageGroup} populated with the group state and size only; the messages
+	 * are fetched from the database the first time they are requested. Sequence numbers
+	 * are checked without fetching the messages.
+	 */
+	private class LazyMessageGroup implements SequenceCheckingMessageGroup {
+
+		private final Object groupId;
+
+		private final String groupKey;
+
+		private final long timestamp;
+
+		private final int size;
+
+		private volatile boolean complete;
+
+		private volatile long lastModified;
+
+		private volatile int lastReleasedMessageSequence;
+
+		private volatile Collection<Message<?>> messages;
+
+		private volatile Message<?> one;
+
+		private LazyMessageGroup(Object groupId, String groupKey, long timestamp, boolean complete, int size) {
+			this.groupId = groupId;
+			this.groupKey = groupKey;
+			this.timestamp = timestamp;
+			this.complete = complete;
+			this.size = size;
+		}
+
+		@Override
+		public boolean canAdd(Message<?> message) {
+			return true;
+		}
+
+		@Override
+		public boolean canAddInSequence(Message<?> message) {
+			if (size() == 0) {
+				return true;
+			}
+			IntegrationMessageHeaderAccessor messageHeaderAccessor = new IntegrationMessageHeaderAccessor(message);
+			Integer messageSequenceNumber = messageHeaderAccessor.getSequenceNumber();
+			if (messageSequenceNumber != null && messageSequenceNumber > 0) {
+				Integer messageSequenceSize = messageHeaderAccessor.getSequenceSize();
+				return messageSequenceSize.equals(getSequenceSize())
+						&& !containsSequenceNumber(messageSequenceNumber);
+			}
+			return true;
+		}
+
+		private boolean containsSequenceNumber(int sequenceNumber) {
+			Collection<Message<?>> messages = this.messages;
+			if (messages == null) {
+				return doContainsSequenceNumber(this.groupKey, sequenceNumber);
+			}
+			for (Message<?> member : messages) {
+				if (new IntegrationMessageHeaderAccessor(member).getSequenceNumber() == sequenceNumber) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public Collection<Message<?>> getMessages() {
+			if (this.messages == null) {
+				synchronized (this) {
+					if (this.messages == null) {
+						this.messages = Collections.unmodifiableCollection(doListMessagesForGroup(this.groupKey));
+					}
+				}
+			}
+			return this.messages;
+		}
+
+		@Override
+		public Object getGroupId() {
+			return this.groupId;
+		}
+
+		@Override
+		public int getLastReleasedMessageSequenceNumber() {
+			return this.lastReleasedMessageSequence;
+		}
+
+		private void setLastReleasedMessageSequenceNumber(int lastReleasedMessageSequence) {
+			this.lastReleasedMessageSequence = lastReleasedMessageSequence;
+		}
+
+		@Override
+		public boolean isComplete() {
+			return this.complete;
+		}
+
+		@Override
+		public void complete() {
+			this.complete = true;
+		}
+
+		@Override
+		public int getSequenceSize() {
+			Message<?> first = getOne();
+			if (first == null) {
+				return 0;
+			}
+			return new IntegrationMessageHeaderAccessor(first).getSequenceSize();
+		}
+
+		@Override
+		public int size() {
+			Collection<Message<?>> messages = this.messages;
+			return messages != null ? messages.size() : this.size;
+		}
+
+		@Override
+		public Message<?> getOne() {
+			Collection<Message<?>> messages = this.messages;
+			if (messages != null) {
+				return messages.isEmpty() ? null : messages.iterator().next();
+			}
+			if (this.size == 0) {
+				return null;
+			}
+			if (this.one == null) {
+				this.one = doGetFirstMessageForGroup(this.groupKey);
+			}
+			return this.one;
+		}
+
+		@Override
+		public long getTimestamp() {
+			return this.timestamp;
+		}
+
+		@Override
+		public long getLastModified() {
+			return this.lastModified;
+		}
+
+		private void setLastModified(long lastModified) {
+			this.lastModified = lastModified;
+		}
+
+		@Override
+		public String toString() {
+			return "LazyMessageGroup{" +
+					"groupId=" + this.groupId +
+					", size=" + size() +
+					", timestamp=" + this.timestamp +
+					", lastModified=" + this.lastModified +
+					'}';
+		}
+
+	}
+
 }
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.sql.DataSource;
+
+import org.springframework.integration.endpoint.MessageProducerSupport;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.Trigger;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * A message producer that executes a select query and emits the rows while the
+ * (forward-only) cursor is open, instead of materializing the entire result in memory
+ * like the {@link JdbcPollingChannelAdapter}. Rows are fetched from the database
+ * {@link #setFetchSize(int) fetchSize} at a time and are sent either as individual
+ * messages or, when a {@link #setChunkSize(int) chunkSize} greater than 1 is configured,
+ * as messages with a {@code List} payload of up to that many rows.
+ * <p>
+ * When an update query is configured, it is executed after each chunk has been sent;
+ * with {@link #setUpdatePerRow(boolean) updatePerRow}, it is executed as a JDBC batch with
+ * one set of parameters per row of the chunk, otherwise once with the message payload
+ * (the row when the chunk size is 1, otherwise the chunk) as the parameter source root
+ * object.
+ * <p>
+ * The query is executed on the configured {@link Trigger}, or once when the producer is
+ * started if there is no trigger. Some drivers only stream a result set within a
+ * transaction (PostgreSQL, see {@link #setTransactionManager(PlatformTransactionManager)})
+ * or with a special fetch size (MySQL: {@link Integer#MIN_VALUE}, which is applied to the
+ * statement, unlike with a plain {@link JdbcTemplate}); consult the driver
+ * documentation. Downstream processing of a chunk happens on the
+ * querying thread (unless the output channel is asynchronous), so memory remains
+ * bounded by the fetch size and chunk size.
+ *
+ * @since 4.2
+ */
+public class JdbcStreamingMessageProducer extends MessageProducerSupport {
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final NamedParameterJdbcTemplate jdbcOperations;
+
+	private final String selectQuery;
+
+	private volatile RowMapper<?> rowMapper = new ColumnMapRowMapper();
+
+	private volatile SqlParameterSource sqlQueryParameterSource;
+
+	private volatile String updateSql;
+
+	private volatile boolean updatePerRow;
+
+	private volatile SqlParameterSourceFactory sqlParameterSourceFactory = new ExpressionEvaluatingSqlParameterSourceFactory();
+
+	private volatile boolean sqlParameterSourceFactorySet;
+
+	private volatile int chunkSize = 1;
+
+	private volatile Trigger trigger;
+
+	private volatile ScheduledFuture<?> task;
+
+	private volatile TransactionTemplate transactionTemplate;
+
+	/**
+	 * Construct an instance with the {@link DataSource} and the select query to execute.
+	 * @param dataSource the data source.
+	 * @param selectQuery the query.
+	 */
+	public JdbcStreamingMessageProducer(DataSource dataSource, String selectQuery) {
+		Assert.notNull(dataSource, "'dataSource' must not be null");
+		Assert.hasText(selectQuery, "'selectQuery' must not be empty");
+		this.jdbcTemplate = new StreamingJdbcTemplate(dataSource);
+		this.jdbcTemplate.setFetchSize(1000);
+		this.jdbcOperations = new NamedParameterJdbcTemplate(this.jdbcTemplate);
+		this.selectQuery = selectQuery;
+	}
+
+	public void setRowMapper(RowMapper<?> rowMapper) {
+		Assert.notNull(rowMapper, "'rowMapper' must not be null");
+		this.rowMapper = rowMapper;
+	}
+
+	/**
+	 * A source of parameters for the select query.
+	 * @param sqlQueryParameterSource the sql query parameter source to set
+	 */
+	public void setSelectSqlParameterSource(SqlParameterSource sqlQueryParameterSource) {
+		this.sqlQueryParameterSource = sqlQueryParameterSource;
+	}
+
+	public void setUpdateSql(String updateSql) {
+		this.updateSql = updateSql;
+	}
+
+	public void setUpdatePerRow(boolean updatePerRow) {
+		this.updatePerRow = updatePerRow;
+	}
+
+	public void setUpdateSqlParameterSourceFactory(SqlParameterSourceFactory sqlParameterSourceFactory) {
+		this.sqlParameterSourceFactory = sqlParameterSourceFactory;
+		this.sqlParameterSourceFactorySet = true;
+	}
+
+	/**
+	 * The number of rows the driver fetches per round trip. Default 1000. A negative
+	 * value (such as {@link Integer#MIN_VALUE} for MySQL) is also passed to the driver.
+	 * @param fetchSize the fetch size.
+	 * @see JdbcTemplate#setFetchSize(int)
+	 */
+	public void setFetchSize(int fetchSize) {
+		this.jdbcTemplate.setFetchSize(fetchSize);
+	}
+
+	/**
+	 * The maximum number of rows to read per query execution; default unlimited.
+	 * @param maxRows the max rows.
+	 * @see JdbcTemplate#setMaxRows(int)
+	 */
+	public void setMaxRows(int maxRows) {
+		this.jdbcTemplate.setMaxRows(maxRows);
+	}
+
+	/**
+	 * The number of rows per emitted message. When 1 (default) each message payload is a
+	 * single mapped row, otherwise it is a {@code List} of up to this number of rows.
+	 * @param chunkSize the chunk size.
+	 */
+	public void setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "'chunkSize' must be greater than 0");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * The trigger on which the query is executed; if not supplied, the query is executed
+	 * once, when the producer is started.
+	 * @param trigger the trigger.
+	 */
+	public void setTrigger(Trigger trigger) {
+		this.trigger = trigger;
+	}
+
+	/**
+	 * A transaction manager; when provided, each query execution, including the message
+	 * sends and the update queries, runs in a transaction. This is required by some drivers
+	 * to stream the result set and allows the update queries to use the same connection
+	 * as the open cursor.
+	 * @param transactionManager the transaction manager.
+	 */
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = transactionManager == null ? null : new TransactionTemplate(transactionManager);
+	}
+
+	@Override
+	public String getComponentType() {
+		return "jdbc:streaming-inbound-channel-adapter";
+	}
+
+	@Override
+	protected void onInit() {
+		super.onInit();
+		if (!this.sqlParameterSourceFactorySet && this.getBeanFactory() != null) {
+			((ExpressionEvaluatingSqlParameterSourceFactory) this.sqlParameterSourceFactory)
+					.setBeanFactory(this.getBeanFactory());
+		}
+	}
+
+	@Override
+	protected void doStart() {
+		Assert.state(getTaskScheduler() != null, "A 'taskScheduler' is required");
+		Runnable query = new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					executeQuery();
+				}
+				catch (RuntimeException e) {
+					logger.error("Streaming query failed", e);
+				}
+			}
+
+		};
+		if (this.trigger != null) {
+			this.task = getTaskScheduler().schedule(query, this.trigger);
+		}
+		else {
+			this.task = getTaskScheduler().schedule(query, new Date());
+		}
+	}
+
+	@Override
+	protected void doStop() {
+		ScheduledFuture<?> task = this.task;
+		if (task != null) {
+			task.cancel(true);
+			this.task = null;
+		}
+	}
+
+	/**
+	 * Execute the select query, sending the rows (and running the update query) chunk by
+	 * chunk while the cursor is open.
+	 * @return the number of rows read.
+	 */
+	public int executeQuery() {
+		if (this.transactionTemplate != null) {
+			return this.transactionTemplate.execute(new TransactionCallback<Integer>() {
+
+				@Override
+				public Integer doInTransaction(TransactionStatus status) {
+					return doExecuteQuery();
+				}
+
+			});
+		}
+		return doExecuteQuery();
+	}
+
+	private int doExecuteQuery() {
+		ChunkingRowCallbackHandler callbackHandler = new ChunkingRowCallbackHandler();
+		if (this.sqlQueryParameterSource != null) {
+			this.jdbcOperations.query(this.selectQuery, this.sqlQueryParameterSource, callbackHandler);
+		}
+		else {
+			this.jdbcTemplate.query(this.selectQuery, callbackHandler);
+		}
+		callbackHandler.flush();
+		return callbackHandler.rowCount;
+	}
+
+	private void emit(List<Object> chunk, boolean singleRow) {
+		Object payload = singleRow ? chunk.get(0) : chunk;
+		sendMessage(getMessageBuilderFactory().withPayload(payload).build());
+		if (this.updateSql != null) {
+			if (this.updatePerRow) {
+				SqlParameterSource[] parameterSources = new SqlParameterSource[chunk.size()];
+				for (int i = 0; i < parameterSources.length; i++) {
+					parameterSources[i] = this.sqlParameterSourceFactory.createParameterSource(chunk.get(i));
+				}
+				this.jdbcOperations.batchUpdate(this.updateSql, parameterSources);
+			}
+			else {
+				this.jdbcOperations.update(this.updateSql, this.sqlParameterSourceFactory.createParameterSource(payload));
+			}
+		}
+	}
+
+
+	/**
+	 * A {@link JdbcTemplate} that also applies a negative fetch size, which some drivers
+	 * use to stream result sets; {@link JdbcTemplate} only applies positive values.
+	 */
+	private static final class StreamingJdbcTemplate extends JdbcTemplate {
+
+		private StreamingJdbcTemplate(DataSource dataSource) {
+			super(dataSource);
+		}
+
+		@Override
+		protected void applyStatementSettings(Statement stmt) throws SQLException {
+			super.applyStatementSettings(stmt);
+			int fetchSize = getFetchSize();
+			if (fetchSize < 0) {
+				stmt.setFetchSize(fetchSize);
+			}
+		}
+
+	}
+
+
+	private class ChunkingRowCallbackHandler implements RowCallbackHandler {
+
+		private final int chunkSize = JdbcStreamingMessageProducer.this.chunkSize;
+
+		private List<Object> chunk = new ArrayList<Object>(this.chunkSize);
+
+		private int rowCount;
+
+		@Override
+		public void processRow(ResultSet rs) throws SQLException {
+			this.chunk.add(rowMapper.mapRow(rs, this.rowCount++));
+			if (this.chunk.size() >= this.chunkSize) {
+				flush();
+			}
+		}
+
+		private void flush() {
+			if (!this.chunk.isEmpty()) {
+				List<Object> chunk = this.chunk;
+				this.chunk = new ArrayList<Object>(this.chunkSize);
+				emit(chunk, this.chunkSize == 1);
+			}
+		}
+
+	}
+
+}
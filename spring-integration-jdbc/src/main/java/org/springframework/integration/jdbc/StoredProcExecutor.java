@@ -12,10 +12,13 @@
  */
 
 package org.springframework.integration.jdbc;
+import java.sql.CallableStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -32,15 +35,20 @@ import org.springframework.expression.common.LiteralExpression;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.integration.expression.ExpressionUtils;
 import org.springframework.integration.jdbc.storedproc.ProcedureParameter;
+import org.springframework.integration.support.management.ExponentialMovingAverage;
 import org.springframework.integration.support.management.IntegrationManagedResource;
+import org.springframework.integration.support.management.Statistics;
+import org.springframework.jdbc.core.CallableStatementCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.SqlInOutParameter;
 import org.springframework.jdbc.core.SqlOutParameter;
 import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.StatementCreatorUtils;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcCall;
 import org.springframework.jdbc.core.simple.SimpleJdbcCallOperations;
+import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jmx.export.annotation.ManagedAttribute;
 import org.springframework.jmx.export.annotation.ManagedMetric;
 import org.springframework.jmx.export.annotation.ManagedResource;
@@ -69,6 +77,8 @@ import com.google.common.cache.LoadingCache;
 @IntegrationManagedResource
 public class StoredProcExecutor implements BeanFactoryAware, InitializingBean {
 
+	private static final int DEFAULT_MOVING_AVERAGE_WINDOW = 10;
+
 	private volatile EvaluationContext evaluationContext;
 
 	private volatile BeanFactory beanFactory = null;
@@ -137,6 +147,12 @@ public class StoredProcExecutor implements BeanFactoryAware, InitializingBean {
 	private volatile boolean returnValueRequired = false;
 	private volatile Map<String, RowMapper<?>> returningResultSetRowMappers = new HashMap<String, RowMapper<?>>(0);
 
+	private volatile boolean compileParameterExpressions;
+
+	private final ExponentialMovingAverage callDuration = new ExponentialMovingAverage(DEFAULT_MOVING_AVERAGE_WINDOW);
+
+	private final ExponentialMovingAverage batchSize = new ExponentialMovingAverage(DEFAULT_MOVING_AVERAGE_WINDOW);
+
 	private final DataSource dataSource;
 
 	//~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -176,6 +192,7 @@ public class StoredProcExecutor implements BeanFactoryAware, InitializingBean {
 											  new ExpressionEvaluatingSqlParameterSourceFactory();
 
 				expressionSourceFactory.setBeanFactory(this.beanFactory);
+				expressionSourceFactory.setCompileExpressions(this.compileParameterExpressions);
 				expressionSourceFactory.setStaticParameters(ProcedureParameter.convertStaticParameters(procedureParameters));
 				expressionSourceFactory.setParameterExpressions(ProcedureParameter.convertExpressions(procedureParameters));
 
@@ -232,7 +249,7 @@ public class StoredProcExecutor implements BeanFactoryAware, InitializingBean {
 
 	private SimpleJdbcCall createSimpleJdbcCall(String storedProcedureName) {
 
-		final SimpleJdbcCall simpleJdbcCall = new SimpleJdbcCall(this.dataSource);
+		final SimpleJdbcCall simpleJdbcCall = new BatchingSimpleJdbcCall(this.dataSource);
 
 		if (this.isFunction) {
 			simpleJdbcCall.withFunctionName(storedProcedureName);
@@ -327,7 +344,61 @@ public class StoredProcExecutor implements BeanFactoryAware, InitializingBean {
 		SqlParameterSource storedProcedureParameterSource =
 			sqlParameterSourceFactory.createParameterSource(input);
 
-		return localSimpleJdbcCall.execute(storedProcedureParameterSource);
+		long start = System.nanoTime();
+		try {
+			return localSimpleJdbcCall.execute(storedProcedureParameterSource);
+		}
+		finally {
+			this.callDuration.append((System.nanoTime() - start) / 1000000.);
+		}
+
+	}
+
+	/**
+	 * Execute the Stored Procedure once for each {@link Message}. The calls for each
+	 * Stored Procedure name are sent to the database as a single JDBC batch, if the procedure
+	 * has input parameters only (no out parameters, return value or result sets) and the
+	 * driver supports batch updates; otherwise the calls are executed one at a time.
+	 * Any results of the calls are ignored.
+	 *
+	 * @param messages The messages used as the source of the parameters of each call.
+	 * @since 4.2
+	 */
+	public void executeStoredProcedureBatch(List<? extends Message<?>> messages) {
+
+		Assert.notNull(messages, "The messages parameter must not be null.");
+		Assert.notNull(sqlParameterSourceFactory, "Property sqlParameterSourceFactory "
+												+ "was Null. Did you call afterPropertiesSet()?");
+
+		Map<String, List<SqlParameterSource>> calls = new LinkedHashMap<String, List<SqlParameterSource>>();
+		for (Message<?> message : messages) {
+			String storedProcedureName = evaluateExpression(message);
+			List<SqlParameterSource> parameterSources = calls.get(storedProcedureName);
+			if (parameterSources == null) {
+				parameterSources = new ArrayList<SqlParameterSource>();
+				calls.put(storedProcedureName, parameterSources);
+			}
+			parameterSources.add(this.sqlParameterSourceFactory.createParameterSource(
+					this.usePayloadAsParameterSource ? message.getPayload() : message));
+		}
+
+		for (Entry<String, List<SqlParameterSource>> call : calls.entrySet()) {
+			BatchingSimpleJdbcCall jdbcCall =
+					(BatchingSimpleJdbcCall) this.jdbcCallOperationsCache.getUnchecked(call.getKey());
+			List<SqlParameterSource> parameterSources = call.getValue();
+			long start = System.nanoTime();
+			if (jdbcCall.executeBatch(parameterSources)) {
+				this.callDuration.append((System.nanoTime() - start) / 1000000.);
+				this.batchSize.append(parameterSources.size());
+			}
+			else {
+				for (SqlParameterSource parameterSource : parameterSources) {
+					start = System.nanoTime();
+					jdbcCall.execute(parameterSource);
+					this.callDuration.append((System.nanoTime() - start) / 1000000.);
+				}
+			}
+		}
 
 	}
 
@@ -547,6 +618,72 @@ public class StoredProcExecutor implements BeanFactoryAware, InitializingBean {
 		this.returningResultSetRowMappers = returningResultSetRowMappers;
 	}
 
+	/**
+	 * If true, and {@link ProcedureParameter}s are provided, the parameter expressions
+	 * are parsed with the SpEL compiler enabled, so that frequently evaluated expressions
+	 * are compiled to byte code. Defaults to false.
+	 *
+	 * @param compileParameterExpressions true to compile the parameter expressions.
+	 * @since 4.2
+	 * @see ExpressionEvaluatingSqlParameterSourceFactory#setCompileExpressions(boolean)
+	 */
+	public void setCompileParameterExpressions(boolean compileParameterExpressions) {
+		this.compileParameterExpressions = compileParameterExpressions;
+	}
+
+	/**
+	 * @return the statistics of the duration (in milliseconds) of the database calls;
+	 * a batch counts as a single call.
+	 * @since 4.2
+	 */
+	public Statistics getCallDuration() {
+		return this.callDuration.getStatistics();
+	}
+
+	/**
+	 * @return the mean duration (in milliseconds) of the database calls.
+	 * @since 4.2
+	 */
+	@ManagedMetric
+	public double getMeanCallDuration() {
+		return this.callDuration.getMean();
+	}
+
+	/**
+	 * @return the maximum duration (in milliseconds) of the database calls.
+	 * @since 4.2
+	 */
+	@ManagedMetric
+	public double getMaxCallDuration() {
+		return this.callDuration.getMax();
+	}
+
+	/**
+	 * @return the number of database calls, a batch counting as a single call.
+	 * @since 4.2
+	 */
+	@ManagedMetric
+	public long getCallCount() {
+		return this.callDuration.getCountLong();
+	}
+
+	/**
+	 * @return the statistics of the number of calls in each JDBC batch.
+	 * @since 4.2
+	 */
+	public Statistics getBatchSize() {
+		return this.batchSize.getStatistics();
+	}
+
+	/**
+	 * @return the mean number of calls in each JDBC batch.
+	 * @since 4.2
+	 */
+	@ManagedMetric
+	public double getMeanBatchSize() {
+		return this.batchSize.getMean();
+	}
+
 	/**
 	 * Allows for the retrieval of metrics ({@link CacheStats}}) for the
 	 * {@link StoredProcExecutor#jdbcCallOperationsCache}, which is used to store
@@ -615,4 +752,57 @@ public class StoredProcExecutor implements BeanFactoryAware, InitializingBean {
 		this.beanFactory = beanFactory;
 	}
 
+	/**
+	 * A {@link SimpleJdbcCall} that can execute a batch of calls with input parameters only.
+	 */
+	private static class BatchingSimpleJdbcCall extends SimpleJdbcCall {
+
+		private BatchingSimpleJdbcCall(DataSource dataSource) {
+			super(dataSource);
+		}
+
+		/**
+		 * Execute the calls as a JDBC batch.
+		 * @param parameterSources the parameters of each call.
+		 * @return false if the call cannot be batched and nothing was executed.
+		 */
+		private boolean executeBatch(List<SqlParameterSource> parameterSources) {
+			compile();
+			if (isReturnValueRequired()) {
+				return false;
+			}
+			final List<SqlParameter> callParameters = getCallParameters();
+			for (SqlParameter callParameter : callParameters) {
+				if (callParameter instanceof SqlOutParameter || callParameter.isResultsParameter()) {
+					return false;
+				}
+			}
+			final List<Map<String, Object>> batchValues = new ArrayList<Map<String, Object>>(parameterSources.size());
+			for (SqlParameterSource parameterSource : parameterSources) {
+				batchValues.add(matchInParameterValuesWithCallParameters(parameterSource));
+			}
+			return getJdbcTemplate().execute(getCallString(), new CallableStatementCallback<Boolean>() {
+
+				@Override
+				public Boolean doInCallableStatement(CallableStatement cs) throws SQLException {
+					if (!JdbcUtils.supportsBatchUpdates(cs.getConnection())) {
+						return false;
+					}
+					for (Map<String, Object> values : batchValues) {
+						for (int i = 0; i < callParameters.size(); i++) {
+							SqlParameter callParameter = callParameters.get(i);
+							StatementCreatorUtils.setParameterValue(cs, i + 1, callParameter,
+									values.get(callParameter.getName()));
+						}
+						cs.addBatch();
+					}
+					cs.executeBatch();
+					return true;
+				}
+
+			});
+		}
+
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -13,6 +13,8 @@
 
 package org.springframework.integration.jdbc;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.InitializingBean;
@@ -48,6 +50,8 @@ public class StoredProcMessageHandler extends AbstractMessageHandler implements
 
 	private final StoredProcExecutor executor;
 
+	private volatile boolean batchUpdate;
+
 	/**
 	 *
 	 * Constructor passing in the {@link StoredProcExecutor}.
@@ -61,6 +65,20 @@ public class StoredProcMessageHandler extends AbstractMessageHandler implements
 
 	}
 
+	/**
+	 * If true, a message with an {@link Iterable} payload is converted to one call of the
+	 * Stored Procedure per element; each call gets a message with the element as payload
+	 * and the headers of the original message. The calls are executed as a JDBC batch
+	 * where possible, see {@link StoredProcExecutor#executeStoredProcedureBatch(List)}.
+	 * Defaults to false.
+	 *
+	 * @param batchUpdate true to execute one call per element of an {@link Iterable} payload.
+	 * @since 4.2
+	 */
+	public void setBatchUpdate(boolean batchUpdate) {
+		this.batchUpdate = batchUpdate;
+	}
+
 	@Override
 	public String getComponentType() {
 		return "jdbc:stored-proc-outbound-channel-adapter";
@@ -75,6 +93,17 @@ public class StoredProcMessageHandler extends AbstractMessageHandler implements
 	@Override
 	protected void handleMessageInternal(Message<?> message) {
 
+		if (this.batchUpdate && message.getPayload() instanceof Iterable) {
+			List<Message<?>> messages = new ArrayList<Message<?>>();
+			for (Object element : (Iterable<?>) message.getPayload()) {
+				messages.add(getMessageBuilderFactory().withPayload(element)
+						.copyHeaders(message.getHeaders())
+						.build());
+			}
+			executor.executeStoredProcedureBatch(messages);
+			return;
+		}
+
 		Map<String, Object> resultMap = executor.executeStoredProcedure(message);
 
 		if (logger.isDebugEnabled()) {
@@ -61,6 +61,7 @@ public class JdbcMessageStoreParser extends AbstractBeanDefinitionParser {
 		IntegrationNamespaceUtils.setReferenceIfAttributeDefined(builder, element, "deserializer");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "table-prefix", "tablePrefix");
 		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "region", "region");
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "lazy-load-message-groups");
 
 		return builder.getBeanDefinition();
 
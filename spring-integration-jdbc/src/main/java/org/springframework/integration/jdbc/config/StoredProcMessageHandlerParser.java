@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -54,6 +54,7 @@ public class StoredProcMessageHandlerParser extends AbstractOutboundChannelAdapt
 		parserContext.registerBeanComponent(new BeanComponentDefinition(storedProcExecutorBuilderBeanDefinition, storedProcExecutorBeanName));
 
 		builder.addConstructorArgReference(storedProcExecutorBeanName);
+		IntegrationNamespaceUtils.setValueIfAttributeDefined(builder, element, "batch-update");
 
 		return builder.getBeanDefinition();
 
@@ -48,6 +48,7 @@ import org.springframework.integration.jdbc.store.channel.MessageRowMapper;
 import org.springframework.integration.jdbc.store.channel.MySqlChannelMessageStoreQueryProvider;
 import org.springframework.integration.jdbc.store.channel.OracleChannelMessageStoreQueryProvider;
 import org.springframework.integration.jdbc.store.channel.PostgresChannelMessageStoreQueryProvider;
+import org.springframework.integration.jdbc.store.channel.PostgresChannelMessageStoreSubscriber;
 import org.springframework.integration.store.MessageGroup;
 import org.springframework.integration.store.MessageGroupStore;
 import org.springframework.integration.store.MessageStore;
@@ -61,6 +62,7 @@ import org.springframework.integration.transaction.TransactionSynchronizationFac
 import org.springframework.integration.util.UUIDConverter;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
 import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -159,6 +161,8 @@ public class JdbcChannelMessageStore implements PriorityCapableChannelMessageSto
 
 	private BeanFactory beanFactory;
 
+	private volatile String notificationChannel;
+
 	/**
 	 * Convenient constructor for configuration use.
 	 */
@@ -353,6 +357,21 @@ public class JdbcChannelMessageStore implements PriorityCapableChannelMessageSto
 		this.usingIdCache = usingIdCache;
 	}
 
+	/**
+	 * The PostgreSQL notification channel; when set, the store issues a {@code NOTIFY}
+	 * on this channel, with the region and the group key as payload, whenever a message
+	 * is added. Delivery occurs when the inserting transaction commits. A
+	 * {@link PostgresChannelMessageStoreSubscriber} listening on the same channel can
+	 * then wake up the consumers of the channel immediately, so that they no longer
+	 * need to poll at a high rate. Requires the
+	 * {@link PostgresChannelMessageStoreQueryProvider}.
+	 * @param notificationChannel the notification channel.
+	 * @since 4.2
+	 */
+	public void setNotificationChannel(String notificationChannel) {
+		this.notificationChannel = notificationChannel;
+	}
+
 	public void setPriorityEnabled(boolean priorityEnabled) {
 		this.priorityEnabled = priorityEnabled;
 	}
@@ -390,6 +409,10 @@ public class JdbcChannelMessageStore implements PriorityCapableChannelMessageSto
 			this.messageRowMapper = new MessageRowMapper(this.deserializer, this.lobHandler);
 		}
 
+		Assert.state(this.notificationChannel == null
+				|| this.channelMessageStoreQueryProvider instanceof PostgresChannelMessageStoreQueryProvider,
+				"A 'notificationChannel' requires a PostgresChannelMessageStoreQueryProvider");
+
 		if (this.jdbcTemplate.getFetchSize() != 1 && logger.isWarnEnabled()) {
 			logger.warn("The jdbcTemplate's fetchsize is not 1. This may cause FIFO issues with Oracle databases.");
 		}
@@ -451,9 +474,29 @@ public class JdbcChannelMessageStore implements PriorityCapableChannelMessageSto
 			}
 		});
 
+		if (this.notificationChannel != null) {
+			notifyMessageAdded(groupKey);
+		}
+
 		return getMessageGroup(groupId);
 	}
 
+	private void notifyMessageAdded(final String groupKey) {
+		String notifyQuery = ((PostgresChannelMessageStoreQueryProvider) this.channelMessageStoreQueryProvider)
+				.getNotifyQuery();
+		jdbcTemplate.execute(notifyQuery, new PreparedStatementCallback<Object>() {
+
+			@Override
+			public Object doInPreparedStatement(PreparedStatement ps) throws SQLException {
+				ps.setString(1, notificationChannel);
+				ps.setString(2, region + " " + groupKey);
+				ps.execute();
+				return null;
+			}
+
+		});
+	}
+
 	/**
 	 * Helper method that converts the channel id to a UUID using
 	 * {@link UUIDConverter#getUUID(Object)}.
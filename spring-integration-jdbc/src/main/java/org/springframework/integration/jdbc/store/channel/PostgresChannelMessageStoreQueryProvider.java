@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -12,6 +12,8 @@
  */
 package org.springframework.integration.jdbc.store.channel;
 
+import org.springframework.integration.jdbc.store.JdbcChannelMessageStore;
+
 /**
  * @author Gunnar Hillert
  * @author Artem Bilan
@@ -48,4 +50,15 @@ public class PostgresChannelMessageStoreQueryProvider extends AbstractChannelMes
 				"order by MESSAGE_PRIORITY DESC NULLS LAST, CREATED_DATE, MESSAGE_SEQUENCE LIMIT 1 FOR UPDATE";
 	}
 
+	/**
+	 * Query that sends a PostgreSQL notification; the first parameter is the notification
+	 * channel and the second the payload. Used by the {@link JdbcChannelMessageStore} when a
+	 * {@link JdbcChannelMessageStore#setNotificationChannel(String) notificationChannel} is set.
+	 * @return the query.
+	 * @since 4.2
+	 */
+	public String getNotifyQuery() {
+		return "SELECT pg_notify(?, ?)";
+	}
+
 }
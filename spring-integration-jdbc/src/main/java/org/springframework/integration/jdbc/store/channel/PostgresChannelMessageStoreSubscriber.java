@@ -0,0 +1,424 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.springframework.integration.jdbc.store.channel;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.integration.jdbc.store.JdbcChannelMessageStore;
+import org.springframework.integration.store.MessageGroupQueue;
+import org.springframework.integration.util.UUIDConverter;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Listens for the notifications sent by a {@link JdbcChannelMessageStore} with a
+ * {@link JdbcChannelMessageStore#setNotificationChannel(String) notificationChannel} and
+ * wakes up the consumers waiting on the subscribed {@link MessageGroupQueue}s, so that
+ * messages added by any process are received without delay.
+ * <p>
+ * The consumers of a channel backed by such a queue can then use a long
+ * {@code receive-timeout} on their poller instead of a high polling rate; while the
+ * database is idle, they issue a query only when the receive timeout expires.
+ * If the notification connection is lost, the subscriber reconnects after the
+ * {@link #setRecoveryInterval(long) recoveryInterval}, waking up all consumers to make up
+ * for missed notifications; in the meantime the consumers fall back to polling.
+ * <p>
+ * A dedicated connection is held for as long as the subscriber is running, so the
+ * {@link DataSource} should not be a pool that reclaims long-lived connections.
+ * <p>
+ * When the driver supports a blocking wait for notifications
+ * ({@code PGConnection.getNotifications(int)}, PgJDBC 42 and later), the subscriber
+ * uses it: a notification is dispatched as soon as it arrives, and no statement is
+ * executed while the database is idle.
+ * <p>
+ * Older drivers only read notifications from the socket while executing a statement,
+ * so the subscriber then issues a trivial query ({@code SELECT 1}) every
+ * {@link #setPollInterval(long) pollInterval} milliseconds, whether or not messages are
+ * being added. The latency of a notification is then bounded by the poll interval, and
+ * each interval costs a round trip to the database. The default (1 second) keeps the
+ * idle load to about one query per second, at the cost of up to a second of latency;
+ * reduce it if the latency matters more than that load.
+ * <pre class="code">
+ * {@code
+ * <bean id="queue" class="org.springframework.integration.store.MessageGroupQueue">
+ *     <constructor-arg ref="channelStore"/>
+ *     <constructor-arg value="inputChannel"/>
+ * </bean>
+ *
+ * <int:channel id="inputChannel">
+ *     <int:queue ref="queue"/>
+ * </int:channel>
+ *
+ * <bean class="org.springframework.integration.jdbc.store.channel.PostgresChannelMessageStoreSubscriber">
+ *     <constructor-arg ref="dataSource"/>
+ *     <constructor-arg value="int_channel_message"/>
+ *     <property name="subscriptions">
+ *         <map>
+ *             <entry key="inputChannel" value-ref="queue"/>
+ *         </map>
+ *     </property>
+ * </bean>
+ * }
+ * </pre>
+ *
+ * @since 4.2
+ */
+public class PostgresChannelMessageStoreSubscriber implements SmartLifecycle {
+
+	private static final Log logger = LogFactory.getLog(PostgresChannelMessageStoreSubscriber.class);
+
+	private final DataSource dataSource;
+
+	private final String notificationChannel;
+
+	private final ConcurrentMap<String, Set<MessageGroupQueue>> subscriptions =
+			new ConcurrentHashMap<String, Set<MessageGroupQueue>>();
+
+	private volatile String region = JdbcChannelMessageStore.DEFAULT_REGION;
+
+	private volatile Executor taskExecutor;
+
+	private static final long STOP_TIMEOUT = 10000;
+
+	private static final int BLOCKING_WAIT_TIMEOUT = 1000;
+
+	private volatile long pollInterval = 1000;
+
+	private volatile long recoveryInterval = 5000;
+
+	private volatile boolean autoStartup = true;
+
+	private volatile int phase;
+
+	private volatile boolean running;
+
+	private volatile Thread listenerThread;
+
+	private volatile CountDownLatch listenerStopped;
+
+	/**
+	 * @param dataSource the data source providing the notification connection.
+	 * @param notificationChannel the notification channel, as configured on the store.
+	 */
+	public PostgresChannelMessageStoreSubscriber(DataSource dataSource, String notificationChannel) {
+		Assert.notNull(dataSource, "'dataSource' must not be null");
+		Assert.hasText(notificationChannel, "'notificationChannel' must not be empty");
+		Assert.isTrue(notificationChannel.indexOf('"') < 0, "'notificationChannel' must not contain '\"'");
+		this.dataSource = dataSource;
+		this.notificationChannel = notificationChannel;
+	}
+
+	/**
+	 * The region of the store; notifications for other regions are ignored.
+	 * @param region the region.
+	 * @see JdbcChannelMessageStore#setRegion(String)
+	 */
+	public void setRegion(String region) {
+		Assert.hasText(region, "'region' must not be empty");
+		this.region = region;
+	}
+
+	/**
+	 * The executor running the listening loop; by default a thread is created when
+	 * the subscriber is started.
+	 * @param taskExecutor the executor.
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * How often (in milliseconds) received notifications are read from the connection
+	 * when the driver does not support a blocking wait. Each read is a round trip to the
+	 * database, including while idle, and the interval bounds the latency added to the
+	 * delivery of a notification. Default 1000.
+	 * @param pollInterval the poll interval.
+	 */
+	public void setPollInterval(long pollInterval) {
+		Assert.isTrue(pollInterval > 0, "'pollInterval' must be greater than 0");
+		this.pollInterval = pollInterval;
+	}
+
+	/**
+	 * How long (in milliseconds) to wait before reconnecting after a failure. Default 5000.
+	 * @param recoveryInterval the recovery interval.
+	 */
+	public void setRecoveryInterval(long recoveryInterval) {
+		this.recoveryInterval = recoveryInterval;
+	}
+
+	/**
+	 * Set the subscriptions, keyed by the group id (channel name) of each queue.
+	 * @param subscriptions the subscriptions.
+	 */
+	public void setSubscriptions(Map<?, MessageGroupQueue> subscriptions) {
+		for (Map.Entry<?, MessageGroupQueue> entry : subscriptions.entrySet()) {
+			subscribe(entry.getKey(), entry.getValue());
+		}
+	}
+
+	public void setAutoStartup(boolean autoStartup) {
+		this.autoStartup = autoStartup;
+	}
+
+	public void setPhase(int phase) {
+		this.phase = phase;
+	}
+
+	/**
+	 * Wake up the consumers waiting on the queue when a message is added to the group.
+	 * @param groupId the group id of the queue in the store (usually the channel name).
+	 * @param queue the queue.
+	 */
+	public void subscribe(Object groupId, MessageGroupQueue queue) {
+		Assert.notNull(groupId, "'groupId' must not be null");
+		Assert.notNull(queue, "'queue' must not be null");
+		String groupKey = UUIDConverter.getUUID(groupId).toString();
+		Set<MessageGroupQueue> queues = this.subscriptions.get(groupKey);
+		if (queues == null) {
+			queues = new CopyOnWriteArraySet<MessageGroupQueue>();
+			Set<MessageGroupQueue> existing = this.subscriptions.putIfAbsent(groupKey, queues);
+			if (existing != null) {
+				queues = existing;
+			}
+		}
+		queues.add(queue);
+	}
+
+	/**
+	 * Remove a subscription.
+	 * @param groupId the group id.
+	 * @param queue the queue.
+	 */
+	public void unsubscribe(Object groupId, MessageGroupQueue queue) {
+		Set<MessageGroupQueue> queues = this.subscriptions.get(UUIDConverter.getUUID(groupId).toString());
+		if (queues != null) {
+			queues.remove(queue);
+		}
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return this.autoStartup;
+	}
+
+	@Override
+	public int getPhase() {
+		return this.phase;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (!this.running) {
+			if (this.taskExecutor == null) {
+				this.taskExecutor = new SimpleAsyncTaskExecutor("postgres-notifications-");
+			}
+			this.running = true;
+			this.listenerStopped = new CountDownLatch(1);
+			this.taskExecutor.execute(new Listener(this.listenerStopped));
+		}
+	}
+
+	/**
+	 * Stop listening; interrupts the listening thread and waits for it to release the
+	 * notification connection.
+	 */
+	@Override
+	public synchronized void stop() {
+		if (this.running) {
+			this.running = false;
+			Thread thread = this.listenerThread;
+			if (thread != null) {
+				thread.interrupt();
+			}
+			try {
+				if (!this.listenerStopped.await(STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+					logger.warn("Timed out waiting for the listener on channel '" + this.notificationChannel
+							+ "' to stop");
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	private void dispatch(String payload) {
+		int separator = payload == null ? -1 : payload.indexOf(' ');
+		if (separator < 0 || !this.region.equals(payload.substring(0, separator))) {
+			return;
+		}
+		Set<MessageGroupQueue> queues = this.subscriptions.get(payload.substring(separator + 1));
+		if (queues != null) {
+			for (MessageGroupQueue queue : queues) {
+				queue.signalMessagesAvailable();
+			}
+		}
+	}
+
+	private void signalAll() {
+		for (Set<MessageGroupQueue> queues : this.subscriptions.values()) {
+			for (MessageGroupQueue queue : queues) {
+				queue.signalMessagesAvailable();
+			}
+		}
+	}
+
+
+	private class Listener implements Runnable {
+
+		private final CountDownLatch stopped;
+
+		Listener(CountDownLatch stopped) {
+			this.stopped = stopped;
+		}
+
+		@Override
+		public void run() {
+			listenerThread = Thread.currentThread();
+			try {
+				listen();
+			}
+			finally {
+				if (listenerThread == Thread.currentThread()) {
+					listenerThread = null;
+				}
+				// don't leave the interrupt set on a pooled thread
+				Thread.interrupted();
+				this.stopped.countDown();
+			}
+		}
+
+		private void listen() {
+			while (running) {
+				Connection connection = null;
+				try {
+					connection = dataSource.getConnection();
+					connection.setAutoCommit(true);
+					PGConnection pgConnection = connection.unwrap(PGConnection.class);
+					Method blockingWait = ReflectionUtils.findMethod(pgConnection.getClass(), "getNotifications",
+							int.class);
+					if (blockingWait != null) {
+						ReflectionUtils.makeAccessible(blockingWait);
+					}
+					Statement statement = connection.createStatement();
+					try {
+						statement.execute("LISTEN \"" + notificationChannel + "\"");
+						// messages may have been added while we were not listening
+						signalAll();
+						while (running) {
+							PGNotification[] notifications;
+							if (blockingWait != null) {
+								notifications = waitForNotifications(blockingWait, pgConnection);
+							}
+							else {
+								// the driver only reads pending notifications while executing a statement
+								JdbcUtils.closeResultSet(statement.executeQuery("SELECT 1"));
+								notifications = pgConnection.getNotifications();
+							}
+							if (notifications != null) {
+								for (PGNotification notification : notifications) {
+									dispatch(notification.getParameter());
+								}
+							}
+							if (blockingWait == null) {
+								Thread.sleep(pollInterval);
+							}
+						}
+					}
+					finally {
+						JdbcUtils.closeStatement(statement);
+					}
+				}
+				catch (SQLException e) {
+					if (!running) {
+						return;
+					}
+					logger.error("Failed to receive notifications on channel '" + notificationChannel
+							+ "', retrying in " + recoveryInterval + "ms", e);
+					try {
+						Thread.sleep(recoveryInterval);
+					}
+					catch (InterruptedException e1) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				finally {
+					JdbcUtils.closeConnection(connection);
+				}
+			}
+		}
+
+		/**
+		 * Wait for notifications with {@code getNotifications(int)}, for a limited time so
+		 * that a stop is noticed (the socket read is not interruptible).
+		 */
+		private PGNotification[] waitForNotifications(Method blockingWait, PGConnection pgConnection)
+				throws SQLException {
+			try {
+				return (PGNotification[]) blockingWait.invoke(pgConnection, BLOCKING_WAIT_TIMEOUT);
+			}
+			catch (InvocationTargetException e) {
+				Throwable cause = e.getTargetException();
+				if (cause instanceof SQLException) {
+					throw (SQLException) cause;
+				}
+				ReflectionUtils.rethrowRuntimeException(cause);
+				return null;
+			}
+			catch (IllegalAccessException e) {
+				throw new IllegalStateException("Cannot wait for notifications", e);
+			}
+		}
+
+	}
+
+}
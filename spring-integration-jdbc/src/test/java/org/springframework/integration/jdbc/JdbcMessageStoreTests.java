@@ -16,7 +16,10 @@
 
 package org.springframework.integration.jdbc;
 
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
@@ -30,6 +33,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
 
@@ -45,12 +51,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.serializer.Deserializer;
 import org.springframework.core.serializer.Serializer;
 import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.aggregator.AggregatingMessageHandler;
+import org.springframework.integration.aggregator.DefaultAggregatingMessageGroupProcessor;
+import org.springframework.integration.aggregator.SequenceSizeReleaseStrategy;
 import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.history.MessageHistory;
 import org.springframework.integration.store.MessageGroup;
 import org.springframework.integration.store.MessageGroupStore;
 import org.springframework.integration.store.MessageGroupStore.MessageGroupCallback;
+import org.springframework.integration.store.SequenceCheckingMessageGroup;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.test.util.TestUtils;
 import org.springframework.integration.util.UUIDConverter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.messaging.Message;
@@ -235,6 +247,117 @@ public class JdbcMessageStoreTests {
 		assertTrue("Timestamp too early: " + group.getTimestamp() + "<" + now, group.getTimestamp() >= now);
 	}
 
+	@Test
+	@Transactional
+	public void testLazyLoadMessageGroup() throws Exception {
+		messageStore.setLazyLoadMessageGroups(true);
+		String groupId = "X";
+		Message<String> message1 = MessageBuilder.withPayload("foo").setCorrelationId(groupId)
+				.setSequenceNumber(1).setSequenceSize(2).build();
+		Message<String> message2 = MessageBuilder.withPayload("bar").setCorrelationId(groupId)
+				.setSequenceNumber(2).setSequenceSize(2).build();
+		MessageGroup group = messageStore.addMessageToGroup(groupId, message1);
+		assertEquals(1, group.size());
+		group = messageStore.addMessageToGroup(groupId, message2);
+		assertEquals(2, group.size());
+		assertEquals(2, group.getSequenceSize());
+		assertNotNull(group.getOne());
+		assertEquals(2, group.getMessages().size());
+		assertEquals(2, messageStore.getGroupMetadata(groupId).size());
+		assertNotNull(messageStore.getOneMessageFromGroup(groupId));
+		messageStore.completeGroup(groupId);
+		assertTrue(messageStore.getMessageGroup(groupId).isComplete());
+		assertNull(messageStore.getGroupMetadata("Y"));
+		assertEquals(0, messageStore.getMessageGroup("Y").size());
+	}
+
+	@Test
+	@Transactional
+	public void testLazyLoadMessageGroupChecksSequenceNumbers() throws Exception {
+		messageStore.setLazyLoadMessageGroups(true);
+		String groupId = "X";
+		for (int i = 1; i <= 2; i++) {
+			messageStore.addMessageToGroup(groupId, MessageBuilder.withPayload("foo" + i).setCorrelationId(groupId)
+					.setSequenceNumber(i).setSequenceSize(3).build());
+		}
+		Message<String> duplicate = MessageBuilder.withPayload("dup").setCorrelationId(groupId)
+				.setSequenceNumber(2).setSequenceSize(3).build();
+		Message<String> next = MessageBuilder.withPayload("foo3").setCorrelationId(groupId)
+				.setSequenceNumber(3).setSequenceSize(3).build();
+		Message<String> otherSize = MessageBuilder.withPayload("bar").setCorrelationId(groupId)
+				.setSequenceNumber(3).setSequenceSize(4).build();
+		MessageGroup group = messageStore.getMessageGroup(groupId);
+		assertThat(group, instanceOf(SequenceCheckingMessageGroup.class));
+		SequenceCheckingMessageGroup sequenceCheckingGroup = (SequenceCheckingMessageGroup) group;
+		assertFalse(sequenceCheckingGroup.canAddInSequence(duplicate));
+		assertTrue(sequenceCheckingGroup.canAddInSequence(next));
+		assertFalse(sequenceCheckingGroup.canAddInSequence(otherSize));
+		assertNull(TestUtils.getPropertyValue(group, "messages"));
+
+		// another store (e.g. on another node) doesn't know the sequence numbers yet
+		JdbcMessageStore otherStore = new JdbcMessageStore(dataSource);
+		otherStore.setLazyLoadMessageGroups(true);
+		sequenceCheckingGroup = (SequenceCheckingMessageGroup) otherStore.getMessageGroup(groupId);
+		assertFalse(sequenceCheckingGroup.canAddInSequence(duplicate));
+		assertTrue(sequenceCheckingGroup.canAddInSequence(next));
+
+		// nothing is remembered; the group's messages are fetched for each check
+		JdbcMessageStore uncachedStore = new JdbcMessageStore(dataSource);
+		uncachedStore.setLazyLoadMessageGroups(true);
+		uncachedStore.setSequenceNumberCacheSize(0);
+		sequenceCheckingGroup = (SequenceCheckingMessageGroup) uncachedStore.getMessageGroup(groupId);
+		assertFalse(sequenceCheckingGroup.canAddInSequence(duplicate));
+		assertTrue(sequenceCheckingGroup.canAddInSequence(next));
+		assertEquals(0, TestUtils.getPropertyValue(uncachedStore, "sequenceNumbers", Map.class).size());
+	}
+
+	@Test
+	@Transactional
+	@SuppressWarnings("unchecked")
+	public void testLazyLoadMessageGroupSequenceAwareAggregator() throws Exception {
+		messageStore.setLazyLoadMessageGroups(true);
+		AggregatingMessageHandler handler =
+				new AggregatingMessageHandler(new DefaultAggregatingMessageGroupProcessor(), messageStore);
+		QueueChannel outputChannel = new QueueChannel();
+		QueueChannel discardChannel = new QueueChannel();
+		handler.setOutputChannel(outputChannel);
+		handler.setDiscardChannel(discardChannel);
+		handler.setReleaseStrategy(new SequenceSizeReleaseStrategy());
+		String groupId = "X";
+		handler.handleMessage(MessageBuilder.withPayload("foo1").setCorrelationId(groupId)
+				.setSequenceNumber(1).setSequenceSize(2).build());
+		handler.handleMessage(MessageBuilder.withPayload("dup").setCorrelationId(groupId)
+				.setSequenceNumber(1).setSequenceSize(2).build());
+		Message<?> discarded = discardChannel.receive(0);
+		assertNotNull(discarded);
+		assertEquals("dup", discarded.getPayload());
+		handler.handleMessage(MessageBuilder.withPayload("foo2").setCorrelationId(groupId)
+				.setSequenceNumber(2).setSequenceSize(2).build());
+		Message<?> result = outputChannel.receive(0);
+		assertNotNull(result);
+		assertThat((Collection<Object>) result.getPayload(), containsInAnyOrder((Object) "foo1", "foo2"));
+	}
+
+	@Test
+	@Transactional
+	public void testLazyLoadMessageGroupGetOneReturnsOldest() throws Exception {
+		JdbcTemplate template = new JdbcTemplate(dataSource);
+		template.afterPropertiesSet();
+		messageStore.setLazyLoadMessageGroups(true);
+		String groupId = "X";
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < 5; i++) {
+			Message<String> message = MessageBuilder.withPayload("foo" + i).setCorrelationId(groupId).build();
+			messageStore.addMessageToGroup(groupId, message);
+			// message ids are random; make the creation order explicit
+			template.update("UPDATE INT_MESSAGE set CREATED_DATE = ? where MESSAGE_ID = ?",
+					new Timestamp(now - 10000 + i * 1000), UUIDConverter.getUUID(message.getHeaders().getId()).toString());
+		}
+		assertEquals("foo0", messageStore.getMessageGroup(groupId).getOne().getPayload());
+		assertEquals("foo0", messageStore.getOneMessageFromGroup(groupId).getPayload());
+		assertEquals("foo0", messageStore.getMessageGroup(groupId).getMessages().iterator().next().getPayload());
+	}
+
 	@Test
 	@Transactional
 	public void testAddAndRemoveMessageFromMessageGroup() throws Exception {
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.TaskScheduler;
+
+/**
+ * @since 4.2
+ */
+public class JdbcStreamingMessageProducerTests {
+
+	private EmbeddedDatabase embeddedDatabase;
+
+	private JdbcTemplate jdbcTemplate;
+
+	@Before
+	public void setUp() {
+		this.embeddedDatabase = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.DERBY)
+				.addScript("classpath:org/springframework/integration/jdbc/pollingChannelAdapterIntegrationTest.sql")
+				.build();
+		this.jdbcTemplate = new JdbcTemplate(this.embeddedDatabase);
+		for (int i = 0; i < 10; i++) {
+			this.jdbcTemplate.update("insert into item values(?, 2)", i);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		this.embeddedDatabase.shutdown();
+	}
+
+	@Test
+	public void testRowPerMessage() {
+		QueueChannel out = new QueueChannel();
+		JdbcStreamingMessageProducer producer = new JdbcStreamingMessageProducer(this.embeddedDatabase,
+				"select * from item order by id");
+		producer.setOutputChannel(out);
+		producer.setFetchSize(3);
+		producer.setUpdateSql("update item set status = 10 where id = :id");
+		producer.setUpdatePerRow(true);
+		producer.setTransactionManager(new DataSourceTransactionManager(this.embeddedDatabase));
+		producer.afterPropertiesSet();
+		assertEquals(10, producer.executeQuery());
+		for (int i = 0; i < 10; i++) {
+			Message<?> message = out.receive(0);
+			assertTrue(message.getPayload() instanceof Map);
+			assertEquals(i, ((Map<?, ?>) message.getPayload()).get("id"));
+		}
+		assertNull(out.receive(0));
+		assertEquals(Integer.valueOf(10),
+				this.jdbcTemplate.queryForObject("select count(*) from item where status = 10", Integer.class));
+	}
+
+	@Test
+	public void testChunks() {
+		QueueChannel out = new QueueChannel();
+		JdbcStreamingMessageProducer producer = new JdbcStreamingMessageProducer(this.embeddedDatabase,
+				"select * from item order by id");
+		producer.setOutputChannel(out);
+		producer.setChunkSize(4);
+		producer.setUpdateSql("update item set status = 10 where id in (:id)");
+		producer.setTransactionManager(new DataSourceTransactionManager(this.embeddedDatabase));
+		producer.afterPropertiesSet();
+		assertEquals(10, producer.executeQuery());
+		assertEquals(4, ((List<?>) out.receive(0).getPayload()).size());
+		assertEquals(4, ((List<?>) out.receive(0).getPayload()).size());
+		assertEquals(2, ((List<?>) out.receive(0).getPayload()).size());
+		assertNull(out.receive(0));
+		assertEquals(Integer.valueOf(10),
+				this.jdbcTemplate.queryForObject("select count(*) from item where status = 10", Integer.class));
+	}
+
+	@Test
+	public void testSingleUpdatePerRow() {
+		QueueChannel out = new QueueChannel();
+		JdbcStreamingMessageProducer producer = new JdbcStreamingMessageProducer(this.embeddedDatabase,
+				"select * from item order by id");
+		producer.setOutputChannel(out);
+		// the row is the parameter source root, as it is the payload
+		producer.setUpdateSql("update item set status = 10 where id = :id");
+		producer.setTransactionManager(new DataSourceTransactionManager(this.embeddedDatabase));
+		producer.afterPropertiesSet();
+		assertEquals(10, producer.executeQuery());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, ((Map<?, ?>) out.receive(0).getPayload()).get("id"));
+		}
+		assertEquals(Integer.valueOf(10),
+				this.jdbcTemplate.queryForObject("select count(*) from item where status = 10", Integer.class));
+	}
+
+	@Test
+	public void testNegativeFetchSizeIsApplied() throws Exception {
+		DataSource dataSource = mock(DataSource.class);
+		Connection connection = mock(Connection.class);
+		Statement statement = mock(Statement.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+		when(connection.createStatement()).thenReturn(statement);
+		when(statement.executeQuery("select * from item")).thenReturn(mock(ResultSet.class));
+		JdbcStreamingMessageProducer producer = new JdbcStreamingMessageProducer(dataSource, "select * from item");
+		producer.setOutputChannel(new QueueChannel());
+		producer.setFetchSize(Integer.MIN_VALUE);
+		producer.afterPropertiesSet();
+		assertEquals(0, producer.executeQuery());
+		verify(statement).setFetchSize(Integer.MIN_VALUE);
+	}
+
+	@Test
+	public void testStopCancelsSingleQuery() {
+		TaskScheduler scheduler = mock(TaskScheduler.class);
+		ScheduledFuture<?> future = mock(ScheduledFuture.class);
+		doReturn(future).when(scheduler).schedule(any(Runnable.class), any(Date.class));
+		BeanFactory beanFactory = mock(BeanFactory.class);
+		when(beanFactory.containsBean("taskScheduler")).thenReturn(true);
+		when(beanFactory.getBean("taskScheduler", TaskScheduler.class)).thenReturn(scheduler);
+		JdbcStreamingMessageProducer producer = new JdbcStreamingMessageProducer(this.embeddedDatabase,
+				"select * from item order by id");
+		producer.setOutputChannel(new QueueChannel());
+		producer.setBeanFactory(beanFactory);
+		producer.afterPropertiesSet();
+		assertEquals("jdbc:streaming-inbound-channel-adapter", producer.getComponentType());
+		producer.start();
+		producer.stop();
+		verify(future).cancel(true);
+	}
+
+}
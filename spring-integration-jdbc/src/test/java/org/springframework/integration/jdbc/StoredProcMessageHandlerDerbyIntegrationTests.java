@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -178,6 +178,44 @@ public class StoredProcMessageHandlerDerbyIntegrationTests {
 
 	}
 
+	@Test
+	public void testDerbyStoredProcedureBatchInsertWithCompiledExpressions() {
+
+		StoredProcExecutor storedProcExecutor = new StoredProcExecutor(this.embeddedDatabase);
+		StoredProcMessageHandler messageHandler = new StoredProcMessageHandler(storedProcExecutor);
+		messageHandler.setBatchUpdate(true);
+
+		storedProcExecutor.setStoredProcedureName("CREATE_USER");
+
+		final List<ProcedureParameter> procedureParameters = new ArrayList<ProcedureParameter>();
+		procedureParameters.add(new ProcedureParameter("username", null, "payload.username.toUpperCase()"));
+		procedureParameters.add(new ProcedureParameter("password", null, "payload.password"));
+		procedureParameters.add(new ProcedureParameter("email",    null, "headers.domain"));
+
+		storedProcExecutor.setProcedureParameters(procedureParameters);
+		storedProcExecutor.setCompileParameterExpressions(true);
+		storedProcExecutor.setBeanFactory(mock(BeanFactory.class));
+
+		storedProcExecutor.afterPropertiesSet();
+		messageHandler.setBeanFactory(mock(BeanFactory.class));
+		messageHandler.afterPropertiesSet();
+
+		List<User> users = new ArrayList<User>();
+		for (int i = 0; i < 10; i++) {
+			users.add(new User("user" + i, "password" + i, null));
+		}
+		messageHandler.handleMessage(MessageBuilder.withPayload(users).setHeader("domain", "example.com").build());
+
+		assertEquals(Integer.valueOf(10), jdbcTemplate.queryForObject("SELECT COUNT(*) FROM USERS", Integer.class));
+		Map<String, Object> map = jdbcTemplate.queryForMap("SELECT * FROM USERS WHERE USERNAME=?", "USER7");
+		assertEquals("Wrong password", "password7", map.get("PASSWORD"));
+		assertEquals("Wrong email", "example.com", map.get("EMAIL"));
+
+		assertEquals(1, storedProcExecutor.getCallCount());
+		assertEquals(10, storedProcExecutor.getMeanBatchSize(), 0.001);
+
+	}
+
 	@Test
 	public void testDerbyStoredProcedureInsertWithHeaderExpression() {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -27,6 +27,7 @@ import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.integration.endpoint.EventDrivenConsumer;
@@ -157,6 +158,17 @@ public class StoredProcMessageHandlerParserTests {
 
 	}
 
+	@Test
+	public void testBatchUpdateAndCompileParameterExpressionsAreSet() throws Exception {
+		setUp("basicStoredProcOutboundChannelAdapterTest.xml", getClass());
+
+		Object handler = TestUtils.getPropertyValue(this.consumer, "handler");
+		assertTrue(TestUtils.getPropertyValue(handler, "batchUpdate", Boolean.class));
+		assertTrue(TestUtils.getPropertyValue(handler, "executor.compileParameterExpressions", Boolean.class));
+		assertEquals(SpelCompilerMode.MIXED, TestUtils.getPropertyValue(handler,
+				"executor.sqlParameterSourceFactory.parser.configuration.compilerMode"));
+	}
+
 	@Test
 	public void adviceCalled() throws Exception {
 		setUp("advisedStoredProcOutboundChannelAdapterTest.xml", getClass());
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.jdbc.store.channel;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import org.springframework.integration.jdbc.store.JdbcChannelMessageStore;
+import org.springframework.integration.store.MessageGroupQueue;
+import org.springframework.integration.util.UUIDConverter;
+
+/**
+ * @since 4.2
+ */
+public class PostgresChannelMessageStoreSubscriberTests {
+
+	@Test
+	public void testNotificationsAreFetchedAndDispatched() throws Exception {
+		DataSource dataSource = mock(DataSource.class);
+		Connection connection = mock(Connection.class);
+		PGConnection pgConnection = mock(PGConnection.class);
+		Statement statement = mock(Statement.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+		when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+		when(connection.createStatement()).thenReturn(statement);
+		when(statement.executeQuery("SELECT 1")).thenReturn(mock(ResultSet.class));
+		PGNotification notification = mock(PGNotification.class);
+		when(notification.getParameter())
+				.thenReturn(JdbcChannelMessageStore.DEFAULT_REGION + " " + UUIDConverter.getUUID("foo"));
+		PGNotification other = mock(PGNotification.class);
+		when(other.getParameter())
+				.thenReturn(JdbcChannelMessageStore.DEFAULT_REGION + " " + UUIDConverter.getUUID("bar"));
+		when(pgConnection.getNotifications())
+				.thenReturn(null, new PGNotification[] { notification, other }, null);
+
+		final CountDownLatch signalled = new CountDownLatch(2);
+		MessageGroupQueue queue = mock(MessageGroupQueue.class);
+		Answer<Void> countDown = new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				signalled.countDown();
+				return null;
+			}
+
+		};
+		doAnswer(countDown).when(queue).signalMessagesAvailable();
+
+		PostgresChannelMessageStoreSubscriber subscriber =
+				new PostgresChannelMessageStoreSubscriber(dataSource, "int_channel_message");
+		subscriber.setPollInterval(10);
+		subscriber.subscribe("foo", queue);
+		subscriber.start();
+		try {
+			// once on (re)connecting, once for the notification
+			assertTrue(signalled.await(10, TimeUnit.SECONDS));
+		}
+		finally {
+			subscriber.stop();
+		}
+
+		InOrder inOrder = inOrder(statement, pgConnection);
+		inOrder.verify(statement).execute("LISTEN \"int_channel_message\"");
+		inOrder.verify(statement).executeQuery("SELECT 1");
+		inOrder.verify(pgConnection).getNotifications();
+		inOrder.verify(statement).executeQuery("SELECT 1");
+		inOrder.verify(pgConnection).getNotifications();
+		verify(notification, atLeastOnce()).getParameter();
+		// the notification for a group without subscribers is ignored
+		verify(queue, times(2)).signalMessagesAvailable();
+	}
+
+	@Test
+	public void testPollingWakesWithinThePollInterval() throws Exception {
+		DataSource dataSource = mock(DataSource.class);
+		Connection connection = mock(Connection.class);
+		PGConnection pgConnection = mock(PGConnection.class);
+		Statement statement = mock(Statement.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+		when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+		when(connection.createStatement()).thenReturn(statement);
+		when(statement.executeQuery("SELECT 1")).thenReturn(mock(ResultSet.class));
+		final PGNotification notification = mock(PGNotification.class);
+		when(notification.getParameter())
+				.thenReturn(JdbcChannelMessageStore.DEFAULT_REGION + " " + UUIDConverter.getUUID("foo"));
+		final AtomicLong notifiedAt = new AtomicLong();
+		when(pgConnection.getNotifications()).thenAnswer(new Answer<PGNotification[]>() {
+
+			@Override
+			public PGNotification[] answer(InvocationOnMock invocation) throws Throwable {
+				long time = notifiedAt.get();
+				if (time > 0 && notifiedAt.compareAndSet(time, -time)) {
+					return new PGNotification[] { notification };
+				}
+				return null;
+			}
+
+		});
+		final CountDownLatch listening = new CountDownLatch(1);
+		final CountDownLatch signalled = new CountDownLatch(1);
+		final AtomicLong signalledAt = new AtomicLong();
+		MessageGroupQueue queue = mock(MessageGroupQueue.class);
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				if (listening.getCount() > 0) {
+					listening.countDown();
+				}
+				else {
+					signalledAt.set(System.currentTimeMillis());
+					signalled.countDown();
+				}
+				return null;
+			}
+
+		}).when(queue).signalMessagesAvailable();
+
+		PostgresChannelMessageStoreSubscriber subscriber =
+				new PostgresChannelMessageStoreSubscriber(dataSource, "int_channel_message");
+		subscriber.setPollInterval(50);
+		subscriber.subscribe("foo", queue);
+		subscriber.start();
+		try {
+			assertTrue(listening.await(10, TimeUnit.SECONDS));
+			Thread.sleep(100);
+			notifiedAt.set(System.currentTimeMillis());
+			assertTrue(signalled.await(10, TimeUnit.SECONDS));
+			assertThat(signalledAt.get() + notifiedAt.get(), lessThan(500L));
+		}
+		finally {
+			subscriber.stop();
+		}
+	}
+
+	@Test
+	public void testBlockingWaitIsUsedWhenSupported() throws Exception {
+		DataSource dataSource = mock(DataSource.class);
+		Connection connection = mock(Connection.class);
+		BlockingPGConnection pgConnection = mock(BlockingPGConnection.class);
+		Statement statement = mock(Statement.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+		when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+		when(connection.createStatement()).thenReturn(statement);
+		final PGNotification notification = mock(PGNotification.class);
+		when(notification.getParameter())
+				.thenReturn(JdbcChannelMessageStore.DEFAULT_REGION + " " + UUIDConverter.getUUID("foo"));
+		final CountDownLatch notify = new CountDownLatch(1);
+		final AtomicLong notifiedAt = new AtomicLong();
+		when(pgConnection.getNotifications(anyInt())).thenAnswer(new Answer<PGNotification[]>() {
+
+			@Override
+			public PGNotification[] answer(InvocationOnMock invocation) throws Throwable {
+				int timeout = (Integer) invocation.getArguments()[0];
+				try {
+					if (notify.await(timeout, TimeUnit.MILLISECONDS)) {
+						long time = notifiedAt.get();
+						if (time > 0 && notifiedAt.compareAndSet(time, -time)) {
+							return new PGNotification[] { notification };
+						}
+						Thread.sleep(timeout);
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return null;
+			}
+
+		});
+		final CountDownLatch listening = new CountDownLatch(1);
+		final CountDownLatch signalled = new CountDownLatch(1);
+		final AtomicLong signalledAt = new AtomicLong();
+		MessageGroupQueue queue = mock(MessageGroupQueue.class);
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				if (listening.getCount() > 0) {
+					listening.countDown();
+				}
+				else {
+					signalledAt.set(System.currentTimeMillis());
+					signalled.countDown();
+				}
+				return null;
+			}
+
+		}).when(queue).signalMessagesAvailable();
+
+		PostgresChannelMessageStoreSubscriber subscriber =
+				new PostgresChannelMessageStoreSubscriber(dataSource, "int_channel_message");
+		subscriber.setPollInterval(60000);
+		subscriber.subscribe("foo", queue);
+		subscriber.start();
+		try {
+			assertTrue(listening.await(10, TimeUnit.SECONDS));
+			Thread.sleep(100);
+			notifiedAt.set(System.currentTimeMillis());
+			notify.countDown();
+			assertTrue(signalled.await(10, TimeUnit.SECONDS));
+			// well within the poll interval, which is not used
+			assertThat(signalledAt.get() + notifiedAt.get(), lessThan(500L));
+		}
+		finally {
+			subscriber.stop();
+		}
+		verify(statement).execute("LISTEN \"int_channel_message\"");
+		verify(statement, never()).executeQuery("SELECT 1");
+		verify(pgConnection, never()).getNotifications();
+	}
+
+	@Test
+	public void testStopInterruptsListener() throws Exception {
+		DataSource dataSource = mock(DataSource.class);
+		Connection connection = mock(Connection.class);
+		PGConnection pgConnection = mock(PGConnection.class);
+		Statement statement = mock(Statement.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+		when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+		when(connection.createStatement()).thenReturn(statement);
+		when(statement.executeQuery("SELECT 1")).thenReturn(mock(ResultSet.class));
+
+		final CountDownLatch listening = new CountDownLatch(1);
+		MessageGroupQueue queue = mock(MessageGroupQueue.class);
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				listening.countDown();
+				return null;
+			}
+
+		}).when(queue).signalMessagesAvailable();
+
+		PostgresChannelMessageStoreSubscriber subscriber =
+				new PostgresChannelMessageStoreSubscriber(dataSource, "int_channel_message");
+		subscriber.setPollInterval(60000);
+		subscriber.subscribe("foo", queue);
+		subscriber.start();
+		assertTrue(listening.await(10, TimeUnit.SECONDS));
+		long start = System.currentTimeMillis();
+		subscriber.stop();
+		assertTrue(System.currentTimeMillis() - start < 10000);
+		assertFalse(subscriber.isRunning());
+		// the listener has released the notification connection
+		verify(connection).close();
+	}
+
+
+	/**
+	 * The blocking wait of PgJDBC 42 and later.
+	 */
+	interface BlockingPGConnection extends PGConnection {
+
+		PGNotification[] getNotifications(int timeoutMillis) throws SQLException;
+
+	}
+
+}
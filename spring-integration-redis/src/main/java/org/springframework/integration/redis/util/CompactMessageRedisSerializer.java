@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.redis.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.integration.support.serializer.CompactMessageSerializer;
+import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link RedisSerializer} that writes {@link Message}s with a {@link CompactMessageSerializer}
+ * and any other value (such as the group metadata written by the
+ * {@link org.springframework.integration.redis.store.RedisMessageStore}) with Java serialization.
+ * Values written by a {@link JdkSerializationRedisSerializer} (the stores' default) are
+ * still read, so existing data remains readable after switching.
+ * <p>
+ * Select it with {@code setValueSerializer()} on the Redis message stores.
+ *
+ * @since 4.2
+ */
+public class CompactMessageRedisSerializer implements RedisSerializer<Object> {
+
+	private static final byte[] EMPTY_ARRAY = new byte[0];
+
+	private final CompactMessageSerializer messageSerializer;
+
+	private final JdkSerializationRedisSerializer defaultSerializer = new JdkSerializationRedisSerializer();
+
+	public CompactMessageRedisSerializer() {
+		this(new CompactMessageSerializer());
+	}
+
+	public CompactMessageRedisSerializer(CompactMessageSerializer messageSerializer) {
+		Assert.notNull(messageSerializer, "'messageSerializer' must not be null");
+		this.messageSerializer = messageSerializer;
+	}
+
+	@Override
+	public byte[] serialize(Object object) throws SerializationException {
+		if (object == null) {
+			return EMPTY_ARRAY;
+		}
+		if (object instanceof Message) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+			try {
+				this.messageSerializer.serialize((Message<?>) object, out);
+			}
+			catch (IOException e) {
+				throw new SerializationException("Failed to serialize message", e);
+			}
+			return out.toByteArray();
+		}
+		return this.defaultSerializer.serialize(object);
+	}
+
+	@Override
+	public Object deserialize(byte[] bytes) throws SerializationException {
+		if (bytes == null || bytes.length == 0) {
+			return null;
+		}
+		if (!CompactMessageSerializer.isCompactMessage(bytes)) {
+			return this.defaultSerializer.deserialize(bytes);
+		}
+		try {
+			return this.messageSerializer.deserialize(new ByteArrayInputStream(bytes));
+		}
+		catch (IOException e) {
+			throw new SerializationException("Failed to deserialize message", e);
+		}
+	}
+
+}
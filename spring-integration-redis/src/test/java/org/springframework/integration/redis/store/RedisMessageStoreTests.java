@@ -1,5 +1,5 @@
 /*
- * Copyright 2007-2013 the original author or authors
+ * Copyright 2007-2015 the original author or authors
  *
  *     Licensed under the Apache License, Version 2.0 (the "License");
  *     you may not use this file except in compliance with the License.
@@ -34,6 +34,9 @@ import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.history.MessageHistory;
 import org.springframework.integration.redis.rules.RedisAvailable;
 import org.springframework.integration.redis.rules.RedisAvailableTests;
+import org.springframework.integration.redis.util.CompactMessageRedisSerializer;
+import org.springframework.integration.store.MessageGroup;
+import org.springframework.integration.support.MessageBuilder;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.GenericMessage;
 
@@ -153,6 +156,45 @@ public class RedisMessageStoreTests extends RedisAvailableTests {
 		assertEquals("channel", fooChannelHistory.get("type"));
 	}
 
+	@Test
+	@RedisAvailable
+	public void testCompactMessageSerializer() throws Exception {
+		RedisConnectionFactory jcf = this.getConnectionFactoryForTest();
+		RedisMessageStore store = new RedisMessageStore(jcf);
+		store.setValueSerializer(new CompactMessageRedisSerializer());
+
+		Message<?> message = MessageBuilder.withPayload("Hello Redis")
+				.setCorrelationId("foo")
+				.setSequenceNumber(1)
+				.setSequenceSize(2)
+				.setHeader("bar", 42L)
+				.build();
+		store.addMessage(message);
+		assertEquals(message, store.getMessage(message.getHeaders().getId()));
+
+		DirectChannel fooChannel = new DirectChannel();
+		fooChannel.setBeanName("fooChannel");
+		Message<?> historyMessage = MessageHistory.write(new GenericMessage<String>("Hello"), fooChannel);
+		store.addMessage(historyMessage);
+		MessageHistory messageHistory =
+				MessageHistory.read(store.getMessage(historyMessage.getHeaders().getId()));
+		assertNotNull(messageHistory);
+		assertEquals(1, messageHistory.size());
+		assertEquals("fooChannel", messageHistory.get(0).get("name"));
+
+		// the group metadata is still written with Java serialization
+		store.addMessageToGroup("foo", message);
+		MessageGroup group = store.getMessageGroup("foo");
+		assertEquals(1, group.size());
+		assertEquals(message, group.getOne());
+		store.removeMessageGroup("foo");
+
+		// messages written with the default serializer remain readable
+		Message<String> javaMessage = new GenericMessage<String>("Hello Java");
+		new RedisMessageStore(jcf).addMessage(javaMessage);
+		assertEquals(javaMessage, store.getMessage(javaMessage.getHeaders().getId()));
+	}
+
 	@SuppressWarnings("serial")
 	public static class Person implements Serializable{
 		private Address address;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,9 +15,14 @@
  */
 package org.springframework.integration.sftp.config;
 
+import org.w3c.dom.Element;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.integration.file.config.RemoteFileOutboundChannelAdapterParser;
 import org.springframework.integration.file.remote.RemoteFileOperations;
 import org.springframework.integration.sftp.session.SftpRemoteFileTemplate;
+import org.springframework.util.StringUtils;
 
 /**
  * Parser for SFTP Outbound Channel Adapters.
@@ -33,4 +38,20 @@ public class SftpOutboundChannelAdapterParser extends RemoteFileOutboundChannelA
 		return SftpRemoteFileTemplate.class;
 	}
 
+	@Override
+	protected void postProcessTemplate(Element element, BeanDefinition templateDefinition) {
+		String uploadConcurrency = element.getAttribute("upload-concurrency");
+		if (StringUtils.hasText(uploadConcurrency)) {
+			templateDefinition.getPropertyValues().add("uploadConcurrency", uploadConcurrency);
+		}
+		String multipartThreshold = element.getAttribute("multipart-threshold");
+		if (StringUtils.hasText(multipartThreshold)) {
+			templateDefinition.getPropertyValues().add("multipartThreshold", multipartThreshold);
+		}
+		String taskExecutor = element.getAttribute("task-executor");
+		if (StringUtils.hasText(taskExecutor)) {
+			templateDefinition.getPropertyValues().add("taskExecutor", new RuntimeBeanReference(taskExecutor));
+		}
+	}
+
 }
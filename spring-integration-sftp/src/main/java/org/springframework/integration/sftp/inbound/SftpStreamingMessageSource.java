@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.sftp.inbound;
+
+import org.springframework.integration.file.remote.AbstractRemoteFileStreamingMessageSource;
+import org.springframework.integration.file.remote.RemoteFileTemplate;
+import org.springframework.integration.metadata.SimpleMetadataStore;
+import org.springframework.integration.sftp.filters.SftpPersistentAcceptOnceFileListFilter;
+
+import com.jcraft.jsch.ChannelSftp.LsEntry;
+
+/**
+ * A {@link org.springframework.integration.core.MessageSource} implementation for SFTP
+ * that emits each remote file as an {@link java.io.InputStream}. By default, each file
+ * is emitted once by name (and modified time), using an in-memory
+ * {@link SftpPersistentAcceptOnceFileListFilter}.
+ *
+ * @since 4.2
+ */
+public class SftpStreamingMessageSource extends AbstractRemoteFileStreamingMessageSource<LsEntry> {
+
+	public SftpStreamingMessageSource(RemoteFileTemplate<LsEntry> template) {
+		super(template);
+		setFilter(new SftpPersistentAcceptOnceFileListFilter(new SimpleMetadataStore(), "sftpStreamingMessageSource"));
+	}
+
+	@Override
+	public String getComponentType() {
+		return "SFTP Streaming Message Source";
+	}
+
+	@Override
+	protected boolean isFile(LsEntry file) {
+		return file.getAttrs() != null && !file.getAttrs().isDir() && !file.getAttrs().isLink();
+	}
+
+	@Override
+	protected String getFilename(LsEntry file) {
+		return file.getFilename();
+	}
+
+	@Override
+	protected long getSize(LsEntry file) {
+		return file.getAttrs().getSize();
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,9 @@
 package org.springframework.integration.sftp.session;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
+import org.springframework.core.NestedIOException;
 import org.springframework.integration.file.remote.ClientCallback;
 import org.springframework.integration.file.remote.RemoteFileTemplate;
 import org.springframework.integration.file.remote.SessionCallback;
@@ -73,6 +75,19 @@ public class SftpRemoteFileTemplate extends RemoteFileTemplate<LsEntry> {
 		});
 	}
 
-
+	/**
+	 * Open the remote file with {@link ChannelSftp#OVERWRITE} mode at the offset,
+	 * truncating it if it exists; so parts of large files can be uploaded in parallel.
+	 * @since 4.2
+	 */
+	@Override
+	protected OutputStream openForWrite(Session<LsEntry> session, String path, long offset) throws IOException {
+		try {
+			return ((ChannelSftp) session.getClientInstance()).put(path, null, ChannelSftp.OVERWRITE, offset);
+		}
+		catch (SftpException e) {
+			throw new NestedIOException("Failed to open " + path + " for writing at offset " + offset, e);
+		}
+	}
 
 }
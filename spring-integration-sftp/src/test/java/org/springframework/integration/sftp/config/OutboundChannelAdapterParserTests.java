@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -84,6 +84,9 @@ public class OutboundChannelAdapterParserTests {
 		assertEquals("localhost", TestUtils.getPropertyValue(clientFactory, "host"));
 		assertEquals(2222, TestUtils.getPropertyValue(clientFactory, "port"));
 		assertEquals(23, TestUtils.getPropertyValue(handler, "order"));
+		assertEquals(4, TestUtils.getPropertyValue(handler, "remoteFileTemplate.uploadConcurrency"));
+		assertEquals(1024L, TestUtils.getPropertyValue(handler, "remoteFileTemplate.multipartThreshold"));
+		assertSame(context.getBean("uploadExecutor"), TestUtils.getPropertyValue(handler, "remoteFileTemplate.taskExecutor"));
 		//verify subscription order
 		@SuppressWarnings("unchecked")
 		Set<MessageHandler> handlers = (Set<MessageHandler>) TestUtils
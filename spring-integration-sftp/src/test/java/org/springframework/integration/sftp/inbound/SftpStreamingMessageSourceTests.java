@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.integration.sftp.inbound;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.remote.RemoteFileTemplate;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.messaging.Message;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.ChannelSftp.LsEntry;
+import com.jcraft.jsch.SftpATTRS;
+
+/**
+ * @since 4.2
+ */
+public class SftpStreamingMessageSourceTests {
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testFileEmittedOnceAcrossListings() throws Exception {
+		Session<LsEntry> session = mock(Session.class);
+		final ChannelSftp channel = new ChannelSftp();
+		final SftpATTRS attrs = mock(SftpATTRS.class);
+		when(attrs.getMTime()).thenReturn(1000);
+		when(attrs.getSize()).thenReturn(3L);
+		final Constructor<LsEntry> ctor = (Constructor<LsEntry>) LsEntry.class.getDeclaredConstructors()[0];
+		ctor.setAccessible(true);
+		// each listing returns new LsEntry instances, which do not override equals()
+		when(session.list("dir")).thenAnswer(new Answer<LsEntry[]>() {
+
+			@Override
+			public LsEntry[] answer(InvocationOnMock invocation) throws Throwable {
+				return new LsEntry[] { ctor.newInstance(channel, "foo", "foo", attrs) };
+			}
+
+		});
+		when(session.readRaw("dir/foo")).thenReturn(new ByteArrayInputStream("foo".getBytes()));
+		SessionFactory<LsEntry> sessionFactory = mock(SessionFactory.class);
+		when(sessionFactory.getSession()).thenReturn(session);
+		SftpStreamingMessageSource source = new SftpStreamingMessageSource(
+				new RemoteFileTemplate<LsEntry>(sessionFactory));
+		source.setRemoteDirectory("dir");
+		source.afterPropertiesSet();
+		source.start();
+		Message<InputStream> received = source.receive();
+		assertEquals("foo", received.getHeaders().get(FileHeaders.REMOTE_FILE));
+		received.getPayload().close();
+		assertNull(source.receive());
+		verify(session, times(2)).list("dir");
+		verify(session).readRaw("dir/foo");
+	}
+
+}
@@ -32,6 +32,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
@@ -46,6 +47,7 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.remote.RemoteDirectoryListingCache;
 import org.springframework.integration.file.remote.SessionCallback;
 import org.springframework.integration.file.remote.session.Session;
 import org.springframework.integration.sftp.TestSftpServer;
@@ -101,6 +103,12 @@ public class SftpServerOutboundTests {
 	@Autowired
 	private DirectChannel inboundMGetRecursiveFiltered;
 
+	@Autowired
+	private DirectChannel inboundLsRecursiveCached;
+
+	@Autowired
+	private RemoteDirectoryListingCache<LsEntry> listingCache;
+
 	@Autowired
 	private DirectChannel inboundMPut;
 
@@ -235,6 +243,26 @@ public class SftpServerOutboundTests {
 
 	}
 
+	@Test
+	public void testLsRecursiveCached() {
+		String dir = "sftpSource/";
+		this.inboundLsRecursiveCached.send(new GenericMessage<Object>(dir));
+		Message<?> result = this.output.receive(1000);
+		assertNotNull(result);
+		assertEquals(Arrays.asList("sftpSource1.txt", "sftpSource2.txt", "subSftpSource/subSftpSource1.txt"),
+				result.getPayload());
+		long hits = this.listingCache.getHits();
+
+		// the cached entries must not have been renamed by the first listing; LsEntry
+		// cannot be copied, so only the root listing is cached
+		this.inboundLsRecursiveCached.send(new GenericMessage<Object>(dir));
+		result = this.output.receive(1000);
+		assertNotNull(result);
+		assertEquals(Arrays.asList("sftpSource1.txt", "sftpSource2.txt", "subSftpSource/subSftpSource1.txt"),
+				result.getPayload());
+		assertEquals(hits + 1, this.listingCache.getHits());
+	}
+
 	/**
 	 * Only runs with a real server (see class javadocs).
 	 */